@@ -0,0 +1,45 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import util.BookDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codecs and test data shared by the serialization benchmarks
+ * */
+final class BookCodecs {
+
+    static final ObjectMapper DATABIND = new ObjectMapper();
+    static final ObjectMapper AFTERBURNER = new ObjectMapper().registerModule(new AfterburnerModule());
+    static final ObjectMapper BLACKBIRD = new ObjectMapper().registerModule(new BlackbirdModule());
+
+    private BookCodecs() {
+
+    }
+
+    static ObjectReader listReader(ObjectMapper mapper) {
+        return mapper.readerForListOf(BookDTO.class);
+    }
+
+    static ObjectWriter listWriter(ObjectMapper mapper) {
+        return mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, BookDTO.class));
+    }
+
+    /**
+     * @return List - books shaped like the ones seeded in the api, the first one is isbn 8781234567891
+     * */
+    static List<BookDTO> books(int count) {
+        List<BookDTO> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new BookDTO(8781234567891L + i, "Chesapeake Blue " + i, "Nora Roberts",
+                    "Literature & Fiction", 25.95 + i % 100));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of the GET /books response for the seeded catalog (108 books)
+ * and for larger catalogs. Groovy JsonPath is only measured for deserialization, since the tests never use it
+ * to write bodies.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookListBenchmark {
+
+    @Param({"108", "10000", "1000000"})
+    public int books;
+
+    private List<BookDTO> catalog;
+    private byte[] json;
+    private String jsonString;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = BookCodecs.books(books);
+        json = BookCodecs.listWriter(BookCodecs.DATABIND).writeValueAsBytes(catalog);
+        jsonString = new String(json, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializeDatabind() throws IOException {
+        return BookCodecs.listWriter(BookCodecs.DATABIND).writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] serializeAfterburner() throws IOException {
+        return BookCodecs.listWriter(BookCodecs.AFTERBURNER).writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] serializeBlackbird() throws IOException {
+        return BookCodecs.listWriter(BookCodecs.BLACKBIRD).writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        BookJsonCodec.writeList(out, catalog);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeDatabind() throws IOException {
+        return BookCodecs.listReader(BookCodecs.DATABIND).readValue(json);
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeAfterburner() throws IOException {
+        return BookCodecs.listReader(BookCodecs.AFTERBURNER).readValue(json);
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeBlackbird() throws IOException {
+        return BookCodecs.listReader(BookCodecs.BLACKBIRD).readValue(json);
+    }
+
+    @Benchmark
+    public List<BookDTO> deserializeStreaming() throws IOException {
+        return BookJsonCodec.readList(new ByteArrayInputStream(json));
+    }
+
+    /**
+     * The path used by shouldReturnAllBooksInDB: jsonPath().getList("", BookDTO.class)
+     * */
+    @Benchmark
+    public List<BookDTO> deserializeJsonPath() {
+        return new JsonPath(jsonString).getList("", BookDTO.class);
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import io.restassured.path.json.JsonPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of a single book, as done by every POST/PUT and GET /books/{isbn}
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingleBookBenchmark {
+
+    private BookDTO book;
+    private byte[] json;
+    private String jsonString;
+
+    @Setup
+    public void setUp() throws IOException {
+        book = BookCodecs.books(1).get(0);
+        json = BookCodecs.DATABIND.writeValueAsBytes(book);
+        jsonString = new String(json, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] serializeDatabind() throws IOException {
+        return BookCodecs.DATABIND.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeAfterburner() throws IOException {
+        return BookCodecs.AFTERBURNER.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeBlackbird() throws IOException {
+        return BookCodecs.BLACKBIRD.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = BookJsonCodec.FACTORY.createGenerator(out)) {
+            BookJsonCodec.write(generator, book);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public BookDTO deserializeDatabind() throws IOException {
+        return BookCodecs.DATABIND.readValue(json, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO deserializeAfterburner() throws IOException {
+        return BookCodecs.AFTERBURNER.readValue(json, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO deserializeBlackbird() throws IOException {
+        return BookCodecs.BLACKBIRD.readValue(json, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO deserializeStreaming() throws IOException {
+        try (JsonParser parser = BookJsonCodec.FACTORY.createParser(json)) {
+            parser.nextToken();
+            return BookJsonCodec.read(parser);
+        }
+    }
+
+    /**
+     * The path used by the functional tests: jsonPath().getObject("", BookDTO.class)
+     * */
+    @Benchmark
+    public BookDTO deserializeJsonPath() {
+        return new JsonPath(jsonString).getObject("", BookDTO.class);
+    }
+}
@@ -0,0 +1,85 @@
+package client;
+
+import java.time.Duration;
+
+/**
+ * Connection handling shared by the REST Assured client of the functional tests and the java.net.http client
+ * of the load engine. Defaults can be overridden with system properties:
+ * books.http.maxPerRoute, books.http.maxTotal, books.http.keepAliveSeconds, books.http.http2
+ * and books.http.connectTimeoutMillis.
+ * */
+public class ConnectionSettings {
+
+    private int maxConnectionsPerRoute = 100;
+    private int maxConnectionsTotal = 200;
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private boolean http2;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * @return ConnectionSettings - defaults overridden by the books.http.* system properties
+     * */
+    public static ConnectionSettings fromSystemProperties() {
+        ConnectionSettings settings = new ConnectionSettings();
+        settings.maxConnectionsPerRoute = Integer.getInteger("books.http.maxPerRoute",
+                settings.maxConnectionsPerRoute);
+        settings.maxConnectionsTotal = Integer.getInteger("books.http.maxTotal", settings.maxConnectionsTotal);
+        settings.keepAlive = Duration.ofSeconds(Long.getLong("books.http.keepAliveSeconds",
+                settings.keepAlive.getSeconds()));
+        settings.http2 = Boolean.getBoolean("books.http.http2");
+        settings.connectTimeout = Duration.ofMillis(Long.getLong("books.http.connectTimeoutMillis",
+                settings.connectTimeout.toMillis()));
+        return settings;
+    }
+
+    public ConnectionSettings maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute <= 0) {
+            throw new IllegalArgumentException("Max connections per route must be positive");
+        }
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    public ConnectionSettings maxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+        return this;
+    }
+
+    public ConnectionSettings keepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    /**
+     * Use HTTP/2 (h2c upgrade on plain http) in the load client. The REST Assured client only speaks HTTP/1.1.
+     * */
+    public ConnectionSettings http2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    public ConnectionSettings connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+}
@@ -0,0 +1,68 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection reuse counters. When the client exposes connection creation (REST Assured) the number of opened
+ * connections is exact. The java.net.http client does not, there every in-flight HTTP/1.1 request holds its own
+ * connection and idle connections are kept alive, so the peak number of in-flight requests is used as an
+ * upper bound of the opened connections.
+ * */
+public class ConnectionStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+    private volatile boolean connectionsObservable;
+
+    public void requestStarted() {
+        requests.increment();
+        peakInFlight.accumulate(inFlight.incrementAndGet());
+    }
+
+    public void requestCompleted() {
+        inFlight.decrementAndGet();
+    }
+
+    public void connectionOpened() {
+        connectionsObservable = true;
+        connectionsOpened.increment();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return long - connections opened, or the estimate from the peak in-flight requests
+     * */
+    public long getConnectionsOpened() {
+        return connectionsObservable ? connectionsOpened.sum() : peakInFlight.get();
+    }
+
+    public boolean isEstimated() {
+        return !connectionsObservable;
+    }
+
+    public long getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * @return double - share of requests that were sent on an already open connection
+     * */
+    public double getReuseRatio() {
+        long count = getRequests();
+        return count == 0 ? 0 : Math.max(0, 1.0 - getConnectionsOpened() / (double) count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, connections opened=%s%d, reuse=%.2f%%, peak in-flight=%d",
+                getRequests(), isEstimated() ? "<=" : "", getConnectionsOpened(), getReuseRatio() * 100,
+                getPeakInFlight());
+    }
+}
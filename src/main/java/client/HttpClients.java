@@ -0,0 +1,34 @@
+package client;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates the java.net.http clients used by the load generators from the shared {@link ConnectionSettings}
+ * */
+public class HttpClients {
+
+    private HttpClients() {
+
+    }
+
+    /**
+     * The idle pool size and keep-alive timeout of java.net.http are global system properties read when the
+     * first client is created, they are only set here if they were not given on the command line.
+     * */
+    public static HttpClient newLoadClient(ConnectionSettings settings, Executor executor) {
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(settings.getMaxConnectionsTotal()));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(settings.getKeepAlive().getSeconds()));
+        return HttpClient.newBuilder()
+                .executor(executor)
+                .version(settings.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(settings.getConnectTimeout())
+                .build();
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+}
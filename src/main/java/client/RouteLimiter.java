@@ -0,0 +1,86 @@
+package client;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of concurrent requests, and with it the number of HTTP/1.1 connections, per route
+ * (scheme, host and port) for the java.net.http client, which has no pool limit of its own.
+ * Requests over the limit wait in a lock-free queue and are sent as soon as a connection is released.
+ * */
+public class RouteLimiter {
+
+    private final int maxPerRoute;
+    private final ConnectionStats stats;
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    public RouteLimiter(int maxPerRoute, ConnectionStats stats) {
+        this.maxPerRoute = maxPerRoute;
+        this.stats = stats;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> send(HttpClient client, HttpRequest request,
+                                                        HttpResponse.BodyHandler<T> handler) {
+        String key = request.uri().getScheme() + "://" + request.uri().getAuthority();
+        Route route = routes.computeIfAbsent(key, k -> new Route());
+        CompletableFuture<HttpResponse<T>> response = new CompletableFuture<>();
+        route.submit(() -> {
+            stats.requestStarted();
+            client.sendAsync(request, handler).whenComplete((result, error) -> {
+                stats.requestCompleted();
+                route.release();
+                if (error != null) {
+                    response.completeExceptionally(error);
+                } else {
+                    response.complete(result);
+                }
+            });
+        });
+        return response;
+    }
+
+    public ConnectionStats getStats() {
+        return stats;
+    }
+
+    private class Route {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+        private void submit(Runnable send) {
+            waiting.add(send);
+            drain();
+        }
+
+        private void release() {
+            active.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            while (!waiting.isEmpty()) {
+                int current = active.get();
+                if (current >= maxPerRoute) {
+                    return;
+                }
+                if (!active.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable send = waiting.poll();
+                if (send == null) {
+                    active.decrementAndGet();
+                } else {
+                    send.run();
+                }
+            }
+        }
+    }
+}
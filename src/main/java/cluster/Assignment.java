@@ -0,0 +1,118 @@
+package cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Share of a distributed run that the coordinator assigns to one worker: which scenario or rate,
+ * which range of the request paths and when to start.
+ * */
+public class Assignment {
+
+    private final int worker;
+    private final int workers;
+    private final String apiUrl;
+    private final String scenario;
+    private final double rate;
+    private final long durationMillis;
+    private final String pathsFile;
+    private final int pathsFrom;
+    private final int pathsTo;
+    private final long startAtMillis;
+
+    /**
+     * @param worker - index of the worker, from 0
+     * @param workers - number of workers of the run
+     * @param apiUrl - url of the books collection
+     * @param scenario - name of a closed-model scenario of {@link load.Scenarios}, scaled to the worker's share
+     *                   of the users, ignored if the rate is positive
+     * @param rate - arrival rate of the worker for an open-model run, 0 for the scenario
+     * @param durationMillis - duration of an open-model run
+     * @param pathsFile - request paths, empty for book_data.csv on the classpath
+     * @param pathsFrom - first path of the worker
+     * @param pathsTo - end of the paths of the worker, exclusive
+     * @param startAtMillis - wall clock time at which all workers start, milliseconds since the epoch
+     * */
+    public Assignment(int worker, int workers, String apiUrl, String scenario, double rate, long durationMillis,
+                      String pathsFile, int pathsFrom, int pathsTo, long startAtMillis) {
+        this.worker = worker;
+        this.workers = workers;
+        this.apiUrl = apiUrl;
+        this.scenario = scenario;
+        this.rate = rate;
+        this.durationMillis = durationMillis;
+        this.pathsFile = pathsFile;
+        this.pathsFrom = pathsFrom;
+        this.pathsTo = pathsTo;
+        this.startAtMillis = startAtMillis;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(worker);
+        out.writeInt(workers);
+        out.writeUTF(apiUrl);
+        out.writeUTF(scenario);
+        out.writeDouble(rate);
+        out.writeLong(durationMillis);
+        out.writeUTF(pathsFile);
+        out.writeInt(pathsFrom);
+        out.writeInt(pathsTo);
+        out.writeLong(startAtMillis);
+    }
+
+    static Assignment read(DataInputStream in) throws IOException {
+        return new Assignment(in.readInt(), in.readInt(), in.readUTF(), in.readUTF(), in.readDouble(), in.readLong(),
+                in.readUTF(), in.readInt(), in.readInt(), in.readLong());
+    }
+
+    public int getWorker() {
+        return worker;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public boolean isOpenModel() {
+        return rate > 0;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public String getPathsFile() {
+        return pathsFile;
+    }
+
+    public int getPathsFrom() {
+        return pathsFrom;
+    }
+
+    public int getPathsTo() {
+        return pathsTo;
+    }
+
+    public long getStartAtMillis() {
+        return startAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("worker %d/%d: %s, paths %d-%d", worker + 1, workers,
+                isOpenModel() ? String.format("%.1f/s for %dms", rate, durationMillis) : scenario, pathsFrom, pathsTo);
+    }
+}
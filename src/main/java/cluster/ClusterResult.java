@@ -0,0 +1,155 @@
+package cluster;
+
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters and latencies of a distributed run, merged from the interval histograms that the workers send
+ * while the run is going on. Updated by one reader thread per worker.
+ * */
+public class ClusterResult {
+
+    private final String name;
+    private final long[] samples;
+    private final long[] errors;
+    private final long[] durations;
+    private final boolean[] done;
+    private final Map<Endpoint, Histogram> totals = new EnumMap<>(Endpoint.class);
+    private final List<String> failures = new ArrayList<>();
+    private final long startAtMillis;
+    private long reportedSamples;
+
+    public ClusterResult(String name, int workers, long startAtMillis) {
+        this.name = name;
+        this.samples = new long[workers];
+        this.errors = new long[workers];
+        this.durations = new long[workers];
+        this.done = new boolean[workers];
+        this.startAtMillis = startAtMillis;
+        for (Endpoint endpoint : Endpoint.values()) {
+            totals.put(endpoint, LatencyRecorder.newHistogram());
+        }
+    }
+
+    synchronized void update(int worker, long samples, long errors, Map<Endpoint, Histogram> interval) {
+        this.samples[worker] = samples;
+        this.errors[worker] = errors;
+        interval.forEach((endpoint, histogram) -> totals.get(endpoint).add(histogram));
+    }
+
+    synchronized void finish(int worker, long durationMillis) {
+        durations[worker] = durationMillis;
+        done[worker] = true;
+    }
+
+    synchronized void fail(int worker, String message) {
+        if (!done[worker]) {
+            done[worker] = true;
+            failures.add("worker " + (worker + 1) + ": " + message);
+        }
+    }
+
+    /**
+     * @return boolean - whether every worker has finished or failed
+     * */
+    public synchronized boolean isFinished() {
+        for (boolean finished : done) {
+            if (!finished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return String - one line of progress with the throughput since the previous call
+     * */
+    synchronized String progress(long intervalMillis) {
+        long total = getSamples();
+        double throughput = (total - reportedSamples) * 1000.0 / intervalMillis;
+        reportedSamples = total;
+        Histogram merged = getMergedHistogram();
+        int finished = 0;
+        for (boolean finishedWorker : done) {
+            finished += finishedWorker ? 1 : 0;
+        }
+        return String.format("%6.1fs workers=%d/%d samples=%d errors=%d throughput=%.1f/s p99=%.2fms",
+                (System.currentTimeMillis() - startAtMillis) / 1000.0, samples.length - finished, samples.length,
+                total, getErrors(), throughput, merged.getValueAtPercentile(99) / 1000.0);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWorkers() {
+        return samples.length;
+    }
+
+    public synchronized long getSamples() {
+        long total = 0;
+        for (long count : samples) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized long getErrors() {
+        long total = 0;
+        for (long count : errors) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return long - duration of the slowest worker
+     * */
+    public synchronized long getDurationMillis() {
+        long max = 0;
+        for (long duration : durations) {
+            max = Math.max(max, duration);
+        }
+        return max;
+    }
+
+    public double getThroughput() {
+        long duration = getDurationMillis();
+        return duration == 0 ? 0 : getSamples() * 1000.0 / duration;
+    }
+
+    /**
+     * @return Map - copies of the merged histograms per endpoint
+     * */
+    public synchronized Map<Endpoint, Histogram> getTotals() {
+        Map<Endpoint, Histogram> copy = new EnumMap<>(Endpoint.class);
+        totals.forEach((endpoint, histogram) -> copy.put(endpoint, histogram.copy()));
+        return copy;
+    }
+
+    public synchronized Histogram getMergedHistogram() {
+        Histogram merged = LatencyRecorder.newHistogram();
+        totals.values().forEach(merged::add);
+        return merged;
+    }
+
+    public synchronized List<String> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder(String.format(
+                "%s on %d workers: samples=%d, errors=%d, duration=%dms, throughput=%.1f/s%n",
+                name, samples.length, getSamples(), getErrors(), getDurationMillis(), getThroughput()));
+        report.append(LatencyRecorder.report(totals));
+        failures.forEach(failure -> report.append("FAILED ").append(failure).append(System.lineSeparator()));
+        return report.toString();
+    }
+}
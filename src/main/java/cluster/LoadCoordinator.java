@@ -0,0 +1,244 @@
+package cluster;
+
+import load.Scenarios;
+import util.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a load run across worker JVMs, see {@link LoadWorker}.
+ * Every worker gets a contiguous range of the request paths, so the workers hit disjoint ISBNs,
+ * and either its share of the users of a closed-model scenario or rate / workers of an open-model run.
+ * All workers start at the same wall clock time, a few seconds after the last one connected,
+ * and their latencies are merged into one {@link ClusterResult} while the run goes on.
+ * */
+public class LoadCoordinator implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7070;
+
+    private final ServerSocket server;
+    private URI apiUrl = URI.create(Constants.API_URL);
+    private String pathsFile = "";
+    private Duration startDelay = Duration.ofSeconds(2);
+    private Duration acceptTimeout = Duration.ofMinutes(2);
+    private PrintStream progress = System.out;
+
+    /**
+     * @param port - port the workers connect to, 0 for any free port
+     * */
+    public LoadCoordinator(int port) throws IOException {
+        this.server = new ServerSocket(port);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public LoadCoordinator withApiUrl(URI apiUrl) {
+        this.apiUrl = apiUrl;
+        return this;
+    }
+
+    /**
+     * @param pathsFile - book_data.csv style file or requests.bin that every worker can read at the same path
+     * */
+    public LoadCoordinator withPaths(Path pathsFile) {
+        this.pathsFile = pathsFile.toAbsolutePath().toString();
+        return this;
+    }
+
+    /**
+     * @param startDelay - time between sending the assignments and the common start, covers the clock skew
+     *                     between the hosts and the setup of the workers
+     * */
+    public LoadCoordinator withStartDelay(Duration startDelay) {
+        this.startDelay = startDelay;
+        return this;
+    }
+
+    public LoadCoordinator withAcceptTimeout(Duration acceptTimeout) {
+        this.acceptTimeout = acceptTimeout;
+        return this;
+    }
+
+    /**
+     * @param progress - receives one line of merged progress every second, null for none
+     * */
+    public LoadCoordinator withProgress(PrintStream progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Runs a closed-model scenario of {@link load.Scenarios}, each worker with its share of the users
+     * */
+    public ClusterResult runScenario(int workers, String scenario) throws IOException, InterruptedException {
+        return run(workers, Scenarios.byName(scenario).getName(), 0, 0);
+    }
+
+    /**
+     * Runs an open-model load of GET requests, each worker at rate / workers
+     * */
+    public ClusterResult runRate(int workers, double ratePerSecond, Duration duration)
+            throws IOException, InterruptedException {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        return run(workers, "rate " + ratePerSecond + "/s", ratePerSecond / workers, duration.toMillis());
+    }
+
+    private ClusterResult run(int workers, String name, double rate, long durationMillis)
+            throws IOException, InterruptedException {
+        int paths = LoadWorker.paths(pathsFile, apiUrl).size();
+        if (workers < 1 || workers > paths) {
+            throw new IllegalArgumentException("Invalid number of workers " + workers + " for " + paths + " paths");
+        }
+        List<Socket> sockets = accept(workers);
+        long startAt = System.currentTimeMillis() + startDelay.toMillis();
+        ClusterResult result = new ClusterResult(name, workers, startAt);
+        List<Thread> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                Socket socket = sockets.get(i);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                Assignment assignment = new Assignment(i, workers, apiUrl.toString(), rate > 0 ? "" : name, rate,
+                        durationMillis, pathsFile, (int) ((long) paths * i / workers),
+                        (int) ((long) paths * (i + 1) / workers), startAt);
+                out.writeByte(Messages.ASSIGN);
+                assignment.write(out);
+                out.flush();
+                log(assignment.toString());
+                int worker = i;
+                Thread reader = new Thread(() -> read(worker, socket, result), "load-coordinator-" + worker);
+                reader.setDaemon(true);
+                reader.start();
+                readers.add(reader);
+            }
+            long sleep = startAt - System.currentTimeMillis();
+            if (sleep > 0) {
+                Thread.sleep(sleep);
+            }
+            long last = System.currentTimeMillis();
+            while (!result.isFinished()) {
+                Thread.sleep(1_000);
+                long now = System.currentTimeMillis();
+                log(result.progress(now - last));
+                last = now;
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        return result;
+    }
+
+    private List<Socket> accept(int workers) throws IOException {
+        List<Socket> sockets = new ArrayList<>();
+        server.setSoTimeout((int) acceptTimeout.toMillis());
+        try {
+            while (sockets.size() < workers) {
+                sockets.add(server.accept());
+                log("worker " + sockets.size() + "/" + workers + " connected");
+            }
+        } catch (IOException e) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            throw e;
+        }
+        return sockets;
+    }
+
+    private void read(int worker, Socket socket, ClusterResult result) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                byte type = in.readByte();
+                if (type == Messages.FAILED) {
+                    result.fail(worker, in.readUTF());
+                    return;
+                }
+                long duration = type == Messages.DONE ? in.readLong() : 0;
+                result.update(worker, in.readLong(), in.readLong(), Messages.readHistograms(in));
+                if (type == Messages.DONE) {
+                    result.finish(worker, duration);
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            result.fail(worker, "disconnected");
+        } catch (IOException e) {
+            result.fail(worker, String.valueOf(e));
+        }
+    }
+
+    private void log(String line) {
+        if (progress != null) {
+            progress.println(line);
+        }
+    }
+
+    /**
+     * Starts worker JVMs on this host with the classpath of the current JVM
+     * */
+    public static List<Process> startLocalWorkers(int workers, int port) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    LoadWorker.class.getName(), "localhost", String.valueOf(port)).inheritIO().start());
+        }
+        return processes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Usage: LoadCoordinator [workers] [step|stress|spike|endurance|mixed or rate/s:seconds] [port]
+     * [local, to start the workers on this host] [path to book_data.csv or requests.bin]
+     * */
+    public static void main(String[] args) throws Exception {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        String load = args.length > 1 ? args[1] : "step";
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        boolean local = args.length > 3 && args[3].equals("local");
+        try (LoadCoordinator coordinator = new LoadCoordinator(port)) {
+            if (args.length > 4) {
+                coordinator.withPaths(Path.of(args[4]));
+            }
+            List<Process> processes = local ? startLocalWorkers(workers, coordinator.getPort()) : List.of();
+            try {
+                ClusterResult result;
+                if (load.contains(":")) {
+                    String[] rate = load.split(":");
+                    result = coordinator.runRate(workers, Double.parseDouble(rate[0]),
+                            Duration.ofSeconds(Long.parseLong(rate[1])));
+                } else {
+                    result = coordinator.runScenario(workers, load);
+                }
+                System.out.println(result);
+            } finally {
+                processes.forEach(Process::destroy);
+            }
+        }
+    }
+}
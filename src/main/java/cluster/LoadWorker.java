@@ -0,0 +1,180 @@
+package cluster;
+
+import client.ConnectionSettings;
+import load.ArrivalRateScheduler;
+import load.BookPaths;
+import load.LoadEngine;
+import load.LoadResult;
+import load.OpenModelResult;
+import load.Scenario;
+import load.Scenarios;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Worker JVM of a distributed run: connects to the {@link LoadCoordinator}, waits for its {@link Assignment},
+ * starts at the common start time and runs its share of the load on a {@link LoadEngine} or an
+ * {@link ArrivalRateScheduler}. Every second it sends its counters and the latency histograms of the
+ * last second to the coordinator.
+ * */
+public class LoadWorker {
+
+    private static final long REPORT_INTERVAL_MILLIS = 1_000;
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private LoadWorker() {
+
+    }
+
+    /**
+     * Runs one assignment of the coordinator, blocking the calling thread.
+     * Connection attempts are repeated for 30 seconds, so workers may start before the coordinator.
+     * */
+    public static void run(String host, int port) throws IOException, InterruptedException {
+        try (Socket socket = connect(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            if (in.readByte() != Messages.ASSIGN) {
+                throw new IOException("Expected an assignment from " + host + ":" + port);
+            }
+            Assignment assignment = Assignment.read(in);
+            try {
+                work(assignment, out);
+            } catch (IOException | RuntimeException e) {
+                synchronized (out) {
+                    out.writeByte(Messages.FAILED);
+                    out.writeUTF(String.valueOf(e));
+                    out.flush();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    private static void work(Assignment assignment, DataOutputStream out) throws IOException, InterruptedException {
+        URI apiUrl = URI.create(assignment.getApiUrl());
+        BookPaths paths = paths(assignment.getPathsFile(), apiUrl).range(assignment.getPathsFrom(), assignment.getPathsTo());
+        AtomicReference<LoadResult> running = new AtomicReference<>();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-worker-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long delay = assignment.getStartAtMillis() - System.currentTimeMillis();
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        reporter.scheduleAtFixedRate(() -> report(running.get(), out), REPORT_INTERVAL_MILLIS,
+                REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        LoadResult result;
+        try {
+            result = assignment.isOpenModel()
+                    ? runRate(assignment, apiUrl, paths, running)
+                    : runScenario(assignment, apiUrl, paths, running);
+        } finally {
+            reporter.shutdownNow();
+            reporter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        synchronized (out) {
+            out.writeByte(Messages.DONE);
+            out.writeLong(result.getDurationMillis());
+            Messages.writeStats(out, result.getSamples(), result.getErrors(), result.getLatencies().sampleInterval());
+        }
+    }
+
+    private static LoadResult runScenario(Assignment assignment, URI apiUrl, BookPaths paths,
+                                          AtomicReference<LoadResult> running)
+            throws IOException, InterruptedException {
+        Scenario scenario = Scenarios.byName(assignment.getScenario());
+        Scenario share = new Scenario(scenario.getName(), new ScaledProfile(scenario.getProfile(),
+                assignment.getWorker(), assignment.getWorkers()), scenario.getMix());
+        LoadResult result = new LoadResult(share.getName());
+        running.set(result);
+        try (LoadEngine engine = new LoadEngine(apiUrl, paths, Duration.ofSeconds(30),
+                ConnectionSettings.fromSystemProperties())) {
+            return engine.run(share, result);
+        }
+    }
+
+    private static LoadResult runRate(Assignment assignment, URI apiUrl, BookPaths paths,
+                                      AtomicReference<LoadResult> running) throws InterruptedException {
+        URI origin = apiUrl.resolve("/");
+        try (ArrivalRateScheduler scheduler = new ArrivalRateScheduler(10_000)) {
+            OpenModelResult result = scheduler.run("worker " + assignment.getWorker(), assignment.getRate(),
+                    Duration.ofMillis(assignment.getDurationMillis()),
+                    sequence -> HttpRequest.newBuilder(origin.resolve(paths.next())).GET().build(),
+                    progress -> {
+                        running.compareAndSet(null, progress.getResponseTime());
+                        return true;
+                    });
+            return result.getResponseTime();
+        }
+    }
+
+    private static void report(LoadResult result, DataOutputStream out) {
+        if (result == null) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                out.writeByte(Messages.STATS);
+                Messages.writeStats(out, result.getSamples(), result.getErrors(),
+                        result.getLatencies().sampleInterval());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param pathsFile - book_data.csv style file or requests.bin, empty for book_data.csv on the classpath
+     * */
+    static BookPaths paths(String pathsFile, URI apiUrl) throws IOException {
+        if (pathsFile.isEmpty()) {
+            return BookPaths.fromClasspath();
+        }
+        Path file = Path.of(pathsFile);
+        if (file.getFileName().toString().endsWith(".bin")) {
+            return BookPaths.fromRequestFile(file, apiUrl.getPath());
+        }
+        return BookPaths.fromFile(file);
+    }
+
+    /**
+     * Usage: LoadWorker [coordinator host] [coordinator port]
+     * */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : LoadCoordinator.DEFAULT_PORT;
+        run(host, port);
+    }
+}
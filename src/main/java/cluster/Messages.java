@@ -0,0 +1,76 @@
+package cluster;
+
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Messages between the coordinator and its workers, over one TCP connection per worker:
+ * <pre>
+ * coordinator to worker: ASSIGN assignment
+ * worker to coordinator: STATS samples errors histograms, repeated every second
+ *                        DONE durationMillis samples errors histograms, once at the end
+ *                        FAILED message
+ * </pre>
+ * Samples and errors are the worker's totals so far, the histograms hold the latencies of the interval since
+ * the previous message, per endpoint, compressed.
+ * */
+final class Messages {
+
+    static final byte ASSIGN = 1;
+    static final byte STATS = 2;
+    static final byte DONE = 3;
+    static final byte FAILED = 4;
+
+    private Messages() {
+
+    }
+
+    static void writeStats(DataOutputStream out, long samples, long errors, Map<Endpoint, Histogram> interval)
+            throws IOException {
+        out.writeLong(samples);
+        out.writeLong(errors);
+        int recorded = (int) interval.values().stream().filter(histogram -> histogram.getTotalCount() > 0).count();
+        out.writeInt(recorded);
+        for (Map.Entry<Endpoint, Histogram> entry : interval.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            out.writeByte(entry.getKey().ordinal());
+            out.writeInt(length);
+            out.write(buffer.array(), 0, length);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the histograms of a STATS or DONE message after its counters
+     * */
+    static Map<Endpoint, Histogram> readHistograms(DataInputStream in) throws IOException {
+        Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Endpoint endpoint = Endpoint.values()[in.readUnsignedByte()];
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try {
+                histograms.put(endpoint, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes),
+                        LatencyRecorder.HIGHEST_TRACKABLE_MICROS));
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid histogram of " + endpoint, e);
+            }
+        }
+        return histograms;
+    }
+}
@@ -0,0 +1,34 @@
+package cluster;
+
+import load.LoadProfile;
+
+/**
+ * One worker's share of the users of a profile. The shares of all workers add up to the users
+ * of the profile at every moment, worker i runs users * (i + 1) / n - users * i / n of them.
+ * */
+public class ScaledProfile implements LoadProfile {
+
+    private final LoadProfile profile;
+    private final int worker;
+    private final int workers;
+
+    public ScaledProfile(LoadProfile profile, int worker, int workers) {
+        if (worker < 0 || worker >= workers) {
+            throw new IllegalArgumentException("Invalid worker " + worker + " of " + workers);
+        }
+        this.profile = profile;
+        this.worker = worker;
+        this.workers = workers;
+    }
+
+    @Override
+    public int targetUsers(long elapsedMillis) {
+        long users = profile.targetUsers(elapsedMillis);
+        return (int) (users * (worker + 1) / workers - users * worker / workers);
+    }
+
+    @Override
+    public long durationMillis() {
+        return profile.durationMillis();
+    }
+}
@@ -0,0 +1,157 @@
+package consistency;
+
+import com.fasterxml.jackson.core.JsonParser;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.IOException;
+
+/**
+ * Sequential specification of one isbn of the books api: the book is absent or holds a value.
+ * <ul>
+ *     <li>create: absent - 201 and the value is stored, present - 403</li>
+ *     <li>update: present - 200 and the value is replaced, absent - 404</li>
+ *     <li>delete: present - 200 and the book becomes absent, absent - 404</li>
+ *     <li>read: present - 200 with the stored value, absent - 404</li>
+ * </ul>
+ * Values are 64 bit fingerprints of the book fields, so states compare in constant time.
+ * A register whose state before the run is not known starts {@link #UNKNOWN}, the first response tells
+ * whether the book is present and the first read its value.
+ * */
+public class BookRegister {
+
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    /**
+     * Returned by {@link #step} when the response of the operation is impossible in the state
+     * */
+    public static final long INVALID = Long.MIN_VALUE + 1;
+
+    /**
+     * Absent or present with any value, e.g. a book of a catalog seeded before the run
+     * */
+    public static final long UNKNOWN = Long.MIN_VALUE + 2;
+
+    /**
+     * Present with a value that was not read yet
+     * */
+    public static final long PRESENT = Long.MIN_VALUE + 3;
+
+    private BookRegister() {
+
+    }
+
+    /**
+     * @param state - value before the operation, or {@link #ABSENT}, {@link #UNKNOWN} or {@link #PRESENT}
+     * @param operation - completed operation with its observed response
+     * @return long - value after the operation, {@link #INVALID} if the response contradicts the state
+     * */
+    public static long step(long state, Operation operation) {
+        if (state == UNKNOWN) {
+            return stepUnknown(operation);
+        }
+        boolean present = state != ABSENT;
+        int status = operation.getStatus();
+        switch (operation.getType()) {
+            case CREATE:
+                if (present) {
+                    return status == 403 ? state : INVALID;
+                }
+                return status == 201 ? operation.getValue() : INVALID;
+            case UPDATE:
+                if (present) {
+                    return status == 200 ? operation.getValue() : INVALID;
+                }
+                return status == 404 ? state : INVALID;
+            case DELETE:
+                if (present) {
+                    return status == 200 ? ABSENT : INVALID;
+                }
+                return status == 404 ? state : INVALID;
+            default:
+                if (present) {
+                    return status == 200 && (state == PRESENT || operation.getReadValue() == state)
+                            ? operation.getReadValue()
+                            : INVALID;
+                }
+                return status == 404 ? state : INVALID;
+        }
+    }
+
+    /**
+     * Any specified response is possible, it decides whether the book was present
+     * */
+    private static long stepUnknown(Operation operation) {
+        int status = operation.getStatus();
+        switch (operation.getType()) {
+            case CREATE:
+                return status == 201 ? operation.getValue() : PRESENT;
+            case UPDATE:
+                return status == 200 ? operation.getValue() : ABSENT;
+            case DELETE:
+                return ABSENT;
+            default:
+                return status == 200 ? operation.getReadValue() : ABSENT;
+        }
+    }
+
+    /**
+     * @return boolean - true if the status is one of the responses of the specification, other statuses
+     * such as 500 leave the effect of the operation unknown
+     * */
+    public static boolean isSpecified(Operation.Type type, int status) {
+        switch (type) {
+            case CREATE:
+                return status == 201 || status == 403;
+            default:
+                return status == 200 || status == 404;
+        }
+    }
+
+    /**
+     * @return long - 64 bit FNV-1a hash of the title, author, genre and price, the isbn is the key and not part of it
+     */
+    public static long fingerprint(BookDTO book) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, book.getTitle());
+        hash = hash(hash, book.getAuthor());
+        hash = hash(hash, book.getGenre());
+        hash = (hash ^ Double.doubleToLongBits(book.getPrice())) * 0x100000001b3L;
+        //keep the sentinels free
+        return hash >= ABSENT && hash <= PRESENT ? hash + 4 : hash;
+    }
+
+    /**
+     * @param json - body of a read with status 200
+     * @return long - fingerprint of the book in the body
+     * */
+    public static long fingerprint(byte[] json) throws IOException {
+        try (JsonParser parser = BookJsonCodec.FACTORY.createParser(json)) {
+            parser.nextToken();
+            return fingerprint(BookJsonCodec.read(parser));
+        }
+    }
+
+    /**
+     * @return String - the state as shown in violation reports
+     * */
+    static String describe(long state) {
+        if (state == ABSENT) {
+            return "absent";
+        }
+        if (state == UNKNOWN) {
+            return "unknown";
+        }
+        return state == PRESENT ? "present" : Long.toHexString(state);
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return (hash ^ 0xff) * 0x100000001b3L;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xfe) * 0x100000001b3L;
+    }
+}
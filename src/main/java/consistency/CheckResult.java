@@ -0,0 +1,164 @@
+package consistency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of the online linearizability check, updated concurrently by the checker threads
+ * */
+public class CheckResult {
+
+    private static final int MAX_VIOLATIONS = 5;
+    private static final int MAX_OPERATIONS_SHOWN = 30;
+    private static final int MAX_ISBNS_SHOWN = 5;
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder checkedOperations = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+    private final LongAdder violations = new LongAdder();
+    private final LongAdder uncertainKeys = new LongAdder();
+    private final LongAdder uncheckedKeys = new LongAdder();
+    private final LongAdder uncheckedOperations = new LongAdder();
+    private final Queue<Long> uncertainIsbns = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> uncheckedIsbns = new ConcurrentLinkedQueue<>();
+    private final Queue<String> violationDetails = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger detailCount = new AtomicInteger();
+
+    void recordOperation() {
+        operations.increment();
+    }
+
+    void recordChecked(int segmentSize) {
+        segments.increment();
+        checkedOperations.add(segmentSize);
+    }
+
+    void recordUncertain(long isbn) {
+        uncertainKeys.increment();
+        sample(uncertainIsbns, isbn);
+    }
+
+    /**
+     * @param segmentSize - operations of the isbn that were not checked, the rest of its history is not checked either
+     * */
+    void recordUnchecked(long isbn, int segmentSize) {
+        uncheckedKeys.increment();
+        uncheckedOperations.add(segmentSize);
+        sample(uncheckedIsbns, isbn);
+    }
+
+    private static void sample(Queue<Long> isbns, long isbn) {
+        synchronized (isbns) {
+            if (isbns.size() < MAX_ISBNS_SHOWN) {
+                isbns.add(isbn);
+            }
+        }
+    }
+
+    void recordViolation(long isbn, Set<Long> statesBefore, List<Operation> segment) {
+        violations.increment();
+        if (detailCount.getAndIncrement() >= MAX_VIOLATIONS) {
+            return;
+        }
+        List<String> shown = new ArrayList<>();
+        for (int i = 0; i < segment.size() && i < MAX_OPERATIONS_SHOWN; i++) {
+            shown.add("  " + segment.get(i));
+        }
+        String states = statesBefore.stream()
+                .map(BookRegister::describe)
+                .collect(Collectors.joining(", ", "{", "}"));
+        violationDetails.add("isbn " + isbn + " starting from " + states + " has no linearization of\n"
+                + String.join("\n", shown) + (segment.size() > shown.size() ? "\n  ..." : ""));
+    }
+
+    /**
+     * @return long - operations received by the checker
+     * */
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    /**
+     * @return long - operations in segments that were found linearizable
+     * */
+    public long getCheckedOperations() {
+        return checkedOperations.sum();
+    }
+
+    public long getSegments() {
+        return segments.sum();
+    }
+
+    /**
+     * @return long - isbns whose history has no linearization, each is reported once
+     * */
+    public long getViolations() {
+        return violations.sum();
+    }
+
+    /**
+     * @return long - isbns no longer checked after an operation without response or with an unspecified status
+     * */
+    public long getUncertainKeys() {
+        return uncertainKeys.sum();
+    }
+
+    /**
+     * @return long - isbns with a segment too concurrent to be searched within the budget
+     * */
+    public long getUncheckedKeys() {
+        return uncheckedKeys.sum();
+    }
+
+    /**
+     * @return long - operations of the segments that were too concurrent to be searched
+     * */
+    public long getUncheckedOperations() {
+        return uncheckedOperations.sum();
+    }
+
+    /**
+     * @return List - the first few uncertain isbns, to look up their operations
+     * */
+    public List<Long> getUncertainIsbns() {
+        return new ArrayList<>(uncertainIsbns);
+    }
+
+    /**
+     * @return List - the first few unchecked isbns, to look up their operations
+     * */
+    public List<Long> getUncheckedIsbns() {
+        return new ArrayList<>(uncheckedIsbns);
+    }
+
+    public List<String> getViolationDetails() {
+        return new ArrayList<>(violationDetails);
+    }
+
+    /**
+     * @return boolean - true if no violation was found and at least one operation was checked,
+     * a history of which nothing could be checked, e.g. since every isbn became uncertain, does not pass
+     * */
+    public boolean isLinearizable() {
+        return getViolations() == 0 && getCheckedOperations() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("operations: %d, checked: %d in %d segments, violations: %d, uncertain isbns: %d%s, "
+                        + "unchecked isbns: %d with %d operations%s%s", getOperations(), getCheckedOperations(),
+                getSegments(), getViolations(), getUncertainKeys(), examples(uncertainIsbns), getUncheckedKeys(),
+                getUncheckedOperations(), examples(uncheckedIsbns),
+                violationDetails.isEmpty() ? "" : "\n" + String.join("\n", violationDetails));
+    }
+
+    private static String examples(Queue<Long> isbns) {
+        return isbns.isEmpty() ? "" : " e.g. " + isbns;
+    }
+}
@@ -0,0 +1,208 @@
+package consistency;
+
+import client.ConnectionSettings;
+import client.HttpClients;
+import data.CatalogGenerator;
+import data.CatalogSeeder;
+import util.BasicAuth;
+import util.BookDTO;
+import util.BookJsonCodec;
+import util.Constants;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed workload of creates, updates, deletes and reads on a small set of hot isbns, every request is recorded
+ * by an {@link OnlineChecker}. Each virtual user sends its next request as soon as the previous one completed,
+ * writes carry a unique revision so every read can be traced back to the write it observed.
+ * The isbns are deleted before the run, so all of them start absent, and deleted again afterwards.
+ * <br>
+ * Fewer hot isbns make overlapping operations on the same book more likely, but the history of an isbn
+ * can only be checked at moments when none of its requests is in flight, so there should be
+ * clearly more isbns than users.
+ * */
+public class ConsistencyWorkload implements AutoCloseable {
+
+    private static final String AUTHOR = "Consistency Check";
+    private static final String GENRE = "Mystery & Thriller";
+
+    private final URI collection;
+    private final ConnectionSettings settings;
+    private final String authorization = BasicAuth.header();
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final long[] isbns;
+    private final int users;
+    private final AtomicLong revisions = new AtomicLong();
+
+    /**
+     * @param apiUrl - url of the books collection
+     * @param settings - connection pooling of the http client
+     * @param isbns - number of hot isbns, taken from a generated catalog
+     * @param users - number of virtual users with one request in flight each
+     * */
+    public ConsistencyWorkload(URI apiUrl, ConnectionSettings settings, int isbns, int users) {
+        if (isbns < 1 || users < 1) {
+            throw new IllegalArgumentException("The workload needs at least one isbn and one user");
+        }
+        this.collection = apiUrl;
+        this.settings = settings;
+        this.users = users;
+        CatalogGenerator generator = new CatalogGenerator(isbns, 31);
+        this.isbns = new long[isbns];
+        for (int i = 0; i < isbns; i++) {
+            this.isbns[i] = generator.isbn(i);
+        }
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "consistency-workload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClients.newLoadClient(settings, executor);
+    }
+
+    /**
+     * @param duration - time during which the users start new requests
+     * @return CheckResult - outcome of the check of the whole history
+     * */
+    public CheckResult run(Duration duration) throws InterruptedException {
+        teardown();
+        CheckResult result;
+        try (OnlineChecker checker = new OnlineChecker()) {
+            long deadline = System.nanoTime() + duration.toNanos();
+            CountDownLatch finished = new CountDownLatch(users);
+            for (int i = 0; i < users; i++) {
+                next(checker, deadline, finished);
+            }
+            finished.await();
+            result = checker.getResult();
+        }
+        teardown();
+        return result;
+    }
+
+    private void teardown() throws InterruptedException {
+        List<Long> keys = new ArrayList<>(isbns.length);
+        for (long isbn : isbns) {
+            keys.add(isbn);
+        }
+        try (CatalogSeeder seeder = new CatalogSeeder(collection, settings, users)) {
+            seeder.teardown(keys.iterator());
+        }
+    }
+
+    private void next(OnlineChecker checker, long deadline, CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long isbn = isbns[random.nextInt(isbns.length)];
+        int draw = random.nextInt(10);
+        CompletableFuture<Void> sent;
+        if (draw < 5) {
+            sent = read(checker, isbn);
+        } else if (draw < 8) {
+            sent = write(checker, Operation.Type.UPDATE, isbn);
+        } else if (draw < 9) {
+            sent = write(checker, Operation.Type.CREATE, isbn);
+        } else {
+            sent = delete(checker, isbn);
+        }
+        sent.whenComplete((ignored, error) -> next(checker, deadline, finished));
+    }
+
+    private CompletableFuture<Void> read(OnlineChecker checker, long isbn) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(collection + "/" + isbn))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        Operation operation = checker.invoke(Operation.Type.READ, isbn, BookRegister.ABSENT);
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        checker.fail(operation);
+                    } else if (response.statusCode() != 200) {
+                        checker.complete(operation, response.statusCode(), BookRegister.ABSENT);
+                    } else {
+                        try {
+                            checker.complete(operation, 200, BookRegister.fingerprint(response.body()));
+                        } catch (IOException e) {
+                            checker.fail(operation);
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> write(OnlineChecker checker, Operation.Type type, long isbn) {
+        BookDTO book = new BookDTO(isbn, "Revision " + revisions.incrementAndGet(), AUTHOR, GENRE, 9.99);
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.ofByteArray(BookJsonCodec.toBytes(book));
+        HttpRequest.Builder builder = type == Operation.Type.CREATE
+                ? HttpRequest.newBuilder(collection).POST(body)
+                : HttpRequest.newBuilder(URI.create(collection + "/" + isbn)).PUT(body);
+        HttpRequest request = builder
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .build();
+        return send(checker, checker.invoke(type, isbn, BookRegister.fingerprint(book)), request);
+    }
+
+    private CompletableFuture<Void> delete(OnlineChecker checker, long isbn) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(collection + "/" + isbn))
+                .header("Authorization", authorization)
+                .DELETE()
+                .build();
+        return send(checker, checker.invoke(Operation.Type.DELETE, isbn, BookRegister.ABSENT), request);
+    }
+
+    private CompletableFuture<Void> send(OnlineChecker checker, Operation operation, HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        checker.fail(operation);
+                    } else {
+                        checker.complete(operation, response.statusCode(), BookRegister.ABSENT);
+                    }
+                    return null;
+                });
+    }
+
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the workload against {@link Constants#API_URL} and fails if a violation was found
+     * <br>
+     * usage: ConsistencyWorkload [isbns] [users] [seconds]
+     * */
+    public static void main(String[] args) throws Exception {
+        int isbns = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        try (ConsistencyWorkload workload = new ConsistencyWorkload(URI.create(Constants.API_URL),
+                ConnectionSettings.fromSystemProperties(), isbns, users)) {
+            CheckResult result = workload.run(Duration.ofSeconds(seconds));
+            System.out.println(result);
+            if (!result.isLinearizable()) {
+                System.exit(1);
+            }
+        }
+    }
+}
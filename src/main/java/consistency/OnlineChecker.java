@@ -0,0 +1,302 @@
+package consistency;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the history of a load run and checks it for linearizability while the run is going on.
+ * Every isbn is an independent register, so the history is partitioned by isbn over one checker thread per core.
+ * The operations of an isbn are cut into segments at quiescent points, moments when none of its operations
+ * is in flight. Each segment is checked as soon as it is closed, starting from the values the register could
+ * have after the previous segment, so memory stays bounded by the operations since the last quiescent point.
+ * <br>
+ * The cut is exact: an operation is registered before its invocation time is taken and is queued for checking
+ * before it is unregistered, so an operation that starts after a cut started after every operation before it
+ * completed. An isbn with an operation that got no response or an unspecified status (e.g. 500) is no longer
+ * checked, since its effect is unknown.
+ * */
+public class OnlineChecker implements AutoCloseable {
+
+    private static final long SEARCH_BUDGET = 1_000_000;
+    //an isbn that is never quiescent is given up instead of buffering its history for the whole run
+    private static final int MAX_SEGMENT = 4_096;
+
+    private final Map<Long, KeyState> keys = new ConcurrentHashMap<>();
+    private final Partition[] partitions;
+    private final CheckResult result = new CheckResult();
+    private volatile long initialState = BookRegister.ABSENT;
+
+    public OnlineChecker() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads - number of checker threads, the isbns are partitioned over them
+     * */
+    public OnlineChecker(int threads) {
+        this.partitions = new Partition[threads];
+        for (int i = 0; i < threads; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].start();
+        }
+    }
+
+    /**
+     * Sets the value of every isbn without a value of its own, by default books are absent before the run.
+     * With {@link BookRegister#UNKNOWN} the history can run against a catalog seeded before the run.
+     * @return OnlineChecker - this checker, for chaining
+     * */
+    public OnlineChecker withInitialState(long value) {
+        this.initialState = value;
+        return this;
+    }
+
+    private static class KeyState {
+        private int pending;
+        private long epoch;
+        private long initialState;
+
+        private KeyState(long initialState) {
+            this.initialState = initialState;
+        }
+    }
+
+    private KeyState key(long isbn) {
+        return keys.computeIfAbsent(isbn, k -> new KeyState(initialState));
+    }
+
+    /**
+     * Sets the value of an isbn before the first operation on it, see {@link #withInitialState}
+     * */
+    public void initial(long isbn, long value) {
+        KeyState key = key(isbn);
+        synchronized (key) {
+            key.initialState = value;
+        }
+    }
+
+    /**
+     * Called right before the request is sent
+     * @param value - fingerprint of the book sent by a create or update, see {@link BookRegister#fingerprint}
+     * */
+    public Operation invoke(Operation.Type type, long isbn, long value) {
+        KeyState key = key(isbn);
+        synchronized (key) {
+            key.pending++;
+            return new Operation(type, isbn, value, System.nanoTime(), key.epoch);
+        }
+    }
+
+    /**
+     * Called as soon as the response arrived
+     * @param readValue - fingerprint of the book returned by a read with status 200
+     * */
+    public void complete(Operation operation, int status, long readValue) {
+        operation.complete(System.nanoTime(), status, readValue);
+        finish(operation);
+    }
+
+    /**
+     * Called when the request got no response
+     * */
+    public void fail(Operation operation) {
+        operation.fail();
+        finish(operation);
+    }
+
+    private void finish(Operation operation) {
+        partitions[partition(operation.getIsbn())].queue.add(operation);
+        KeyState key = keys.get(operation.getIsbn());
+        synchronized (key) {
+            key.pending--;
+        }
+    }
+
+    private int partition(long isbn) {
+        return (int) Math.floorMod(isbn ^ (isbn >>> 29), (long) partitions.length);
+    }
+
+    /**
+     * @return CheckResult - counters so far, complete after {@link #close()}
+     * */
+    public CheckResult getResult() {
+        return result;
+    }
+
+    /**
+     * Checks the remaining segments and stops the checker threads, all operations must have completed or failed.
+     * If the calling thread is interrupted while waiting, the checker threads finish on their own and the thread
+     * keeps its interrupt status.
+     * */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.closing = true;
+            partition.interrupt();
+        }
+        try {
+            for (Partition partition : partitions) {
+                partition.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Partition extends Thread {
+
+        private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+        private final Map<Long, History> histories = new HashMap<>();
+        private final Set<Long> dirty = new LinkedHashSet<>();
+        //isbns that had operations in flight at the last cut attempt
+        private final Set<Long> waiting = new LinkedHashSet<>();
+        private volatile boolean closing;
+
+        private Partition(int index) {
+            //the search recurses once per operation of a segment
+            super(null, null, "linearizability-checker-" + index, 16 << 20);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Operation> batch = new ArrayList<>();
+            while (!closing || !queue.isEmpty()) {
+                try {
+                    Operation first = queue.poll(10, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                    }
+                } catch (InterruptedException e) {
+                    if (!closing) {
+                        return;
+                    }
+                }
+                queue.drainTo(batch);
+                batch.forEach(this::add);
+                batch.clear();
+                dirty.addAll(waiting);
+                waiting.clear();
+                cutDirty();
+            }
+            queue.drainTo(batch);
+            batch.forEach(this::add);
+            dirty.addAll(histories.keySet());
+            cutDirty();
+        }
+
+        private void cutDirty() {
+            while (!dirty.isEmpty()) {
+                Iterator<Long> it = dirty.iterator();
+                long isbn = it.next();
+                it.remove();
+                cut(isbn);
+            }
+        }
+
+        private void add(Operation operation) {
+            History history = histories.computeIfAbsent(operation.getIsbn(), isbn -> new History(isbn));
+            result.recordOperation();
+            if (history.stopped) {
+                return;
+            }
+            history.operations.add(operation);
+            if (history.operations.size() > MAX_SEGMENT) {
+                stop(history);
+                result.recordUnchecked(history.isbn, MAX_SEGMENT);
+                return;
+            }
+            dirty.add(operation.getIsbn());
+        }
+
+        /**
+         * Closes the segment of the isbn if none of its operations is in flight
+         * */
+        private void cut(long isbn) {
+            History history = histories.get(isbn);
+            if (history == null || history.stopped || history.operations.isEmpty()) {
+                return;
+            }
+            KeyState key = keys.get(isbn);
+            long closedEpoch;
+            synchronized (key) {
+                if (key.pending > 0) {
+                    waiting.add(isbn);
+                    return;
+                }
+                closedEpoch = key.epoch++;
+            }
+            //operations of the closed epochs were queued before the cut
+            List<Operation> late = new ArrayList<>();
+            queue.drainTo(late);
+            late.forEach(this::add);
+
+            List<Operation> segment = new ArrayList<>();
+            for (Iterator<Operation> it = history.operations.iterator(); it.hasNext(); ) {
+                Operation operation = it.next();
+                if (operation.getEpoch() <= closedEpoch) {
+                    segment.add(operation);
+                    it.remove();
+                }
+            }
+            if (!segment.isEmpty()) {
+                check(history, segment);
+            }
+        }
+
+        private void check(History history, List<Operation> segment) {
+            for (Operation operation : segment) {
+                if (operation.isFailed() || !BookRegister.isSpecified(operation.getType(), operation.getStatus())) {
+                    stop(history);
+                    result.recordUncertain(history.isbn);
+                    return;
+                }
+            }
+            if (history.states == null) {
+                KeyState key = keys.get(history.isbn);
+                synchronized (key) {
+                    history.states = Set.of(key.initialState);
+                }
+            }
+            segment.sort(Comparator.comparingLong(Operation::getInvokeNanos));
+            Set<Long> states = new SegmentChecker(segment, SEARCH_BUDGET).check(history.states);
+            if (states == null) {
+                stop(history);
+                result.recordUnchecked(history.isbn, segment.size());
+            } else if (states.isEmpty()) {
+                stop(history);
+                result.recordViolation(history.isbn, history.states, segment);
+            } else {
+                history.states = states;
+                result.recordChecked(segment.size());
+            }
+        }
+
+        private void stop(History history) {
+            history.stopped = true;
+            history.operations.clear();
+        }
+    }
+
+    private static class History {
+
+        private final long isbn;
+        private final List<Operation> operations = new ArrayList<>();
+        private Set<Long> states;
+        private boolean stopped;
+
+        private History(long isbn) {
+            this.isbn = isbn;
+        }
+    }
+}
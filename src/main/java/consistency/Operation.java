@@ -0,0 +1,95 @@
+package consistency;
+
+/**
+ * One request of a recorded history: what was invoked on which isbn, when, and what came back.
+ * Times are System.nanoTime values, an operation without a response has no completion time
+ * and may or may not have taken effect.
+ * */
+public class Operation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE, READ
+    }
+
+    private final Type type;
+    private final long isbn;
+    private final long value;
+    private final long invokeNanos;
+    private final long epoch;
+    private volatile long completeNanos = Long.MAX_VALUE;
+    private volatile int status;
+    private volatile long readValue = BookRegister.ABSENT;
+    private volatile boolean failed;
+
+    Operation(Type type, long isbn, long value, long invokeNanos, long epoch) {
+        this.type = type;
+        this.isbn = isbn;
+        this.value = value;
+        this.invokeNanos = invokeNanos;
+        this.epoch = epoch;
+    }
+
+    void complete(long completeNanos, int status, long readValue) {
+        this.status = status;
+        this.readValue = readValue;
+        this.completeNanos = completeNanos;
+    }
+
+    void fail() {
+        this.failed = true;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * @return long - fingerprint of the book written by a create or update
+     * */
+    public long getValue() {
+        return value;
+    }
+
+    public long getInvokeNanos() {
+        return invokeNanos;
+    }
+
+    public long getCompleteNanos() {
+        return completeNanos;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return long - fingerprint of the book returned by a read, {@link BookRegister#ABSENT} for a 404
+     * */
+    public long getReadValue() {
+        return readValue;
+    }
+
+    /**
+     * @return boolean - true if no response was received, the effect of the operation is unknown
+     * */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public String toString() {
+        String result = failed ? "no response" : type == Type.READ && status == 200
+                ? "200 " + Long.toHexString(readValue) : String.valueOf(status);
+        String argument = type == Type.CREATE || type == Type.UPDATE ? "(" + Long.toHexString(value) + ")" : "";
+        return type + argument + " -> " + result + " [" + invokeNanos / 1000 + ", "
+                + (completeNanos == Long.MAX_VALUE ? "?" : String.valueOf(completeNanos / 1000)) + "] us";
+    }
+}
@@ -0,0 +1,112 @@
+package consistency;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Linearizability check of the operations on one isbn between two quiescent points, in the style of
+ * Wing and Gong with the memoization of Lowe: a depth first search over the orders in which the operations could
+ * have taken effect, where an operation may go next only if it was invoked before every remaining operation
+ * completed. Visited combinations of linearized operations and register value are not explored twice.
+ * The search collects every value the register can have after the segment, the next segment starts from those.
+ * */
+class SegmentChecker {
+
+    private final List<Operation> operations;
+    private final Set<Visit> visited = new HashSet<>();
+    private final Set<Long> finalStates = new HashSet<>();
+    private final long budget;
+    private long steps;
+
+    /**
+     * @param operations - completed operations sorted by invocation time
+     * @param budget - maximum number of search steps
+     * */
+    SegmentChecker(List<Operation> operations, long budget) {
+        this.operations = operations;
+        this.budget = budget;
+    }
+
+    /**
+     * @param initialStates - values the register can have before the segment
+     * @return Set - values the register can have after the segment, empty if the segment is not linearizable,
+     * null if the search budget was exhausted
+     * */
+    Set<Long> check(Set<Long> initialStates) {
+        for (long state : initialStates) {
+            if (!search(new BitSet(operations.size()), 0, state)) {
+                return null;
+            }
+        }
+        return finalStates;
+    }
+
+    /**
+     * @return boolean - false if the budget was exhausted
+     * */
+    private boolean search(BitSet linearized, int done, long state) {
+        if (done == operations.size()) {
+            finalStates.add(state);
+            return true;
+        }
+        if (!visited.add(new Visit((BitSet) linearized.clone(), state))) {
+            return true;
+        }
+        if (++steps > budget) {
+            return false;
+        }
+        long minComplete = Long.MAX_VALUE;
+        for (int i = linearized.nextClearBit(0); i < operations.size(); i = linearized.nextClearBit(i + 1)) {
+            minComplete = Math.min(minComplete, operations.get(i).getCompleteNanos());
+        }
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = linearized.nextClearBit(0); i < operations.size(); i = linearized.nextClearBit(i + 1)) {
+            if (operations.get(i).getInvokeNanos() > minComplete) {
+                break;
+            }
+            candidates.add(i);
+        }
+        for (int i : candidates) {
+            long next = BookRegister.step(state, operations.get(i));
+            if (next == BookRegister.INVALID) {
+                continue;
+            }
+            linearized.set(i);
+            boolean withinBudget = search(linearized, done + 1, next);
+            linearized.clear(i);
+            if (!withinBudget) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Visit {
+
+        private final BitSet linearized;
+        private final long state;
+
+        private Visit(BitSet linearized, long state) {
+            this.linearized = linearized;
+            this.state = state;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Visit)) {
+                return false;
+            }
+            Visit visit = (Visit) other;
+            return state == visit.state && linearized.equals(visit.linearized);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(linearized, state);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package data;
+
+import util.BookDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Columnar store of books for comparing large catalogs.
+ * A BookDTO costs a boxed isbn and four object references, here a book costs 8 bytes of isbn, 8 bytes of price,
+ * the UTF-8 bytes of its title with their 4 byte offset and length, and two 4 byte dictionary codes for author
+ * and genre, in primitive columns instead of millions of objects for the garbage collector to trace.
+ * Titles are nearly unique, so they are not dictionary encoded, authors and genres repeat.
+ * The columns can live off heap in direct buffers, only the author and genre dictionaries stay on the heap.
+ * Rows are found by isbn through an {@link IsbnIndex}. The columns grow by doubling when the table is full.
+ * A table is filled by one thread and can then be read by any number of threads.
+ * */
+public class BookTable {
+
+    private static final int MAX_CAPACITY = 1 << 29;
+    //a direct buffer holds at most 2GB, which the 8 byte columns reach first
+    private static final int MAX_OFF_HEAP_CAPACITY = Integer.MAX_VALUE / Long.BYTES;
+
+    private final boolean offHeap;
+    private final int maxCapacity;
+    private int capacity;
+    private LongBuffer isbns;
+    private DoubleBuffer prices;
+    private IntBuffer titleOffsets;
+    //-1 for a missing title
+    private IntBuffer titleLengths;
+    private ByteBuffer titleBytes;
+    private int titleBytesSize;
+    private IntBuffer authors;
+    private IntBuffer genres;
+    private final StringDictionary authorDictionary = new StringDictionary();
+    private final StringDictionary genreDictionary = new StringDictionary();
+
+    private final IsbnIndex index;
+    private int size;
+
+    /**
+     * @param capacity - initial number of books, at most 2^29 on the heap and 2^28 - 1 off heap
+     * @param offHeap - keep the columns in direct buffers outside the java heap
+     * */
+    public BookTable(int capacity, boolean offHeap) {
+        this.maxCapacity = offHeap ? MAX_OFF_HEAP_CAPACITY : MAX_CAPACITY;
+        if (capacity < 1 || capacity > maxCapacity) {
+            throw new IllegalArgumentException("The capacity must be between 1 and " + maxCapacity);
+        }
+        this.offHeap = offHeap;
+        this.index = new IsbnIndex(capacity);
+        this.titleBytes = bytes(capacity * 16L);
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        LongBuffer oldIsbns = isbns;
+        DoubleBuffer oldPrices = prices;
+        IntBuffer oldTitleOffsets = titleOffsets;
+        IntBuffer oldTitleLengths = titleLengths;
+        IntBuffer oldAuthors = authors;
+        IntBuffer oldGenres = genres;
+        isbns = offHeap ? direct(capacity, Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        prices = offHeap ? direct(capacity, Double.BYTES).asDoubleBuffer() : DoubleBuffer.allocate(capacity);
+        titleOffsets = offHeap ? direct(capacity, Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        titleLengths = offHeap ? direct(capacity, Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        authors = offHeap ? direct(capacity, Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        genres = offHeap ? direct(capacity, Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        if (oldIsbns != null) {
+            isbns.put(oldIsbns.duplicate().clear());
+            prices.put(oldPrices.duplicate().clear());
+            titleOffsets.put(oldTitleOffsets.duplicate().clear());
+            titleLengths.put(oldTitleLengths.duplicate().clear());
+            authors.put(oldAuthors.duplicate().clear());
+            genres.put(oldGenres.duplicate().clear());
+        }
+        this.capacity = capacity;
+    }
+
+    private static ByteBuffer direct(int capacity, int bytes) {
+        long size = (long) capacity * bytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A column of " + capacity + " books does not fit in a direct buffer");
+        }
+        return ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer bytes(long capacity) {
+        int bytes = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(64, capacity));
+        return offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    /**
+     * Appends the UTF-8 bytes of a title to the title column, growing it by doubling
+     * @return int - offset of the title
+     * */
+    private int appendTitle(byte[] title) {
+        if ((long) titleBytesSize + title.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The titles of " + size + " books do not fit in 2GB");
+        }
+        if (titleBytesSize + title.length > titleBytes.capacity()) {
+            ByteBuffer grown = bytes(Math.max(titleBytes.capacity() * 2L, (long) titleBytesSize + title.length));
+            grown.put(titleBytes.duplicate().clear().limit(titleBytesSize));
+            titleBytes = grown;
+        }
+        int offset = titleBytesSize;
+        titleBytes.put(offset, title, 0, title.length);
+        titleBytesSize += title.length;
+        return offset;
+    }
+
+    /**
+     * @param books - books to load, with distinct isbns
+     * @param capacity - initial number of books
+     * @param offHeap - keep the columns in direct buffers outside the java heap
+     * */
+    public static BookTable of(Iterator<BookDTO> books, int capacity, boolean offHeap) {
+        BookTable table = new BookTable(capacity, offHeap);
+        while (books.hasNext()) {
+            table.add(books.next());
+        }
+        return table;
+    }
+
+    /**
+     * @return int - row of the book
+     * */
+    public int add(BookDTO book) {
+        return add(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice());
+    }
+
+    public int add(long isbn, String title, String author, String genre, double price) {
+        if (isbn <= 0) {
+            throw new IllegalArgumentException("The isbn must be positive but was " + isbn);
+        }
+        if (index.containsKey(isbn)) {
+            throw new IllegalArgumentException("A book with isbn " + isbn + " is already in the table");
+        }
+        if (size == capacity) {
+            if (capacity == maxCapacity) {
+                throw new IllegalStateException("The table is full with " + capacity + " books");
+            }
+            allocate((int) Math.min(maxCapacity, capacity * 2L));
+        }
+        int row = size;
+        isbns.put(row, isbn);
+        prices.put(row, price);
+        if (title == null) {
+            titleOffsets.put(row, titleBytesSize);
+            titleLengths.put(row, -1);
+        } else {
+            byte[] utf8 = title.getBytes(StandardCharsets.UTF_8);
+            titleOffsets.put(row, appendTitle(utf8));
+            titleLengths.put(row, utf8.length);
+        }
+        authors.put(row, authorDictionary.encode(author));
+        genres.put(row, genreDictionary.encode(genre));
+        index.put(isbn, row);
+        size++;
+        return row;
+    }
+
+    /**
+     * @return int - row of the book with the isbn, -1 if there is none
+     * */
+    public int rowOf(long isbn) {
+        return index.get(isbn);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long isbn(int row) {
+        return isbns.get(row);
+    }
+
+    public double price(int row) {
+        return prices.get(row);
+    }
+
+    public String title(int row) {
+        int length = titleLengths.get(row);
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        titleBytes.get(titleOffsets.get(row), utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    public String author(int row) {
+        return authorDictionary.decode(authors.get(row));
+    }
+
+    public String genre(int row) {
+        return genreDictionary.decode(genres.get(row));
+    }
+
+    /**
+     * Compares the title of the row with characters of a parser buffer without creating a String
+     * */
+    public boolean titleMatches(int row, char[] characters, int offset, int length) {
+        int bytes = titleLengths.get(row);
+        if (bytes < 0) {
+            return false;
+        }
+        //decodes the UTF-8 bytes of the title and compares them char by char
+        int position = titleOffsets.get(row);
+        int end = position + bytes;
+        int next = offset;
+        int last = offset + length;
+        while (position < end) {
+            int first = titleBytes.get(position++) & 0xff;
+            int codePoint;
+            if (first < 0x80) {
+                codePoint = first;
+            } else {
+                int continuation = first >= 0xf0 ? 3 : first >= 0xe0 ? 2 : 1;
+                codePoint = first & (0x3f >> continuation);
+                for (int i = 0; i < continuation && position < end; i++) {
+                    codePoint = codePoint << 6 | titleBytes.get(position++) & 0x3f;
+                }
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (next == last || characters[next++] != codePoint) {
+                    return false;
+                }
+            } else if (last - next < 2 || characters[next++] != Character.highSurrogate(codePoint)
+                    || characters[next++] != Character.lowSurrogate(codePoint)) {
+                return false;
+            }
+        }
+        return next == last;
+    }
+
+    public boolean authorMatches(int row, char[] characters, int offset, int length) {
+        return authorDictionary.matches(authors.get(row), characters, offset, length);
+    }
+
+    public boolean genreMatches(int row, char[] characters, int offset, int length) {
+        return genreDictionary.matches(genres.get(row), characters, offset, length);
+    }
+
+    /**
+     * @return BookDTO - copy of the book in the row, for reporting differences
+     * */
+    public BookDTO get(int row) {
+        return new BookDTO(isbn(row), title(row), author(row), genre(row), price(row));
+    }
+}
@@ -0,0 +1,96 @@
+package data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Readers for the files written by {@link CatalogGenerator}
+ * */
+public class CatalogFiles {
+
+    private CatalogFiles() {
+
+    }
+
+    /**
+     * @param file - books.ndjson.gz, or an uncompressed file with one book per line
+     * @return BookReader - streams the books one by one, close it when done
+     * */
+    public static BookReader openBooks(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new BookReader(BookJsonCodec.FACTORY.createParser(in));
+    }
+
+    /**
+     * Maps the request isbns of requests.bin into memory, the pages are loaded by the OS on first access
+     * @return LongBuffer - read only view of the isbns
+     * */
+    public static LongBuffer mapRequests(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            if (size % Long.BYTES != 0) {
+                throw new IOException(file + " is not a file of 8 byte isbns");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " has more than " + Integer.MAX_VALUE / Long.BYTES + " requests");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asLongBuffer();
+        }
+    }
+
+    public static class BookReader implements Iterator<BookDTO>, Closeable {
+
+        private final JsonParser parser;
+        private BookDTO next;
+
+        private BookReader(JsonParser parser) {
+            this.parser = parser;
+            advance();
+        }
+
+        private void advance() {
+            try {
+                next = parser.nextToken() == JsonToken.START_OBJECT ? BookJsonCodec.read(parser) : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public BookDTO next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            BookDTO book = next;
+            advance();
+            return book;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates a synthetic catalog of valid books in place of the 108 books of book_data.csv.
+ * Book i is a pure function of the seed and i, so any book can be regenerated without reading the catalog
+ * and the files can be written in one streaming pass:
+ * <ul>
+ *     <li>books.ndjson.gz - one book json per line, gzip compressed, the payloads for seeding</li>
+ *     <li>requests.bin - isbns of the requests as 8 byte big endian longs, memory mapped by the replay</li>
+ *     <li>book_data.csv - the same requests as paths, for JMeter</li>
+ * </ul>
+ * Request keys follow a Zipf distribution over the books, the most popular books are spread over the catalog
+ * instead of being the first ones inserted.
+ * */
+public class CatalogGenerator {
+
+    public static final String BOOKS_FILE = "books.ndjson.gz";
+    public static final String REQUESTS_FILE = "requests.bin";
+    public static final String PATHS_FILE = "book_data.csv";
+
+    private static final int ISBN_PREFIX = 979;
+    private static final long SERIALS = 1_000_000_000L;
+    //coprime with 10^9, spreads consecutive books over the registration groups and publishers
+    private static final long SERIAL_STEP = 387_420_489L;
+    private static final long[] POPULARITY_STEPS = {1_000_003L, 998_244_353L, 2_147_483_647L};
+
+    private static final String[] GENRES = {"Literature & Fiction", "Romance", "Mystery & Thriller",
+            "Science Fiction & Fantasy", "Biographies & Memoirs", "History", "Children's Books", "Horror",
+            "Business & Money", "Cookbooks"};
+    private static final double[] GENRE_WEIGHTS = {0.24, 0.18, 0.14, 0.11, 0.08, 0.07, 0.07, 0.05, 0.04, 0.02};
+
+    private static final String[] ADJECTIVES = {"Silent", "Hidden", "Last", "Golden", "Broken", "Distant", "Secret",
+            "Forgotten", "Burning", "Quiet", "Endless", "Shattered", "Wild", "Midnight", "Crimson", "Frozen"};
+    private static final String[] NOUNS = {"River", "Garden", "Highlander", "Kingdom", "Letter", "Promise", "Shadow",
+            "Harbor", "Journey", "Empire", "Witness", "Orchard", "Storm", "Lighthouse", "Daughter", "Voyage"};
+    private static final String[] PLACES = {"Chesapeake", "Avalon", "the North", "Blackwater", "the Valley",
+            "Greywood", "the Coast", "Eldoria"};
+    private static final String[] FIRST_NAMES = {"Nora", "Karen", "James", "Maria", "David", "Elena", "Michael",
+            "Sarah", "Thomas", "Anna", "Robert", "Laura", "Daniel", "Sofia", "Peter", "Emma"};
+    private static final String[] LAST_NAMES = {"Roberts", "Moning", "Patterson", "King", "Christie", "Garcia",
+            "Nguyen", "Smith", "Brown", "Ivanova", "Rossi", "Muller", "Petrovski", "Tanaka", "Walker", "Novak"};
+
+    private final long books;
+    private final long seed;
+    private final long firstSerial;
+    private final long popularityStep;
+
+    /**
+     * @param books - number of books in the catalog, at most 10^9
+     * @param seed - seed of the catalog, the same seed gives the same books
+     * */
+    public CatalogGenerator(long books, long seed) {
+        if (books < 1 || books > SERIALS) {
+            throw new IllegalArgumentException("The catalog must have between 1 and " + SERIALS + " books");
+        }
+        this.books = books;
+        this.seed = seed;
+        this.firstSerial = Math.floorMod(new SplittableRandom(seed).nextLong(), SERIALS);
+        this.popularityStep = coprimeStep(books);
+    }
+
+    private static long coprimeStep(long books) {
+        for (long step : POPULARITY_STEPS) {
+            if (books % step != 0) {
+                return step % books;
+            }
+        }
+        return 1;
+    }
+
+    public long size() {
+        return books;
+    }
+
+    /**
+     * @return long - isbn of the book at the index, unique within the catalog
+     * */
+    public long isbn(long index) {
+        return Isbn13.of(ISBN_PREFIX, Math.floorMod(firstSerial + index * SERIAL_STEP, SERIALS));
+    }
+
+    /**
+     * @return BookDTO - the book at the index
+     * */
+    public BookDTO book(long index) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+        return new BookDTO(isbn(index), title(random), author(random), genre(random), price(random));
+    }
+
+    /**
+     * @param rank - popularity rank from 1, as drawn by {@link ZipfSampler}
+     * @return long - index of the book with that rank
+     * */
+    public long indexOfRank(long rank) {
+        return Math.floorMod((rank - 1) * popularityStep, books);
+    }
+
+    private static String title(SplittableRandom random) {
+        String adjective = pick(random, ADJECTIVES);
+        String noun = pick(random, NOUNS);
+        switch (random.nextInt(4)) {
+            case 0:
+                return noun + " of " + pick(random, PLACES);
+            case 1:
+                return adjective + " " + noun;
+            default:
+                return "The " + adjective + " " + noun;
+        }
+    }
+
+    private static String author(SplittableRandom random) {
+        return pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+    }
+
+    private static String genre(SplittableRandom random) {
+        double u = random.nextDouble();
+        for (int i = 0; i < GENRES.length - 1; i++) {
+            u -= GENRE_WEIGHTS[i];
+            if (u < 0) {
+                return GENRES[i];
+            }
+        }
+        return GENRES[GENRES.length - 1];
+    }
+
+    /**
+     * Log-normal prices with a median of about 13, ending in .99 or .95 like shop prices
+     */
+    private static double price(SplittableRandom random) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        double price = Math.exp(Math.log(13) + 0.6 * gaussian);
+        long whole = Math.max(0, Math.min(199, (long) price));
+        return whole + (random.nextInt(4) == 0 ? 0.95 : 0.99);
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Streams all books to a gzip compressed file with one json object per line
+     * */
+    public void writeBooks(Path file) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 1 << 16);
+             JsonGenerator generator = BookJsonCodec.FACTORY.createGenerator(out)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            for (long i = 0; i < books; i++) {
+                BookJsonCodec.write(generator, book(i));
+            }
+            generator.writeRaw('\n');
+        }
+    }
+
+    /**
+     * Draws the isbns of the requests from a Zipf distribution over the books and writes them
+     * as big endian longs, and optionally as request paths
+     * @param requests - number of requests
+     * @param exponent - skew of the popularity, see {@link ZipfSampler}
+     * @param keys - binary file of the isbns
+     * @param paths - file of the request paths, null to skip it
+     * @param collectionPath - path of the books collection, e.g. /api/v1/books
+     * */
+    public void writeRequests(long requests, double exponent, Path keys, Path paths, String collectionPath)
+            throws IOException {
+        ZipfSampler popularity = new ZipfSampler(books, exponent);
+        SplittableRandom random = new SplittableRandom(~seed);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(keys, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = paths == null ? null : Files.newBufferedWriter(paths, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < requests; i++) {
+                long isbn = isbn(indexOfRank(popularity.sample(random)));
+                if (!buffer.hasRemaining()) {
+                    drain(buffer, channel);
+                }
+                buffer.putLong(isbn);
+                if (writer != null) {
+                    writer.write(collectionPath);
+                    writer.write('/');
+                    writer.write(Long.toString(isbn));
+                    writer.newLine();
+                }
+            }
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes books.ndjson.gz, requests.bin and book_data.csv to the output directory
+     * <br>
+     * usage: CatalogGenerator books requests outputDir [zipfExponent] [seed]
+     * */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("usage: CatalogGenerator books requests outputDir [zipfExponent] [seed]");
+            return;
+        }
+        long books = Long.parseLong(args[0]);
+        long requests = Long.parseLong(args[1]);
+        Path directory = Files.createDirectories(Path.of(args[2]));
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        CatalogGenerator generator = new CatalogGenerator(books, seed);
+        long start = System.nanoTime();
+        generator.writeBooks(directory.resolve(BOOKS_FILE));
+        generator.writeRequests(requests, exponent, directory.resolve(REQUESTS_FILE),
+                directory.resolve(PATHS_FILE), "/api/v1/books");
+        System.out.printf("%d books and %d requests written to %s in %d ms%n", books, requests, directory,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
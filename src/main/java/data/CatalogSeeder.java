@@ -0,0 +1,197 @@
+package data;
+
+import client.ConnectionSettings;
+import client.HttpClients;
+import util.BasicAuth;
+import util.BookDTO;
+import util.BookJsonCodec;
+import util.Constants;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Loads a catalog into the api before a performance run and removes it afterwards.
+ * Requests are pipelined with at most window requests in flight, reading the next record blocks while
+ * the window is full, so arbitrarily large catalogs are streamed with constant memory.
+ * Server errors and connection failures are retried with exponential backoff and full jitter.
+ * Both modes are idempotent: a 403 for an isbn that already exists counts as seeded,
+ * a 404 for an isbn that is already gone counts as torn down.
+ * */
+public class CatalogSeeder implements AutoCloseable {
+
+    private final URI collection;
+    private final String authorization = BasicAuth.header();
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final int window;
+
+    private int maxAttempts = 5;
+    private Duration baseBackoff = Duration.ofMillis(50);
+    private Duration maxBackoff = Duration.ofSeconds(5);
+
+    /**
+     * @param apiUrl - url of the books collection
+     * @param settings - connection pooling of the http client
+     * @param window - maximum number of requests in flight
+     * */
+    public CatalogSeeder(URI apiUrl, ConnectionSettings settings, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must allow at least one request in flight");
+        }
+        this.collection = apiUrl;
+        this.window = window;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "catalog-seeder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClients.newLoadClient(settings, executor);
+    }
+
+    /**
+     * @param maxAttempts - attempts per record including the first one
+     * */
+    public CatalogSeeder withMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param base - backoff limit of the first retry, doubled for every further retry
+     * @param max - upper limit of the backoff
+     * */
+    public CatalogSeeder withBackoff(Duration base, Duration max) {
+        this.baseBackoff = base;
+        this.maxBackoff = max;
+        return this;
+    }
+
+    /**
+     * Creates the books with POST requests
+     * */
+    public SeedResult seed(Iterator<BookDTO> books) throws InterruptedException {
+        return run("seed", books, book -> HttpRequest.newBuilder(collection)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(BookJsonCodec.toBytes(book)))
+                .build(), 201, 403);
+    }
+
+    /**
+     * Deletes the books with the isbns
+     * */
+    public SeedResult teardown(Iterator<Long> isbns) throws InterruptedException {
+        String prefix = collection.toString() + "/";
+        return run("teardown", isbns, isbn -> HttpRequest.newBuilder(URI.create(prefix + isbn))
+                .header("Authorization", authorization)
+                .DELETE()
+                .build(), 200, 404);
+    }
+
+    private <T> SeedResult run(String mode, Iterator<T> records, Function<T, HttpRequest> toRequest,
+                               int appliedStatus, int alreadyAppliedStatus) throws InterruptedException {
+        SeedResult result = new SeedResult(mode);
+        Semaphore inFlight = new Semaphore(window);
+        long start = System.nanoTime();
+        while (records.hasNext()) {
+            HttpRequest request = toRequest.apply(records.next());
+            inFlight.acquire();
+            send(request, 1, result, appliedStatus, alreadyAppliedStatus)
+                    .whenComplete((ignored, error) -> inFlight.release());
+        }
+        inFlight.acquire(window);
+        inFlight.release(window);
+        result.setDurationNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    private CompletableFuture<Void> send(HttpRequest request, int attempt, SeedResult result,
+                                         int appliedStatus, int alreadyAppliedStatus) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    int status = error == null ? response.statusCode() : -1;
+                    if (status == appliedStatus) {
+                        result.recordApplied();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    if (status == alreadyAppliedStatus) {
+                        result.recordAlreadyApplied();
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    String reason = request.method() + " " + request.uri().getPath() + " -> "
+                            + (error == null ? String.valueOf(status) : error.toString());
+                    boolean retryable = error != null || status >= 500;
+                    if (!retryable || attempt >= maxAttempts) {
+                        result.recordFailure(reason);
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    result.recordRetry();
+                    return CompletableFuture.runAsync(() -> { },
+                            CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS, executor))
+                            .thenCompose(ignored -> send(request, attempt + 1, result, appliedStatus,
+                                    alreadyAppliedStatus));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private long backoffMillis(int attempt) {
+        long limit = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(limit + 1);
+    }
+
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Seeds the books of a generated catalog into {@link Constants#API_URL}, or deletes them again
+     * <br>
+     * usage: CatalogSeeder seed|teardown books.ndjson.gz [window]
+     * */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !args[0].equals("seed") && !args[0].equals("teardown")) {
+            System.out.println("usage: CatalogSeeder seed|teardown books.ndjson.gz [window]");
+            return;
+        }
+        int window = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        try (CatalogSeeder seeder = new CatalogSeeder(URI.create(Constants.API_URL),
+                ConnectionSettings.fromSystemProperties(), window);
+             CatalogFiles.BookReader books = CatalogFiles.openBooks(Path.of(args[1]))) {
+            SeedResult result;
+            if (args[0].equals("seed")) {
+                result = seeder.seed(books);
+            } else {
+                result = seeder.teardown(new Iterator<Long>() {
+                    @Override
+                    public boolean hasNext() {
+                        return books.hasNext();
+                    }
+
+                    @Override
+                    public Long next() {
+                        return books.next().getIsbn();
+                    }
+                });
+            }
+            System.out.println(result);
+            if (!result.isSuccessful()) {
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package data;
+
+/**
+ * ISBN-13 arithmetic on the numeric isbn used by the api
+ * */
+public class Isbn13 {
+
+    private static final long MIN = 1_000_000_000_000L;
+    private static final long MAX = 9_999_999_999_999L;
+
+    private Isbn13() {
+
+    }
+
+    /**
+     * @param first12 - the first twelve digits, prefix, group, publisher and title
+     * @return int - the check digit, weights alternate between 1 and 3 from the left
+     * */
+    public static int checkDigit(long first12) {
+        int sum = 0;
+        for (int position = 12; position >= 1; position--) {
+            int digit = (int) (first12 % 10);
+            first12 /= 10;
+            sum += position % 2 == 0 ? digit * 3 : digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * @param prefix - 978 or 979
+     * @param serial - registration group, publisher and title as one number below 10^9
+     * @return long - the isbn with its check digit
+     * */
+    public static long of(int prefix, long serial) {
+        if (prefix != 978 && prefix != 979) {
+            throw new IllegalArgumentException("The ISBN-13 prefix must be 978 or 979 but was " + prefix);
+        }
+        if (serial < 0 || serial >= 1_000_000_000L) {
+            throw new IllegalArgumentException("The serial must have at most 9 digits but was " + serial);
+        }
+        long first12 = prefix * 1_000_000_000L + serial;
+        return first12 * 10 + checkDigit(first12);
+    }
+
+    public static boolean isValid(long isbn) {
+        return isbn >= MIN && isbn <= MAX && checkDigit(isbn / 10) == isbn % 10;
+    }
+}
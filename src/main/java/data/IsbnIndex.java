@@ -0,0 +1,283 @@
+package data;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash index from isbn to row, with primitive keys and values and no boxing.
+ * Keys are spread over independently locked stripes, each stripe is an open addressing table with linear probing
+ * and backward shift deletion, so there are no tombstones and removed slots are reused right away.
+ * Lookups are lock free in the common case: they read optimistically and only take the read lock of the stripe
+ * when a write to the same stripe interfered. Inserts and removes lock a single stripe.
+ * Isbn 0 cannot be stored, it marks an empty slot, and is never found.
+ * */
+public class IsbnIndex {
+
+    public static final int NO_ROW = -1;
+
+    private static final long EMPTY = 0;
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param expectedSize - number of isbns the index should hold without resizing
+     * */
+    public IsbnIndex(int expectedSize) {
+        this(expectedSize, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param expectedSize - number of isbns the index should hold without resizing
+     * @param stripes - number of independently locked parts, rounded up to a power of two
+     * */
+    public IsbnIndex(int expectedSize, int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[count];
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(count);
+        int perStripe = Math.max(8, expectedSize / count + 1);
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(tableSize(perStripe));
+        }
+    }
+
+    private static int tableSize(int entries) {
+        //at most half of the slots are used
+        return Integer.highestOneBit(entries * 2 - 1) << 1;
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes.length == 1 ? stripes[0] : stripes[(int) (hash >>> stripeShift)];
+    }
+
+    /**
+     * @return int - row of the isbn, {@link #NO_ROW} if it is not in the index
+     * */
+    public int get(long isbn) {
+        if (isbn == EMPTY) {
+            return NO_ROW;
+        }
+        long hash = mix(isbn);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int row = stripe.table.find(isbn, hash);
+            if (stripe.lock.validate(stamp)) {
+                return row;
+            }
+        }
+        stamp = stripe.lock.readLock();
+        try {
+            return stripe.table.find(isbn, hash);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(long isbn) {
+        return get(isbn) != NO_ROW;
+    }
+
+    /**
+     * @return int - previous row of the isbn, {@link #NO_ROW} if it was not in the index
+     * */
+    public int put(long isbn, int row) {
+        return put(isbn, row, false);
+    }
+
+    /**
+     * @return int - row already stored for the isbn, {@link #NO_ROW} if the row was stored
+     * */
+    public int putIfAbsent(long isbn, int row) {
+        return put(isbn, row, true);
+    }
+
+    private int put(long isbn, int row, boolean onlyIfAbsent) {
+        if (isbn == EMPTY) {
+            throw new IllegalArgumentException("Isbn 0 cannot be indexed");
+        }
+        if (row < 0) {
+            throw new IllegalArgumentException("The row must not be negative but was " + row);
+        }
+        long hash = mix(isbn);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Table table = stripe.table;
+            int slot = table.slot(isbn, hash);
+            if (table.keys[slot] == isbn) {
+                int previous = table.rows[slot];
+                if (!onlyIfAbsent) {
+                    table.rows[slot] = row;
+                }
+                return previous;
+            }
+            if ((stripe.size + 1) * 2 > table.keys.length) {
+                table = table.resize(table.keys.length * 2);
+                stripe.table = table;
+                slot = table.slot(isbn, hash);
+            }
+            table.rows[slot] = row;
+            table.keys[slot] = isbn;
+            stripe.size++;
+            return NO_ROW;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return int - row the isbn had, {@link #NO_ROW} if it was not in the index
+     * */
+    public int remove(long isbn) {
+        long hash = mix(isbn);
+        Stripe stripe = stripe(hash);
+        long stamp = stripe.lock.writeLock();
+        try {
+            Table table = stripe.table;
+            int slot = table.slot(isbn, hash);
+            if (table.keys[slot] != isbn || isbn == EMPTY) {
+                return NO_ROW;
+            }
+            int row = table.rows[slot];
+            table.delete(slot);
+            stripe.size--;
+            return row;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return int - number of isbns, exact only when no thread is writing
+     * */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * @return long[] - the isbns in the index, every stripe is copied under its read lock
+     * */
+    public long[] keys() {
+        long[] keys = new long[size()];
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                for (long key : stripe.table.keys) {
+                    if (key != EMPTY) {
+                        if (count == keys.length) {
+                            keys = Arrays.copyOf(keys, keys.length * 2 + 1);
+                        }
+                        keys[count++] = key;
+                    }
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return count == keys.length ? keys : Arrays.copyOf(keys, count);
+    }
+
+    private static class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        private volatile int size;
+
+        private Stripe(int slots) {
+            this.table = new Table(slots);
+        }
+    }
+
+    private static class Table {
+
+        private final long[] keys;
+        private final int[] rows;
+        private final int mask;
+
+        private Table(int slots) {
+            this.keys = new long[slots];
+            this.rows = new int[slots];
+            this.mask = slots - 1;
+        }
+
+        /**
+         * Probes at most once around the table, a read racing with a writer may see an inconsistent table
+         * and is repeated under the read lock
+         * */
+        private int find(long key, long hash) {
+            int slot = (int) hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                long current = keys[slot];
+                if (current == key) {
+                    return rows[slot];
+                }
+                if (current == EMPTY) {
+                    return NO_ROW;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_ROW;
+        }
+
+        /**
+         * @return int - slot of the key or the empty slot where it belongs, the caller holds the write lock
+         * */
+        private int slot(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the slot and moves later entries of the probe sequence back into the gap
+         * */
+        private void delete(int slot) {
+            int gap = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                long key = keys[next];
+                if (key == EMPTY) {
+                    break;
+                }
+                int home = (int) mix(key) & mask;
+                //the entry may move into the gap only if its home slot is not between the gap and its slot
+                boolean homeInRange = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+                if (!homeInRange) {
+                    keys[gap] = key;
+                    rows[gap] = rows[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+        }
+
+        private Table resize(int slots) {
+            Table resized = new Table(slots);
+            for (int i = 0; i < keys.length; i++) {
+                long key = keys[i];
+                if (key != EMPTY) {
+                    int slot = resized.slot(key, mix(key));
+                    resized.keys[slot] = key;
+                    resized.rows[slot] = rows[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package data;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of a seeding or teardown run of {@link CatalogSeeder}
+ * */
+public class SeedResult {
+
+    private final String mode;
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder alreadyApplied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private volatile String firstFailure;
+    private long durationNanos;
+
+    SeedResult(String mode) {
+        this.mode = mode;
+    }
+
+    void recordApplied() {
+        applied.increment();
+    }
+
+    void recordAlreadyApplied() {
+        alreadyApplied.increment();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordFailure(String reason) {
+        failed.increment();
+        if (firstFailure == null) {
+            firstFailure = reason;
+        }
+    }
+
+    void setDurationNanos(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return long - books created by a seeding run or deleted by a teardown run
+     * */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * @return long - books that already existed (403) when seeding or were already gone (404) when tearing down
+     * */
+    public long getAlreadyApplied() {
+        return alreadyApplied.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return String - status or error of the first record that failed, null if none failed
+     * */
+    public String getFirstFailure() {
+        return firstFailure;
+    }
+
+    public long getRecords() {
+        return getApplied() + getAlreadyApplied() + getFailed();
+    }
+
+    public boolean isSuccessful() {
+        return getFailed() == 0;
+    }
+
+    /**
+     * @return double - records per second over the whole run
+     * */
+    public double getRecordsPerSecond() {
+        return durationNanos == 0 ? 0 : getRecords() * 1e9 / durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d records in %.1f s (%.0f records/s), applied=%d, already applied=%d, "
+                        + "failed=%d, retries=%d%s", mode, getRecords(), durationNanos / 1e9, getRecordsPerSecond(),
+                getApplied(), getAlreadyApplied(), getFailed(), getRetries(),
+                firstFailure == null ? "" : ", first failure: " + firstFailure);
+    }
+}
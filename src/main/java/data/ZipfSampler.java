@@ -0,0 +1,95 @@
+package data;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distributed ranks in [1, n] with constant time sampling by rejection inversion
+ * (W. Hormann, G. Derflinger, Rejection-inversion to generate variates from monotone discrete distributions).
+ * Rank k is drawn with a probability proportional to 1 / k^exponent, without a table of n cumulative weights,
+ * so catalogs of millions of books do not need memory for the distribution.
+ * The sampler is immutable, every thread passes its own random generator.
+ * */
+public class ZipfSampler {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * @param n - number of ranks
+     * @param exponent - skew of the distribution, 0 is uniform, about 1 is typical for catalog popularity
+     * */
+    public ZipfSampler(long n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("At least one rank is required");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("The exponent must not be negative");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * @return long - rank between 1 and n, 1 is the most popular
+     * */
+    public long sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * log(1 + x) / x, with its Taylor series near 0
+     * */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * (exp(x) - 1) / x, with its Taylor series near 0
+     * */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,210 @@
+package load;
+
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import client.HttpClients;
+import client.RouteLimiter;
+import metrics.Endpoint;
+import metrics.GeneratorMonitor;
+import metrics.LiveMetrics;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Open-model load generator: requests are issued at a constant arrival rate, independent of how fast
+ * the api answers. Every request has an intended start time on a fixed schedule and its latency is measured
+ * from that time, so a slow server cannot hide its queueing delay by slowing the generator down
+ * (coordinated omission).
+ * */
+public class ArrivalRateScheduler implements AutoCloseable {
+
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MONITOR_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final RouteLimiter limiter;
+    private final InFlightRequests<Void> inFlight;
+    private long drainTimeoutMillis = InFlightRequests.DRAIN_TIMEOUT_MILLIS;
+    private LiveMetrics live;
+    private GeneratorMonitor generatorMonitor;
+
+    /**
+     * @param maxInFlight - safety limit for outstanding requests, requests over the limit are counted as dropped
+     * */
+    public ArrivalRateScheduler(int maxInFlight) {
+        this(maxInFlight, ConnectionSettings.fromSystemProperties());
+    }
+
+    /**
+     * @param maxInFlight - safety limit for outstanding requests, requests over the limit are counted as dropped
+     * @param settings - connection pooling of the http client, requests waiting for a connection
+     *                   are measured from their intended start like any other queueing delay
+     * */
+    public ArrivalRateScheduler(int maxInFlight, ConnectionSettings settings) {
+        this.inFlight = new InFlightRequests<>(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "arrival-rate-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClients.newLoadClient(settings, executor);
+        this.limiter = new RouteLimiter(settings.getMaxConnectionsPerRoute(), new ConnectionStats());
+    }
+
+    /**
+     * Counts every request and its response time in the given live metrics as well
+     * @return ArrivalRateScheduler - this scheduler, for chaining
+     * */
+    public ArrivalRateScheduler withLiveMetrics(LiveMetrics live) {
+        this.live = live;
+        return this;
+    }
+
+    /**
+     * Monitors the resources of this JVM during every run, runs in which the generator was the bottleneck
+     * are flagged invalid in their response time result
+     * @return ArrivalRateScheduler - this scheduler, for chaining
+     * */
+    public ArrivalRateScheduler withGeneratorMonitor(GeneratorMonitor generatorMonitor) {
+        this.generatorMonitor = generatorMonitor;
+        return this;
+    }
+
+    /**
+     * @param drainTimeout - how long the end of a run waits for the requests in flight, requests that are still
+     *                       unanswered then are recorded as timeouts, 30 seconds by default
+     * @return ArrivalRateScheduler - this scheduler, for chaining
+     * */
+    public ArrivalRateScheduler withDrainTimeout(Duration drainTimeout) {
+        this.drainTimeoutMillis = drainTimeout.toMillis();
+        return this;
+    }
+
+    public ConnectionStats getConnectionStats() {
+        return limiter.getStats();
+    }
+
+    /**
+     * Issues requests at the given rate for the given duration, blocking the calling thread
+     * @param name - name of the run used in the report
+     * @param ratePerSecond - target arrival rate
+     * @param duration - how long requests are issued
+     * @param requests - builds the request with the given sequence number
+     * @return OpenModelResult - latencies from intended start and from actual send
+     * */
+    public OpenModelResult run(String name, double ratePerSecond, Duration duration,
+                               LongFunction<HttpRequest> requests) throws InterruptedException {
+        return run(name, ratePerSecond, duration, requests, result -> true);
+    }
+
+    /**
+     * Issues requests at the given rate for the given duration or until the monitor stops the run
+     * @param monitor - called on the scheduling thread every 250ms with the result so far,
+     *                  returns false to stop issuing requests, the requests in flight are still awaited
+     * @return OpenModelResult - latencies from intended start and from actual send
+     * */
+    public OpenModelResult run(String name, double ratePerSecond, Duration duration,
+                               LongFunction<HttpRequest> requests, Predicate<OpenModelResult> monitor)
+            throws InterruptedException {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        OpenModelResult result = new OpenModelResult(name, ratePerSecond);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long durationNanos = duration.toNanos();
+        if (generatorMonitor != null) {
+            generatorMonitor.start();
+        }
+        long start = System.nanoTime();
+        long nextCheck = start + MONITOR_INTERVAL_NANOS;
+
+        for (long sequence = 0; ; sequence++) {
+            long offset = (long) (sequence * intervalNanos);
+            if (offset >= durationNanos) {
+                break;
+            }
+            long intended = start + offset;
+            waitUntil(intended);
+            if (intended - nextCheck >= 0) {
+                nextCheck = intended + MONITOR_INTERVAL_NANOS;
+                if (!monitor.test(result)) {
+                    result.setStopped();
+                    break;
+                }
+            }
+            result.recordScheduleLag(System.nanoTime() - intended, LATE_THRESHOLD_NANOS);
+            send(requests.apply(sequence), intended, result);
+        }
+        for (InFlightRequests.Request<Void> request : inFlight.drain(drainTimeoutMillis)) {
+            long now = System.nanoTime();
+            if (live != null) {
+                live.requestCompleted(request.getEndpoint(), 0, now - request.getIntendedNanos());
+            }
+            result.recordTimeout(request, now);
+        }
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (generatorMonitor != null) {
+            result.getResponseTime().setGenerator(generatorMonitor.stop());
+        }
+        return result;
+    }
+
+    private void send(HttpRequest request, long intended, OpenModelResult result) {
+        Endpoint endpoint = Endpoint.of(request.method(), request.uri().getPath());
+        InFlightRequests.Request<Void> pending = inFlight.start(endpoint, intended, null);
+        if (pending == null) {
+            result.recordDropped(endpoint, System.nanoTime() - intended);
+            return;
+        }
+        long sent = pending.getSentNanos();
+        if (live != null) {
+            live.requestStarted();
+        }
+        limiter.send(client, request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long now = System.nanoTime();
+                    if (!inFlight.finish(pending)) {
+                        return;
+                    }
+                    if (live != null) {
+                        live.requestCompleted(endpoint, error != null ? 0 : response.statusCode(), now - intended);
+                    }
+                    if (error != null) {
+                        result.getResponseTime().recordFailure(endpoint, now - intended);
+                        result.getServiceTime().recordFailure(endpoint, now - sent);
+                    } else {
+                        result.getResponseTime().record(endpoint, response.statusCode(), now - intended);
+                        result.getServiceTime().record(endpoint, response.statusCode(), now - sent);
+                    }
+                });
+    }
+
+    static void waitUntil(long deadline) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
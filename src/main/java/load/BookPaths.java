@@ -0,0 +1,119 @@
+package load;
+
+import data.CatalogFiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Request paths shared by all virtual users, the equivalent of the CSV Data Set Config
+ * with shareMode.all and recycling on end of file.
+ * */
+public class BookPaths {
+
+    public static final String DEFAULT_RESOURCE = "/performance_testing/book_data.csv";
+
+    private final IntFunction<String> paths;
+    private final int size;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public BookPaths(List<String> paths) {
+        this(paths.toArray(new String[0]));
+    }
+
+    private BookPaths(String[] paths) {
+        this(i -> paths[i], paths.length);
+    }
+
+    /**
+     * @param paths - path at an index, called concurrently by the virtual users
+     * @param size - number of paths
+     * */
+    public BookPaths(IntFunction<String> paths, int size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("At least one request path is required");
+        }
+        this.paths = paths;
+        this.size = size;
+    }
+
+    /**
+     * Reads the paths from book_data.csv on the classpath
+     * */
+    public static BookPaths fromClasspath() {
+        try (InputStream in = BookPaths.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing classpath resource " + DEFAULT_RESOURCE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return new BookPaths(clean(reader.lines().collect(Collectors.toList())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the paths from a text file with one path per line, gzip compressed if its name ends with .gz
+     * */
+    public static BookPaths fromFile(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return new BookPaths(clean(reader.lines().collect(Collectors.toList())));
+        }
+    }
+
+    /**
+     * Requests of a generated catalog, the isbns stay in the memory mapped file and the paths are built on access
+     * @param requests - requests.bin written by {@link data.CatalogGenerator}
+     * @param collectionPath - path of the books collection, e.g. /api/v1/books
+     * */
+    public static BookPaths fromRequestFile(Path requests, String collectionPath) throws IOException {
+        LongBuffer isbns = CatalogFiles.mapRequests(requests);
+        String prefix = collectionPath + "/";
+        return new BookPaths(i -> prefix + isbns.get(i), isbns.capacity());
+    }
+
+    private static List<String> clean(List<String> lines) {
+        return lines.stream().map(String::trim).filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    }
+
+    /**
+     * @return String - the next path, wrapping around at the end of the file
+     * */
+    public String next() {
+        return paths.apply((int) (cursor.getAndIncrement() % size));
+    }
+
+    /**
+     * @return BookPaths - the paths from index from to index to, exclusive, with a cursor of their own
+     * */
+    public BookPaths range(int from, int to) {
+        if (from < 0 || to > size || from >= to) {
+            throw new IllegalArgumentException("Invalid range " + from + "-" + to + " of " + size + " paths");
+        }
+        return new BookPaths(i -> paths.apply(from + i), to - from);
+    }
+
+    public String get(int index) {
+        return paths.apply(index);
+    }
+
+    public int size() {
+        return size;
+    }
+}
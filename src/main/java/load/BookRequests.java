@@ -0,0 +1,83 @@
+package load;
+
+import util.BasicAuth;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+/**
+ * The requests of the functional tests as java.net.http requests for the load generators:
+ * reads without authentication, writes with the Basic authentication of the default user and a json body.
+ * */
+public class BookRequests {
+
+    private final URI collection;
+    private final String authorization;
+    private final Duration timeout;
+
+    /**
+     * @param apiUrl - url of the books collection, e.g. http://localhost:8080/api/v1/books
+     * @param timeout - time after which a request counts as failed
+     * */
+    public BookRequests(URI apiUrl, Duration timeout) {
+        this.collection = apiUrl;
+        this.authorization = BasicAuth.header();
+        this.timeout = timeout;
+    }
+
+    public HttpRequest getAll() {
+        return HttpRequest.newBuilder(collection).timeout(timeout).GET().build();
+    }
+
+    public HttpRequest getOne(long isbn) {
+        return HttpRequest.newBuilder(item(isbn)).timeout(timeout).GET().build();
+    }
+
+    public HttpRequest create(BookDTO book) {
+        return create(HttpRequest.BodyPublishers.ofByteArray(BookJsonCodec.toBytes(book)));
+    }
+
+    /**
+     * @param body - json body of the book, e.g. from a {@link PayloadCache}
+     * */
+    public HttpRequest create(HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(collection)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", authorization)
+                .POST(body)
+                .build();
+    }
+
+    public HttpRequest update(BookDTO book) {
+        return update(book.getIsbn(), HttpRequest.BodyPublishers.ofByteArray(BookJsonCodec.toBytes(book)));
+    }
+
+    /**
+     * @param body - json body of the book with the isbn, e.g. from a {@link PayloadCache}
+     * */
+    public HttpRequest update(long isbn, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(item(isbn))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .header("Authorization", authorization)
+                .PUT(body)
+                .build();
+    }
+
+    public HttpRequest delete(long isbn) {
+        return HttpRequest.newBuilder(item(isbn))
+                .timeout(timeout)
+                .header("Authorization", authorization)
+                .DELETE()
+                .build();
+    }
+
+    private URI item(long isbn) {
+        return URI.create(collection + "/" + isbn);
+    }
+
+}
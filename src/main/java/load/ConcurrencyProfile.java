@@ -0,0 +1,43 @@
+package load;
+
+/**
+ * Equivalent of the bzm Concurrency Thread Group used for endurance testing.
+ * The target concurrency is reached in equal steps over the ramp up time and then held.
+ * */
+public class ConcurrencyProfile implements LoadProfile {
+
+    private final int targetLevel;
+    private final long rampUpMillis;
+    private final int steps;
+    private final long holdMillis;
+
+    public ConcurrencyProfile(int targetLevel, long rampUpMillis, int steps, long holdMillis) {
+        if (targetLevel <= 0) {
+            throw new IllegalArgumentException("Target level must be positive");
+        }
+        this.targetLevel = targetLevel;
+        this.rampUpMillis = rampUpMillis;
+        this.steps = steps;
+        this.holdMillis = holdMillis;
+    }
+
+    @Override
+    public int targetUsers(long elapsedMillis) {
+        if (elapsedMillis < 0 || elapsedMillis >= durationMillis()) {
+            return 0;
+        }
+        if (elapsedMillis >= rampUpMillis) {
+            return targetLevel;
+        }
+        if (steps <= 0) {
+            return (int) (targetLevel * elapsedMillis / rampUpMillis);
+        }
+        long step = Math.min(steps, elapsedMillis * steps / rampUpMillis + 1);
+        return (int) (targetLevel * step / steps);
+    }
+
+    @Override
+    public long durationMillis() {
+        return rampUpMillis + holdMillis;
+    }
+}
@@ -0,0 +1,166 @@
+package load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Fires a number of requests at the same instant to check how the api behaves under contention on one resource,
+ * e.g. isbn uniqueness on create or last-writer-wins on update.
+ * All requests wait on a start gate until every thread is ready, status codes are counted in concurrent counters
+ * and the harness returns as soon as the last request completes.
+ * */
+public class ContentionHarness {
+
+    private final int fanOut;
+
+    /**
+     * @param fanOut - number of requests fired at the same time, one thread each
+     * */
+    public ContentionHarness(int fanOut) {
+        if (fanOut <= 0) {
+            throw new IllegalArgumentException("Fan-out must be positive");
+        }
+        this.fanOut = fanOut;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * @param request - sends request number i and returns its status code
+     * @param timeout - maximum time to wait for all requests to complete
+     * @return Result - number of responses per status code and the failed requests
+     * */
+    public Result run(IntUnaryOperator request, Duration timeout) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(fanOut);
+        CountDownLatch ready = new CountDownLatch(fanOut);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(fanOut);
+        Result result = new Result();
+        try {
+            for (int i = 0; i < fanOut; i++) {
+                int index = i;
+                executor.execute(() -> {
+                    try {
+                        ready.countDown();
+                        start.await();
+                        result.record(request.applyAsInt(index));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        result.fail(e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long deadline = System.nanoTime() + timeout.toNanos();
+            if (!ready.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Only " + (fanOut - ready.getCount()) + " of " + fanOut
+                        + " threads were started within " + timeout);
+            }
+            start.countDown();
+            result.completed = done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return result;
+        } finally {
+            result.close();
+            executor.shutdownNow();
+        }
+    }
+
+    public static class Result {
+
+        private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+        private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        //requests share the read lock to record, closing takes the write lock and waits for them
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean completed;
+        private boolean closed;
+
+        /**
+         * Responses arriving after the harness returned are ignored, so the result does not change once returned
+         * */
+        private void record(int statusCode) {
+            lock.readLock().lock();
+            try {
+                if (!closed) {
+                    statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void fail(Throwable failure) {
+            lock.readLock().lock();
+            try {
+                if (!closed) {
+                    failures.add(failure);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void close() {
+            lock.writeLock().lock();
+            try {
+                closed = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return long - number of responses with the given status code
+         * */
+        public long count(int statusCode) {
+            LongAdder count = statusCodes.get(statusCode);
+            return count == null ? 0 : count.sum();
+        }
+
+        /**
+         * @return Map - number of responses per status code, sorted by status code
+         * */
+        public Map<Integer, Long> getStatusCodes() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statusCodes.forEach((code, count) -> counts.put(code, count.sum()));
+            return counts;
+        }
+
+        /**
+         * @return List - exceptions thrown by requests that got no response
+         * */
+        public List<Throwable> getFailures() {
+            return new ArrayList<>(failures);
+        }
+
+        /**
+         * @return boolean - false if some requests were still running when the timeout expired
+         * */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public String toString() {
+            return "status codes: " + getStatusCodes() + ", failures: " + failures.size()
+                    + (completed ? "" : ", timed out");
+        }
+    }
+}
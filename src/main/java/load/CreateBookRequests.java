@@ -0,0 +1,76 @@
+package load;
+
+import metrics.GeneratorMonitor;
+import util.BasicAuth;
+import util.BookDTO;
+import util.Constants;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * POST /api/v1/books requests equivalent to the create_book_thread_group of PerformanceTestingCreateBook.jmx.
+ * Every request creates a book with a new isbn, counted from the first isbn.
+ * The sequence of {@link #apply} restarts with every run, {@link #next} continues across runs.
+ * */
+public class CreateBookRequests implements LongFunction<HttpRequest> {
+
+    private final URI uri;
+    private final long firstIsbn;
+    private final String authorization;
+    private final AtomicLong created = new AtomicLong();
+    //the body of the jmx request, encoded once, the isbn is spliced in per request
+    private final PayloadCache body = PayloadCache.of(
+            List.of(new BookDTO(0L, "testsabc", "testsabc", "testsabc", 0.0)));
+
+    public CreateBookRequests(URI uri, long firstIsbn) {
+        this.uri = uri;
+        this.firstIsbn = firstIsbn;
+        this.authorization = BasicAuth.header();
+    }
+
+    @Override
+    public HttpRequest apply(long sequence) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Authorization", authorization)
+                .POST(body.withIsbn(0, firstIsbn + sequence))
+                .build();
+    }
+
+    /**
+     * @return HttpRequest - creates the book with the next isbn of the range, the isbns continue across runs
+     * */
+    public HttpRequest next() {
+        return apply(created.getAndIncrement());
+    }
+
+    /**
+     * @return Iterator - isbns of the books requested with {@link #next}, e.g. to delete them again
+     * */
+    public Iterator<Long> createdIsbns() {
+        return LongStream.range(firstIsbn, firstIsbn + created.get()).iterator();
+    }
+
+    /**
+     * Usage: CreateBookRequests [requests per second] [duration in seconds] [first isbn]
+     * */
+    public static void main(String[] args) throws Exception {
+        double rate = args.length > 0 ? Double.parseDouble(args[0]) : 50;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        long firstIsbn = args.length > 2 ? Long.parseLong(args[2]) : 1_000_000L;
+        URI uri = URI.create(Constants.API_URL);
+        try (ArrivalRateScheduler scheduler = new ArrivalRateScheduler(10_000)
+                .withGeneratorMonitor(new GeneratorMonitor(LoadEngine.portOf(uri)))) {
+            System.out.println(scheduler.run("create_book", rate, Duration.ofSeconds(seconds),
+                    new CreateBookRequests(uri, firstIsbn)));
+            System.out.println(scheduler.getConnectionStats());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package load;
+
+import metrics.Endpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Requests of a run that were sent and not answered yet, shared by the load generators.
+ * At the end of a run {@link #drain} waits for the answers for a while and then expires the requests that are
+ * still outstanding, so the caller records them as timeouts instead of losing the slowest tail of the run.
+ * A request is finished exactly once: an answer that arrives after its request expired is ignored,
+ * so it cannot change a result that was already returned.
+ * @param <T> - what the sender keeps with a request, e.g. the operation of a consistency check
+ * */
+class InFlightRequests<T> {
+
+    static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+    private static final long POLL_MILLIS = 10;
+
+    private final Set<Request<T>> requests = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger count = new AtomicInteger();
+    private final int limit;
+
+    InFlightRequests() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit - maximum number of requests in flight
+     * */
+    InFlightRequests(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Registers a request right before it is sent
+     * @param intendedNanos - when the request should have been sent, its latency is measured from there
+     * @return Request - the registered request, null if the limit of requests in flight is reached
+     * */
+    Request<T> start(Endpoint endpoint, long intendedNanos, T context) {
+        if (count.incrementAndGet() > limit) {
+            count.decrementAndGet();
+            return null;
+        }
+        Request<T> request = new Request<>(endpoint, intendedNanos, System.nanoTime(), context);
+        requests.add(request);
+        return request;
+    }
+
+    /**
+     * Called when the answer of the request arrived
+     * @return boolean - false if the request expired already and the answer must not be recorded
+     * */
+    boolean finish(Request<T> request) {
+        if (!request.finished.compareAndSet(false, true)) {
+            return false;
+        }
+        requests.remove(request);
+        count.decrementAndGet();
+        return true;
+    }
+
+    int size() {
+        return count.get();
+    }
+
+    /**
+     * Waits until all requests are answered or the timeout elapsed
+     * @return List - the requests that were still outstanding, they are finished and their answers are ignored
+     * */
+    List<Request<T>> drain(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (count.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(POLL_MILLIS);
+        }
+        List<Request<T>> expired = new ArrayList<>();
+        for (Request<T> request : requests) {
+            if (finish(request)) {
+                expired.add(request);
+            }
+        }
+        return expired;
+    }
+
+    static final class Request<T> {
+
+        private final Endpoint endpoint;
+        private final long intendedNanos;
+        private final long sentNanos;
+        private final T context;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Request(Endpoint endpoint, long intendedNanos, long sentNanos, T context) {
+            this.endpoint = endpoint;
+            this.intendedNanos = intendedNanos;
+            this.sentNanos = sentNanos;
+            this.context = context;
+        }
+
+        Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        long getIntendedNanos() {
+            return intendedNanos;
+        }
+
+        long getSentNanos() {
+            return sentNanos;
+        }
+
+        T getContext() {
+            return context;
+        }
+    }
+}
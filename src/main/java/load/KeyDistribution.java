@@ -0,0 +1,89 @@
+package load;
+
+import data.ZipfSampler;
+
+import java.util.SplittableRandom;
+
+/**
+ * Popularity of the books a {@link WorkloadMix} reads and writes.
+ * Keys are popularity ranks from 1, the most popular book, to the number of books;
+ * the mix maps a rank to an isbn of its catalog.
+ * */
+public interface KeyDistribution {
+
+    /**
+     * @param random - random generator of the calling virtual user
+     * @return long - rank between 1 and {@link #size()}
+     * */
+    long next(SplittableRandom random);
+
+    /**
+     * @return long - number of distinct keys
+     * */
+    long size();
+
+    /**
+     * Every book is equally likely
+     * */
+    static KeyDistribution uniform(long keys) {
+        if (keys < 1) {
+            throw new IllegalArgumentException("At least one key is required");
+        }
+        return new KeyDistribution() {
+            @Override
+            public long next(SplittableRandom random) {
+                return 1 + random.nextLong(keys);
+            }
+
+            @Override
+            public long size() {
+                return keys;
+            }
+        };
+    }
+
+    /**
+     * Rank k is drawn with a probability proportional to 1 / k^exponent
+     * @param exponent - skew, about 1 is typical for catalog popularity
+     * */
+    static KeyDistribution zipf(long keys, double exponent) {
+        ZipfSampler sampler = new ZipfSampler(keys, exponent);
+        return new KeyDistribution() {
+            @Override
+            public long next(SplittableRandom random) {
+                return sampler.sample(random);
+            }
+
+            @Override
+            public long size() {
+                return keys;
+            }
+        };
+    }
+
+    /**
+     * A few hot books get a fixed share of the requests, the rest is spread uniformly over the other books
+     * @param hotKeys - number of hot books, ranks 1 to hotKeys
+     * @param hotShare - share of the requests for the hot books, e.g. 0.9
+     * */
+    static KeyDistribution hotSet(long keys, long hotKeys, double hotShare) {
+        if (hotKeys < 1 || hotKeys > keys || hotShare < 0 || hotShare > 1) {
+            throw new IllegalArgumentException("Invalid hot set: " + hotKeys + " of " + keys + " keys with share "
+                    + hotShare);
+        }
+        return new KeyDistribution() {
+            @Override
+            public long next(SplittableRandom random) {
+                if (hotKeys == keys || random.nextDouble() < hotShare) {
+                    return 1 + random.nextLong(hotKeys);
+                }
+                return hotKeys + 1 + random.nextLong(keys - hotKeys);
+            }
+
+            @Override
+            public long size() {
+                return keys;
+            }
+        };
+    }
+}
@@ -0,0 +1,438 @@
+package load;
+
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import client.HttpClients;
+import client.RouteLimiter;
+import consistency.BookRegister;
+import consistency.OnlineChecker;
+import consistency.Operation;
+import data.BookTable;
+import data.CatalogFiles;
+import metrics.Endpoint;
+import metrics.GeneratorMonitor;
+import metrics.GeneratorReport;
+import metrics.LatencyRecorder;
+import metrics.LiveMetrics;
+import metrics.MetricsServer;
+import org.HdrHistogram.HistogramLogWriter;
+import util.Constants;
+import verify.ExpectedCatalog;
+import verify.ResponseDigest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-model load generator for the books api.
+ * A virtual user is not a thread: it is a chain of asynchronous requests on the non-blocking
+ * java.net.http client, so a single JVM can keep tens of thousands of users busy.
+ * The number of active users follows the {@link LoadProfile} of the scenario.
+ * Users send the GET requests of the request paths, or the operations of the {@link WorkloadMix}
+ * of the scenario with its think times.
+ * With {@link #withOnlineChecker} the operations of the mix are recorded and checked for linearizability.
+ * */
+public class LoadEngine implements AutoCloseable {
+
+    private static final long TICK_MILLIS = 100;
+    private static final long LOG_INTERVAL_MILLIS = 1_000;
+
+    private final URI origin;
+    private final BookPaths paths;
+    private final BookRequests requests;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final RouteLimiter limiter;
+    private final Duration requestTimeout;
+
+    private final InFlightRequests<Operation> inFlight = new InFlightRequests<>();
+    private Path histogramLog;
+    private ExpectedCatalog expected;
+    private LiveMetrics live;
+    private GeneratorMonitor generatorMonitor;
+    private OnlineChecker checker;
+
+    public LoadEngine(BookPaths paths) {
+        this(URI.create(Constants.API_URL), paths, Duration.ofSeconds(30), ConnectionSettings.fromSystemProperties());
+    }
+
+    /**
+     * @param apiUrl - url of the books api, the request paths are resolved against its origin
+     * @param paths - request paths shared by all virtual users
+     * @param requestTimeout - time after which a request counts as failed
+     * @param settings - connection pooling of the http client
+     * */
+    public LoadEngine(URI apiUrl, BookPaths paths, Duration requestTimeout, ConnectionSettings settings) {
+        this.origin = apiUrl.resolve("/");
+        this.paths = paths;
+        this.requests = new BookRequests(apiUrl, requestTimeout);
+        this.requestTimeout = requestTimeout;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "load-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClients.newLoadClient(settings, executor);
+        this.limiter = new RouteLimiter(settings.getMaxConnectionsPerRoute(), new ConnectionStats());
+    }
+
+    /**
+     * Writes the per-endpoint interval histograms of every run to the given HdrHistogram log, once per second
+     * @return LoadEngine - this engine, for chaining
+     * */
+    public LoadEngine withHistogramLog(Path histogramLog) {
+        this.histogramLog = histogramLog;
+        return this;
+    }
+
+    /**
+     * Checks every GET /books/{isbn} response against the expected catalog while the scenario runs,
+     * the response bodies are digested as they arrive and only parsed if the digest does not match
+     * @return LoadEngine - this engine, for chaining
+     * */
+    public LoadEngine withExpectedCatalog(ExpectedCatalog expected) {
+        this.expected = expected;
+        return this;
+    }
+
+    /**
+     * Counts every request and its response in the given live metrics as well
+     * @return LoadEngine - this engine, for chaining
+     * */
+    public LoadEngine withLiveMetrics(LiveMetrics live) {
+        this.live = live;
+        return this;
+    }
+
+    /**
+     * Monitors the resources of this JVM during every run, runs in which the generator was the bottleneck
+     * are flagged invalid and the samples are written to the histogram log as comments
+     * @return LoadEngine - this engine, for chaining
+     * */
+    public LoadEngine withGeneratorMonitor(GeneratorMonitor generatorMonitor) {
+        this.generatorMonitor = generatorMonitor;
+        return this;
+    }
+
+    /**
+     * Records every operation of the {@link WorkloadMix} on a book in the history of the checker, reads then
+     * receive their body to fingerprint it. The catalog is seeded before the run, so the checker should start
+     * from {@link BookRegister#UNKNOWN}. The caller closes the checker after the run for the complete result.
+     * @return LoadEngine - this engine, for chaining
+     * */
+    public LoadEngine withOnlineChecker(OnlineChecker checker) {
+        this.checker = checker;
+        return this;
+    }
+
+    /**
+     * Runs the scenario to completion, blocking the calling thread
+     * @param scenario - scenario to run
+     * @return LoadResult - counters collected during the run
+     * */
+    public LoadResult run(Scenario scenario) throws InterruptedException, IOException {
+        return run(scenario, new LoadResult(scenario.getName()));
+    }
+
+    /**
+     * Runs the scenario to completion, blocking the calling thread
+     * @param result - collects the counters, another thread may sample its latency intervals while the scenario
+     *                 runs as long as no histogram log is written
+     * @return LoadResult - the given result
+     * */
+    public LoadResult run(Scenario scenario, LoadResult result) throws InterruptedException, IOException {
+        LoadProfile profile = scenario.getProfile();
+        if (scenario.getMix() != null) {
+            scenario.getMix().prepare();
+            result.setMaxMissShare(scenario.getMix().maxMissShare());
+        }
+        Deque<VirtualUser> users = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom();
+        HistogramLogWriter log = histogramLog == null ? null : LatencyRecorder.openLog(histogramLog);
+        if (generatorMonitor != null) {
+            generatorMonitor.start();
+        }
+
+        long start = System.nanoTime();
+        long lastLog = 0;
+        long elapsed;
+        while ((elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) < profile.durationMillis()) {
+            int target = profile.targetUsers(elapsed);
+            while (users.size() < target) {
+                VirtualUser user = new VirtualUser(result, scenario.getMix(), random.split());
+                users.push(user);
+                user.next();
+            }
+            while (users.size() > target) {
+                users.pop().active = false;
+            }
+            if (log != null && elapsed - lastLog >= LOG_INTERVAL_MILLIS) {
+                result.getLatencies().writeInterval(log);
+                lastLog = elapsed;
+            }
+            Thread.sleep(TICK_MILLIS);
+        }
+        users.forEach(user -> user.active = false);
+        for (InFlightRequests.Request<Operation> request : inFlight.drain(InFlightRequests.DRAIN_TIMEOUT_MILLIS)) {
+            long waited = System.nanoTime() - request.getSentNanos();
+            if (live != null) {
+                live.requestCompleted(request.getEndpoint(), 0, waited);
+            }
+            if (request.getContext() != null) {
+                checker.fail(request.getContext());
+            }
+            result.recordTimeout(request.getEndpoint(), waited);
+        }
+        GeneratorReport generator = generatorMonitor == null ? null : generatorMonitor.stop();
+        result.setGenerator(generator);
+        if (log != null) {
+            result.getLatencies().writeInterval(log);
+            LatencyRecorder.writeErrors(log, result.getErrorsPerEndpoint());
+            if (generator != null) {
+                generator.toLogComments().forEach(log::outputComment);
+            }
+            log.close();
+        }
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    public ConnectionStats getConnectionStats() {
+        return limiter.getStats();
+    }
+
+    /**
+     * @return int - number of requests currently waiting for a response
+     * */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private InFlightRequests.Request<Operation> started(Endpoint endpoint, Operation operation) {
+        InFlightRequests.Request<Operation> request = inFlight.start(endpoint, System.nanoTime(), operation);
+        if (live != null) {
+            live.requestStarted();
+        }
+        return request;
+    }
+
+    /**
+     * @return boolean - false if the request expired at the end of the run and its answer must be ignored
+     * */
+    private boolean completed(InFlightRequests.Request<Operation> request, int statusCode, long elapsedNanos) {
+        if (!inFlight.finish(request)) {
+            return false;
+        }
+        if (live != null) {
+            live.requestCompleted(request.getEndpoint(), statusCode, elapsedNanos);
+        }
+        return true;
+    }
+
+    private class VirtualUser {
+
+        private final LoadResult result;
+        private final WorkloadMix mix;
+        //used by one request chain at a time
+        private final SplittableRandom random;
+        private volatile boolean active = true;
+
+        private VirtualUser(LoadResult result, WorkloadMix mix, SplittableRandom random) {
+            this.result = result;
+            this.mix = mix;
+            this.random = random;
+        }
+
+        private void next() {
+            if (!active) {
+                return;
+            }
+            if (mix != null) {
+                nextOfMix();
+                return;
+            }
+            String path = paths.next();
+            Endpoint endpoint = Endpoint.of("GET", path);
+            HttpRequest request = HttpRequest.newBuilder(origin.resolve(path))
+                    .timeout(requestTimeout)
+                    .GET()
+                    .build();
+            long isbn = expected != null && endpoint == Endpoint.GET_ONE ? isbnOf(path) : -1;
+            HttpResponse.BodyHandler<ResponseDigest> handler = isbn > 0
+                    ? ResponseDigest.handler()
+                    : HttpResponse.BodyHandlers.replacing(null);
+            InFlightRequests.Request<Operation> pending = started(endpoint, null);
+            limiter.send(client, request, handler)
+                    .whenComplete((response, error) -> {
+                        long elapsed = System.nanoTime() - pending.getSentNanos();
+                        if (!completed(pending, error != null ? 0 : response.statusCode(), elapsed)) {
+                            return;
+                        }
+                        if (error != null) {
+                            result.recordFailure(endpoint, elapsed);
+                        } else {
+                            result.record(endpoint, response.statusCode(), elapsed);
+                            if (isbn > 0) {
+                                expected.checkDigest(isbn, response.statusCode(), response.body());
+                            }
+                        }
+                        next();
+                    });
+        }
+
+        private void nextOfMix() {
+            Endpoint endpoint = mix.nextOperation(random);
+            WorkloadMix.Call call = mix.call(requests, endpoint, random);
+            Operation operation = checker == null || endpoint == Endpoint.GET_ALL ? null : invoke(call);
+            boolean read = operation != null && endpoint == Endpoint.GET_ONE;
+            HttpResponse.BodyHandler<byte[]> handler = read
+                    ? HttpResponse.BodyHandlers.ofByteArray()
+                    : HttpResponse.BodyHandlers.replacing(null);
+            InFlightRequests.Request<Operation> pending = started(endpoint, operation);
+            limiter.send(client, call.getRequest(), handler)
+                    .whenComplete((response, error) -> {
+                        long elapsed = System.nanoTime() - pending.getSentNanos();
+                        if (!completed(pending, error != null ? 0 : response.statusCode(), elapsed)) {
+                            return;
+                        }
+                        if (operation != null) {
+                            complete(operation, read, response, error);
+                        }
+                        if (error != null) {
+                            result.recordFailure(endpoint, elapsed);
+                        } else if (WorkloadMix.isConflict(endpoint, response.statusCode())) {
+                            result.recordConflict(endpoint, elapsed);
+                        } else {
+                            result.record(endpoint, response.statusCode(), elapsed);
+                        }
+                        long thinkTime = mix.thinkTimeMillis(random);
+                        if (thinkTime > 0) {
+                            CompletableFuture.delayedExecutor(thinkTime, TimeUnit.MILLISECONDS, executor)
+                                    .execute(this::next);
+                        } else {
+                            next();
+                        }
+                    });
+        }
+
+        private Operation invoke(WorkloadMix.Call call) {
+            switch (call.getOperation()) {
+                case CREATE:
+                    return checker.invoke(Operation.Type.CREATE, call.getIsbn(),
+                            BookRegister.fingerprint(mix.written(call)));
+                case UPDATE:
+                    return checker.invoke(Operation.Type.UPDATE, call.getIsbn(),
+                            BookRegister.fingerprint(mix.written(call)));
+                case DELETE:
+                    return checker.invoke(Operation.Type.DELETE, call.getIsbn(), BookRegister.ABSENT);
+                default:
+                    return checker.invoke(Operation.Type.READ, call.getIsbn(), BookRegister.ABSENT);
+            }
+        }
+
+        private void complete(Operation operation, boolean read, HttpResponse<byte[]> response, Throwable error) {
+            if (error != null) {
+                checker.fail(operation);
+            } else if (!read || response.statusCode() != 200) {
+                checker.complete(operation, response.statusCode(), BookRegister.ABSENT);
+            } else {
+                try {
+                    checker.complete(operation, 200, BookRegister.fingerprint(response.body()));
+                } catch (IOException e) {
+                    checker.fail(operation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one of the scenarios from {@link Scenarios} against {@link Constants#API_URL}
+     * Usage: LoadEngine [step|stress|spike|endurance|mixed] [path to book_data.csv or requests.bin] [histogram log file]
+     * [books.ndjson.gz to check the responses against]
+     * With -Dbooks.metrics.port=9404 the live metrics are served on localhost during the run.
+     * With -Dbooks.checkLinearizability=true the operations of a mix are checked for linearizability.
+     * */
+    public static void main(String[] args) throws Exception {
+        Scenario scenario = Scenarios.byName(args.length > 0 ? args[0] : "step");
+        BookPaths paths = args.length > 1 ? pathsFrom(Path.of(args[1])) : BookPaths.fromClasspath();
+        Integer metricsPort = Integer.getInteger("books.metrics.port");
+        try (LoadEngine engine = new LoadEngine(paths)
+                .withGeneratorMonitor(new GeneratorMonitor(portOf(URI.create(Constants.API_URL))));
+             LiveMetrics live = new LiveMetrics();
+             MetricsServer server = metricsPort == null ? null : new MetricsServer(metricsPort, live)) {
+            if (server != null) {
+                engine.withLiveMetrics(live.start());
+                System.out.println("Live metrics on " + server.start().getUrl());
+            }
+            if (args.length > 2) {
+                engine.withHistogramLog(Path.of(args[2]));
+            }
+            ExpectedCatalog expected = args.length > 3 ? expectedCatalog(Path.of(args[3])) : null;
+            engine.withExpectedCatalog(expected);
+            OnlineChecker checker = Boolean.getBoolean("books.checkLinearizability")
+                    ? new OnlineChecker().withInitialState(BookRegister.UNKNOWN)
+                    : null;
+            engine.withOnlineChecker(checker);
+            System.out.println(engine.run(scenario));
+            System.out.println(engine.getConnectionStats());
+            if (expected != null) {
+                System.out.println(expected);
+            }
+            if (checker != null) {
+                checker.close();
+                System.out.println(checker.getResult());
+            }
+        }
+    }
+
+    /**
+     * @return int - port of the url, the default port of its scheme if it has none
+     * */
+    public static int portOf(URI url) {
+        if (url.getPort() > 0) {
+            return url.getPort();
+        }
+        return "https".equalsIgnoreCase(url.getScheme()) ? 443 : 80;
+    }
+
+    /**
+     * @return long - isbn at the end of the path, -1 if it is not a number
+     * */
+    private static long isbnOf(String path) {
+        try {
+            return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static ExpectedCatalog expectedCatalog(Path books) throws IOException {
+        try (CatalogFiles.BookReader reader = CatalogFiles.openBooks(books)) {
+            return new ExpectedCatalog(BookTable.of(reader, 1 << 16, true));
+        }
+    }
+
+    private static BookPaths pathsFrom(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".bin")) {
+            return BookPaths.fromRequestFile(file, URI.create(Constants.API_URL).getPath());
+        }
+        return BookPaths.fromFile(file);
+    }
+}
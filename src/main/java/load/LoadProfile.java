@@ -0,0 +1,19 @@
+package load;
+
+/**
+ * Describes how many concurrent virtual users a scenario should keep busy at any moment of the run.
+ * Implementations mirror the thread groups used in the JMeter plans.
+ * */
+public interface LoadProfile {
+
+    /**
+     * @param elapsedMillis - milliseconds since the start of the run
+     * @return int - number of virtual users that should be active at that moment
+     * */
+    int targetUsers(long elapsedMillis);
+
+    /**
+     * @return long - total duration of the profile in milliseconds
+     * */
+    long durationMillis();
+}
@@ -0,0 +1,233 @@
+package load;
+
+import metrics.Endpoint;
+import metrics.GeneratorReport;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-endpoint latency histograms collected while a scenario is running.
+ * All updates are contention free.
+ * */
+public class LoadResult {
+
+    /**
+     * Share of 404s above the bound of the mix that still counts as noise of a short run
+     * */
+    private static final double MISS_TOLERANCE = 0.1;
+    private static final long MIN_MISS_SAMPLES = 100;
+
+    private final String scenario;
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> conflicts = new EnumMap<>(Endpoint.class);
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private volatile long durationMillis;
+    private volatile GeneratorReport generator;
+    private volatile double maxMissShare = Double.NaN;
+
+    public LoadResult(String scenario) {
+        this.scenario = scenario;
+        for (Endpoint endpoint : Endpoint.values()) {
+            errors.put(endpoint, new LongAdder());
+            conflicts.put(endpoint, new LongAdder());
+        }
+    }
+
+    public void record(Endpoint endpoint, int statusCode, long elapsedNanos) {
+        samples.increment();
+        latencies.record(endpoint, elapsedNanos);
+        if (statusCode < 200 || statusCode >= 400) {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    public void recordFailure(Endpoint endpoint, long elapsedNanos) {
+        record(endpoint, 0, elapsedNanos);
+    }
+
+    /**
+     * Records a request that was still unanswered when the run stopped waiting, as a failure with its latency
+     * up to that moment
+     * */
+    public void recordTimeout(Endpoint endpoint, long elapsedNanos) {
+        timeouts.increment();
+        recordFailure(endpoint, elapsedNanos);
+    }
+
+    /**
+     * Records a request that lost a race with a concurrent write on the same book, e.g. a read of a book
+     * that was just deleted, its latency is recorded but it does not count as an error
+     * */
+    public void recordConflict(Endpoint endpoint, long elapsedNanos) {
+        samples.increment();
+        latencies.record(endpoint, elapsedNanos);
+        conflicts.get(endpoint).increment();
+    }
+
+    void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    void setGenerator(GeneratorReport generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * @param maxMissShare - share of reads, updates and deletes of the mix that may find no book,
+     *                       see {@link WorkloadMix#maxMissShare()}
+     * */
+    void setMaxMissShare(double maxMissShare) {
+        this.maxMissShare = maxMissShare;
+    }
+
+    /**
+     * @return GeneratorReport - resource usage of the load generator during the run, null if it was not monitored
+     * */
+    public GeneratorReport getGenerator() {
+        return generator;
+    }
+
+    /**
+     * @return boolean - false if the load generator was the bottleneck of the run or the mix found far more
+     * missing books than its creates and deletes explain
+     * */
+    public boolean isValid() {
+        return (generator == null || generator.isValid()) && areConflictsExplained();
+    }
+
+    /**
+     * @return double - share of the requests that were conflicts, between 0 and 1
+     * */
+    public double getConflictShare() {
+        long samples = getSamples();
+        return samples == 0 ? 0 : getConflicts() / (double) samples;
+    }
+
+    /**
+     * @return double - share of the reads, updates and deletes of a book that got a 404, between 0 and 1
+     * */
+    public double getMissShare() {
+        long misses = 0;
+        long requests = 0;
+        Map<Endpoint, Histogram> totals = latencies.totals();
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.GET_ONE, Endpoint.UPDATE, Endpoint.DELETE}) {
+            misses += getConflicts(endpoint);
+            Histogram histogram = totals.get(endpoint);
+            requests += histogram == null ? 0 : histogram.getTotalCount();
+        }
+        return requests < MIN_MISS_SAMPLES ? 0 : misses / (double) requests;
+    }
+
+    /**
+     * @return boolean - false if the 404s exceed the bound of the mix by more than the tolerance of a short run
+     * */
+    public boolean areConflictsExplained() {
+        return Double.isNaN(maxMissShare) || getMissShare() <= maxMissShare + MISS_TOLERANCE;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getSamples() {
+        return samples.sum();
+    }
+
+    public long getErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getErrors(Endpoint endpoint) {
+        return errors.get(endpoint).sum();
+    }
+
+    /**
+     * @return Map - errors per endpoint, e.g. for {@link LatencyRecorder#writeErrors}
+     * */
+    public Map<Endpoint, Long> getErrorsPerEndpoint() {
+        Map<Endpoint, Long> counts = new EnumMap<>(Endpoint.class);
+        errors.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    /**
+     * @return long - requests that were still unanswered at the end of the run, they are counted as errors
+     * */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getConflicts(Endpoint endpoint) {
+        return conflicts.get(endpoint).sum();
+    }
+
+    public LatencyRecorder getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return Histogram - latencies of all endpoints merged, in microseconds
+     * */
+    public Histogram getMergedHistogram() {
+        Histogram merged = LatencyRecorder.newHistogram();
+        for (Map.Entry<Endpoint, Histogram> entry : latencies.totals().entrySet()) {
+            merged.add(entry.getValue());
+        }
+        return merged;
+    }
+
+    public double getMeanMillis() {
+        return getMergedHistogram().getMean() / 1000.0;
+    }
+
+    public double getMaxMillis() {
+        return getMergedHistogram().getMaxValue() / 1000.0;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getThroughput() {
+        return durationMillis == 0 ? 0 : getSamples() * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(
+                "%s: samples=%d, errors=%d, conflicts=%d (%.1f%%), throughput=%.1f/s, mean=%.2fms, max=%.2fms%n%s",
+                scenario, getSamples(), getErrors(), getConflicts(), getConflictShare() * 100, getThroughput(),
+                getMeanMillis(), getMaxMillis(), latencies.report()));
+        if (getTimeouts() > 0) {
+            report.append(String.format("timeouts=%d, unanswered when the run ended%n", getTimeouts()));
+        }
+        if (!Double.isNaN(maxMissShare)) {
+            report.append(String.format("404s=%.1f%% of the reads, updates and deletes", getMissShare() * 100));
+            report.append(String.format(", the mix explains up to %.1f%%", maxMissShare * 100));
+            report.append(System.lineSeparator());
+            if (!areConflictsExplained()) {
+                report.append("INVALID: far more books were missing than the mix deleted, was the catalog seeded?")
+                        .append(System.lineSeparator());
+            }
+        }
+        conflicts.forEach((endpoint, count) -> {
+            if (count.sum() > 0) {
+                report.append(String.format("%-22s conflicts=%d%n", endpoint.getTemplate(), count.sum()));
+            }
+        });
+        if (generator != null) {
+            report.append(generator).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
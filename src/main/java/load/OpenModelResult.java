@@ -0,0 +1,102 @@
+package load;
+
+import metrics.Endpoint;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result of an open-model run.
+ * The response time is measured from the moment the request was supposed to be sent according to the schedule,
+ * which is what a real client arriving at that moment would experience. The service time is measured from
+ * the moment the request was actually sent and is kept only for comparison.
+ * */
+public class OpenModelResult {
+
+    private final LoadResult responseTime;
+    private final LoadResult serviceTime;
+    private final LongAdder lateStarts = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAccumulator maxScheduleLagNanos = new LongAccumulator(Math::max, 0);
+    private final double targetRate;
+    private volatile boolean stopped;
+
+    public OpenModelResult(String name, double targetRate) {
+        this.responseTime = new LoadResult(name + " (from intended start)");
+        this.serviceTime = new LoadResult(name + " (from actual send)");
+        this.targetRate = targetRate;
+    }
+
+    void recordScheduleLag(long lagNanos, long lateThresholdNanos) {
+        maxScheduleLagNanos.accumulate(lagNanos);
+        if (lagNanos > lateThresholdNanos) {
+            lateStarts.increment();
+        }
+    }
+
+    void recordDropped(Endpoint endpoint, long elapsedNanos) {
+        dropped.increment();
+        responseTime.recordFailure(endpoint, elapsedNanos);
+    }
+
+    /**
+     * Records a request that was still unanswered when the run ended
+     * @param now - when the request expired, its latencies end there
+     * */
+    void recordTimeout(InFlightRequests.Request<?> request, long now) {
+        responseTime.recordTimeout(request.getEndpoint(), now - request.getIntendedNanos());
+        serviceTime.recordTimeout(request.getEndpoint(), now - request.getSentNanos());
+    }
+
+    void setStopped() {
+        stopped = true;
+    }
+
+    void setDurationMillis(long durationMillis) {
+        responseTime.setDurationMillis(durationMillis);
+        serviceTime.setDurationMillis(durationMillis);
+    }
+
+    public LoadResult getResponseTime() {
+        return responseTime;
+    }
+
+    public LoadResult getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * @return long - requests that left the scheduler later than the lateness threshold
+     * */
+    public long getLateStarts() {
+        return lateStarts.sum();
+    }
+
+    /**
+     * @return long - requests that were never sent because the in-flight limit was reached
+     * */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public double getMaxScheduleLagMillis() {
+        return maxScheduleLagNanos.get() / 1_000_000.0;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return boolean - whether the monitor of the run stopped it before the end of its duration
+     * */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("target=%.1f/s, late starts=%d, dropped=%d, max schedule lag=%.2fms%n%s%n%s",
+                targetRate, getLateStarts(), getDropped(), getMaxScheduleLagMillis(), responseTime, serviceTime);
+    }
+}
@@ -0,0 +1,301 @@
+package load;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import data.CatalogGenerator;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Json bodies of books encoded once, before the run, into a read-only memory mapped file, so POST and PUT
+ * requests do not serialize a {@link BookDTO} per send.
+ * A body is published to the http client as read-only views of the mapped bytes, which the client writes to
+ * the socket without copying them onto the heap. The isbn or the title of a request is spliced between two such
+ * views instead of being patched into the shared bytes, which concurrent requests for the same body may be
+ * sending at the same time. The cost per request does not depend on the size of the body.
+ * */
+public class PayloadCache {
+
+    private static final byte[] ISBN_FIELD = "\"isbn\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TITLE_FIELD = "\"title\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    //start, isbn start, isbn end, title start, title end of every body, the end is the start of the next one,
+    //the title is the json value with its quotes or null
+    private static final int OFFSETS = 5;
+
+    private final ByteBuffer bodies;
+    private final int[] offsets;
+    private final int size;
+
+    private PayloadCache(ByteBuffer bodies, int[] offsets, int size) {
+        this.bodies = bodies;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * @return PayloadCache - the bodies of all books of the catalog
+     * */
+    public static PayloadCache of(CatalogGenerator catalog) {
+        return of(catalog, (int) Math.min(catalog.size(), Integer.MAX_VALUE / OFFSETS));
+    }
+
+    /**
+     * @return PayloadCache - the bodies of the first books of the catalog
+     * */
+    public static PayloadCache of(CatalogGenerator catalog, int books) {
+        return of(catalog::book, books);
+    }
+
+    public static PayloadCache of(List<BookDTO> books) {
+        return of(index -> books.get((int) index), books.size());
+    }
+
+    /**
+     * Encodes the books into a temporary file that is deleted when the JVM exits and maps it
+     * @param books - book of an index
+     * @param size - number of books
+     * */
+    public static PayloadCache of(LongFunction<BookDTO> books, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The cache needs at least one book");
+        }
+        try {
+            Path file = Files.createTempFile("payloads", ".json");
+            file.toFile().deleteOnExit();
+            int[] offsets = new int[size * OFFSETS + 1];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                    StandardOpenOption.READ)) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+                long position = 0;
+                for (int i = 0; i < size; i++) {
+                    BookDTO book = books.apply(i);
+                    byte[] body = BookJsonCodec.toBytes(book);
+                    if (position + body.length > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("The bodies of " + size + " books do not fit in 2GB");
+                    }
+                    locate(book, body, (int) position, offsets, i * OFFSETS);
+                    if (chunk.remaining() < body.length) {
+                        write(channel, chunk);
+                    }
+                    if (body.length > chunk.capacity()) {
+                        write(channel, ByteBuffer.wrap(body));
+                    } else {
+                        chunk.put(body);
+                    }
+                    position += body.length;
+                }
+                write(channel, chunk);
+                offsets[size * OFFSETS] = (int) position;
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+                return new PayloadCache(mapped.asReadOnlyBuffer(), offsets, size);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Finds the isbn value and the title value, a json string or null, of a book in its body
+     * */
+    private static void locate(BookDTO book, byte[] body, int position, int[] offsets, int entry) {
+        int isbn = indexOf(body, ISBN_FIELD, 0) + ISBN_FIELD.length;
+        int isbnEnd = isbn;
+        while (isbnEnd < body.length && body[isbnEnd] != ',' && body[isbnEnd] != '}') {
+            isbnEnd++;
+        }
+        int title = indexOf(body, TITLE_FIELD, isbnEnd) + TITLE_FIELD.length;
+        int titleEnd = title < TITLE_FIELD.length ? -1 : valueEnd(body, title);
+        if (isbn < ISBN_FIELD.length || titleEnd < 0) {
+            throw new IllegalArgumentException("Unexpected body of " + book);
+        }
+        offsets[entry] = position;
+        offsets[entry + 1] = position + isbn;
+        offsets[entry + 2] = position + isbnEnd;
+        offsets[entry + 3] = position + title;
+        offsets[entry + 4] = position + titleEnd;
+    }
+
+    /**
+     * @return int - end of the json string with its closing quote or of null, -1 if neither starts at the position
+     * */
+    private static int valueEnd(byte[] body, int start) {
+        if (start + NULL.length <= body.length
+                && Arrays.equals(body, start, start + NULL.length, NULL, 0, NULL.length)) {
+            return start + NULL.length;
+        }
+        if (start >= body.length || body[start] != '"') {
+            return -1;
+        }
+        for (int i = start + 1; i < body.length; i++) {
+            if (body[i] == '\\') {
+                i++;
+            } else if (body[i] == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] body, byte[] field, int from) {
+        outer:
+        for (int i = from; i + field.length <= body.length; i++) {
+            for (int j = 0; j < field.length; j++) {
+                if (body[i + j] != field[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return BodyPublisher - the body of the book at the index, wrapping around at the end of the cache
+     * */
+    public HttpRequest.BodyPublisher body(long index) {
+        int entry = entry(index);
+        return publisher(slice(offsets[entry], offsets[entry + OFFSETS]));
+    }
+
+    /**
+     * @return BodyPublisher - the body of the book at the index with another isbn
+     * */
+    public HttpRequest.BodyPublisher withIsbn(long index, long isbn) {
+        int entry = entry(index);
+        return publisher(slice(offsets[entry], offsets[entry + 1]),
+                ByteBuffer.wrap(Long.toString(isbn).getBytes(StandardCharsets.US_ASCII)),
+                slice(offsets[entry + 2], offsets[entry + OFFSETS]));
+    }
+
+    /**
+     * @param title - new title, escaped as json needs it, null for a book without title
+     * @return BodyPublisher - the body of the book at the index with another title
+     * */
+    public HttpRequest.BodyPublisher withTitle(long index, String title) {
+        int entry = entry(index);
+        return publisher(slice(offsets[entry], offsets[entry + 3]),
+                ByteBuffer.wrap(title == null ? NULL : quote(title)),
+                slice(offsets[entry + 4], offsets[entry + OFFSETS]));
+    }
+
+    private static byte[] quote(String text) {
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(text);
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = '"';
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = '"';
+        return quoted;
+    }
+
+    /**
+     * @return byte[] - a copy of the body of the book at the index
+     * */
+    public byte[] bytes(long index) {
+        int entry = entry(index);
+        ByteBuffer body = slice(offsets[entry], offsets[entry + OFFSETS]);
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return bytes;
+    }
+
+    private int entry(long index) {
+        return (int) Math.floorMod(index, (long) size) * OFFSETS;
+    }
+
+    private ByteBuffer slice(int from, int to) {
+        return bodies.duplicate().position(from).limit(to).slice();
+    }
+
+    private static HttpRequest.BodyPublisher publisher(ByteBuffer... parts) {
+        long length = 0;
+        for (ByteBuffer part : parts) {
+            length += part.remaining();
+        }
+        return HttpRequest.BodyPublishers.fromPublisher(new Parts(parts), length);
+    }
+
+    /**
+     * Publishes the parts of a body on demand, every subscription gets views of its own,
+     * so the client may resend the body on a retry
+     * */
+    private static class Parts implements Flow.Publisher<ByteBuffer> {
+
+        private final ByteBuffer[] parts;
+
+        private Parts(ByteBuffer[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+
+                private final AtomicLong demand = new AtomicLong();
+                private final AtomicInteger draining = new AtomicInteger();
+                //only accessed by the thread that won the draining counter
+                private int next;
+                private volatile boolean done;
+
+                @Override
+                public void request(long n) {
+                    if (done) {
+                        return;
+                    }
+                    if (n <= 0) {
+                        done = true;
+                        subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                        return;
+                    }
+                    demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+                    //requests made from onNext are served by the loop below instead of recursing
+                    if (draining.getAndIncrement() != 0) {
+                        return;
+                    }
+                    do {
+                        while (!done && next < parts.length && demand.get() > 0) {
+                            demand.decrementAndGet();
+                            subscriber.onNext(parts[next++].duplicate());
+                        }
+                        if (!done && next == parts.length) {
+                            done = true;
+                            subscriber.onComplete();
+                        }
+                    } while (draining.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package load;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result of replaying a trace: the latencies from the original timing and the responses whose status
+ * differs from the status recorded in the trace.
+ * */
+public class ReplayResult {
+
+    private final OpenModelResult requests;
+    private final double speed;
+    private final long records;
+    private final LongAdder statusMismatches = new LongAdder();
+
+    ReplayResult(String name, double speed, long records, double meanRate) {
+        this.requests = new OpenModelResult(name, meanRate);
+        this.speed = speed;
+        this.records = records;
+    }
+
+    void recordStatusMismatch() {
+        statusMismatches.increment();
+    }
+
+    /**
+     * @return OpenModelResult - latencies measured from the moment the request was due according to the trace
+     * */
+    public OpenModelResult getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return double - time scale of the replay, 2 replays the trace twice as fast
+     * */
+    public double getSpeed() {
+        return speed;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return long - responses with a different status than recorded, only records with a known status count
+     * */
+    public long getStatusMismatches() {
+        return statusMismatches.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("replayed %d records at %.1fx, status mismatches=%d%n%s", records, speed,
+                getStatusMismatches(), requests);
+    }
+}
@@ -0,0 +1,274 @@
+package load;
+
+import client.ConnectionSettings;
+import data.CatalogSeeder;
+import data.SeedResult;
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+import util.Constants;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * Finds the highest arrival rate an endpoint sustains within a latency and error SLO, instead of reading
+ * the knee off the graphs of fixed stepping thread groups.
+ * <br>
+ * Each probe runs the endpoint at a constant arrival rate with the {@link ArrivalRateScheduler}, so the
+ * latencies include the queueing delay of an overloaded api. The rate is multiplied by the growth factor
+ * until a probe misses the SLO, then the highest passing rate is binary searched between the last passing
+ * and the first failing rate until they are within the resolution.
+ * <br>
+ * While a probe runs its latencies and errors are watched every 250ms. Once more requests are over the SLO
+ * latency than the percentile allows for the whole probe, or more requests failed than the error rate allows,
+ * the probe can no longer pass and is stopped, which keeps overloaded probes short without changing a verdict.
+ * */
+public class SaturationFinder {
+
+    /**
+     * Runs one probe at a constant arrival rate
+     * */
+    @FunctionalInterface
+    public interface RateProbe {
+        SaturationResult.Probe run(double ratePerSecond) throws InterruptedException;
+    }
+
+    private double percentile = 99;
+    private long maxLatencyMicros = TimeUnit.SECONDS.toMicros(2);
+    private double maxErrorRate = 0.01;
+    private double startRate = 10;
+    private double maxRate = 10_000;
+    private double growth = 2;
+    private double resolution = 0.05;
+    private int maxProbes = 20;
+    private Duration stepDuration = Duration.ofSeconds(30);
+    private Duration cooldown = Duration.ofSeconds(5);
+
+    /**
+     * @param percentile - percentile of the latency objective, e.g. 99
+     * @param maxLatency - highest latency of the percentile
+     * @param maxErrorRate - highest share of failed requests, e.g. 0.01
+     * */
+    public SaturationFinder withSlo(double percentile, Duration maxLatency, double maxErrorRate) {
+        this.percentile = percentile;
+        this.maxLatencyMicros = TimeUnit.NANOSECONDS.toMicros(maxLatency.toNanos());
+        this.maxErrorRate = maxErrorRate;
+        return this;
+    }
+
+    /**
+     * @param startRate - rate of the first probe
+     * @param maxRate - highest rate that is probed
+     * @param growth - factor between the rates of the ramp, e.g. 2
+     * */
+    public SaturationFinder withRates(double startRate, double maxRate, double growth) {
+        if (startRate <= 0 || maxRate < startRate || growth <= 1) {
+            throw new IllegalArgumentException("Invalid rates: start=" + startRate + ", max=" + maxRate
+                    + ", growth=" + growth);
+        }
+        this.startRate = startRate;
+        this.maxRate = maxRate;
+        this.growth = growth;
+        return this;
+    }
+
+    /**
+     * @param resolution - the search ends when the failing rate is within this share of the passing rate,
+     *                     e.g. 0.05 for 5%
+     * @param maxProbes - the search ends after this many probes
+     * */
+    public SaturationFinder withResolution(double resolution, int maxProbes) {
+        this.resolution = resolution;
+        this.maxProbes = maxProbes;
+        return this;
+    }
+
+    /**
+     * @param stepDuration - how long a probe issues requests
+     * @param cooldown - pause between probes, so the api recovers from an overloaded probe
+     * */
+    public SaturationFinder withSteps(Duration stepDuration, Duration cooldown) {
+        this.stepDuration = stepDuration;
+        this.cooldown = cooldown;
+        return this;
+    }
+
+    /**
+     * Searches the capacity of an endpoint
+     * @param endpoint - endpoint the probes target
+     * @param probe - runs a probe at a rate, e.g. {@link #probeWith}
+     * @return SaturationResult - capacity and all probes
+     * */
+    public SaturationResult find(Endpoint endpoint, RateProbe probe) throws InterruptedException {
+        SaturationResult result = new SaturationResult(endpoint, describeSlo());
+        double passing = 0;
+        double failing = Double.POSITIVE_INFINITY;
+
+        double rate = startRate;
+        while (result.getProbes().size() < maxProbes) {
+            if (run(result, probe, rate)) {
+                passing = rate;
+                if (rate >= maxRate) {
+                    return result;
+                }
+                rate = Math.min(rate * growth, maxRate);
+            } else {
+                failing = rate;
+                break;
+            }
+        }
+        while (result.getProbes().size() < maxProbes
+                && failing - passing > resolution * Math.max(passing, startRate)) {
+            rate = (passing + failing) / 2;
+            if (run(result, probe, rate)) {
+                passing = rate;
+            } else {
+                failing = rate;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches the capacity of CREATE, every request of every probe creates a book with a new isbn.
+     * The created books are deleted after the search, so another search can start from the same first isbn.
+     * @param creates - requests with the isbns from the first isbn on
+     * @param seeder - deletes the created books
+     * @return SaturationResult - capacity and all probes
+     * @throws IllegalStateException - if some of the created books could not be deleted
+     * */
+    public SaturationResult findCreate(ArrivalRateScheduler scheduler, CreateBookRequests creates,
+                                       CatalogSeeder seeder) throws InterruptedException {
+        SaturationResult result;
+        try {
+            result = find(Endpoint.CREATE, probeWith(scheduler, Endpoint.CREATE, sequence -> creates.next()));
+        } finally {
+            SeedResult teardown = seeder.teardown(creates.createdIsbns());
+            if (!teardown.isSuccessful()) {
+                throw new IllegalStateException("Created books left in the catalog: " + teardown);
+            }
+        }
+        return result;
+    }
+
+    private boolean run(SaturationResult result, RateProbe probe, double rate) throws InterruptedException {
+        if (!result.getProbes().isEmpty()) {
+            Thread.sleep(cooldown.toMillis());
+        }
+        SaturationResult.Probe outcome = probe.run(rate);
+        result.add(outcome);
+        return outcome.isPassed();
+    }
+
+    /**
+     * Probes that send the requests of one endpoint with the scheduler and stop once the SLO is out of reach
+     * @param requests - builds the request with the given sequence number, the sequence restarts with every probe
+     * */
+    public RateProbe probeWith(ArrivalRateScheduler scheduler, Endpoint endpoint, LongFunction<HttpRequest> requests) {
+        return rate -> {
+            long planned = (long) Math.ceil(rate * stepDuration.toNanos() / 1e9);
+            OpenModelResult result = scheduler.run(endpoint.getTemplate() + " at " + Math.round(rate) + "/s", rate,
+                    stepDuration, requests, watch(endpoint, planned));
+            LoadResult responseTime = result.getResponseTime();
+            return evaluate(rate, responseTime.getThroughput(), responseTime.getSamples(), responseTime.getErrors(),
+                    responseTime.getLatencies().totals().get(endpoint), result.isStopped());
+        };
+    }
+
+    /**
+     * @param planned - requests of the whole probe
+     * @return Predicate - false once the probe misses the SLO whatever the remaining requests do
+     * */
+    Predicate<OpenModelResult> watch(Endpoint endpoint, long planned) {
+        long allowedSlow = (long) Math.floor((1 - percentile / 100) * planned);
+        long allowedErrors = (long) Math.floor(maxErrorRate * planned);
+        long[] slow = new long[1];
+        return result -> {
+            Histogram interval = result.getResponseTime().getLatencies().sampleInterval().get(endpoint);
+            slow[0] += interval.getTotalCount() - interval.getCountBetweenValues(0, maxLatencyMicros);
+            return slow[0] <= allowedSlow && result.getResponseTime().getErrors() <= allowedErrors;
+        };
+    }
+
+    /**
+     * Applies the SLO to the outcome of a probe
+     * @param latencies - latencies in microseconds
+     * @param stopped - whether the probe was stopped early, a stopped probe always missed the SLO
+     * */
+    public SaturationResult.Probe evaluate(double rate, double throughput, long samples, long errors,
+                                           Histogram latencies, boolean stopped) {
+        String violation = null;
+        long latency = latencies.getValueAtPercentile(percentile);
+        if (samples == 0) {
+            violation = "no samples";
+        } else if (errors > maxErrorRate * samples) {
+            violation = String.format("error rate %.2f%% > %.2f%%", errors * 100.0 / samples, maxErrorRate * 100);
+        } else if (latency > maxLatencyMicros) {
+            violation = String.format("p%s %.2fms > %.2fms", LatencyRecorder.formatPercentile(percentile),
+                    latency / 1000.0, maxLatencyMicros / 1000.0);
+        } else if (stopped) {
+            violation = "SLO out of reach";
+        }
+        return new SaturationResult.Probe(rate, throughput, samples, errors, latencies, stopped, violation);
+    }
+
+    private String describeSlo() {
+        return String.format("p%s <= %.0fms, errors <= %.2f%%", LatencyRecorder.formatPercentile(percentile),
+                maxLatencyMicros / 1000.0, maxErrorRate * 100);
+    }
+
+    /**
+     * Requests of an endpoint against {@link Constants#API_URL}: GET_ALL, GET_ONE with the paths of
+     * book_data.csv, CREATE is searched with {@link #findCreate}
+     * */
+    static LongFunction<HttpRequest> requestsFor(Endpoint endpoint) {
+        URI api = URI.create(Constants.API_URL);
+        switch (endpoint) {
+            case GET_ALL:
+                return sequence -> HttpRequest.newBuilder(api).GET().build();
+            case GET_ONE:
+                BookPaths paths = BookPaths.fromClasspath();
+                URI origin = api.resolve("/");
+                return sequence -> HttpRequest.newBuilder(origin.resolve(paths.next())).GET().build();
+            default:
+                throw new IllegalArgumentException("No requests for " + endpoint);
+        }
+    }
+
+    /**
+     * Searches the capacity of every given endpoint against {@link Constants#API_URL}
+     * Usage: SaturationFinder [endpoints, e.g. get_all,get_one,create] [probe seconds] [p99 latency ms]
+     * [max error rate] [max rate] [first isbn of the created books]
+     * */
+    public static void main(String[] args) throws Exception {
+        String[] endpoints = (args.length > 0 ? args[0] : "get_all,get_one").split(",");
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 2_000;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+        double maxRate = args.length > 4 ? Double.parseDouble(args[4]) : 10_000;
+        long firstIsbn = args.length > 5 ? Long.parseLong(args[5]) : 2_000_000L;
+        URI api = URI.create(Constants.API_URL);
+        SaturationFinder finder = new SaturationFinder()
+                .withSlo(99, Duration.ofMillis(latencyMillis), errorRate)
+                .withRates(10, maxRate, 2)
+                .withSteps(Duration.ofSeconds(seconds), Duration.ofSeconds(5));
+        try (ArrivalRateScheduler scheduler = new ArrivalRateScheduler(10_000);
+             CatalogSeeder seeder = new CatalogSeeder(api, ConnectionSettings.fromSystemProperties(), 64)) {
+            for (String name : endpoints) {
+                Endpoint endpoint = Endpoint.valueOf(name.trim().toUpperCase());
+                if (endpoint == Endpoint.CREATE) {
+                    System.out.println(finder.findCreate(scheduler, new CreateBookRequests(api, firstIsbn), seeder));
+                } else {
+                    System.out.println(finder.find(endpoint,
+                            finder.probeWith(scheduler, endpoint, requestsFor(endpoint))));
+                }
+            }
+            System.out.println(scheduler.getConnectionStats());
+        }
+    }
+}
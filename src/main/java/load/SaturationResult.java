@@ -0,0 +1,159 @@
+package load;
+
+import metrics.Endpoint;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a {@link SaturationFinder} search for one endpoint: the highest arrival rate that met the SLO
+ * and every probed rate with its latencies, which together form the latency curve around the capacity.
+ * */
+public class SaturationResult {
+
+    private final Endpoint endpoint;
+    private final String slo;
+    private final List<Probe> probes = new ArrayList<>();
+
+    SaturationResult(Endpoint endpoint, String slo) {
+        this.endpoint = endpoint;
+        this.slo = slo;
+    }
+
+    /**
+     * One step of the search, run at a constant arrival rate
+     * */
+    public static class Probe {
+
+        private final double targetRate;
+        private final double throughput;
+        private final long samples;
+        private final long errors;
+        private final Histogram latencies;
+        private final boolean stopped;
+        private final String violation;
+
+        Probe(double targetRate, double throughput, long samples, long errors, Histogram latencies,
+              boolean stopped, String violation) {
+            this.targetRate = targetRate;
+            this.throughput = throughput;
+            this.samples = samples;
+            this.errors = errors;
+            this.latencies = latencies;
+            this.stopped = stopped;
+            this.violation = violation;
+        }
+
+        public double getTargetRate() {
+            return targetRate;
+        }
+
+        /**
+         * @return double - completed requests per second, below the target rate when the api fell behind
+         * */
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getErrorRate() {
+            return samples == 0 ? 0 : errors / (double) samples;
+        }
+
+        /**
+         * @return Histogram - latencies from the intended start in microseconds
+         * */
+        public Histogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * @return boolean - whether the step was stopped early because it could no longer meet the SLO
+         * */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        public boolean isPassed() {
+            return violation == null;
+        }
+
+        /**
+         * @return String - why the step missed the SLO, null if it met it
+         * */
+        public String getViolation() {
+            return violation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%9.1f/s %9.1f/s %9d %7.2f%% %9.2f %9.2f %9.2f %9.2f  %s", targetRate, throughput,
+                    samples, getErrorRate() * 100, latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(90) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0, isPassed() ? "ok" : (stopped ? "stopped, " : "") + violation);
+        }
+    }
+
+    void add(Probe probe) {
+        probes.add(probe);
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return List - probes in the order they were run
+     * */
+    public List<Probe> getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return List - probes ordered by their target rate
+     * */
+    public List<Probe> getCurve() {
+        return probes.stream()
+                .sorted(Comparator.comparingDouble(Probe::getTargetRate))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return double - highest probed rate that met the SLO, 0 if none did
+     * */
+    public double getCapacity() {
+        return probes.stream().filter(Probe::isPassed).mapToDouble(Probe::getTargetRate).max().orElse(0);
+    }
+
+    /**
+     * @return double - lowest probed rate that missed the SLO, infinity if none did
+     * */
+    public double getFirstFailingRate() {
+        return probes.stream().filter(probe -> !probe.isPassed()).mapToDouble(Probe::getTargetRate).min()
+                .orElse(Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    public String toString() {
+        double capacity = getCapacity();
+        StringBuilder report = new StringBuilder(String.format("%s: capacity=%.1f/s (%s), %d probes%n",
+                endpoint.getTemplate(), capacity, slo, probes.size()));
+        report.append(String.format("  %11s %11s %9s %8s %9s %9s %9s %9s%n", "target", "throughput", "samples",
+                "errors", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Probe probe : getCurve()) {
+            report.append(probe.getTargetRate() == capacity && probe.isPassed() ? "* " : "  ")
+                    .append(probe).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package load;
+
+/**
+ * A named load profile, the Java counterpart of a JMeter thread group.
+ * Without a workload mix the virtual users send the GET requests of book_data.csv.
+ * */
+public class Scenario {
+
+    private final String name;
+    private final LoadProfile profile;
+    private final WorkloadMix mix;
+
+    public Scenario(String name, LoadProfile profile) {
+        this(name, profile, null);
+    }
+
+    /**
+     * @param mix - operations of the virtual users, null for the GET requests of the request paths
+     * */
+    public Scenario(String name, LoadProfile profile, WorkloadMix mix) {
+        this.name = name;
+        this.profile = profile;
+        this.mix = mix;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return WorkloadMix - operations of the virtual users, null if they send the GET requests of the paths
+     * */
+    public WorkloadMix getMix() {
+        return mix;
+    }
+}
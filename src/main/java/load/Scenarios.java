@@ -0,0 +1,95 @@
+package load;
+
+import data.CatalogGenerator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The thread groups from PerformanceTestingGetBooks.jmx expressed as Java scenarios.
+ * */
+public class Scenarios {
+
+    private Scenarios() {
+
+    }
+
+    /**
+     * load_testing_stepping_thread_group: 100 users, 25 added every 30s, held for 300s
+     * */
+    public static Scenario loadTestingStep() {
+        return new Scenario("load_testing_stepping_thread_group",
+                new SteppingProfile(100, 0, 25, 0, 30, 300, 25, 30, 1));
+    }
+
+    /**
+     * stress testing: 500 users, burst of 50 then 100 added every 50s, held for 300s
+     * */
+    public static Scenario stressTesting() {
+        return new Scenario("stress_testing_thread_group",
+                new SteppingProfile(500, 0, 100, 50, 50, 300, 100, 50, 1));
+    }
+
+    /**
+     * spike_testing_thread_group: five spikes of 20 users
+     * */
+    public static Scenario spikeTesting() {
+        return new Scenario("spike_testing_thread_group", new UltimateProfile()
+                .row(20, 60, 60, 90, 60)
+                .row(20, 300, 60, 90, 60)
+                .row(20, 600, 60, 90, 60)
+                .row(20, 1000, 60, 180, 60)
+                .row(20, 1600, 60, 60, 60));
+    }
+
+    /**
+     * endurance_testing_thread_group: 100 users reached in 5 steps over 5 minutes, held for 15 minutes
+     * */
+    public static Scenario enduranceTesting() {
+        return new Scenario("endurance_testing_thread_group", new ConcurrencyProfile(100,
+                TimeUnit.MINUTES.toMillis(5), 5, TimeUnit.MINUTES.toMillis(15)));
+    }
+
+    /**
+     * mixed workload: the users of the stepping thread group running the read heavy mix of
+     * {@link WorkloadMix#readHeavy} on a catalog of 10000 books generated with seed 42
+     * */
+    public static Scenario mixedWorkload() {
+        return new Scenario("mixed_workload_thread_group", new SteppingProfile(100, 0, 25, 0, 30, 300, 25, 30, 1),
+                WorkloadMix.readHeavy(new CatalogGenerator(10_000, 42)));
+    }
+
+    public static List<Scenario> all() {
+        return List.of(loadTestingStep(), stressTesting(), spikeTesting(), enduranceTesting(), mixedWorkload());
+    }
+
+    /**
+     * @param name - scenario name, either the thread group name or its short form (step, stress, spike, endurance, mixed)
+     * @return Scenario - the matching scenario
+     * */
+    public static Scenario byName(String name) {
+        for (Scenario scenario : all()) {
+            if (scenario.getName().equals(name) || scenario.getName().startsWith(shortName(name))) {
+                return scenario;
+            }
+        }
+        throw new IllegalArgumentException("Unknown scenario: " + name);
+    }
+
+    private static String shortName(String name) {
+        switch (name) {
+            case "step":
+                return "load_testing_stepping";
+            case "stress":
+                return "stress_testing";
+            case "spike":
+                return "spike_testing";
+            case "endurance":
+                return "endurance_testing";
+            case "mixed":
+                return "mixed_workload";
+            default:
+                return name + "_thread_group";
+        }
+    }
+}
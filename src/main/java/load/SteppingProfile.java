@@ -0,0 +1,86 @@
+package load;
+
+/**
+ * Equivalent of the jp@gc Stepping Thread Group.
+ * After the initial delay a first batch of users is started, then a new batch is added every start period
+ * until the total is reached. The load is held for the flight time and the users are stopped in batches again.
+ * */
+public class SteppingProfile implements LoadProfile {
+
+    private final int totalUsers;
+    private final long initialDelayMillis;
+    private final int startUsers;
+    private final int startUsersBurst;
+    private final long startPeriodMillis;
+    private final long holdMillis;
+    private final int stopUsers;
+    private final long stopPeriodMillis;
+    private final long rampUpMillis;
+
+    private final int startBatches;
+    private final long fullLoadAtMillis;
+
+    public SteppingProfile(int totalUsers, int initialDelaySeconds, int startUsers, int startUsersBurst,
+                           int startPeriodSeconds, int holdSeconds, int stopUsers, int stopPeriodSeconds,
+                           int rampUpSeconds) {
+        if (totalUsers <= 0 || startUsers <= 0 || stopUsers <= 0) {
+            throw new IllegalArgumentException("User counts must be positive");
+        }
+        this.totalUsers = totalUsers;
+        this.initialDelayMillis = initialDelaySeconds * 1000L;
+        this.startUsers = startUsers;
+        this.startUsersBurst = startUsersBurst;
+        this.startPeriodMillis = startPeriodSeconds * 1000L;
+        this.holdMillis = holdSeconds * 1000L;
+        this.stopUsers = stopUsers;
+        this.stopPeriodMillis = stopPeriodSeconds * 1000L;
+        this.rampUpMillis = rampUpSeconds * 1000L;
+
+        int remaining = totalUsers - firstBatch();
+        this.startBatches = 1 + (remaining + startUsers - 1) / startUsers;
+        this.fullLoadAtMillis = (startBatches - 1) * startPeriodMillis + rampUpMillis;
+    }
+
+    private int firstBatch() {
+        return Math.min(totalUsers, startUsersBurst > 0 ? startUsersBurst : startUsers);
+    }
+
+    private int batchSize(int batch) {
+        if (batch == 0) {
+            return firstBatch();
+        }
+        return Math.min(startUsers, totalUsers - firstBatch() - (batch - 1) * startUsers);
+    }
+
+    @Override
+    public int targetUsers(long elapsedMillis) {
+        long t = elapsedMillis - initialDelayMillis;
+        if (t < 0 || elapsedMillis >= durationMillis()) {
+            return 0;
+        }
+        if (t < fullLoadAtMillis) {
+            double users = 0;
+            for (int batch = 0; batch < startBatches; batch++) {
+                long sinceBatchStart = t - batch * startPeriodMillis;
+                if (sinceBatchStart < 0) {
+                    break;
+                }
+                double ramp = rampUpMillis == 0 ? 1.0 : Math.min(1.0, (double) sinceBatchStart / rampUpMillis);
+                users += batchSize(batch) * ramp;
+            }
+            return (int) users;
+        }
+        long sinceStopStart = t - fullLoadAtMillis - holdMillis;
+        if (sinceStopStart < 0) {
+            return totalUsers;
+        }
+        long stopped = (sinceStopStart / stopPeriodMillis + 1) * stopUsers;
+        return (int) Math.max(0, totalUsers - stopped);
+    }
+
+    @Override
+    public long durationMillis() {
+        long stopBatches = (totalUsers + stopUsers - 1) / stopUsers;
+        return initialDelayMillis + fullLoadAtMillis + holdMillis + (stopBatches - 1) * stopPeriodMillis;
+    }
+}
@@ -0,0 +1,55 @@
+package load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Pause of a virtual user between the response to its request and its next request,
+ * the counterpart of the JMeter timers.
+ * */
+public interface ThinkTime {
+
+    /**
+     * @param random - random generator of the calling virtual user
+     * @return long - pause in milliseconds, 0 sends the next request right away
+     * */
+    long nextMillis(SplittableRandom random);
+
+    static ThinkTime none() {
+        return random -> 0;
+    }
+
+    /**
+     * Constant Timer
+     * */
+    static ThinkTime constant(long millis) {
+        return random -> millis;
+    }
+
+    /**
+     * Uniform Random Timer: between min and max milliseconds
+     * */
+    static ThinkTime uniform(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Invalid think time range: " + minMillis + "-" + maxMillis);
+        }
+        return random -> minMillis + random.nextLong(maxMillis - minMillis + 1);
+    }
+
+    /**
+     * Gaussian Random Timer: normally distributed around the mean, never negative
+     * */
+    static ThinkTime gaussian(long meanMillis, long deviationMillis) {
+        return random -> {
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                    * Math.cos(2 * Math.PI * random.nextDouble());
+            return Math.max(0, Math.round(meanMillis + deviationMillis * gaussian));
+        };
+    }
+
+    /**
+     * Poisson Random Timer: exponentially distributed pauses, users that act independently of each other
+     * */
+    static ThinkTime exponential(long meanMillis) {
+        return random -> Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+}
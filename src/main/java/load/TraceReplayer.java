@@ -0,0 +1,213 @@
+package load;
+
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import client.HttpClients;
+import client.RouteLimiter;
+import data.CatalogGenerator;
+import metrics.Endpoint;
+import trace.TraceReader;
+import trace.TraceRecord;
+import util.BasicAuth;
+import util.Constants;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a recorded trace against the books api with the original timing, optionally time scaled.
+ * Like the {@link ArrivalRateScheduler} every request has an intended start time, here taken from the trace,
+ * and its latency is measured from that time. The trace is streamed from its memory mapped file,
+ * only the requests in flight are held in memory.
+ * <br>
+ * Traces keep a digest of the bodies but not the bodies, creates and updates send books of a generated catalog:
+ * a new catalog isbn per create, and the isbn of the path per update. The bodies of the first 65536 books
+ * are encoded once into a {@link PayloadCache} and reused with the isbn of the request.
+ * */
+public class TraceReplayer implements AutoCloseable {
+
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int CACHED_BODIES = 1 << 16;
+
+    private final URI origin;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final RouteLimiter limiter;
+    private final InFlightRequests<Void> inFlight;
+    private final String authorization = BasicAuth.header();
+    private final AtomicLong bodies = new AtomicLong();
+    private CatalogGenerator catalog = new CatalogGenerator(1_000_000, 20);
+    private PayloadCache payloads;
+
+    /**
+     * @param apiUrl - url of the books api, the paths of the trace are resolved against its origin
+     * @param maxInFlight - safety limit for outstanding requests, requests over the limit are counted as dropped
+     * @param settings - connection pooling of the http client
+     * */
+    public TraceReplayer(URI apiUrl, int maxInFlight, ConnectionSettings settings) {
+        this.origin = apiUrl.resolve("/");
+        this.inFlight = new InFlightRequests<>(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "trace-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClients.newLoadClient(settings, executor);
+        this.limiter = new RouteLimiter(settings.getMaxConnectionsPerRoute(), new ConnectionStats());
+    }
+
+    /**
+     * @param catalog - catalog the bodies of creates and updates are taken from
+     * @return TraceReplayer - this replayer, for chaining
+     * */
+    public synchronized TraceReplayer withBodies(CatalogGenerator catalog) {
+        this.catalog = catalog;
+        this.payloads = null;
+        return this;
+    }
+
+    public ConnectionStats getConnectionStats() {
+        return limiter.getStats();
+    }
+
+    /**
+     * Replays the trace, blocking the calling thread
+     * @param speed - time scale, 1 keeps the original timing, 2 or 10 replay the trace 2 or 10 times as fast
+     * @return ReplayResult - latencies from the due time of every request
+     * */
+    public ReplayResult replay(Path trace, double speed) throws IOException, InterruptedException {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        try (TraceReader reader = TraceReader.open(trace)) {
+            double meanRate = reader.getRecords() * speed * 1e6 / Math.max(1, reader.getDurationMicros());
+            ReplayResult result = new ReplayResult(trace.getFileName().toString(), speed, reader.getRecords(),
+                    meanRate);
+            long first = reader.getStartMicros();
+            long start = System.nanoTime();
+            while (reader.hasNext()) {
+                TraceRecord record = reader.next();
+                long intended = start + (long) ((record.getTimestampMicros() - first) * 1000 / speed);
+                ArrivalRateScheduler.waitUntil(intended);
+                result.getRequests().recordScheduleLag(System.nanoTime() - intended, LATE_THRESHOLD_NANOS);
+                send(record, intended, result);
+            }
+            for (InFlightRequests.Request<Void> request : inFlight.drain(InFlightRequests.DRAIN_TIMEOUT_MILLIS)) {
+                result.getRequests().recordTimeout(request, System.nanoTime());
+            }
+            result.getRequests().setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        }
+    }
+
+    private void send(TraceRecord record, long intended, ReplayResult result) {
+        Endpoint endpoint = Endpoint.of(record.getMethod(), record.getPath());
+        OpenModelResult requests = result.getRequests();
+        HttpRequest request;
+        try {
+            request = request(record);
+        } catch (IllegalArgumentException e) {
+            requests.getResponseTime().recordFailure(endpoint, System.nanoTime() - intended);
+            return;
+        }
+        InFlightRequests.Request<Void> pending = inFlight.start(endpoint, intended, null);
+        if (pending == null) {
+            requests.recordDropped(endpoint, System.nanoTime() - intended);
+            return;
+        }
+        long sent = pending.getSentNanos();
+        limiter.send(client, request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long now = System.nanoTime();
+                    if (!inFlight.finish(pending)) {
+                        return;
+                    }
+                    if (error != null) {
+                        requests.getResponseTime().recordFailure(endpoint, now - intended);
+                        requests.getServiceTime().recordFailure(endpoint, now - sent);
+                        return;
+                    }
+                    requests.getResponseTime().record(endpoint, response.statusCode(), now - intended);
+                    requests.getServiceTime().record(endpoint, response.statusCode(), now - sent);
+                    if (record.getStatus() != 0 && record.getStatus() != response.statusCode()) {
+                        result.recordStatusMismatch();
+                    }
+                });
+    }
+
+    private HttpRequest request(TraceRecord record) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(origin.resolve(record.getPath()));
+        switch (record.getMethod()) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return builder.method(record.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+            case "DELETE":
+                return builder.header("Authorization", authorization).DELETE().build();
+            default:
+                return builder.header("Authorization", authorization)
+                        .header("Content-Type", "application/json")
+                        .method(record.getMethod(), body(record))
+                        .build();
+        }
+    }
+
+    private HttpRequest.BodyPublisher body(TraceRecord record) {
+        PayloadCache payloads = payloads();
+        long body = bodies.getAndIncrement() % catalog.size();
+        long isbn = catalog.isbn(body);
+        if (!record.getMethod().equals("POST")) {
+            String path = record.getPath();
+            int query = path.indexOf('?');
+            String last = path.substring(path.lastIndexOf('/', query < 0 ? path.length() : query) + 1,
+                    query < 0 ? path.length() : query);
+            try {
+                isbn = Long.parseLong(last);
+            } catch (NumberFormatException e) {
+                //not a book path, the catalog book is sent as it is
+            }
+        }
+        return payloads.withIsbn(body, isbn);
+    }
+
+    /**
+     * @return PayloadCache - bodies of the catalog, encoded on the first create or update
+     * */
+    private synchronized PayloadCache payloads() {
+        if (payloads == null) {
+            payloads = PayloadCache.of(catalog, (int) Math.min(catalog.size(), CACHED_BODIES));
+        }
+        return payloads;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Replays a trace written by {@link trace.TraceConverter} against {@link Constants#API_URL}
+     * Usage: TraceReplayer trace [speed] [max in flight]
+     * */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: TraceReplayer trace [speed] [max in flight]");
+            return;
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        try (TraceReplayer replayer = new TraceReplayer(URI.create(Constants.API_URL), maxInFlight,
+                ConnectionSettings.fromSystemProperties())) {
+            System.out.println(replayer.replay(Path.of(args[0]), speed));
+            System.out.println(replayer.getConnectionStats());
+        }
+    }
+}
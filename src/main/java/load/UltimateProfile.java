@@ -0,0 +1,58 @@
+package load;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Equivalent of the jp@gc Ultimate Thread Group used for spike testing.
+ * Every row starts its users linearly over the startup time after its initial delay,
+ * holds them and then shuts them down linearly. Rows overlap freely.
+ * */
+public class UltimateProfile implements LoadProfile {
+
+    private final List<long[]> rows = new ArrayList<>();
+
+    /**
+     * Adds a schedule row, with the same columns as the JMeter thread schedule table
+     * @param users - number of users started by this row
+     * @param initialDelaySeconds - delay before the row starts
+     * @param startupSeconds - time over which the users are started
+     * @param holdSeconds - time for which all users of the row are kept busy
+     * @param shutdownSeconds - time over which the users are stopped
+     * @return UltimateProfile - this profile, for chaining
+     * */
+    public UltimateProfile row(int users, int initialDelaySeconds, int startupSeconds, int holdSeconds,
+                               int shutdownSeconds) {
+        rows.add(new long[]{users, initialDelaySeconds * 1000L, startupSeconds * 1000L, holdSeconds * 1000L,
+                shutdownSeconds * 1000L});
+        return this;
+    }
+
+    @Override
+    public int targetUsers(long elapsedMillis) {
+        double users = 0;
+        for (long[] row : rows) {
+            long t = elapsedMillis - row[1];
+            if (t < 0) {
+                continue;
+            }
+            if (t < row[2]) {
+                users += row[0] * (double) t / row[2];
+            } else if (t < row[2] + row[3]) {
+                users += row[0];
+            } else if (t < row[2] + row[3] + row[4]) {
+                users += row[0] * (1.0 - (double) (t - row[2] - row[3]) / row[4]);
+            }
+        }
+        return (int) users;
+    }
+
+    @Override
+    public long durationMillis() {
+        long duration = 0;
+        for (long[] row : rows) {
+            duration = Math.max(duration, row[1] + row[2] + row[3] + row[4]);
+        }
+        return duration;
+    }
+}
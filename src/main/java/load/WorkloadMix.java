@@ -0,0 +1,301 @@
+package load;
+
+import data.CatalogGenerator;
+import metrics.Endpoint;
+import util.BookDTO;
+
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Weighted mix of CRUD operations on the books of a generated catalog, run by the virtual users of the
+ * {@link LoadEngine} in place of the GET paths of book_data.csv, e.g.
+ * <pre>
+ * new WorkloadMix("read_heavy")
+ *         .operation(Endpoint.GET_ONE, 80)
+ *         .operation(Endpoint.GET_ALL, 10)
+ *         .operation(Endpoint.UPDATE, 5)
+ *         .operation(Endpoint.CREATE, 3)
+ *         .operation(Endpoint.DELETE, 2)
+ *         .keys(new CatalogGenerator(10_000, 42), KeyDistribution.zipf(10_000, 1.0))
+ *         .thinkTime(ThinkTime.exponential(200));
+ * </pre>
+ * With {@link #preEncodedBodies()} the bodies of creates and updates come from a {@link PayloadCache}.
+ * Reads and writes draw their isbns from the same key distribution, so with a skewed distribution they meet
+ * on the same hot books. The catalog has to be seeded before the run, see {@link data.CatalogSeeder}.
+ * A write or read that loses against a concurrent write (404 for a deleted book, 403 for a book that exists
+ * already) is counted as a conflict of its endpoint, not as an error. More 404s than {@link #maxMissShare()}
+ * explains flag the run, the catalog was most likely not seeded.
+ * */
+public class WorkloadMix {
+
+    private final String name;
+    private final List<Endpoint> operations = new ArrayList<>();
+    private final List<Double> weights = new ArrayList<>();
+    private double[] cumulative = new double[0];
+    private CatalogGenerator catalog;
+    private KeyDistribution keys;
+    private ThinkTime thinkTime = ThinkTime.none();
+    private boolean preEncode;
+    private volatile PayloadCache payloads;
+    private final AtomicLong revisions = new AtomicLong();
+
+    public WorkloadMix(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param endpoint - one of GET_ALL, GET_ONE, CREATE, UPDATE and DELETE
+     * @param weight - relative weight of the operation, e.g. a percentage
+     * */
+    public WorkloadMix operation(Endpoint endpoint, double weight) {
+        if (endpoint == Endpoint.OTHER || weight <= 0) {
+            throw new IllegalArgumentException("Invalid operation: " + endpoint + " with weight " + weight);
+        }
+        int existing = operations.indexOf(endpoint);
+        if (existing >= 0) {
+            weights.set(existing, weights.get(existing) + weight);
+        } else {
+            operations.add(endpoint);
+            weights.add(weight);
+        }
+        cumulative = new double[weights.size()];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += weights.get(i);
+            cumulative[i] = sum;
+        }
+        return this;
+    }
+
+    /**
+     * @param catalog - books the operations work on, a rank of the distribution is mapped to a book
+     *                  with {@link CatalogGenerator#indexOfRank}
+     * @param keys - popularity of the books, at most as many keys as books
+     * */
+    public WorkloadMix keys(CatalogGenerator catalog, KeyDistribution keys) {
+        if (keys.size() > catalog.size()) {
+            throw new IllegalArgumentException("The catalog has " + catalog.size() + " books for " + keys.size()
+                    + " keys");
+        }
+        this.catalog = catalog;
+        this.keys = keys;
+        return this;
+    }
+
+    public WorkloadMix thinkTime(ThinkTime thinkTime) {
+        this.thinkTime = thinkTime;
+        return this;
+    }
+
+    /**
+     * Encodes the bodies of all books of the catalog once, when the first run of the mix starts, creates and
+     * updates then send the cached bodies instead of serializing a book per request
+     * */
+    public WorkloadMix preEncodedBodies() {
+        if (catalog == null) {
+            throw new IllegalStateException("The mix " + name + " needs keys before its bodies");
+        }
+        this.preEncode = true;
+        return this;
+    }
+
+    /**
+     * Encodes the bodies requested with {@link #preEncodedBodies()}, called by the {@link LoadEngine} before
+     * the users start, so building a scenario stays cheap
+     * */
+    synchronized void prepare() {
+        if (preEncode && payloads == null) {
+            payloads = PayloadCache.of(catalog);
+        }
+    }
+
+    /**
+     * 80% GET /books/{isbn}, 10% GET /books, 5% PUT, 3% POST and 2% DELETE on Zipf distributed books
+     * of the catalog, with exponential think times of 200ms on average
+     * */
+    public static WorkloadMix readHeavy(CatalogGenerator catalog) {
+        return new WorkloadMix("read_heavy")
+                .operation(Endpoint.GET_ONE, 80)
+                .operation(Endpoint.GET_ALL, 10)
+                .operation(Endpoint.UPDATE, 5)
+                .operation(Endpoint.CREATE, 3)
+                .operation(Endpoint.DELETE, 2)
+                .keys(catalog, KeyDistribution.zipf(catalog.size(), 1.0))
+                .thinkTime(ThinkTime.exponential(200))
+                .preEncodedBodies();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return double - share of the requests that go to the endpoint, between 0 and 1
+     * */
+    public double share(Endpoint endpoint) {
+        int index = operations.indexOf(endpoint);
+        return index < 0 ? 0 : weights.get(index) / cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * Every operation on a book is drawn from the same mix, so starting from a seeded catalog a book is absent
+     * with at most the probability that its last create or delete was a delete.
+     * @return double - upper bound of the share of reads, updates and deletes that find no book, between 0 and 1
+     * */
+    public double maxMissShare() {
+        double creates = share(Endpoint.CREATE);
+        double deletes = share(Endpoint.DELETE);
+        return deletes == 0 ? 0 : deletes / (creates + deletes);
+    }
+
+    /**
+     * @param random - random generator of the calling virtual user
+     * @return Endpoint - operation of the next request
+     * */
+    public Endpoint nextOperation(SplittableRandom random) {
+        if (cumulative.length == 0) {
+            throw new IllegalStateException("The mix " + name + " has no operations");
+        }
+        double draw = random.nextDouble() * cumulative[cumulative.length - 1];
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (draw < cumulative[i]) {
+                return operations.get(i);
+            }
+        }
+        return operations.get(cumulative.length - 1);
+    }
+
+    /**
+     * @return long - catalog index of the book of the next keyed request
+     * */
+    long nextIndex(SplittableRandom random) {
+        if (keys == null) {
+            throw new IllegalStateException("The mix " + name + " needs keys for its item operations");
+        }
+        return catalog.indexOfRank(keys.next(random));
+    }
+
+    /**
+     * Builds the request of an operation on a book drawn from the key distribution.
+     * Creates send the catalog book, updates the catalog book with a new revision as title.
+     * */
+    public HttpRequest request(BookRequests requests, Endpoint operation, SplittableRandom random) {
+        return call(requests, operation, random).getRequest();
+    }
+
+    /**
+     * Like {@link #request} but keeps the book the request works on, e.g. for the history of an
+     * {@link consistency.OnlineChecker}
+     * */
+    public Call call(BookRequests requests, Endpoint operation, SplittableRandom random) {
+        if (operation == Endpoint.GET_ALL) {
+            return new Call(operation, -1, -1, null, requests.getAll());
+        }
+        long index = nextIndex(random);
+        long isbn = catalog.isbn(index);
+        PayloadCache payloads = this.payloads;
+        switch (operation) {
+            case GET_ONE:
+                return new Call(operation, index, isbn, null, requests.getOne(isbn));
+            case CREATE:
+                return new Call(operation, index, isbn, null, payloads != null && index < payloads.size()
+                        ? requests.create(payloads.body(index))
+                        : requests.create(catalog.book(index)));
+            case UPDATE:
+                String title = "Revision " + revisions.incrementAndGet();
+                if (payloads != null && index < payloads.size()) {
+                    return new Call(operation, index, isbn, title,
+                            requests.update(isbn, payloads.withTitle(index, title)));
+                }
+                BookDTO book = catalog.book(index);
+                book.setTitle(title);
+                return new Call(operation, index, isbn, title, requests.update(book));
+            case DELETE:
+                return new Call(operation, index, isbn, null, requests.delete(isbn));
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
+    /**
+     * @return BookDTO - book sent by a create or update call
+     * */
+    public BookDTO written(Call call) {
+        BookDTO book = catalog.book(call.index);
+        if (call.title != null) {
+            book.setTitle(call.title);
+        }
+        return book;
+    }
+
+    /**
+     * @param random - random generator of the calling virtual user
+     * @return long - pause before the next request in milliseconds
+     * */
+    public long thinkTimeMillis(SplittableRandom random) {
+        return thinkTime.nextMillis(random);
+    }
+
+    /**
+     * @return boolean - whether the status is the outcome of a race with a concurrent write on the same book
+     * */
+    public static boolean isConflict(Endpoint operation, int statusCode) {
+        switch (operation) {
+            case CREATE:
+                return statusCode == 403;
+            case GET_ONE:
+            case UPDATE:
+            case DELETE:
+                return statusCode == 404;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + operations.stream()
+                .map(endpoint -> String.format("%.1f%% %s", share(endpoint) * 100, endpoint.getTemplate()))
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * A request of the mix and the book it works on
+     * */
+    public static class Call {
+
+        private final Endpoint operation;
+        private final long index;
+        private final long isbn;
+        private final String title;
+        private final HttpRequest request;
+
+        private Call(Endpoint operation, long index, long isbn, String title, HttpRequest request) {
+            this.operation = operation;
+            this.index = index;
+            this.isbn = isbn;
+            this.title = title;
+            this.request = request;
+        }
+
+        public Endpoint getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return long - isbn of the book, -1 for GET /books
+         * */
+        public long getIsbn() {
+            return isbn;
+        }
+
+        public HttpRequest getRequest() {
+            return request;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package metrics;
+
+/**
+ * Endpoints of the books api, identified by method and path template.
+ * Latencies are always aggregated per endpoint so that fast and slow operations are never mixed.
+ * */
+public enum Endpoint {
+    GET_ALL("GET /books"),
+    GET_ONE("GET /books/{isbn}"),
+    CREATE("POST /books"),
+    UPDATE("PUT /books/{isbn}"),
+    DELETE("DELETE /books/{isbn}"),
+    OTHER("OTHER");
+
+    private static final String COLLECTION = "/books";
+
+    private final String template;
+
+    Endpoint(String template) {
+        this.template = template;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Maps a request to its endpoint
+     * @param method - HTTP method
+     * @param path - request path or full url, e.g. /api/v1/books/8781234567891
+     * @return Endpoint - the matching endpoint, OTHER for unsupported combinations
+     * */
+    public static Endpoint of(String method, String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int collection = path.indexOf(COLLECTION);
+        if (collection < 0) {
+            return OTHER;
+        }
+        String rest = path.substring(collection + COLLECTION.length());
+        boolean item = rest.length() > 1 && rest.charAt(0) == '/';
+        if (!item && !rest.isEmpty() && !rest.equals("/")) {
+            return OTHER;
+        }
+        switch (method.toUpperCase()) {
+            case "GET":
+                return item ? GET_ONE : GET_ALL;
+            case "POST":
+                return item ? OTHER : CREATE;
+            case "PUT":
+                return item ? UPDATE : OTHER;
+            case "DELETE":
+                return item ? DELETE : OTHER;
+            default:
+                return OTHER;
+        }
+    }
+}
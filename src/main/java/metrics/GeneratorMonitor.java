@@ -0,0 +1,276 @@
+package metrics;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Self-monitoring of the load generator. While a run is going on it samples, once per second:
+ * process and system CPU load and the allocation rate of the live threads over JMX, the receive and send queues of the sockets
+ * to the api from /proc/net/tcp (Linux only), GC pauses from the jdk.GarbageCollection Flight Recorder events
+ * and the scheduling delay of a thread that wakes up every millisecond.
+ * A run is invalid when the generator itself was saturated: its latencies then measure the load box,
+ * not the api.
+ * */
+public class GeneratorMonitor {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 1_000;
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final List<Path> TCP_TABLES = List.of(Path.of("/proc/net/tcp"), Path.of("/proc/net/tcp6"));
+
+    private final int targetPort;
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private double maxCpu = 0.8;
+    private long maxSchedulingDelayMicros = 10_000;
+    private double maxGcPauseShare = 0.05;
+    private long maxSocketBacklogBytes = 256 * 1024;
+    private Run run;
+
+    /**
+     * @param targetPort - port of the api, sockets to it are checked for unread responses
+     * */
+    public GeneratorMonitor(int targetPort) {
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * @param maxCpu - highest mean CPU load of the generator process, share of all cores
+     * @param maxSchedulingDelay - highest p99 delay of a thread waking up
+     * @param maxGcPauseShare - highest share of the run spent in GC pauses
+     * @param maxSocketBacklogBytes - most response bytes the generator may leave unread in its sockets
+     * @return GeneratorMonitor - this monitor, for chaining
+     * */
+    public GeneratorMonitor withLimits(double maxCpu, Duration maxSchedulingDelay, double maxGcPauseShare,
+                                       long maxSocketBacklogBytes) {
+        this.maxCpu = maxCpu;
+        this.maxSchedulingDelayMicros = TimeUnit.NANOSECONDS.toMicros(maxSchedulingDelay.toNanos());
+        this.maxGcPauseShare = maxGcPauseShare;
+        this.maxSocketBacklogBytes = maxSocketBacklogBytes;
+        return this;
+    }
+
+    /**
+     * Starts monitoring a run
+     * */
+    public synchronized void start() {
+        if (run != null) {
+            throw new IllegalStateException("The generator is already monitored");
+        }
+        run = new Run();
+    }
+
+    /**
+     * Stops monitoring the current run
+     * @return GeneratorReport - the samples of the run and whether the generator stayed within its limits
+     * */
+    public synchronized GeneratorReport stop() throws InterruptedException {
+        if (run == null) {
+            throw new IllegalStateException("The generator is not monitored");
+        }
+        Run stopped = run;
+        run = null;
+        return stopped.stop();
+    }
+
+    List<String> violations(double cpu, long schedulingDelayMicros, double gcPauseShare, long socketBacklogBytes) {
+        List<String> violations = new ArrayList<>();
+        if (cpu > maxCpu) {
+            violations.add(String.format("cpu %.0f%% > %.0f%%", cpu * 100, maxCpu * 100));
+        }
+        if (schedulingDelayMicros > maxSchedulingDelayMicros) {
+            violations.add(String.format("scheduling delay p99 %.1fms > %.1fms", schedulingDelayMicros / 1000.0,
+                    maxSchedulingDelayMicros / 1000.0));
+        }
+        if (gcPauseShare > maxGcPauseShare) {
+            violations.add(String.format("gc pauses %.1f%% > %.1f%%", gcPauseShare * 100, maxGcPauseShare * 100));
+        }
+        if (socketBacklogBytes > maxSocketBacklogBytes) {
+            violations.add(String.format("unread responses %dB > %dB", socketBacklogBytes, maxSocketBacklogBytes));
+        }
+        return violations;
+    }
+
+    /**
+     * Sums the send and receive queues of the established connections to the port
+     * @param tables - /proc/net/tcp style files
+     * @return long[] - connections, bytes in the receive queues, bytes in the send queues, all -1 if no table
+     *                  could be read
+     * */
+    static long[] socketQueues(List<Path> tables, int port) {
+        long[] queues = {0, 0, 0};
+        boolean read = false;
+        String remotePort = String.format(":%04X", port);
+        for (Path table : tables) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(table);
+            } catch (IOException e) {
+                continue;
+            }
+            read = true;
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                String[] fields = line.trim().split("\\s+");
+                //sl local_address rem_address st tx_queue:rx_queue
+                if (fields.length < 5 || !fields[2].endsWith(remotePort) || !fields[3].equals("01")) {
+                    continue;
+                }
+                int colon = fields[4].indexOf(':');
+                queues[0]++;
+                queues[2] += Long.parseLong(fields[4].substring(0, colon), 16);
+                queues[1] += Long.parseLong(fields[4].substring(colon + 1), 16);
+            }
+        }
+        return read ? queues : new long[]{-1, -1, -1};
+    }
+
+    private class Run {
+
+        private final long startNanos = System.nanoTime();
+        private final Histogram schedulingDelay = LatencyRecorder.newHistogram();
+        private final LongAdder gcPauseNanos = new LongAdder();
+        private final LongAccumulator maxGcPauseNanos = new LongAccumulator(Math::max, 0);
+        private final List<GeneratorReport.Sample> samples = new ArrayList<>();
+        private final ScheduledExecutorService sampler;
+        private final Thread probe;
+        private final RecordingStream gcEvents;
+        private volatile boolean running = true;
+        private long lastNanos = startNanos;
+        private long lastCpuNanos = os.getProcessCpuTime();
+        private final Map<Long, Long> allocatedBytes = new HashMap<>();
+        private long lastGcMillis = gcMillis();
+
+        private Run() {
+            allocatedSinceLastSample();
+            gcEvents = gcEvents();
+            probe = new Thread(this::probe, "generator-monitor-probe");
+            probe.setDaemon(true);
+            probe.start();
+            sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "generator-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * GC pauses from Flight Recorder, null if it is not available in this JVM,
+         * then the collection time of the collectors is used instead, which includes concurrent phases
+         * */
+        private RecordingStream gcEvents() {
+            try {
+                RecordingStream stream = new RecordingStream();
+                stream.enable("jdk.GarbageCollection");
+                stream.onEvent("jdk.GarbageCollection", event -> {
+                    gcPauseNanos.add(event.getDuration("sumOfPauses").toNanos());
+                    maxGcPauseNanos.accumulate(event.getDuration("longestPause").toNanos());
+                });
+                stream.startAsync();
+                return stream;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private void probe() {
+            long expected = System.nanoTime() + PROBE_INTERVAL_NANOS;
+            while (running) {
+                LockSupport.parkNanos(expected - System.nanoTime());
+                long now = System.nanoTime();
+                schedulingDelay.recordValue(Math.min(Math.max(0, (now - expected) / 1000),
+                        LatencyRecorder.HIGHEST_TRACKABLE_MICROS));
+                expected = now + PROBE_INTERVAL_NANOS;
+            }
+        }
+
+        private synchronized void sample() {
+            long now = System.nanoTime();
+            long cpuNanos = os.getProcessCpuTime();
+            long allocated = allocatedSinceLastSample();
+            double seconds = Math.max(1, now - lastNanos) / 1e9;
+            double cpu = (cpuNanos - lastCpuNanos) / (seconds * 1e9 * os.getAvailableProcessors());
+            long[] queues = socketQueues(TCP_TABLES, targetPort);
+            if (gcEvents == null) {
+                long millis = gcMillis();
+                gcPauseNanos.add(TimeUnit.MILLISECONDS.toNanos(millis - lastGcMillis));
+                maxGcPauseNanos.accumulate(TimeUnit.MILLISECONDS.toNanos(millis - lastGcMillis));
+                lastGcMillis = millis;
+            }
+            samples.add(new GeneratorReport.Sample(TimeUnit.NANOSECONDS.toMillis(now - startNanos),
+                    Math.min(1, Math.max(0, cpu)), os.getCpuLoad(),
+                    allocated / seconds, queues[0], queues[1], queues[2]));
+            lastNanos = now;
+            lastCpuNanos = cpuNanos;
+        }
+
+        /**
+         * Bytes allocated by the live threads since the previous call, threads that ended in between are lost
+         * */
+        private long allocatedSinceLastSample() {
+            long[] ids = threads.getAllThreadIds();
+            long[] bytes = threads.getThreadAllocatedBytes(ids);
+            Map<Long, Long> previous = new HashMap<>(allocatedBytes);
+            allocatedBytes.clear();
+            long allocated = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    allocated += bytes[i] - previous.getOrDefault(ids[i], 0L);
+                    allocatedBytes.put(ids[i], bytes[i]);
+                }
+            }
+            return Math.max(0, allocated);
+        }
+
+        private GeneratorReport stop() throws InterruptedException {
+            sampler.shutdown();
+            sampler.awaitTermination(5, TimeUnit.SECONDS);
+            running = false;
+            probe.join();
+            if (gcEvents != null) {
+                gcEvents.close();
+            }
+            synchronized (this) {
+                if (samples.isEmpty()) {
+                    sample();
+                }
+                long durationNanos = System.nanoTime() - startNanos;
+                double cpu = samples.stream().mapToDouble(GeneratorReport.Sample::getCpu).average().orElse(0);
+                double gcPauseShare = gcPauseNanos.sum() / (double) durationNanos;
+                long delay = schedulingDelay.getValueAtPercentile(99);
+                long backlog = samples.stream().mapToLong(GeneratorReport.Sample::getReceiveQueueBytes).max()
+                        .orElse(0);
+                return new GeneratorReport(TimeUnit.NANOSECONDS.toMillis(durationNanos), samples,
+                        TimeUnit.NANOSECONDS.toMillis(gcPauseNanos.sum()), maxGcPauseNanos.get() / 1e6,
+                        schedulingDelay, violations(cpu, delay, gcPauseShare, backlog));
+            }
+        }
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
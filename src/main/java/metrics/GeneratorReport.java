@@ -0,0 +1,179 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Resource usage of the load generator during one run, see {@link GeneratorMonitor}.
+ * The run is valid when the generator stayed within the limits of the monitor.
+ * */
+public class GeneratorReport {
+
+    private final long durationMillis;
+    private final List<Sample> samples;
+    private final long gcPauseMillis;
+    private final double maxGcPauseMillis;
+    private final Histogram schedulingDelay;
+    private final List<String> violations;
+
+    /**
+     * @param schedulingDelay - delays of a thread waking up, in microseconds
+     * */
+    public GeneratorReport(long durationMillis, List<Sample> samples, long gcPauseMillis, double maxGcPauseMillis,
+                           Histogram schedulingDelay, List<String> violations) {
+        this.durationMillis = durationMillis;
+        this.samples = new ArrayList<>(samples);
+        this.gcPauseMillis = gcPauseMillis;
+        this.maxGcPauseMillis = maxGcPauseMillis;
+        this.schedulingDelay = schedulingDelay;
+        this.violations = new ArrayList<>(violations);
+    }
+
+    /**
+     * @return boolean - whether the generator stayed within its limits, its latencies are those of the api
+     * */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    /**
+     * @return List - one sample per second of the run
+     * */
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public double getMeanCpu() {
+        return samples.stream().mapToDouble(Sample::getCpu).average().orElse(0);
+    }
+
+    public double getMaxCpu() {
+        return samples.stream().mapToDouble(Sample::getCpu).max().orElse(0);
+    }
+
+    public long getGcPauseMillis() {
+        return gcPauseMillis;
+    }
+
+    public double getMaxGcPauseMillis() {
+        return maxGcPauseMillis;
+    }
+
+    public double getMeanAllocationMBps() {
+        return samples.stream().mapToDouble(Sample::getAllocationBytesPerSecond).average().orElse(0) / (1 << 20);
+    }
+
+    public double getSchedulingDelayMillis(double percentile) {
+        return schedulingDelay.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * @return long - most bytes of responses left unread in the sockets to the api, -1 if unknown
+     * */
+    public long getMaxReceiveQueueBytes() {
+        return samples.stream().mapToLong(Sample::getReceiveQueueBytes).max().orElse(-1);
+    }
+
+    /**
+     * @return List - the samples and the summary as lines for the comments of a histogram log
+     * */
+    public List<String> toLogComments() {
+        List<String> lines = new ArrayList<>();
+        for (Sample sample : samples) {
+            lines.add("generator " + sample);
+        }
+        lines.add("generator " + summary());
+        return lines;
+    }
+
+    private String summary() {
+        return String.format(Locale.ROOT, "%s: cpu mean=%.0f%%, max=%.0f%%, gc pauses=%dms (max %.1fms),"
+                        + " allocation=%.1fMB/s, scheduling delay p99=%.2fms, max=%.2fms, unread responses max=%dB",
+                isValid() ? "valid" : "INVALID " + violations, getMeanCpu() * 100, getMaxCpu() * 100, gcPauseMillis,
+                maxGcPauseMillis, getMeanAllocationMBps(), getSchedulingDelayMillis(99),
+                schedulingDelay.getMaxValue() / 1000.0, getMaxReceiveQueueBytes());
+    }
+
+    @Override
+    public String toString() {
+        return "load generator " + summary();
+    }
+
+    /**
+     * Resource usage of the generator over one second
+     * */
+    public static class Sample {
+
+        private final long elapsedMillis;
+        private final double cpu;
+        private final double systemCpu;
+        private final double allocationBytesPerSecond;
+        private final long connections;
+        private final long receiveQueueBytes;
+        private final long sendQueueBytes;
+
+        /**
+         * @param cpu - CPU load of the generator process, share of all cores
+         * @param systemCpu - CPU load of the host, negative if unknown
+         * @param connections - established connections to the api, -1 if unknown
+         * @param receiveQueueBytes - response bytes received by the kernel but not yet read by the generator
+         * @param sendQueueBytes - request bytes not yet acknowledged by the api
+         * */
+        public Sample(long elapsedMillis, double cpu, double systemCpu, double allocationBytesPerSecond,
+                      long connections, long receiveQueueBytes, long sendQueueBytes) {
+            this.elapsedMillis = elapsedMillis;
+            this.cpu = cpu;
+            this.systemCpu = systemCpu;
+            this.allocationBytesPerSecond = allocationBytesPerSecond;
+            this.connections = connections;
+            this.receiveQueueBytes = receiveQueueBytes;
+            this.sendQueueBytes = sendQueueBytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getCpu() {
+            return cpu;
+        }
+
+        public double getSystemCpu() {
+            return systemCpu;
+        }
+
+        public double getAllocationBytesPerSecond() {
+            return allocationBytesPerSecond;
+        }
+
+        public long getConnections() {
+            return connections;
+        }
+
+        public long getReceiveQueueBytes() {
+            return receiveQueueBytes;
+        }
+
+        public long getSendQueueBytes() {
+            return sendQueueBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "t=%.1fs cpu=%.0f%% system=%.0f%% allocation=%.1fMB/s connections=%d"
+                            + " rx queue=%dB tx queue=%dB", elapsedMillis / 1000.0, cpu * 100, systemCpu * 100,
+                    allocationBytesPerSecond / (1 << 20), connections, receiveQueueBytes, sendQueueBytes);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-endpoint latency recorder backed by HdrHistogram.
+ * Recording is wait-free and does not allocate, so it can be called from the load engine's completion callbacks.
+ * A single reader thread periodically takes interval histograms, which are accumulated into the run totals
+ * and can be written to a histogram log that is mergeable across runs and generators.
+ * Values are recorded in microseconds with 3 significant digits.
+ * */
+public class LatencyRecorder {
+
+    public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    public static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    //comment of a histogram log with the errors of an endpoint: #errors ENDPOINT count
+    private static final String ERRORS_COMMENT = "errors ";
+
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Histogram> totals = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Histogram> recycled = new EnumMap<>(Endpoint.class);
+    //drained from the recorders by totals() but not yet handed out as an interval
+    private final Map<Endpoint, Histogram> pending = new EnumMap<>(Endpoint.class);
+    private long lastWriteMillis = System.currentTimeMillis();
+
+    public LatencyRecorder() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            totals.put(endpoint, newHistogram());
+            pending.put(endpoint, newHistogram());
+        }
+    }
+
+    public static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Records one request, safe to call from any thread
+     * @param endpoint - endpoint of the request
+     * @param elapsedNanos - latency of the request in nanoseconds
+     * */
+    public void record(Endpoint endpoint, long elapsedNanos) {
+        long micros = Math.min(Math.max(0, elapsedNanos / 1000), HIGHEST_TRACKABLE_MICROS);
+        recorders.get(endpoint).recordValue(micros);
+    }
+
+    /**
+     * Takes the histograms recorded since the previous call and adds them to the totals.
+     * Must be called from a single reader thread at a time.
+     * @return Map - interval histogram per endpoint, valid until the next call
+     * */
+    public synchronized Map<Endpoint, Histogram> sampleInterval() {
+        Map<Endpoint, Histogram> interval = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = recorders.get(endpoint).getIntervalHistogram(recycled.get(endpoint));
+            recycled.put(endpoint, histogram);
+            histogram.add(pending.get(endpoint));
+            pending.get(endpoint).reset();
+            totals.get(endpoint).add(histogram);
+            interval.put(endpoint, histogram);
+        }
+        return interval;
+    }
+
+    /**
+     * Does not end the current interval, its values are still returned by the next {@link #sampleInterval()}
+     * @return Map - copies of the accumulated histograms per endpoint, including the current interval
+     * */
+    public synchronized Map<Endpoint, Histogram> totals() {
+        Map<Endpoint, Histogram> copy = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram current = recorders.get(endpoint).getIntervalHistogram();
+            pending.get(endpoint).add(current);
+            Histogram total = totals.get(endpoint).copy();
+            total.add(pending.get(endpoint));
+            copy.put(endpoint, total);
+        }
+        return copy;
+    }
+
+    /**
+     * Writes the current interval histograms, tagged with their endpoint name, to an open log.
+     * An interval spans from the previous write, or the creation of the recorder, until now.
+     * The enum name is used as tag since the log format does not allow spaces in tags.
+     * */
+    public synchronized void writeInterval(HistogramLogWriter writer) {
+        long start = lastWriteMillis;
+        long now = Math.max(start, System.currentTimeMillis());
+        lastWriteMillis = now;
+        sampleInterval().forEach((endpoint, histogram) -> {
+            if (histogram.getTotalCount() > 0) {
+                histogram.setTag(endpoint.name());
+                histogram.setStartTimeStamp(start);
+                histogram.setEndTimeStamp(now);
+                writer.outputIntervalHistogram(histogram);
+            }
+        });
+    }
+
+    public static HistogramLogWriter openLog(Path file) throws FileNotFoundException {
+        HistogramLogWriter writer = new HistogramLogWriter(new PrintStream(file.toFile()));
+        writer.outputLogFormatVersion();
+        writer.outputStartTime(System.currentTimeMillis());
+        writer.outputLegend();
+        return writer;
+    }
+
+    /**
+     * Writes the errors of a run as comments to an open log, since interval histograms only hold latencies.
+     * The histogram log reader skips them, {@link #readLog} adds them up.
+     * @param errors - errors per endpoint over the whole run
+     * */
+    public static void writeErrors(HistogramLogWriter writer, Map<Endpoint, Long> errors) {
+        errors.forEach((endpoint, count) -> {
+            if (count > 0) {
+                writer.outputComment(ERRORS_COMMENT + endpoint.name() + " " + count);
+            }
+        });
+    }
+
+    /**
+     * Reads a histogram log and merges all intervals per endpoint.
+     * Logs of several runs or generators can be merged by calling this repeatedly with the same target.
+     * */
+    public static Map<Endpoint, Histogram> mergeLog(Path file, Map<Endpoint, Histogram> into) throws IOException {
+        readLog(file).getHistograms().forEach((endpoint, histogram) ->
+                into.computeIfAbsent(endpoint, e -> newHistogram()).add(histogram));
+        return into;
+    }
+
+    /**
+     * Reads a histogram log: the intervals merged per endpoint, the errors written with {@link #writeErrors}
+     * and the time span of the intervals
+     * */
+    public static Log readLog(Path file) throws IOException {
+        Log log = new Log();
+        try (HistogramLogReader reader = new HistogramLogReader(file.toFile())) {
+            while (reader.hasNext()) {
+                Histogram interval = (Histogram) reader.nextIntervalHistogram();
+                if (interval == null) {
+                    break;
+                }
+                log.startMillis = Math.min(log.startMillis, interval.getStartTimeStamp());
+                log.endMillis = Math.max(log.endMillis, interval.getEndTimeStamp());
+                Endpoint endpoint = interval.getTag() == null ? Endpoint.OTHER : Endpoint.valueOf(interval.getTag());
+                log.histograms.computeIfAbsent(endpoint, e -> newHistogram()).add(interval);
+            }
+        }
+        String prefix = "#" + ERRORS_COMMENT;
+        try (Stream<String> lines = Files.lines(file)) {
+            for (Iterator<String> it = lines.filter(line -> line.startsWith(prefix)).iterator(); it.hasNext(); ) {
+                String[] fields = it.next().substring(prefix.length()).trim().split(" ");
+                log.errors.merge(Endpoint.valueOf(fields[0]), Long.parseLong(fields[1]), Long::sum);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Contents of a histogram log, see {@link #readLog}
+     * */
+    public static class Log {
+
+        private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, Long> errors = new EnumMap<>(Endpoint.class);
+        private long startMillis = Long.MAX_VALUE;
+        private long endMillis = Long.MIN_VALUE;
+
+        /**
+         * @return Map - latencies per endpoint that has intervals in the log
+         * */
+        public Map<Endpoint, Histogram> getHistograms() {
+            return histograms;
+        }
+
+        public long getErrors(Endpoint endpoint) {
+            return errors.getOrDefault(endpoint, 0L);
+        }
+
+        /**
+         * @return long - start of the first interval, 0 for a log without intervals
+         * */
+        public long getStartMillis() {
+            return histograms.isEmpty() ? 0 : startMillis;
+        }
+
+        /**
+         * @return long - from the start of the first to the end of the last interval, 0 for a log without intervals
+         * */
+        public long getDurationMillis() {
+            return histograms.isEmpty() ? 0 : endMillis - startMillis;
+        }
+    }
+
+    /**
+     * @return String - p50/p90/p99/p99.9/max per endpoint that received requests, in milliseconds
+     * */
+    public String report() {
+        return report(totals());
+    }
+
+    public static String report(Map<Endpoint, Histogram> histograms) {
+        StringBuilder report = new StringBuilder();
+        histograms.forEach((endpoint, histogram) -> {
+            if (histogram.getTotalCount() == 0) {
+                return;
+            }
+            report.append(String.format("%-22s count=%d", endpoint.getTemplate(), histogram.getTotalCount()));
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(", p%s=%.2fms", formatPercentile(percentile),
+                        histogram.getValueAtPercentile(percentile) / 1000.0));
+            }
+            report.append(String.format(", max=%.2fms%n", histogram.getMaxValue() / 1000.0));
+        });
+        return report.toString();
+    }
+
+    /**
+     * @return String - the percentile as it follows the p of a label, e.g. 99 for p99 and 99.9 for p99.9
+     * */
+    public static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,269 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telemetry of a running load test: responses per endpoint and status, requests in flight, throughput and latency
+ * percentiles of the last second.
+ * The request threads only increment striped {@link LongAdder}s and record into a wait-free {@link LatencyRecorder},
+ * everything else is computed once per second on the sampler thread, which also commits a
+ * {@link LoadIntervalEvent} per endpoint to Flight Recorder.
+ * Read the metrics in Prometheus text format with {@link #toPrometheus()} or over http with {@link MetricsServer}.
+ * */
+public class LiveMetrics implements AutoCloseable {
+
+    private static final String[] STATUSES = {"2xx", "3xx", "401", "403", "404", "415", "4xx", "5xx", "failed"};
+    private static final int FAILED = STATUSES.length - 1;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final long SAMPLE_INTERVAL_MILLIS = 1_000;
+
+    private final LongAdder[][] responses = new LongAdder[Endpoint.values().length][STATUSES.length];
+    private final LongAdder inFlight = new LongAdder();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    //owned by the sampler thread
+    private final long[] counts = new long[Endpoint.values().length];
+    private final double[] sumsMicros = new double[Endpoint.values().length];
+    private final long[] errors = new long[Endpoint.values().length];
+    private long lastSampleNanos = System.nanoTime();
+    private ScheduledExecutorService sampler;
+
+    private volatile Interval last = new Interval(new EnumMap<>(Endpoint.class), 0,
+            new long[Endpoint.values().length], new double[Endpoint.values().length]);
+
+    public LiveMetrics() {
+        for (LongAdder[] endpoint : responses) {
+            for (int i = 0; i < endpoint.length; i++) {
+                endpoint[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Starts sampling once per second on a daemon thread
+     * @return LiveMetrics - these metrics, for chaining
+     * */
+    public synchronized LiveMetrics start() {
+        if (sampler == null) {
+            sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "live-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    public void requestStarted() {
+        inFlight.increment();
+    }
+
+    /**
+     * @param statusCode - status of the response, 0 if the request failed without one
+     * */
+    public void requestCompleted(Endpoint endpoint, int statusCode, long elapsedNanos) {
+        inFlight.decrement();
+        responses[endpoint.ordinal()][slot(statusCode)].increment();
+        latencies.record(endpoint, elapsedNanos);
+    }
+
+    static int slot(int statusCode) {
+        switch (statusCode) {
+            case 401:
+                return 2;
+            case 403:
+                return 3;
+            case 404:
+                return 4;
+            case 415:
+                return 5;
+            default:
+                if (statusCode >= 200 && statusCode < 300) {
+                    return 0;
+                } else if (statusCode >= 300 && statusCode < 400) {
+                    return 1;
+                } else if (statusCode >= 400 && statusCode < 500) {
+                    return 6;
+                } else if (statusCode >= 500 && statusCode < 600) {
+                    return 7;
+                }
+                return FAILED;
+        }
+    }
+
+    /**
+     * Takes the latencies of the interval since the previous sample, called by the sampler thread
+     * */
+    synchronized void sample() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastSampleNanos) / 1e9;
+        lastSampleNanos = now;
+        Map<Endpoint, Histogram> interval = new EnumMap<>(Endpoint.class);
+        long requests = 0;
+        long inFlightNow = inFlight.sum();
+        for (Map.Entry<Endpoint, Histogram> entry : latencies.sampleInterval().entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            Histogram histogram = entry.getValue().copy();
+            int index = endpoint.ordinal();
+            interval.put(endpoint, histogram);
+            counts[index] += histogram.getTotalCount();
+            sumsMicros[index] += histogram.getMean() * histogram.getTotalCount();
+            requests += histogram.getTotalCount();
+            long errorsNow = errors(endpoint);
+            long intervalErrors = errorsNow - errors[index];
+            errors[index] = errorsNow;
+            commitEvent(endpoint, histogram, intervalErrors, inFlightNow);
+        }
+        last = new Interval(interval, requests / seconds, counts.clone(), sumsMicros.clone());
+    }
+
+    private static void commitEvent(Endpoint endpoint, Histogram histogram, long errors, long inFlight) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        LoadIntervalEvent event = new LoadIntervalEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.endpoint = endpoint.getTemplate();
+        event.requests = histogram.getTotalCount();
+        event.errors = errors;
+        event.inFlight = inFlight;
+        event.p50 = histogram.getValueAtPercentile(50);
+        event.p99 = histogram.getValueAtPercentile(99);
+        event.max = histogram.getMaxValue();
+        event.commit();
+    }
+
+    private long errors(Endpoint endpoint) {
+        long total = 0;
+        LongAdder[] statuses = responses[endpoint.ordinal()];
+        for (int i = 2; i < statuses.length; i++) {
+            total += statuses[i].sum();
+        }
+        return total;
+    }
+
+    public long getResponses(Endpoint endpoint, int statusCode) {
+        return responses[endpoint.ordinal()][slot(statusCode)].sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @return double - responses per second over the last sampled interval
+     * */
+    public double getThroughput() {
+        return last.throughput;
+    }
+
+    /**
+     * @return Map - latency histograms of the last sampled interval per endpoint, in microseconds
+     * */
+    public Map<Endpoint, Histogram> getLastInterval() {
+        return last.histograms;
+    }
+
+    /**
+     * @return String - the metrics in the Prometheus text exposition format, version 0.0.4
+     * */
+    public String toPrometheus() {
+        Interval interval = last;
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP books_responses_total Responses per endpoint and status, failed without a response\n");
+        text.append("# TYPE books_responses_total counter\n");
+        for (Endpoint endpoint : Endpoint.values()) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                long count = responses[endpoint.ordinal()][i].sum();
+                if (count > 0) {
+                    text.append("books_responses_total{endpoint=\"").append(endpoint.getTemplate())
+                            .append("\",status=\"").append(STATUSES[i]).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+        text.append("# HELP books_requests_in_flight Requests waiting for a response\n");
+        text.append("# TYPE books_requests_in_flight gauge\n");
+        text.append("books_requests_in_flight ").append(getInFlight()).append('\n');
+        text.append("# HELP books_throughput Responses per second over the last second\n");
+        text.append("# TYPE books_throughput gauge\n");
+        text.append("books_throughput ").append(format(interval.throughput)).append('\n');
+        text.append("# HELP books_latency_seconds Latency per endpoint, quantiles over the last second\n");
+        text.append("# TYPE books_latency_seconds summary\n");
+        for (Endpoint endpoint : Endpoint.values()) {
+            int index = endpoint.ordinal();
+            if (interval.counts[index] == 0) {
+                continue;
+            }
+            String label = "endpoint=\"" + endpoint.getTemplate() + "\"";
+            Histogram histogram = interval.histograms.get(endpoint);
+            for (double quantile : QUANTILES) {
+                double value = histogram.getTotalCount() == 0
+                        ? Double.NaN : histogram.getValueAtPercentile(quantile * 100) / 1e6;
+                text.append("books_latency_seconds{").append(label).append(",quantile=\"").append(quantile)
+                        .append("\"} ").append(format(value)).append('\n');
+            }
+            text.append("books_latency_seconds_sum{").append(label).append("} ")
+                    .append(format(interval.sumsMicros[index] / 1e6)).append('\n');
+            text.append("books_latency_seconds_count{").append(label).append("} ")
+                    .append(interval.counts[index]).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "NaN" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "throughput=%.1f/s, in flight=%d%n",
+                getThroughput(), getInFlight()));
+        report.append(LatencyRecorder.report(last.histograms));
+        for (Endpoint endpoint : Endpoint.values()) {
+            StringBuilder statuses = new StringBuilder();
+            for (int i = 0; i < STATUSES.length; i++) {
+                long count = responses[endpoint.ordinal()][i].sum();
+                if (count > 0) {
+                    statuses.append(statuses.length() == 0 ? "" : ", ").append(STATUSES[i]).append('=').append(count);
+                }
+            }
+            if (statuses.length() > 0) {
+                report.append(String.format("%-22s %s%n", endpoint.getTemplate(), statuses));
+            }
+        }
+        return report.toString();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    private static class Interval {
+
+        private final Map<Endpoint, Histogram> histograms;
+        private final double throughput;
+        private final long[] counts;
+        private final double[] sumsMicros;
+
+        private Interval(Map<Endpoint, Histogram> histograms, double throughput, long[] counts, double[] sumsMicros) {
+            this.histograms = histograms;
+            this.throughput = throughput;
+            this.counts = counts;
+            this.sumsMicros = sumsMicros;
+        }
+    }
+}
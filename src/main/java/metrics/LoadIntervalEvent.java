@@ -0,0 +1,47 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event with the load of one endpoint over one second, committed by {@link LiveMetrics}.
+ * Record it with -XX:StartFlightRecording or follow it live with a jdk.jfr.consumer.RecordingStream
+ * on the event name books.LoadInterval.
+ * */
+@Name("books.LoadInterval")
+@Label("Load Interval")
+@Category({"Books", "Load"})
+@Description("Requests, errors and latency of one endpoint over the last second of a load run")
+@StackTrace(false)
+public class LoadIntervalEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Requests")
+    long requests;
+
+    @Label("Errors")
+    @Description("Responses with a status of 400 or more and requests without a response")
+    long errors;
+
+    @Label("In Flight")
+    long inFlight;
+
+    @Label("p50")
+    @Timespan(Timespan.MICROSECONDS)
+    long p50;
+
+    @Label("p99")
+    @Timespan(Timespan.MICROSECONDS)
+    long p99;
+
+    @Label("Max")
+    @Timespan(Timespan.MICROSECONDS)
+    long max;
+}
@@ -0,0 +1,63 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local http endpoint of the {@link LiveMetrics} of a load run:
+ * /metrics in the Prometheus text format for scraping and / as a dashboard page that refreshes every second.
+ * Bound to the loopback address only.
+ * */
+public class MetricsServer implements AutoCloseable {
+
+    private static final String PROMETHEUS_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final LiveMetrics metrics;
+
+    /**
+     * @param port - port of the endpoint, 0 for any free port
+     * */
+    public MetricsServer(int port, LiveMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        this.server.createContext("/metrics", exchange -> send(exchange, PROMETHEUS_TYPE, metrics.toPrometheus()));
+        this.server.createContext("/", exchange -> send(exchange, "text/html; charset=utf-8", dashboard()));
+    }
+
+    public MetricsServer start() {
+        server.start();
+        return this;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private String dashboard() {
+        String text = metrics.toString().replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><meta http-equiv=\"refresh\" content=\"1\">"
+                + "<title>books load</title></head><body><pre>" + text + "</pre>"
+                + "<p><a href=\"/metrics\">metrics</a></p></body></html>";
+    }
+
+    private static void send(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
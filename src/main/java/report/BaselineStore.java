@@ -0,0 +1,70 @@
+package report;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Directory of run summaries, one file per run, and the summary the following runs are compared against.
+ * The directory can be committed, a summary takes a few kilobytes.
+ * */
+public class BaselineStore {
+
+    static final String SUFFIX = ".summary";
+    private static final String BASELINE_FILE = "baseline" + SUFFIX;
+
+    private final Path directory;
+
+    public BaselineStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Keeps the summary of a run, a run with the same name is replaced
+     * @return Path - file of the summary
+     * */
+    public Path save(RunSummary summary) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(summary.getName() + SUFFIX);
+        summary.write(file);
+        return file;
+    }
+
+    /**
+     * Keeps the summary of a run and makes it the baseline
+     * */
+    public void setBaseline(RunSummary summary) throws IOException {
+        Path file = save(summary);
+        Files.copy(file, directory.resolve(BASELINE_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Optional<RunSummary> getBaseline() throws IOException {
+        Path file = directory.resolve(BASELINE_FILE);
+        return Files.exists(file) ? Optional.of(RunSummary.read(file)) : Optional.empty();
+    }
+
+    public RunSummary load(String name) throws IOException {
+        return RunSummary.read(directory.resolve(name + SUFFIX));
+    }
+
+    /**
+     * @return List - names of the kept runs in alphabetical order
+     * */
+    public List<String> runs() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX) && !name.equals(BASELINE_FILE))
+                    .map(name -> name.substring(0, name.length() - SUFFIX.length()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
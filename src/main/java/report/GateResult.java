@@ -0,0 +1,50 @@
+package report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of comparing a run against its baseline with {@link RegressionGate}, one line per check
+ * */
+public class GateResult {
+
+    private final String baseline;
+    private final String current;
+    private final List<String> regressions = new ArrayList<>();
+    private final List<String> lines = new ArrayList<>();
+
+    GateResult(String baseline, String current) {
+        this.baseline = baseline;
+        this.current = current;
+    }
+
+    void pass(String line) {
+        lines.add("  ok   " + line);
+    }
+
+    void note(String line) {
+        lines.add("  --   " + line);
+    }
+
+    void fail(String line) {
+        lines.add("  FAIL " + line);
+        regressions.add(line);
+    }
+
+    public boolean isPassed() {
+        return regressions.isEmpty();
+    }
+
+    /**
+     * @return List - descriptions of the checks that failed
+     * */
+    public List<String> getRegressions() {
+        return regressions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s against baseline %s: %s%n%s%n", current, baseline,
+                isPassed() ? "no regression" : regressions.size() + " regression(s)", String.join("\n", lines));
+    }
+}
@@ -0,0 +1,195 @@
+package report;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Two sample tests on latency histograms, computed from the buckets so they cost the same for a thousand
+ * or a billion samples. Both histograms must have the precision of {@link metrics.LatencyRecorder},
+ * values in the same bucket count as ties.
+ * */
+public final class HistogramStatistics {
+
+    private HistogramStatistics() {
+
+    }
+
+    /**
+     * Distinct bucket values of a histogram in ascending order with their counts
+     * */
+    private static class Buckets {
+
+        private final long[] values;
+        private final long[] counts;
+        private final long total;
+
+        private Buckets(Histogram histogram) {
+            long[] values = new long[64];
+            long[] counts = new long[64];
+            int size = 0;
+            long sum = 0;
+            //the iterator reuses its value object, so it is copied step by step
+            for (HistogramIterationValue recorded : histogram.recordedValues()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                values[size] = histogram.highestEquivalentValue(recorded.getValueIteratedTo());
+                counts[size] = recorded.getCountAddedInThisIterationStep();
+                sum += counts[size++];
+            }
+            this.values = Arrays.copyOf(values, size);
+            this.counts = Arrays.copyOf(counts, size);
+            this.total = sum;
+        }
+    }
+
+    /**
+     * Mann-Whitney U test with the normal approximation, tie and continuity correction
+     * @return double - one sided p-value of the hypothesis that values of the current run tend to be larger
+     * than values of the baseline, 1 if one of the histograms is empty
+     * */
+    public static double mannWhitneyGreater(Histogram baseline, Histogram current) {
+        Buckets base = new Buckets(baseline);
+        Buckets cur = new Buckets(current);
+        if (base.total == 0 || cur.total == 0) {
+            return 1;
+        }
+        double n1 = base.total;
+        double n2 = cur.total;
+        double n = n1 + n2;
+        double rankSum = 0;
+        double ties = 0;
+        double ranked = 0;
+        int i = 0;
+        int j = 0;
+        while (i < base.values.length || j < cur.values.length) {
+            long value = Math.min(i < base.values.length ? base.values[i] : Long.MAX_VALUE,
+                    j < cur.values.length ? cur.values[j] : Long.MAX_VALUE);
+            double inBase = i < base.values.length && base.values[i] == value ? base.counts[i++] : 0;
+            double inCurrent = j < cur.values.length && cur.values[j] == value ? cur.counts[j++] : 0;
+            double tied = inBase + inCurrent;
+            rankSum += inCurrent * (ranked + (tied + 1) / 2);
+            ties += tied * tied * tied - tied;
+            ranked += tied;
+        }
+        double u = rankSum - n2 * (n2 + 1) / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = (u - n1 * n2 / 2 - 0.5) / Math.sqrt(variance);
+        return 1 - normalCdf(z);
+    }
+
+    /**
+     * @return double - probability that a value of the current run is larger than a value of the baseline,
+     * with ties counted half, 0.5 means no shift
+     * */
+    public static double probabilityOfIncrease(Histogram baseline, Histogram current) {
+        Buckets base = new Buckets(baseline);
+        Buckets cur = new Buckets(current);
+        if (base.total == 0 || cur.total == 0) {
+            return 0.5;
+        }
+        double greater = 0;
+        double below = 0;
+        int i = 0;
+        for (int j = 0; j < cur.values.length; j++) {
+            while (i < base.values.length && base.values[i] < cur.values[j]) {
+                below += base.counts[i++];
+            }
+            double tied = i < base.values.length && base.values[i] == cur.values[j] ? base.counts[i] : 0;
+            greater += cur.counts[j] * (below + tied / 2);
+        }
+        return greater / ((double) base.total * cur.total);
+    }
+
+    /**
+     * Percentile bootstrap of the ratio of a percentile of the current run to the same percentile of the baseline.
+     * Replicates resample every bucket with a Poisson count, which approximates resampling the samples with
+     * replacement without touching the samples.
+     * @param percentile - percentile to compare, e.g. 99
+     * @param confidence - confidence level of the interval, e.g. 0.95
+     * @param rounds - number of bootstrap replicates
+     * @return double[] - lower and upper bound of the ratio
+     * */
+    public static double[] bootstrapPercentileRatio(Histogram baseline, Histogram current, double percentile,
+                                                    double confidence, int rounds, SplittableRandom random) {
+        Buckets base = new Buckets(baseline);
+        Buckets cur = new Buckets(current);
+        if (base.total == 0 || cur.total == 0) {
+            throw new IllegalArgumentException("Both runs need samples to compare percentiles");
+        }
+        double[] ratios = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            ratios[round] = Math.max(1, resampledPercentile(cur, percentile, random))
+                    / (double) Math.max(1, resampledPercentile(base, percentile, random));
+        }
+        Arrays.sort(ratios);
+        double tail = (1 - confidence) / 2;
+        int low = (int) Math.floor(tail * (rounds - 1));
+        int high = (int) Math.ceil((1 - tail) * (rounds - 1));
+        return new double[]{ratios[low], ratios[high]};
+    }
+
+    private static long resampledPercentile(Buckets buckets, double percentile, SplittableRandom random) {
+        long[] counts = new long[buckets.counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = poisson(buckets.counts[i], random);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return percentileOf(buckets.values, buckets.counts, buckets.total, percentile);
+        }
+        return percentileOf(buckets.values, counts, total, percentile);
+    }
+
+    private static long percentileOf(long[] values, long[] counts, long total, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < values.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return values[i];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    private static long poisson(long mean, SplittableRandom random) {
+        if (mean < 30) {
+            //multiplication of uniforms, exact for small means
+            double limit = Math.exp(-mean);
+            double product = random.nextDouble();
+            long count = 0;
+            while (product > limit) {
+                product *= random.nextDouble();
+                count++;
+            }
+            return count;
+        }
+        return Math.max(0, Math.round(mean + Math.sqrt(mean) * gaussian(random)));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Standard normal distribution function with the complementary error function of Numerical Recipes,
+     * accurate to about 1e-7
+     * */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.5 * x);
+        double erfc = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return z >= 0 ? 1 - erfc / 2 : erfc / 2;
+    }
+}
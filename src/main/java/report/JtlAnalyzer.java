@@ -0,0 +1,249 @@
+package report;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single pass analyzer for JMeter result files (JTL/CSV with a header line, e.g. load_test_create_book_report.csv).
+ * The file is split into line aligned chunks which are memory mapped and parsed in parallel, straight from the bytes.
+ * Every chunk produces a partial {@link JtlReport} and the partials are merged at the end,
+ * so memory does not grow with the size of the file.
+ * */
+public class JtlAnalyzer {
+
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+
+    private final int parallelism;
+
+    public JtlAnalyzer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public JtlAnalyzer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public JtlReport analyze(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerEnd = nextLine(channel, 0, size);
+            Columns columns = Columns.parse(readHeader(channel, headerEnd));
+
+            List<long[]> chunks = split(channel, headerEnd, size);
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks.size())));
+            try {
+                List<Future<JtlReport>> partials = new ArrayList<>();
+                for (long[] chunk : chunks) {
+                    partials.add(executor.submit(() -> parseChunk(channel, chunk[0], chunk[1], columns)));
+                }
+                JtlReport report = new JtlReport();
+                for (Future<JtlReport> partial : partials) {
+                    report.merge(partial.get());
+                }
+                return report;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while analyzing " + file, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Could not analyze " + file, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static String readHeader(FileChannel channel, long headerEnd) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+        channel.read(header, 0);
+        return new String(header.array(), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Splits the file after the header into chunks that start at the beginning of a line
+     * */
+    private List<long[]> split(FileChannel channel, long from, long size) throws IOException {
+        long chunkCount = Math.max(parallelism * 4L, (size - from) / MAX_CHUNK_BYTES + 1);
+        long chunkSize = Math.max(1, Math.min(MAX_CHUNK_BYTES, (size - from) / chunkCount + 1));
+        List<long[]> chunks = new ArrayList<>();
+        long start = from;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLine(channel, start + chunkSize, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return long - position after the first new line at or after the given position
+     * */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static JtlReport parseChunk(FileChannel channel, long start, long end, Columns columns)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        JtlReport report = new JtlReport();
+        JtlFields fields = new JtlFields();
+        int[] fieldStart = fields.start;
+        int[] fieldEnd = fields.end;
+        byte[] lastLabel = new byte[0];
+        LabelStats stats = null;
+
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int next = fields.split(buffer, lineStart);
+            if (!fields.isEmpty(columns.elapsed)) {
+                int labelFrom = fieldStart[columns.label];
+                int labelTo = fieldEnd[columns.label];
+                if (stats == null || !sameBytes(buffer, labelFrom, labelTo, lastLabel)) {
+                    lastLabel = bytes(buffer, labelFrom, labelTo);
+                    stats = report.label(new String(lastLabel, StandardCharsets.UTF_8));
+                }
+                boolean success = columns.success >= 0 && fields.count() > columns.success
+                        ? parseBoolean(buffer, fieldStart[columns.success], fieldEnd[columns.success])
+                        : isSuccessCode(buffer, fieldStart[columns.responseCode], fieldEnd[columns.responseCode]);
+                long elapsed = (long) fields.number(columns.elapsed);
+                long latency = fields.isEmpty(columns.latency) ? -1 : (long) fields.number(columns.latency);
+                long connect = fields.isEmpty(columns.connect) ? -1 : (long) fields.number(columns.connect);
+                stats.record(elapsed, latency, connect, success);
+
+                long timeStamp = (long) fields.number(columns.timeStamp);
+                report.recordSecond(timeStamp / 1000, success);
+                report.recordSpan(timeStamp, timeStamp + elapsed);
+            }
+            lineStart = next;
+        }
+        return report;
+    }
+
+    /**
+     * Parses integers and plain or scientific decimals (timestamps saved by spreadsheet tools look like 1.63137E+12)
+     * */
+    static double parseNumber(ByteBuffer buffer, int from, int to) {
+        long mantissa = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean negative = false;
+        int i = from;
+        if (i < to && buffer.get(i) == '"') {
+            i++;
+            to--;
+        }
+        if (i < to && buffer.get(i) == '-') {
+            negative = true;
+            i++;
+        }
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    scale--;
+                }
+            } else if (b == '.') {
+                fraction = true;
+            } else if (b == 'E' || b == 'e') {
+                scale += (int) parseNumber(buffer, i + 1 + (buffer.get(i + 1) == '+' ? 1 : 0), to);
+                break;
+            } else {
+                throw new NumberFormatException("Invalid number: " + new String(bytes(buffer, from, to),
+                        StandardCharsets.UTF_8));
+            }
+        }
+        double value = scale == 0 ? mantissa : mantissa * Math.pow(10, scale);
+        return negative ? -value : value;
+    }
+
+    private static boolean parseBoolean(ByteBuffer buffer, int from, int to) {
+        return to - from >= 4 && (buffer.get(from) == 't' || buffer.get(from) == 'T');
+    }
+
+    private static boolean isSuccessCode(ByteBuffer buffer, int from, int to) {
+        return to - from == 3 && (buffer.get(from) == '2' || buffer.get(from) == '3');
+    }
+
+    private static boolean sameBytes(ByteBuffer buffer, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(from + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return bytes;
+    }
+
+    /**
+     * Positions of the columns used by the analyzer, taken from the header line
+     * */
+    static class Columns {
+        int timeStamp;
+        int elapsed;
+        int label;
+        int responseCode;
+        int success;
+        int latency;
+        int connect;
+
+        static Columns parse(String header) {
+            List<String> names = JtlFields.names(header);
+            Columns columns = new Columns();
+            columns.timeStamp = JtlFields.required(names, "timeStamp");
+            columns.elapsed = JtlFields.required(names, "elapsed");
+            columns.label = JtlFields.required(names, "label");
+            columns.responseCode = JtlFields.required(names, "responseCode");
+            columns.success = names.indexOf("success");
+            columns.latency = names.indexOf("Latency");
+            columns.connect = names.indexOf("Connect");
+            return columns;
+        }
+    }
+
+    /**
+     * Usage: JtlAnalyzer [result file] [optional output prefix for the time series csv and svg chart]
+     * */
+    public static void main(String[] args) throws Exception {
+        Path file = Path.of(args[0]);
+        JtlReport report = new JtlAnalyzer().analyze(file);
+        System.out.print(report);
+        if (args.length > 1) {
+            report.writeTimeSeries(Path.of(args[1] + "_per_second.csv"));
+            report.writeThroughputChart(Path.of(args[1] + "_throughput.svg"), file.getFileName().toString());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package report;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fields of one line of a JMeter result file, split in place in the bytes of the line: commas inside double
+ * quotes do not separate fields and a field keeps its quotes until it is read as text.
+ * Used by {@link JtlAnalyzer} on the mapped chunks and by trace.TraceConverter on single lines.
+ * An instance is reused from line to line by one thread.
+ * */
+public class JtlFields {
+
+    static final int MAX_FIELDS = 64;
+
+    final int[] start = new int[MAX_FIELDS];
+    final int[] end = new int[MAX_FIELDS];
+    int count;
+    private ByteBuffer buffer;
+
+    /**
+     * Splits the line that starts at the position, fields after the first {@link #MAX_FIELDS} are dropped
+     * @return int - position of the next line
+     * */
+    public int split(ByteBuffer buffer, int lineStart) {
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        int lineEnd = lineStart;
+        int current = lineStart;
+        boolean quoted = false;
+        count = 0;
+        while (lineEnd < limit) {
+            byte b = buffer.get(lineEnd);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (b == ',' || b == '\n' || b == '\r')) {
+                add(current, lineEnd);
+                current = lineEnd + 1;
+                if (b != ',') {
+                    break;
+                }
+            }
+            lineEnd++;
+        }
+        if (lineEnd == limit && current < limit) {
+            add(current, limit);
+        }
+        int next = lineEnd + 1;
+        if (lineEnd < limit && buffer.get(lineEnd) == '\r' && next < limit && buffer.get(next) == '\n') {
+            next++;
+        }
+        return next;
+    }
+
+    private void add(int from, int to) {
+        if (count < MAX_FIELDS) {
+            start[count] = from;
+            end[count] = to;
+            count++;
+        }
+    }
+
+    /**
+     * @return int - number of fields of the line
+     * */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return boolean - true if the line has no such field or it is empty
+     * */
+    public boolean isEmpty(int field) {
+        return field < 0 || field >= count || end[field] == start[field];
+    }
+
+    /**
+     * @return double - the field as a number, see {@link JtlAnalyzer#parseNumber}
+     * */
+    public double number(int field) {
+        return JtlAnalyzer.parseNumber(buffer, start[field], end[field]);
+    }
+
+    /**
+     * @return String - the field without its enclosing quotes, doubled quotes inside are unescaped
+     * */
+    public String text(int field) {
+        int from = start[field];
+        int to = end[field];
+        if (to - from >= 2 && buffer.get(from) == '"' && buffer.get(to - 1) == '"') {
+            from++;
+            to--;
+        }
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        return text.indexOf('"') < 0 ? text : text.replace("\"\"", "\"");
+    }
+
+    /**
+     * @return List - names of the columns of a header line
+     * */
+    public static List<String> names(String header) {
+        JtlFields fields = new JtlFields();
+        fields.split(ByteBuffer.wrap(header.trim().getBytes(StandardCharsets.UTF_8)), 0);
+        List<String> names = new ArrayList<>(fields.count);
+        for (int i = 0; i < fields.count; i++) {
+            names.add(fields.text(i));
+        }
+        return names;
+    }
+
+    /**
+     * @return int - index of the column
+     * @throws IllegalArgumentException - if the header has no such column
+     * */
+    public static int required(List<String> names, String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Missing column " + name + " in header " + names);
+        }
+        return index;
+    }
+}
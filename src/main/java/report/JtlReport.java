@@ -0,0 +1,144 @@
+package report;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of analyzing a JMeter result file: statistics per label and a per-second time series.
+ * Memory is proportional to the number of labels and to the duration of the run, not to the number of samples.
+ * */
+public class JtlReport {
+
+    private final Map<String, LabelStats> labels = new TreeMap<>();
+    private final TreeMap<Long, long[]> perSecond = new TreeMap<>();
+    private long firstStartMillis = Long.MAX_VALUE;
+    private long lastEndMillis = Long.MIN_VALUE;
+
+    LabelStats label(String label) {
+        return labels.computeIfAbsent(label, LabelStats::new);
+    }
+
+    void recordSecond(long epochSecond, boolean success) {
+        long[] bucket = perSecond.computeIfAbsent(epochSecond, second -> new long[2]);
+        bucket[0]++;
+        if (!success) {
+            bucket[1]++;
+        }
+    }
+
+    void recordSpan(long startMillis, long endMillis) {
+        firstStartMillis = Math.min(firstStartMillis, startMillis);
+        lastEndMillis = Math.max(lastEndMillis, endMillis);
+    }
+
+    void merge(JtlReport other) {
+        recordSpan(other.firstStartMillis, other.lastEndMillis);
+        other.labels.forEach((name, stats) -> label(name).merge(stats));
+        other.perSecond.forEach((second, bucket) -> {
+            long[] target = perSecond.computeIfAbsent(second, s -> new long[2]);
+            target[0] += bucket[0];
+            target[1] += bucket[1];
+        });
+    }
+
+    public Map<String, LabelStats> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return TreeMap - epoch second to {samples, errors}
+     * */
+    public TreeMap<Long, long[]> getPerSecond() {
+        return perSecond;
+    }
+
+    /**
+     * @return long - time from the start of the first sample to the end of the last one, 0 without samples
+     * */
+    public long getDurationMillis() {
+        return firstStartMillis == Long.MAX_VALUE ? 0 : lastEndMillis - firstStartMillis;
+    }
+
+    public long getSamples() {
+        return labels.values().stream().mapToLong(LabelStats::getSamples).sum();
+    }
+
+    public double getAverageThroughput() {
+        if (perSecond.isEmpty()) {
+            return 0;
+        }
+        long seconds = perSecond.lastKey() - perSecond.firstKey() + 1;
+        return getSamples() / (double) seconds;
+    }
+
+    /**
+     * Writes the time series as csv: second since start, epoch second, samples, errors
+     * */
+    public void writeTimeSeries(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("second,epochSecond,samples,errors");
+            if (perSecond.isEmpty()) {
+                return;
+            }
+            long first = perSecond.firstKey();
+            perSecond.forEach((second, bucket) ->
+                    out.println((second - first) + "," + second + "," + bucket[0] + "," + bucket[1]));
+        }
+    }
+
+    /**
+     * Writes an svg chart of throughput and errors per second, replacing the graphs made by hand in JMeter
+     * */
+    public void writeThroughputChart(Path file, String title) throws IOException {
+        int width = 900;
+        int height = 300;
+        int margin = 40;
+        long first = perSecond.isEmpty() ? 0 : perSecond.firstKey();
+        long seconds = perSecond.isEmpty() ? 1 : Math.max(1, perSecond.lastKey() - first);
+        long max = Math.max(1, perSecond.values().stream().mapToLong(bucket -> bucket[0]).max().orElse(1));
+
+        StringBuilder samples = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        perSecond.forEach((second, bucket) -> {
+            double x = margin + (second - first) * (width - 2.0 * margin) / seconds;
+            samples.append(String.format("%.1f,%.1f ", x, height - margin - bucket[0] * (height - 2.0 * margin) / max));
+            errors.append(String.format("%.1f,%.1f ", x, height - margin - bucket[1] * (height - 2.0 * margin) / max));
+        });
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.printf("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\">%n", width, height);
+            out.printf("<text x=\"%d\" y=\"20\" font-family=\"sans-serif\">%s</text>%n", margin, escape(title));
+            out.printf("<text x=\"2\" y=\"%d\" font-family=\"sans-serif\" font-size=\"10\">%d/s</text>%n", margin, max);
+            out.printf("<text x=\"%d\" y=\"%d\" font-family=\"sans-serif\" font-size=\"10\">%ds</text>%n",
+                    width - margin, height - margin + 15, seconds);
+            out.printf("<polyline fill=\"none\" stroke=\"black\" points=\"%d,%d %d,%d %d,%d\"/>%n",
+                    margin, margin, margin, height - margin, width - margin, height - margin);
+            out.printf("<polyline fill=\"none\" stroke=\"steelblue\" points=\"%s\"/>%n", samples.toString().trim());
+            out.printf("<polyline fill=\"none\" stroke=\"firebrick\" points=\"%s\"/>%n", errors.toString().trim());
+            out.println("</svg>");
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("samples=%d, seconds=%d, average throughput=%.1f/s%n",
+                getSamples(), perSecond.size(), getAverageThroughput()));
+        labels.values().forEach(stats -> report.append(String.format(
+                "%s: samples=%d, error rate=%.2f%%, p50=%dms, p90=%dms, p99=%dms, p99.9=%dms, max=%dms%n",
+                stats.getLabel(), stats.getSamples(), stats.getErrorRate() * 100,
+                stats.getElapsed().getValueAtPercentile(50) / 1000,
+                stats.getElapsed().getValueAtPercentile(90) / 1000,
+                stats.getElapsed().getValueAtPercentile(99) / 1000,
+                stats.getElapsed().getValueAtPercentile(99.9) / 1000,
+                stats.getElapsed().getMaxValue() / 1000)));
+        return report.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package report;
+
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Aggregated samples of one JMeter label. Latencies are kept in microseconds,
+ * in the same histogram format as {@link LatencyRecorder}.
+ * */
+public class LabelStats {
+
+    private final String label;
+    private final Histogram elapsed = LatencyRecorder.newHistogram();
+    private final Histogram latency = LatencyRecorder.newHistogram();
+    private final Histogram connect = LatencyRecorder.newHistogram();
+    private long errors;
+
+    public LabelStats(String label) {
+        this.label = label;
+    }
+
+    void record(long elapsedMillis, long latencyMillis, long connectMillis, boolean success) {
+        elapsed.recordValue(clamp(elapsedMillis * 1000));
+        if (latencyMillis >= 0) {
+            latency.recordValue(clamp(latencyMillis * 1000));
+        }
+        if (connectMillis >= 0) {
+            connect.recordValue(clamp(connectMillis * 1000));
+        }
+        if (!success) {
+            errors++;
+        }
+    }
+
+    private static long clamp(long micros) {
+        return Math.min(Math.max(0, micros), LatencyRecorder.HIGHEST_TRACKABLE_MICROS);
+    }
+
+    void merge(LabelStats other) {
+        elapsed.add(other.elapsed);
+        latency.add(other.latency);
+        connect.add(other.connect);
+        errors += other.errors;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getSamples() {
+        return elapsed.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getErrorRate() {
+        return getSamples() == 0 ? 0 : errors / (double) getSamples();
+    }
+
+    /**
+     * @return Histogram - elapsed time of the samples in microseconds
+     * */
+    public Histogram getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Histogram - time to first byte of the samples in microseconds
+     * */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return Histogram - connect time of the samples in microseconds
+     * */
+    public Histogram getConnect() {
+        return connect;
+    }
+}
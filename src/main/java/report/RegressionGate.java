@@ -0,0 +1,235 @@
+package report;
+
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Compares a run against a baseline run and decides whether it regressed, per label:
+ * <ul>
+ *     <li>throughput - fails if it dropped by more than maxThroughputDrop</li>
+ *     <li>error rate - fails if it rose by more than maxErrorRateIncrease (absolute)</li>
+ *     <li>tail latency - fails if the percentile rose by more than maxLatencyIncrease and the lower bound of the
+ *     bootstrap confidence interval of the ratio is above 1, so the rise is not noise</li>
+ *     <li>latency distribution - fails if the median rose by more than maxLatencyIncrease and the Mann-Whitney
+ *     test rejects, at level alpha, that the run is not slower than the baseline</li>
+ * </ul>
+ * Latency checks need minSamples samples in both runs, with fewer they are only reported.
+ * A regression exits with status 1, so the comparison can fail a Maven build, see the regression-gate profile.
+ * */
+public class RegressionGate {
+
+    private double maxThroughputDrop = 0.10;
+    private double maxLatencyIncrease = 0.10;
+    private double maxErrorRateIncrease = 0.01;
+    private double percentile = 99;
+    private double alpha = 0.01;
+    private double confidence = 0.95;
+    private int bootstrapRounds = 1000;
+    private long minSamples = 30;
+    private long seed = 42;
+
+    /**
+     * @return RegressionGate - gate with the thresholds of the books.gate.* system properties, e.g.
+     * -Dbooks.gate.maxThroughputDrop=0.05
+     * */
+    public static RegressionGate fromSystemProperties() {
+        RegressionGate gate = new RegressionGate();
+        gate.maxThroughputDrop = doubleProperty("books.gate.maxThroughputDrop", gate.maxThroughputDrop);
+        gate.maxLatencyIncrease = doubleProperty("books.gate.maxLatencyIncrease", gate.maxLatencyIncrease);
+        gate.maxErrorRateIncrease = doubleProperty("books.gate.maxErrorRateIncrease", gate.maxErrorRateIncrease);
+        gate.percentile = doubleProperty("books.gate.percentile", gate.percentile);
+        gate.alpha = doubleProperty("books.gate.alpha", gate.alpha);
+        gate.bootstrapRounds = Integer.getInteger("books.gate.bootstrapRounds", gate.bootstrapRounds);
+        gate.minSamples = Long.getLong("books.gate.minSamples", gate.minSamples);
+        return gate;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * @param maxThroughputDrop - tolerated relative drop of the throughput, e.g. 0.1 for 10%
+     * */
+    public RegressionGate withMaxThroughputDrop(double maxThroughputDrop) {
+        this.maxThroughputDrop = maxThroughputDrop;
+        return this;
+    }
+
+    /**
+     * @param maxLatencyIncrease - tolerated relative rise of the percentile and the median, e.g. 0.1 for 10%
+     * */
+    public RegressionGate withMaxLatencyIncrease(double maxLatencyIncrease) {
+        this.maxLatencyIncrease = maxLatencyIncrease;
+        return this;
+    }
+
+    /**
+     * @param maxErrorRateIncrease - tolerated absolute rise of the error rate, e.g. 0.01 for one percentage point
+     * */
+    public RegressionGate withMaxErrorRateIncrease(double maxErrorRateIncrease) {
+        this.maxErrorRateIncrease = maxErrorRateIncrease;
+        return this;
+    }
+
+    /**
+     * @param percentile - percentile of the tail latency check, e.g. 99
+     * */
+    public RegressionGate withPercentile(double percentile) {
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * @param alpha - significance level of the Mann-Whitney test
+     * */
+    public RegressionGate withAlpha(double alpha) {
+        this.alpha = alpha;
+        return this;
+    }
+
+    /**
+     * @param rounds - bootstrap replicates of the confidence interval
+     * @param seed - seed of the replicates, the same runs always give the same interval
+     * */
+    public RegressionGate withBootstrap(int rounds, long seed) {
+        this.bootstrapRounds = rounds;
+        this.seed = seed;
+        return this;
+    }
+
+    public RegressionGate withMinSamples(long minSamples) {
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    public GateResult compare(RunSummary baseline, RunSummary current) {
+        GateResult result = new GateResult(baseline.getName(), current.getName());
+        checkThroughput(result, "all labels", baseline.throughput(), current.throughput());
+        SplittableRandom random = new SplittableRandom(seed);
+        for (RunSummary.Label base : baseline.getLabels().values()) {
+            RunSummary.Label label = current.getLabels().get(base.getName());
+            if (label == null) {
+                result.fail(base.getName() + ": no samples, baseline had " + base.getSamples());
+                continue;
+            }
+            checkThroughput(result, label.getName(), baseline.throughput(base), current.throughput(label));
+            checkErrorRate(result, base, label);
+            checkLatency(result, base, label, random);
+        }
+        current.getLabels().keySet().stream()
+                .filter(name -> !baseline.getLabels().containsKey(name))
+                .forEach(name -> result.note(name + ": not in the baseline"));
+        return result;
+    }
+
+    private void checkThroughput(GateResult result, String label, double baseline, double current) {
+        String line = String.format("%s: throughput %.1f/s -> %.1f/s (%+.1f%%)", label, baseline, current,
+                change(baseline, current));
+        if (current < baseline * (1 - maxThroughputDrop)) {
+            result.fail(line);
+        } else {
+            result.pass(line);
+        }
+    }
+
+    private void checkErrorRate(GateResult result, RunSummary.Label baseline, RunSummary.Label current) {
+        String line = String.format("%s: error rate %.2f%% -> %.2f%%", current.getName(),
+                baseline.getErrorRate() * 100, current.getErrorRate() * 100);
+        if (current.getErrorRate() - baseline.getErrorRate() > maxErrorRateIncrease) {
+            result.fail(line);
+        } else {
+            result.pass(line);
+        }
+    }
+
+    private void checkLatency(GateResult result, RunSummary.Label baseline, RunSummary.Label current,
+                              SplittableRandom random) {
+        Histogram base = baseline.getLatencies();
+        Histogram cur = current.getLatencies();
+        if (base.getTotalCount() < minSamples || cur.getTotalCount() < minSamples) {
+            result.note(String.format("%s: %d and %d samples, at least %d needed for the latency checks",
+                    current.getName(), base.getTotalCount(), cur.getTotalCount(), minSamples));
+            return;
+        }
+        double basePercentile = Math.max(1, base.getValueAtPercentile(percentile));
+        double curPercentile = Math.max(1, cur.getValueAtPercentile(percentile));
+        double[] interval = HistogramStatistics.bootstrapPercentileRatio(base, cur, percentile, confidence,
+                bootstrapRounds, random);
+        String tail = String.format("%s: p%s %.2fms -> %.2fms (%+.1f%%, %.0f%% CI of the ratio %.3f-%.3f)",
+                current.getName(), LatencyRecorder.formatPercentile(percentile), basePercentile / 1000,
+                curPercentile / 1000, change(basePercentile, curPercentile), confidence * 100, interval[0],
+                interval[1]);
+        if (curPercentile > basePercentile * (1 + maxLatencyIncrease) && interval[0] > 1) {
+            result.fail(tail);
+        } else {
+            result.pass(tail);
+        }
+
+        double baseMedian = Math.max(1, base.getValueAtPercentile(50));
+        double curMedian = Math.max(1, cur.getValueAtPercentile(50));
+        double pValue = HistogramStatistics.mannWhitneyGreater(base, cur);
+        String shift = String.format("%s: median %.2fms -> %.2fms (%+.1f%%), P(slower)=%.3f, Mann-Whitney p=%.2g",
+                current.getName(), baseMedian / 1000, curMedian / 1000, change(baseMedian, curMedian),
+                HistogramStatistics.probabilityOfIncrease(base, cur), pValue);
+        if (curMedian > baseMedian * (1 + maxLatencyIncrease) && pValue < alpha) {
+            result.fail(shift);
+        } else {
+            result.pass(shift);
+        }
+    }
+
+    private static double change(double baseline, double current) {
+        return baseline == 0 ? 0 : (current / baseline - 1) * 100;
+    }
+
+    /**
+     * usage: RegressionGate record|compare|baseline results baselineDir
+     * <ul>
+     *     <li>record - keeps the summary of the run</li>
+     *     <li>baseline - keeps the summary of the run and makes it the baseline</li>
+     *     <li>compare - keeps the summary of the run and compares it against the baseline, exits with 1
+     *     on a regression. Without a baseline the run becomes the baseline.</li>
+     * </ul>
+     * The results are a JMeter result file (.csv, .jtl) or a histogram log of the load engine (.hlog).
+     * A missing results file exits with 2, e.g. when the regression-gate profile runs without books.gate.results.
+     * */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !args[0].equals("record") && !args[0].equals("compare") && !args[0].equals("baseline")) {
+            System.out.println("usage: RegressionGate record|compare|baseline results baselineDir");
+            return;
+        }
+        Path results = Path.of(args[1]);
+        if (!Files.isRegularFile(results)) {
+            System.err.println("No results file " + results
+                    + ", pass the run to check with -Dbooks.gate.results=<results.csv|run.hlog>");
+            System.exit(2);
+        }
+        RunSummary summary = RunSummary.ofResults(results);
+        BaselineStore store = new BaselineStore(Path.of(args[2]));
+        System.out.print(summary);
+        if (args[0].equals("record")) {
+            System.out.println("recorded as " + store.save(summary));
+            return;
+        }
+        Optional<RunSummary> baseline = store.getBaseline();
+        if (args[0].equals("baseline") || baseline.isEmpty()) {
+            store.setBaseline(summary);
+            System.out.println(summary.getName() + " is the new baseline");
+            return;
+        }
+        store.save(summary);
+        GateResult result = fromSystemProperties().compare(baseline.get(), summary);
+        System.out.print(result);
+        if (!result.isPassed()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package report;
+
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+
+/**
+ * Compact summary of a performance run: samples, errors and the latency histogram per label, and the duration
+ * of the run for the throughput. A summary of a run with millions of samples takes a few kilobytes,
+ * so summaries of every run can be kept as baselines.
+ * <br>
+ * File format, one line per label after the header, tab separated:
+ * <pre>
+ * #run summary 1
+ * run  name  startMillis  durationMillis
+ * label  samples  errors  base64 of the compressed histogram
+ * </pre>
+ * */
+public class RunSummary {
+
+    private static final String HEADER = "#run summary 1";
+
+    private final String name;
+    private final long startMillis;
+    private final long durationMillis;
+    private final Map<String, Label> labels = new TreeMap<>();
+
+    public RunSummary(String name, long startMillis, long durationMillis) {
+        if (name.isEmpty() || name.contains("\t") || name.contains("\n")) {
+            throw new IllegalArgumentException("Invalid run name: " + name);
+        }
+        this.name = name;
+        this.startMillis = startMillis;
+        this.durationMillis = Math.max(1, durationMillis);
+    }
+
+    /**
+     * Samples of one label, latencies in microseconds as recorded by {@link LatencyRecorder}
+     * */
+    public static class Label {
+
+        private final String name;
+        private final long samples;
+        private final long errors;
+        private final Histogram latencies;
+
+        public Label(String name, long samples, long errors, Histogram latencies) {
+            this.name = name;
+            this.samples = samples;
+            this.errors = errors;
+            this.latencies = latencies;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getErrorRate() {
+            return samples == 0 ? 0 : errors / (double) samples;
+        }
+
+        public Histogram getLatencies() {
+            return latencies;
+        }
+    }
+
+    public RunSummary add(Label label) {
+        if (label.name.isEmpty() || label.name.contains("\t") || label.name.contains("\n")) {
+            throw new IllegalArgumentException("Invalid label: " + label.name);
+        }
+        labels.put(label.name, label);
+        return this;
+    }
+
+    /**
+     * Summarizes an analyzed JMeter result file, the run lasts from the start of the first sample
+     * to the end of the last one
+     * */
+    public static RunSummary of(String name, JtlReport report) {
+        long startMillis = report.getPerSecond().isEmpty() ? 0 : report.getPerSecond().firstKey() * 1000;
+        RunSummary summary = new RunSummary(name, startMillis, report.getDurationMillis());
+        report.getLabels().values().forEach(stats -> summary.add(
+                new Label(stats.getLabel(), stats.getSamples(), stats.getErrors(), stats.getElapsed())));
+        return summary;
+    }
+
+    /**
+     * Summarizes a histogram log of the load engine or the functional tests, one label per endpoint.
+     * The errors are those the load engine writes at the end of a run, the functional tests write none.
+     * The duration spans from the first to the last interval.
+     * */
+    public static RunSummary ofHistogramLog(String name, Path file) throws IOException {
+        LatencyRecorder.Log log = LatencyRecorder.readLog(file);
+        RunSummary summary = new RunSummary(name, log.getStartMillis(), log.getDurationMillis());
+        log.getHistograms().forEach((endpoint, histogram) -> summary.add(new Label(endpoint.getTemplate(),
+                histogram.getTotalCount(), log.getErrors(endpoint), histogram)));
+        return summary;
+    }
+
+    /**
+     * Summarizes a JMeter result file (.csv or .jtl) or a histogram log (.hlog), named after the file
+     * */
+    public static RunSummary ofResults(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        if (fileName.endsWith(".hlog")) {
+            RunSummary summary = ofHistogramLog(base, file);
+            return summary.renamed(base + "-" + summary.startMillis);
+        }
+        RunSummary summary = of(base, new JtlAnalyzer().analyze(file));
+        return summary.renamed(base + "-" + summary.startMillis);
+    }
+
+    private RunSummary renamed(String newName) {
+        RunSummary renamed = new RunSummary(newName, startMillis, durationMillis);
+        labels.values().forEach(renamed::add);
+        return renamed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public Map<String, Label> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return double - samples per second of the label over the whole run
+     * */
+    public double throughput(Label label) {
+        return label.samples * 1000.0 / durationMillis;
+    }
+
+    public double throughput() {
+        return labels.values().stream().mapToLong(Label::getSamples).sum() * 1000.0 / durationMillis;
+    }
+
+    public void write(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println(HEADER);
+            out.println("run\t" + name + "\t" + startMillis + "\t" + durationMillis);
+            for (Label label : labels.values()) {
+                ByteBuffer buffer = ByteBuffer.allocate(label.latencies.getNeededByteBufferCapacity());
+                int length = label.latencies.encodeIntoCompressedByteBuffer(buffer, 9);
+                String encoded = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+                out.println(label.name + "\t" + label.samples + "\t" + label.errors + "\t" + encoded);
+            }
+        }
+    }
+
+    public static RunSummary read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                throw new IOException(file + " is not a run summary");
+            }
+            String[] run = in.readLine().split("\t");
+            if (run.length != 4 || !run[0].equals("run")) {
+                throw new IOException("Invalid run line in " + file);
+            }
+            RunSummary summary = new RunSummary(run[1], Long.parseLong(run[2]), Long.parseLong(run[3]));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length != 4) {
+                    throw new IOException("Invalid label line in " + file + ": " + line);
+                }
+                Histogram histogram;
+                try {
+                    histogram = Histogram.decodeFromCompressedByteBuffer(
+                            ByteBuffer.wrap(Base64.getDecoder().decode(fields[3])), LatencyRecorder.HIGHEST_TRACKABLE_MICROS);
+                } catch (DataFormatException | IllegalArgumentException e) {
+                    throw new IOException("Invalid histogram of " + fields[0] + " in " + file, e);
+                }
+                summary.add(new Label(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), histogram));
+            }
+            return summary;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format("%s: %.1fs, %.1f/s%n", name, durationMillis / 1000.0,
+                throughput()));
+        labels.values().forEach(label -> summary.append(String.format(
+                "%s: samples=%d, error rate=%.2f%%, p50=%.2fms, p99=%.2fms%n", label.name, label.samples,
+                label.getErrorRate() * 100, label.latencies.getValueAtPercentile(50) / 1000.0,
+                label.latencies.getValueAtPercentile(99) / 1000.0)));
+        return summary.toString();
+    }
+}
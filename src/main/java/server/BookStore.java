@@ -0,0 +1,132 @@
+package server;
+
+import load.BookPaths;
+import util.BookDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent, isbn indexed book store of the stand-in api.
+ * Lookups and writes go through a hash index, listing follows insertion order like the database of the real api.
+ * Create, update and delete are atomic per isbn, so duplicate creates and deletes succeed exactly once
+ * and concurrent updates keep the last writer.
+ * */
+public class BookStore {
+
+    private final Map<Long, Entry> index = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> insertionOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private static class Entry {
+        private final long sequence;
+        private volatile BookDTO book;
+
+        private Entry(long sequence, BookDTO book) {
+            this.sequence = sequence;
+            this.book = book;
+        }
+    }
+
+    /**
+     * @return BookStore - store with the 108 books of book_data.csv, in the same order
+     * */
+    public static BookStore seeded() {
+        BookStore store = new BookStore();
+        BookPaths paths = BookPaths.fromClasspath();
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            int slash = path.lastIndexOf('/');
+            String isbn = path.substring(slash + 1);
+            if (!path.endsWith("/books") && !isbn.isEmpty()) {
+                store.create(seedBook(Long.parseLong(isbn)));
+            }
+        }
+        return store;
+    }
+
+    /**
+     * The functional tests check the contents of two seeded books, the others get generic values
+     * */
+    private static BookDTO seedBook(long isbn) {
+        if (isbn == 8781234567891L) {
+            return new BookDTO(isbn, "Chesapeake Blue", "Nora Roberts", "Literature & Fiction", 25.95);
+        }
+        if (isbn == 8781234567894L) {
+            return new BookDTO(isbn, "The Dark Highlander", "Karen Marie Moning", "Romance", 6.99);
+        }
+        return new BookDTO(isbn, "Book " + isbn, "Author " + isbn % 100, "Literature & Fiction", 9.99);
+    }
+
+    private static BookDTO copy(BookDTO book) {
+        return new BookDTO(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getPrice());
+    }
+
+    /**
+     * @return boolean - false if a book with the same isbn already exists
+     * */
+    public boolean create(BookDTO book) {
+        Entry entry = new Entry(sequence.incrementAndGet(), copy(book));
+        if (index.putIfAbsent(book.getIsbn(), entry) != null) {
+            return false;
+        }
+        insertionOrder.put(entry.sequence, entry);
+        if (index.get(book.getIsbn()) != entry) {
+            //deleted concurrently before it was added to the ordered view
+            insertionOrder.remove(entry.sequence);
+        }
+        return true;
+    }
+
+    /**
+     * @return BookDTO - the book or null if it does not exist
+     * */
+    public BookDTO get(long isbn) {
+        Entry entry = index.get(isbn);
+        return entry == null ? null : copy(entry.book);
+    }
+
+    /**
+     * Replaces the book with the given isbn
+     * @return boolean - false if the book does not exist
+     * */
+    public boolean update(long isbn, BookDTO book) {
+        BookDTO stored = copy(book);
+        stored.setIsbn(isbn);
+        return index.computeIfPresent(isbn, (key, entry) -> {
+            entry.book = stored;
+            return entry;
+        }) != null;
+    }
+
+    /**
+     * @return boolean - false if the book does not exist
+     * */
+    public boolean delete(long isbn) {
+        Entry entry = index.remove(isbn);
+        if (entry == null) {
+            return false;
+        }
+        insertionOrder.remove(entry.sequence);
+        return true;
+    }
+
+    /**
+     * @return List - all books in insertion order
+     * */
+    public List<BookDTO> list() {
+        List<BookDTO> books = new ArrayList<>(index.size());
+        for (Entry entry : insertionOrder.values()) {
+            books.add(entry.book);
+        }
+        return books;
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
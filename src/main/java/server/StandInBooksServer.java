@@ -0,0 +1,381 @@
+package server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import util.BasicAuth;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+import static util.Constants.API_URL;
+
+/**
+ * Embedded stand-in for the books api, implementing the contract checked by BooksRestApiFunctionalTests:
+ * 108 seeded books, Basic authentication for writes, 401/403/404/405/406/415 responses with the same
+ * content types and messages as the real service.
+ * It allows the functional suite and the load engine to run hermetically and serves as a throughput baseline.
+ * */
+public class StandInBooksServer implements AutoCloseable {
+
+    private static final String JSON = "application/json";
+    private static final String TEXT = "text/plain;charset=UTF-8";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        //headers and body are written separately, without TCP_NODELAY every response waits for a delayed ack
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BookStore store;
+    private final String basePath;
+    private final String authorization = BasicAuth.header();
+    private volatile LongSupplier delayMillis = () -> 0;
+
+    /**
+     * @param port - port to listen on, 0 for any free port
+     * @param basePath - path of the books collection, e.g. /api/v1/books
+     * @param store - books served by the api
+     * @param threads - number of request handling threads
+     * */
+    public StandInBooksServer(int port, String basePath, BookStore store, int threads) throws IOException {
+        this.store = store;
+        this.basePath = basePath;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stand-in-books-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.createContext(basePath, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a seeded stand-in on the port and path of {@link util.Constants#API_URL}
+     * */
+    public static StandInBooksServer startDefault() throws IOException {
+        URI uri = URI.create(API_URL);
+        StandInBooksServer server = new StandInBooksServer(uri.getPort(), uri.getPath(), BookStore.seeded(),
+                Runtime.getRuntime().availableProcessors() * 4);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Delays every request before it is handled, e.g. to simulate a stall of the service
+     * @param delayMillis - called on the handling thread for every request, returns the delay in milliseconds
+     * @return StandInBooksServer - this server, for chaining
+     * */
+    public StandInBooksServer withDelay(LongSupplier delayMillis) {
+        this.delayMillis = delayMillis;
+        return this;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return String - url of the books collection
+     * */
+    public String getUrl() {
+        return "http://localhost:" + getPort() + basePath;
+    }
+
+    public BookStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long delay = delayMillis.getAsLong();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            String method = exchange.getRequestMethod();
+            String rest = exchange.getRequestURI().getPath().substring(basePath.length());
+            boolean collection = rest.isEmpty() || rest.equals("/");
+            String isbn = collection ? null : rest.substring(1);
+            if (isbn != null && isbn.contains("/")) {
+                error(exchange, 404, "Not Found", "No handler found");
+                return;
+            }
+            if (!method.equals("GET") && !authorized(exchange)) {
+                error(exchange, 401, "Unauthorized", "Unauthorized");
+                return;
+            }
+            switch (method) {
+                case "GET":
+                    if (!acceptsJson(exchange)) {
+                        notAcceptable(exchange);
+                    } else if (collection) {
+                        getAll(exchange);
+                    } else {
+                        getOne(exchange, isbn);
+                    }
+                    break;
+                case "POST":
+                    if (collection) {
+                        create(exchange);
+                    } else {
+                        methodNotAllowed(exchange, method);
+                    }
+                    break;
+                case "PUT":
+                    if (collection) {
+                        methodNotAllowed(exchange, method);
+                    } else {
+                        update(exchange, isbn);
+                    }
+                    break;
+                case "DELETE":
+                    if (collection) {
+                        methodNotAllowed(exchange, method);
+                    } else {
+                        delete(exchange, isbn);
+                    }
+                    break;
+                default:
+                    methodNotAllowed(exchange, method);
+            }
+        } catch (RuntimeException e) {
+            error(exchange, 500, "Internal Server Error", e.getMessage());
+        }
+    }
+
+    private void getAll(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BookJsonCodec.writeList(body, store.list());
+        send(exchange, 200, JSON, body.toByteArray());
+    }
+
+    private void getOne(HttpExchange exchange, String isbnParameter) throws IOException {
+        Long isbn = parseIsbn(exchange, isbnParameter);
+        if (isbn == null) {
+            return;
+        }
+        BookDTO book = store.get(isbn);
+        if (book == null) {
+            notFound(exchange, isbn);
+            return;
+        }
+        send(exchange, 200, JSON, MAPPER.writeValueAsBytes(book));
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        if (!supportedContentType(exchange)) {
+            return;
+        }
+        BookDTO book = readBook(exchange);
+        if (book == null) {
+            return;
+        }
+        if (!store.create(book)) {
+            send(exchange, 403, TEXT, ("Book with isbn: " + book.getIsbn() + " already exists")
+                    .getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        send(exchange, 201, JSON, MAPPER.writeValueAsBytes(book));
+    }
+
+    private void update(HttpExchange exchange, String isbnParameter) throws IOException {
+        if (!supportedContentType(exchange)) {
+            return;
+        }
+        Long isbn = parseIsbn(exchange, isbnParameter);
+        if (isbn == null) {
+            return;
+        }
+        BookDTO book = readBook(exchange);
+        if (book == null) {
+            return;
+        }
+        if (!store.update(isbn, book)) {
+            notFound(exchange, isbn);
+            return;
+        }
+        send(exchange, 200, JSON, MAPPER.writeValueAsBytes(store.get(isbn)));
+    }
+
+    private void delete(HttpExchange exchange, String isbnParameter) throws IOException {
+        Long isbn = parseIsbn(exchange, isbnParameter);
+        if (isbn == null) {
+            return;
+        }
+        if (!store.delete(isbn)) {
+            notFound(exchange, isbn);
+            return;
+        }
+        ObjectNode body = MAPPER.createObjectNode().put("message", "Book deleted successfully");
+        send(exchange, 200, JSON, MAPPER.writeValueAsBytes(body));
+    }
+
+    /**
+     * Reads and validates a book from the request body, answering with an error response if it is invalid
+     * @return BookDTO - the book or null if an error response was sent
+     * */
+    private BookDTO readBook(HttpExchange exchange) throws IOException {
+        JsonNode node;
+        try (InputStream in = exchange.getRequestBody()) {
+            node = MAPPER.readTree(in);
+        } catch (IOException e) {
+            error(exchange, 400, "Bad Request", "JSON parse error");
+            return null;
+        }
+        String violation = validate(node);
+        if (violation != null) {
+            error(exchange, 400, "Bad Request", violation);
+            return null;
+        }
+        return new BookDTO(node.get("isbn").asLong(), node.get("title").asText(), node.get("author").asText(),
+                node.get("genre").asText(), node.get("price").asDouble());
+    }
+
+    /**
+     * Same constraints as the real api: all fields present and of the right type, non empty author,
+     * title of at least 5 characters and a non negative price. Unknown fields are ignored.
+     * @return String - the first violation or null if the book is valid
+     * */
+    static String validate(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            return "Request body must be a book object";
+        }
+        JsonNode isbn = node.get("isbn");
+        if (isbn == null || !(isbn.isIntegralNumber() || isbn.isTextual() && isbn.asText().matches("\\d+"))) {
+            return "isbn must not be null";
+        }
+        for (String field : new String[]{"title", "author", "genre"}) {
+            JsonNode value = node.get(field);
+            if (value == null || !value.isTextual()) {
+                return field + " must be a string";
+            }
+        }
+        if (node.get("author").asText().isBlank()) {
+            return "author must not be empty";
+        }
+        if (node.get("title").asText().length() < 5) {
+            return "title must have at least 5 characters";
+        }
+        JsonNode price = node.get("price");
+        if (price == null || !price.isNumber()) {
+            return "price must be a number";
+        }
+        if (price.asDouble() < 0) {
+            return "price must not be negative";
+        }
+        return null;
+    }
+
+    private boolean authorized(HttpExchange exchange) {
+        return authorization.equals(exchange.getRequestHeaders().getFirst("Authorization"));
+    }
+
+    private static boolean acceptsJson(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept == null || accept.isBlank() || accept.contains("*/*") || accept.contains("application/*")
+                || accept.contains(JSON);
+    }
+
+    private static boolean supportedContentType(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith(JSON)) {
+            return true;
+        }
+        String type = contentType == null ? "" : contentType.replace(" ", "");
+        error(exchange, 415, "Unsupported Media Type", "Content type '" + type + "' not supported");
+        return false;
+    }
+
+    private static Long parseIsbn(HttpExchange exchange, String isbn) throws IOException {
+        try {
+            return Long.parseLong(isbn);
+        } catch (NumberFormatException e) {
+            error(exchange, 400, "Bad Request", "Failed to convert value of type 'java.lang.String' to required "
+                    + "type 'java.lang.Long'; For input string: \"" + isbn + "\"");
+            return null;
+        }
+    }
+
+    private static void notFound(HttpExchange exchange, long isbn) throws IOException {
+        send(exchange, 404, TEXT, ("Book with isbn: " + isbn + " could not be found")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void methodNotAllowed(HttpExchange exchange, String method) throws IOException {
+        error(exchange, 405, "Method Not Allowed", "Request method '" + method + "' not supported");
+    }
+
+    /**
+     * Spring answers an html client with an html error page and any other client with an empty body
+     * */
+    private static void notAcceptable(HttpExchange exchange) throws IOException {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept.contains("text/html")) {
+            send(exchange, 406, "text/html;charset=UTF-8", ("<html><body><h1>Whitelabel Error Page</h1>"
+                    + "<div>Not Acceptable</div></body></html>").getBytes(StandardCharsets.UTF_8));
+        } else {
+            exchange.getResponseHeaders().set("Content-Length", "0");
+            exchange.sendResponseHeaders(406, -1);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String error, String message) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode()
+                .put("timestamp", Instant.now().toString())
+                .put("status", status)
+                .put("error", error)
+                .put("message", message)
+                .put("path", exchange.getRequestURI().getPath());
+        send(exchange, status, JSON, MAPPER.writeValueAsBytes(body));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Starts the stand-in on the port of Constants.API_URL and runs until the process is stopped
+     * */
+    public static void main(String[] args) throws Exception {
+        StandInBooksServer server = startDefault();
+        System.out.println("Stand-in books api listening on " + server.getUrl());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,164 @@
+package trace;
+
+import report.JtlFields;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts recorded traffic to binary traces:
+ * <ul>
+ *     <li>JMeter result files (CSV with a header line, e.g. load_test_create_book_report.csv), the request of a
+ *     sample is its URL column, the method is not saved by JMeter and has to be given</li>
+ *     <li>access logs in the common or combined log format, as written by Tomcat and nginx</li>
+ * </ul>
+ * Neither keeps request bodies, so the body digests are 0. Both are read line by line; records that are
+ * written out of order, as JMeter does with samples of concurrent threads, are put back in order within
+ * a window of 60 seconds.
+ * */
+public class TraceConverter {
+
+    private static final long REORDER_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final Pattern ACCESS_LOG = Pattern.compile(
+            "^\\S+ \\S+ \\S+ \\[([^\\]]+)\\] \"(\\S+) (\\S+)[^\"]*\" (\\d{3}) .*");
+    private static final DateTimeFormatter ACCESS_LOG_TIME =
+            DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss[.SSS] Z", Locale.ENGLISH);
+
+    private final TraceWriter writer;
+    private final PriorityQueue<TraceRecord> pending =
+            new PriorityQueue<>(Comparator.comparingLong(TraceRecord::getTimestampMicros));
+    private long skipped;
+
+    public TraceConverter(TraceWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * @param method - method of all samples, e.g. POST for load_test_create_book_report.csv
+     * */
+    public void fromJtl(Path file, String method) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return;
+            }
+            List<String> names = JtlFields.names(header);
+            int timeStamp = JtlFields.required(names, "timeStamp");
+            int url = JtlFields.required(names, "URL");
+            int responseCode = names.indexOf("responseCode");
+            JtlFields fields = new JtlFields();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                fields.split(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)), 0);
+                if (fields.isEmpty(timeStamp) || fields.isEmpty(url)) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    long micros = TimeUnit.MILLISECONDS.toMicros((long) fields.number(timeStamp));
+                    URI uri = URI.create(fields.text(url));
+                    String path = uri.getRawQuery() == null
+                            ? uri.getRawPath()
+                            : uri.getRawPath() + "?" + uri.getRawQuery();
+                    add(new TraceRecord(micros, method, path, 0,
+                            fields.isEmpty(responseCode) ? 0 : status(fields.text(responseCode))));
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an access log in the common or combined log format, e.g.
+     * 127.0.0.1 - user [10/Oct/2021:13:55:36 +0200] "GET /api/v1/books/8781234567891 HTTP/1.1" 200 117
+     * */
+    public void fromAccessLog(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = ACCESS_LOG.matcher(line);
+                if (!matcher.matches()) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    OffsetDateTime time = OffsetDateTime.parse(matcher.group(1), ACCESS_LOG_TIME);
+                    long micros = TimeUnit.SECONDS.toMicros(time.toEpochSecond())
+                            + TimeUnit.NANOSECONDS.toMicros(time.getNano());
+                    add(new TraceRecord(micros, matcher.group(2), matcher.group(3), 0,
+                            Integer.parseInt(matcher.group(4))));
+                } catch (DateTimeParseException | IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+        }
+    }
+
+    private void add(TraceRecord record) throws IOException {
+        pending.add(record);
+        while (pending.peek().getTimestampMicros() < record.getTimestampMicros() - REORDER_WINDOW_MICROS) {
+            writer.write(pending.poll());
+        }
+    }
+
+    /**
+     * Writes the records still held back for reordering, call it after the last input
+     * */
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            writer.write(pending.poll());
+        }
+    }
+
+    /**
+     * @return long - lines that were not a request, e.g. JMeter samples without URL
+     * */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    private static int status(String code) {
+        try {
+            return Integer.parseInt(code.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * usage: TraceConverter jtl|access input output.trace [method of the jtl samples]
+     * */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !args[0].equals("jtl") && !args[0].equals("access")) {
+            System.out.println("usage: TraceConverter jtl|access input output.trace [method of the jtl samples]");
+            return;
+        }
+        try (TraceWriter writer = new TraceWriter(Path.of(args[2]))) {
+            TraceConverter converter = new TraceConverter(writer);
+            if (args[0].equals("jtl")) {
+                converter.fromJtl(Path.of(args[1]), args.length > 3 ? args[3].toUpperCase() : "GET");
+            } else {
+                converter.fromAccessLog(Path.of(args[1]));
+            }
+            converter.finish();
+            System.out.println(String.format("%d records written to %s, %d lines skipped", writer.getRecords(),
+                    args[2], converter.getSkipped()));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the records of a binary trace through a memory mapped window that slides over the file,
+ * so traces of many hours are replayed without reading them into memory.
+ * <br>
+ * Format, big endian:
+ * <pre>
+ * header: magic "BTRC" (4), version (2), flags (2), first timestamp in micros (8), records (8), duration in micros (8)
+ * record: timestamp delta to the previous record in micros (unsigned LEB128), method index (1),
+ *         path length (unsigned LEB128), path (UTF-8), body digest (8), status (2)
+ * </pre>
+ * A record of a GET with a short delta takes about as many bytes as its path plus 13.
+ * */
+public class TraceReader implements Iterator<TraceRecord>, Closeable {
+
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowBytes;
+    private final long startMicros;
+    private final long records;
+    private final long durationMicros;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long timestamp;
+    private long read;
+
+    private TraceReader(FileChannel channel, Path file, long windowBytes) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+        ByteBuffer header = ByteBuffer.allocate(TraceWriter.HEADER_BYTES);
+        if (size < TraceWriter.HEADER_BYTES || channel.read(header, 0) != TraceWriter.HEADER_BYTES) {
+            throw new IOException(file + " is not a trace");
+        }
+        header.flip();
+        if (header.getInt() != TraceWriter.MAGIC || header.getShort() != TraceWriter.VERSION) {
+            throw new IOException(file + " is not a trace of version " + TraceWriter.VERSION);
+        }
+        header.getShort();
+        this.startMicros = header.getLong();
+        this.records = header.getLong();
+        this.durationMicros = header.getLong();
+        this.timestamp = startMicros;
+        map(TraceWriter.HEADER_BYTES);
+    }
+
+    public static TraceReader open(Path file) throws IOException {
+        return open(file, WINDOW_BYTES);
+    }
+
+    /**
+     * @param windowBytes - size of the mapped window, at least {@link TraceWriter#MAX_RECORD_BYTES}
+     * */
+    static TraceReader open(Path file, long windowBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new TraceReader(channel, file, Math.max(windowBytes, TraceWriter.MAX_RECORD_BYTES));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+    }
+
+    /**
+     * @return long - timestamp of the first record in microseconds since the epoch
+     * */
+    public long getStartMicros() {
+        return startMicros;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return long - time from the first to the last record in microseconds
+     * */
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return read < records;
+    }
+
+    @Override
+    public TraceRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            if (window.remaining() < TraceWriter.MAX_RECORD_BYTES && windowStart + window.limit() < size) {
+                map(windowStart + window.position());
+            }
+            timestamp += readVarLong();
+            String method = TraceRecord.METHODS.get(window.get());
+            byte[] path = new byte[(int) readVarLong()];
+            window.get(path);
+            long digest = window.getLong();
+            int status = window.getShort() & 0xFFFF;
+            read++;
+            return new TraceRecord(timestamp, method, new String(path, StandardCharsets.UTF_8), digest, status);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Corrupt trace record " + read, e);
+        }
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = window.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
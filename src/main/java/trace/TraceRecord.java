@@ -0,0 +1,80 @@
+package trace;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One request of a traffic trace: when it was sent, its method and path, a digest of its body
+ * and the status the api answered with at the time.
+ * */
+public class TraceRecord {
+
+    static final List<String> METHODS = Arrays.asList("GET", "POST", "PUT", "DELETE", "HEAD", "PATCH", "OPTIONS");
+
+    private final long timestampMicros;
+    private final String method;
+    private final String path;
+    private final long bodyDigest;
+    private final int status;
+
+    /**
+     * @param timestampMicros - start of the request, microseconds since the epoch
+     * @param method - one of GET, POST, PUT, DELETE, HEAD, PATCH and OPTIONS
+     * @param path - path with the query, e.g. /api/v1/books/8781234567891
+     * @param bodyDigest - {@link #digest} of the body, 0 without a body or if it is unknown
+     * @param status - status of the response, 0 if it is unknown
+     * */
+    public TraceRecord(long timestampMicros, String method, String path, long bodyDigest, int status) {
+        if (!METHODS.contains(method)) {
+            throw new IllegalArgumentException("Unsupported method: " + method);
+        }
+        this.timestampMicros = timestampMicros;
+        this.method = method;
+        this.path = path;
+        this.bodyDigest = bodyDigest;
+        this.status = status;
+    }
+
+    /**
+     * @return long - first 8 bytes of the SHA-256 of the body, 0 for an empty body
+     * */
+    public static long digest(byte[] body) {
+        if (body == null || body.length == 0) {
+            return 0;
+        }
+        try {
+            long digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(body)).getLong();
+            return digest == 0 ? 1 : digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getBodyDigest() {
+        return bodyDigest;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s %s body=%016x status=%d", timestampMicros, method, path, bodyDigest, status);
+    }
+}
@@ -0,0 +1,99 @@
+package trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a binary trace, see {@link TraceReader} for the format.
+ * Records must arrive in timestamp order, a record earlier than the previous one is moved to the time
+ * of the previous one. The record count and the duration are filled into the header on close.
+ * */
+public class TraceWriter implements Closeable {
+
+    static final int MAGIC = 0x42545243;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int MAX_PATH_BYTES = 8192;
+    static final int MAX_RECORD_BYTES = 10 + 1 + 2 + MAX_PATH_BYTES + 8 + 2;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long firstMicros = -1;
+    private long lastMicros;
+    private long records;
+
+    public TraceWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(HEADER_BYTES);
+    }
+
+    public void write(TraceRecord record) throws IOException {
+        byte[] path = record.getPath().getBytes(StandardCharsets.UTF_8);
+        if (path.length > MAX_PATH_BYTES) {
+            throw new IllegalArgumentException("Path longer than " + MAX_PATH_BYTES + " bytes: " + record.getPath());
+        }
+        if (firstMicros < 0) {
+            firstMicros = record.getTimestampMicros();
+            lastMicros = firstMicros;
+        }
+        long timestamp = Math.max(lastMicros, record.getTimestampMicros());
+        if (buffer.remaining() < MAX_RECORD_BYTES) {
+            flush();
+        }
+        writeVarLong(timestamp - lastMicros);
+        buffer.put((byte) TraceRecord.METHODS.indexOf(record.getMethod()));
+        writeVarLong(path.length);
+        buffer.put(path);
+        buffer.putLong(record.getBodyDigest());
+        buffer.putShort((short) record.getStatus());
+        lastMicros = timestamp;
+        records++;
+    }
+
+    /**
+     * Unsigned LEB128, small deltas take a single byte
+     * */
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putShort((short) 0);
+            header.putLong(Math.max(0, firstMicros));
+            header.putLong(records);
+            header.putLong(records == 0 ? 0 : lastMicros - firstMicros);
+            header.flip();
+            channel.write(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Builds the value of the Authorization header for the books api
+ * */
+public class BasicAuth {
+
+    public static final String USERNAME = "user";
+    public static final String PASSWORD = "user123*";
+
+    private BasicAuth() {
+
+    }
+
+    /**
+     * @return String - Authorization header value for the default api user
+     * */
+    public static String header() {
+        return header(USERNAME, PASSWORD);
+    }
+
+    public static String header(String username, String password) {
+        String auth = username + ":" + password;
+        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand written Jackson streaming codec for {@link BookDTO}, without reflection or data binding
+ * */
+public class BookJsonCodec {
+
+    public static final JsonFactory FACTORY = new JsonFactory();
+
+    private BookJsonCodec() {
+
+    }
+
+    public static void write(JsonGenerator generator, BookDTO book) throws IOException {
+        generator.writeStartObject();
+        if (book.getIsbn() == null) {
+            generator.writeNullField("isbn");
+        } else {
+            generator.writeNumberField("isbn", book.getIsbn());
+        }
+        generator.writeStringField("title", book.getTitle());
+        generator.writeStringField("author", book.getAuthor());
+        generator.writeStringField("genre", book.getGenre());
+        generator.writeNumberField("price", book.getPrice());
+        generator.writeEndObject();
+    }
+
+    /**
+     * @return byte[] - json of one book, the body of a create or update
+     * */
+    public static byte[] toBytes(BookDTO book) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            write(generator, book);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void writeList(OutputStream out, List<BookDTO> books) throws IOException {
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+            generator.writeStartArray();
+            for (BookDTO book : books) {
+                write(generator, book);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Reads a book, the parser must be positioned on the START_OBJECT token of the book.
+     * Unknown fields are skipped, like the api does.
+     * */
+    public static BookDTO read(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected start of a book object but found " + parser.currentToken());
+        }
+        BookDTO book = new BookDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "isbn":
+                    book.setIsbn(value == JsonToken.VALUE_NULL ? null : parser.getLongValue());
+                    break;
+                case "title":
+                    book.setTitle(parser.getValueAsString());
+                    break;
+                case "author":
+                    book.setAuthor(parser.getValueAsString());
+                    break;
+                case "genre":
+                    book.setGenre(parser.getValueAsString());
+                    break;
+                case "price":
+                    book.setPrice(parser.getDoubleValue());
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return book;
+    }
+
+    public static List<BookDTO> readList(InputStream in) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of books");
+            }
+            List<BookDTO> books = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                books.add(read(parser));
+            }
+            return books;
+        }
+    }
+}
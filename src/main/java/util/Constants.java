@@ -1,11 +1,10 @@
 package util;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Constants {
     public static final String API_URL = "http://localhost:8080/api/v1/books";
-    public static Long bookID = 7781234567891L;
     public static int booksInDB = 108;
-    public static List<Long> booksToDelete = new ArrayList<>();
+    public static List<Long> booksToDelete = new CopyOnWriteArrayList<>();
 }
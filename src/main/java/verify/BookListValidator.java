@@ -0,0 +1,206 @@
+package verify;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Validates a GET /books response by pulling the array token by token, without building a List of BookDTO.
+ * Every element is checked against the BookDTO schema (isbn integer, title/author/genre strings, price number),
+ * the first element can be compared with an expected book and the elements are counted.
+ * Memory use does not depend on the size of the catalog, only the first few violations are kept.
+ * */
+public class BookListValidator {
+
+    private static final int MAX_VIOLATIONS = 20;
+    private static final int ISBN = 1;
+    private static final int TITLE = 2;
+    private static final int AUTHOR = 4;
+    private static final int GENRE = 8;
+    private static final int PRICE = 16;
+    private static final int ALL_FIELDS = ISBN | TITLE | AUTHOR | GENRE | PRICE;
+
+    private Integer expectedCount;
+    private BookDTO expectedFirst;
+
+    public BookListValidator expectCount(int count) {
+        this.expectedCount = count;
+        return this;
+    }
+
+    public BookListValidator expectFirst(BookDTO book) {
+        this.expectedFirst = book;
+        return this;
+    }
+
+    /**
+     * Validates the body, the stream is read until the end of the array but not closed
+     * @param body - response body of GET /books
+     * @return Result - number of books, first book and schema violations
+     * */
+    public Result validate(InputStream body) throws IOException {
+        Result result = new Result();
+        try (JsonParser parser = BookJsonCodec.FACTORY.createParser(body)) {
+            //the caller owns the stream, e.g. closing a response stream returns its connection to the pool
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                result.violation("Response is not a JSON array");
+                return result;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    result.violation("Unexpected end of the response after " + result.count + " books");
+                    return result;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    result.violation("Element " + result.count + " is not an object but " + token);
+                    parser.skipChildren();
+                } else {
+                    validateBook(parser, result);
+                }
+                result.count++;
+            }
+        }
+        if (expectedCount != null && result.count != expectedCount) {
+            result.violation("Expected " + expectedCount + " books but found " + result.count);
+        }
+        if (expectedFirst != null) {
+            compareFirst(result);
+        }
+        return result;
+    }
+
+    private static void validateBook(JsonParser parser, Result result) throws IOException {
+        boolean first = result.count == 0;
+        BookDTO book = first ? new BookDTO() : null;
+        int seen = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "isbn":
+                    seen |= ISBN;
+                    if (value != JsonToken.VALUE_NUMBER_INT) {
+                        result.violation("Book " + result.count + ": isbn should be an integer but is " + value);
+                    } else if (first) {
+                        book.setIsbn(parser.getLongValue());
+                    }
+                    break;
+                case "title":
+                case "author":
+                case "genre":
+                    seen |= field.equals("title") ? TITLE : field.equals("author") ? AUTHOR : GENRE;
+                    if (value != JsonToken.VALUE_STRING) {
+                        result.violation("Book " + result.count + ": " + field + " should be a string but is " + value);
+                    } else if (first) {
+                        setText(book, field, parser.getText());
+                    }
+                    break;
+                case "price":
+                    seen |= PRICE;
+                    if (!value.isNumeric()) {
+                        result.violation("Book " + result.count + ": price should be a number but is " + value);
+                    } else if (first) {
+                        book.setPrice(parser.getDoubleValue());
+                    }
+                    break;
+                default:
+                    result.violation("Book " + result.count + ": unexpected field " + field);
+                    parser.skipChildren();
+            }
+        }
+        if (seen != ALL_FIELDS) {
+            result.violation("Book " + result.count + ": missing fields " + missing(seen));
+        }
+        if (first) {
+            result.first = book;
+        }
+    }
+
+    private static void setText(BookDTO book, String field, String text) {
+        if (field.equals("title")) {
+            book.setTitle(text);
+        } else if (field.equals("author")) {
+            book.setAuthor(text);
+        } else {
+            book.setGenre(text);
+        }
+    }
+
+    private static List<String> missing(int seen) {
+        List<String> missing = new ArrayList<>();
+        String[] names = {"isbn", "title", "author", "genre", "price"};
+        for (int i = 0; i < names.length; i++) {
+            if ((seen & (1 << i)) == 0) {
+                missing.add(names[i]);
+            }
+        }
+        return missing;
+    }
+
+    private void compareFirst(Result result) {
+        BookDTO actual = result.first;
+        if (actual == null) {
+            result.violation("Expected a first book but the response is empty");
+            return;
+        }
+        if (!Objects.equals(actual.getIsbn(), expectedFirst.getIsbn())
+                || !Objects.equals(actual.getTitle(), expectedFirst.getTitle())
+                || !Objects.equals(actual.getAuthor(), expectedFirst.getAuthor())
+                || !Objects.equals(actual.getGenre(), expectedFirst.getGenre())
+                || Double.compare(actual.getPrice(), expectedFirst.getPrice()) != 0) {
+            result.violation("Expected first book " + expectedFirst + " but found " + actual);
+        }
+    }
+
+    public static class Result {
+
+        private long count;
+        private BookDTO first;
+        private final List<String> violations = new ArrayList<>();
+        private long violationCount;
+
+        private void violation(String message) {
+            violationCount++;
+            if (violations.size() < MAX_VIOLATIONS) {
+                violations.add(message);
+            }
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public BookDTO getFirst() {
+            return first;
+        }
+
+        /**
+         * @return List - the first violations found, at most 20
+         * */
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        public long getViolationCount() {
+            return violationCount;
+        }
+
+        public boolean isValid() {
+            return violationCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "books: " + count + ", violations: " + violationCount + " " + violations;
+        }
+    }
+}
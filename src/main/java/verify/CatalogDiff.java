@@ -0,0 +1,240 @@
+package verify;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import data.BookTable;
+import util.BookJsonCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares a GET /books response with the expected catalog in a {@link BookTable}.
+ * The response is pulled token by token and every field is compared in place with the columns, strings through
+ * the parser's character buffer, so no BookDTO or String is created for books that match.
+ * Books are matched by isbn, the order of the response does not matter.
+ * */
+public class CatalogDiff {
+
+    private static final int MAX_DIFFERENCES = 20;
+    private static final List<String> FIELDS = List.of("isbn", "title", "author", "genre", "price");
+
+    private CatalogDiff() {
+
+    }
+
+    /**
+     * @param expected - the catalog the api should return
+     * @param body - response body of GET /books, read until the end of the array but not closed
+     * @return Result - matching, mismatched, missing and unexpected books
+     * */
+    public static Result diff(BookTable expected, InputStream body) throws IOException {
+        Result result = new Result();
+        long[] seen = new long[(expected.size() + 63) >>> 6];
+        try (JsonParser parser = BookJsonCodec.FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Response is not a JSON array");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                compareBook(parser, expected, seen, result);
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException("Expected a book object but found " + token);
+            }
+        }
+        for (int row = 0; row < expected.size(); row++) {
+            if ((seen[row >>> 6] & (1L << row)) == 0) {
+                result.difference(Kind.MISSING, "missing " + expected.get(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads one book, the fields are buffered until the isbn is known since the api does not guarantee
+     * that the isbn comes first
+     * */
+    private static void compareBook(JsonParser parser, BookTable expected, long[] seen, Result result)
+            throws IOException {
+        long isbn = 0;
+        double price = Double.NaN;
+        String title = null;
+        String author = null;
+        String genre = null;
+        int row = -1;
+        boolean mismatch = false;
+        int fields = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            fields += FIELDS.contains(field) ? 1 : 0;
+            switch (field) {
+                case "isbn":
+                    isbn = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : 0;
+                    row = expected.rowOf(isbn);
+                    if (row >= 0) {
+                        mismatch |= title != null && !title.equals(expected.title(row))
+                                || author != null && !author.equals(expected.author(row))
+                                || genre != null && !genre.equals(expected.genre(row))
+                                || !Double.isNaN(price) && Double.compare(price, expected.price(row)) != 0;
+                    }
+                    break;
+                case "title":
+                    if (row >= 0) {
+                        mismatch |= value != JsonToken.VALUE_STRING || !expected.titleMatches(row,
+                                parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        title = parser.getText();
+                    } else {
+                        mismatch = true;
+                    }
+                    break;
+                case "author":
+                    if (row >= 0) {
+                        mismatch |= value != JsonToken.VALUE_STRING || !expected.authorMatches(row,
+                                parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        author = parser.getText();
+                    } else {
+                        mismatch = true;
+                    }
+                    break;
+                case "genre":
+                    if (row >= 0) {
+                        mismatch |= value != JsonToken.VALUE_STRING || !expected.genreMatches(row,
+                                parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        genre = parser.getText();
+                    } else {
+                        mismatch = true;
+                    }
+                    break;
+                case "price":
+                    double actualPrice = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    if (row >= 0) {
+                        mismatch |= Double.compare(actualPrice, expected.price(row)) != 0;
+                    } else {
+                        price = actualPrice;
+                        mismatch |= Double.isNaN(actualPrice);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (row < 0) {
+            result.difference(Kind.UNEXPECTED, isbn == 0 ? "unexpected book without isbn"
+                    : "unexpected book with isbn " + isbn);
+            return;
+        }
+        long bit = 1L << row;
+        if ((seen[row >>> 6] & bit) != 0) {
+            result.difference(Kind.DUPLICATE, "duplicate book with isbn " + isbn);
+            return;
+        }
+        seen[row >>> 6] |= bit;
+        if (mismatch || fields != FIELDS.size()) {
+            result.difference(Kind.MISMATCHED, "book with isbn " + isbn + " differs from " + expected.get(row));
+        } else {
+            result.matched++;
+        }
+    }
+
+    /**
+     * Compares a GET /books/{isbn} response body with one row of the table, without creating any strings
+     * @return boolean - true if the body is the book of the row, with all fields and no others
+     * */
+    public static boolean matches(BookTable expected, int row, byte[] body) throws IOException {
+        try (JsonParser parser = BookJsonCodec.FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            int fields = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                boolean text = value == JsonToken.VALUE_STRING;
+                boolean match;
+                switch (field) {
+                    case "isbn":
+                        match = value == JsonToken.VALUE_NUMBER_INT && parser.getLongValue() == expected.isbn(row);
+                        break;
+                    case "title":
+                        match = text && expected.titleMatches(row, parser.getTextCharacters(),
+                                parser.getTextOffset(), parser.getTextLength());
+                        break;
+                    case "author":
+                        match = text && expected.authorMatches(row, parser.getTextCharacters(),
+                                parser.getTextOffset(), parser.getTextLength());
+                        break;
+                    case "genre":
+                        match = text && expected.genreMatches(row, parser.getTextCharacters(),
+                                parser.getTextOffset(), parser.getTextLength());
+                        break;
+                    case "price":
+                        match = value.isNumeric() && Double.compare(parser.getDoubleValue(), expected.price(row)) == 0;
+                        break;
+                    default:
+                        match = false;
+                }
+                if (!match) {
+                    return false;
+                }
+                fields++;
+            }
+            return fields == FIELDS.size();
+        }
+    }
+
+    public enum Kind {
+        MISMATCHED, MISSING, UNEXPECTED, DUPLICATE
+    }
+
+    public static class Result {
+
+        private long matched;
+        private final long[] counts = new long[Kind.values().length];
+        private final List<String> differences = new ArrayList<>();
+
+        private void difference(Kind kind, String message) {
+            counts[kind.ordinal()]++;
+            if (differences.size() < MAX_DIFFERENCES) {
+                differences.add(message);
+            }
+        }
+
+        public long getMatched() {
+            return matched;
+        }
+
+        public long count(Kind kind) {
+            return counts[kind.ordinal()];
+        }
+
+        /**
+         * @return List - the first differences found, at most 20
+         * */
+        public List<String> getDifferences() {
+            return differences;
+        }
+
+        public boolean isIdentical() {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "matched: " + matched + ", mismatched: " + count(Kind.MISMATCHED) + ", missing: "
+                    + count(Kind.MISSING) + ", unexpected: " + count(Kind.UNEXPECTED) + ", duplicate: "
+                    + count(Kind.DUPLICATE) + " " + differences;
+        }
+    }
+}
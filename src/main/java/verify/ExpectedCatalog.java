@@ -0,0 +1,169 @@
+package verify;
+
+import data.BookTable;
+import data.IsbnIndex;
+import util.BookJsonCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Expected state of the api during a load test: the books of a {@link BookTable} and which of them
+ * currently exist. Load threads record creates and deletes and check GET /books/{isbn} responses against
+ * the model concurrently, lookups go through a lock free {@link IsbnIndex} and the counters are striped,
+ * so checking every response does not serialize the load threads.
+ * The digest of the canonical json of every book is computed up front, a response body with the same digest
+ * matches without being parsed; only bodies that differ, e.g. serialized with another field order, are parsed
+ * and compared field by field.
+ * A check reflects the updates that completed before the request was sent, a response racing with a create or
+ * delete of the same isbn can legitimately show either state and should not be checked.
+ * */
+public class ExpectedCatalog {
+
+    private static final int MAX_DIFFERENCES = 20;
+
+    private final BookTable books;
+    private final IsbnIndex present;
+    private final long[] digests;
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder wrongStatus = new LongAdder();
+    private final LongAdder wrongBody = new LongAdder();
+    private final LongAdder parsed = new LongAdder();
+    private final Queue<String> differences = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger differenceCount = new AtomicInteger();
+
+    /**
+     * @param books - the catalog, every book in it is expected to exist
+     * */
+    public ExpectedCatalog(BookTable books) {
+        this.books = books;
+        this.present = new IsbnIndex(books.size());
+        for (int row = 0; row < books.size(); row++) {
+            present.put(books.isbn(row), row);
+        }
+        this.digests = digests(books);
+    }
+
+    /**
+     * @return long[] - {@link ResponseDigest} of the json of every book as the api serializes a BookDTO
+     * */
+    private static long[] digests(BookTable books) {
+        long[] digests = new long[books.size()];
+        for (int row = 0; row < digests.length; row++) {
+            digests[row] = ResponseDigest.of(BookJsonCodec.toBytes(books.get(row)));
+        }
+        return digests;
+    }
+
+    /**
+     * Records that a book of the catalog was created
+     * */
+    public void created(long isbn) {
+        int row = books.rowOf(isbn);
+        if (row < 0) {
+            throw new IllegalArgumentException("The book with isbn " + isbn + " is not in the catalog");
+        }
+        present.put(isbn, row);
+    }
+
+    /**
+     * Records that a book was deleted
+     * */
+    public void deleted(long isbn) {
+        present.remove(isbn);
+    }
+
+    public boolean exists(long isbn) {
+        return present.containsKey(isbn);
+    }
+
+    /**
+     * Checks a GET /books/{isbn} response, an existing book must be returned with 200 and its exact fields,
+     * any other isbn with 404
+     * @param body - response body, only read for status 200
+     * @return boolean - true if the response matches the model
+     * */
+    public boolean check(long isbn, int status, byte[] body) {
+        return check(isbn, status, body == null ? 0 : ResponseDigest.of(body), body == null ? null : () -> body);
+    }
+
+    /**
+     * Checks a GET /books/{isbn} response by the digest of its body, see {@link #check(long, int, byte[])}
+     * @param body - body digested by {@link ResponseDigest#handler()}
+     * */
+    public boolean checkDigest(long isbn, int status, ResponseDigest body) {
+        return check(isbn, status, body == null ? 0 : body.getDigest(), body == null ? null : body::bytes);
+    }
+
+    private boolean check(long isbn, int status, long digest, Supplier<byte[]> body) {
+        checked.increment();
+        int row = present.get(isbn);
+        int expectedStatus = row == IsbnIndex.NO_ROW ? 404 : 200;
+        if (status != expectedStatus) {
+            wrongStatus.increment();
+            difference("GET " + isbn + ": expected status " + expectedStatus + " but was " + status);
+            return false;
+        }
+        if (row == IsbnIndex.NO_ROW) {
+            return true;
+        }
+        if (body != null && row < digests.length && digest == digests[row]) {
+            return true;
+        }
+        parsed.increment();
+        byte[] bytes = body == null ? null : body.get();
+        boolean matches;
+        try {
+            matches = bytes != null && CatalogDiff.matches(books, row, bytes);
+        } catch (IOException e) {
+            matches = false;
+        }
+        if (!matches) {
+            wrongBody.increment();
+            difference("GET " + isbn + ": expected " + books.get(row) + " but was "
+                    + (bytes == null ? "no body" : new String(bytes, StandardCharsets.UTF_8)));
+        }
+        return matches;
+    }
+
+    private void difference(String message) {
+        if (differenceCount.getAndIncrement() < MAX_DIFFERENCES) {
+            differences.add(message);
+        }
+    }
+
+    public long getChecked() {
+        return checked.sum();
+    }
+
+    public long getWrongStatus() {
+        return wrongStatus.sum();
+    }
+
+    public long getWrongBody() {
+        return wrongBody.sum();
+    }
+
+    /**
+     * @return long - bodies whose digest differed from the expected one and were parsed, a high count with few
+     * wrong bodies means the api serializes books differently than expected and the checks are slow
+     * */
+    public long getParsed() {
+        return parsed.sum();
+    }
+
+    public boolean isConsistent() {
+        return getWrongStatus() == 0 && getWrongBody() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "checked responses: " + getChecked() + ", wrong status: " + getWrongStatus() + ", wrong body: "
+                + getWrongBody() + ", parsed bodies: " + getParsed() + " " + differences;
+    }
+}
@@ -0,0 +1,118 @@
+package verify;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Response body hashed with 64 bit FNV-1a while the http client delivers it, so checking it against
+ * {@link ExpectedCatalog} compares one long instead of parsing the json.
+ * The received buffers are kept without copying, {@link #bytes()} only joins them for the rare response
+ * whose digest does not match and has to be parsed.
+ * */
+public class ResponseDigest {
+
+    static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private final long digest;
+    private final List<ByteBuffer> buffers;
+    private final int length;
+
+    private ResponseDigest(long digest, List<ByteBuffer> buffers, int length) {
+        this.digest = digest;
+        this.buffers = buffers;
+        this.length = length;
+    }
+
+    /**
+     * @return BodyHandler - digests the body of every response
+     * */
+    public static HttpResponse.BodyHandler<ResponseDigest> handler() {
+        return responseInfo -> new Subscriber();
+    }
+
+    /**
+     * @return long - digest of the whole body
+     * */
+    public static long of(byte[] body) {
+        return update(OFFSET_BASIS, ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer without moving its position
+     * */
+    static long update(long hash, ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    public long getDigest() {
+        return digest;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return byte[] - a copy of the body
+     * */
+    public byte[] bytes() {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            int remaining = buffer.remaining();
+            buffer.duplicate().get(bytes, offset, remaining);
+            offset += remaining;
+        }
+        return bytes;
+    }
+
+    private static class Subscriber implements HttpResponse.BodySubscriber<ResponseDigest> {
+
+        private final CompletableFuture<ResponseDigest> result = new CompletableFuture<>();
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private long digest = OFFSET_BASIS;
+        private long length;
+
+        @Override
+        public CompletionStage<ResponseDigest> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                digest = update(digest, item);
+                length += item.remaining();
+                buffers.add(item);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (length > Integer.MAX_VALUE) {
+                result.completeExceptionally(new IllegalStateException("Body of " + length + " bytes"));
+            } else {
+                result.complete(new ResponseDigest(digest, buffers, (int) length));
+            }
+        }
+    }
+}
@@ -1,42 +1,96 @@
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import data.CatalogSeeder;
 import io.restassured.RestAssured;
 import io.restassured.http.Method;
 import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
+import load.ContentionHarness;
+import metrics.LatencyRecorder;
 import org.apache.commons.codec.binary.Base64;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.junit.Rule;
+import org.HdrHistogram.HistogramLogWriter;
 import org.junit.jupiter.api.*;
-import org.junit.rules.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.api.parallel.ResourceAccessMode;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import server.StandInBooksServer;
 import util.BookDTO;
 import util.Constants;
-
+import util.IsbnRanges;
+import util.LatencyRecordingFilter;
+import util.LatencySlo;
+import util.LatencySloExtension;
+import util.PooledRestAssured;
+import verify.BookListValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
 * Class for functional testing of the Books Rest Api
+* The test cases run in order by default. With -Djunit.jupiter.execution.parallel.enabled=true they run concurrently:
+* test cases that create books use their own isbn range from IsbnRanges and their own fixtures,
+* and the only ordering constraint left is that TC1 counts the books while nothing is created or deleted.
+* Every call must return within 2 seconds (FTR22), a test case with a slower call fails,
+* and a test case that takes more than 2 seconds in total is interrupted. The contention test cases TC30-TC32
+* fire many calls at once and get the timeout of their fan-out instead.
 * */
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@Timeout(value = 2, unit = TimeUnit.SECONDS)
+@Execution(ExecutionMode.CONCURRENT)
+@ExtendWith(LatencySloExtension.class)
+@LatencySlo(percentile = 100, millis = 2000)
 public class BooksRestApiFunctionalTests {
 
     /**
-     * If a test takes more than 2 seconds to execute, it is unacceptable and should fail FTR22
-     */
+     * Lock on the number of books in the db, held exclusively by TC1 and shared by the test cases that change it
+     * */
+    private static final String CATALOG_SIZE = "books_db_size";
 
-    @Rule
-    public Timeout globalTimeout = org.junit.rules.Timeout.seconds(2);
+    /**
+     * Held by TC30-TC32, so the fan-out of one contention case does not run at the same time as another one
+     * */
+    private static final String CONTENTION = "contention_fan_out";
 
     private static String encodedAuth;
 
+    /**
+     * Embedded stand-in api, started when the suite runs with -Dbooks.standIn=true
+     * */
+    private static StandInBooksServer standIn;
+
+    /**
+     * Fires the parallel requests of TC30-TC32, the fan-out can be raised with -Dbooks.contention.fanOut=1000
+     * */
+    private static final ContentionHarness contention =
+            new ContentionHarness(Integer.getInteger("books.contention.fanOut", 7));
+    private static final Duration CONTENTION_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Latencies of all calls made by the suite, per endpoint
+     * */
+    private static final LatencyRecordingFilter latencyFilter = new LatencyRecordingFilter(new LatencyRecorder());
+
+    /**
+     * Requests and connections of the pooled client shared by all test cases
+     * */
+    private static final ConnectionStats connectionStats = new ConnectionStats();
+
     /**
      * Parameters for basic authentication
      * */
@@ -51,15 +105,35 @@ public class BooksRestApiFunctionalTests {
      * Set the base api url which is valid for all test cases
      * */
     @BeforeAll
-    public static void setBaseURLForTesting() {
+    public static void setBaseURLForTesting() throws IOException {
+        if (Boolean.getBoolean("books.standIn")) {
+            standIn = StandInBooksServer.startDefault();
+        }
         RestAssured.baseURI = Constants.API_URL;
+        RestAssured.config = PooledRestAssured.config(ConnectionSettings.fromSystemProperties(), connectionStats);
+        warmUp();
+        RestAssured.filters(latencyFilter);
         setAuthHeader();
     }
+
+    /**
+     * Loads and initializes REST Assured (Groovy, JsonPath, the object mapper) with requests that change nothing
+     * and are not recorded. Otherwise the first test cases pay for it, all at once when they run in parallel,
+     * and the warm-up counts against their latency budgets.
+     * */
+    private static void warmUp() {
+        given().request(Method.GET, "/" + 8781234567891L).getBody().jsonPath().getObject("", BookDTO.class);
+        //unauthorized, nothing is created
+        given().contentType("application/json").body(buildBookWithoutIsbn()).request(Method.POST, "/")
+                .getBody().jsonPath().getObject("message", String.class);
+        given().body(buildBookWithoutIsbn()).request(Method.POST, "/")
+                .getBody().jsonPath().getObject("message", String.class);
+    }
     /**
     * Create an instance of the BookDTO class
      * @return BookDTO - BookDTO object
     * */
-    private BookDTO buildBookWithoutIsbn() {
+    private static BookDTO buildBookWithoutIsbn() {
         BookDTO book = new BookDTO();
         book.setAuthor("William Shakespeare");
         book.setTitle("Hamlet");
@@ -68,6 +142,32 @@ public class BooksRestApiFunctionalTests {
         return book;
     }
 
+    /**
+     * Create a book owned by a single test case and register it for deletion after the suite
+     * @param isbn - isbn from the range of the test case
+     * */
+    private static void createFixture(long isbn) {
+        BookDTO book = buildBookWithoutIsbn();
+        book.setIsbn(isbn);
+        Constants.booksToDelete.add(isbn);
+        Response response = given()
+                .contentType("application/json")
+                .header("Authorization", encodedAuth)
+                .body(book)
+                .request(Method.POST, "/");
+        assertEquals(response.getStatusCode(), 201);
+    }
+
+    /**
+     * Delete a book created by a test case, so that the number of books in the db is restored
+     * as soon as the test case ends and not only after the suite
+     * @param isbn - isbn from the range of the test case
+     * */
+    private static void deleteFixture(long isbn) {
+        given().header("Authorization", encodedAuth).request(Method.DELETE, "/" + isbn);
+        Constants.booksToDelete.remove(isbn);
+    }
+
     /**
      *Test for test case: TC1 for test requirement: FTR1
      *Should return all registered books in the books_db (108 in total)
@@ -76,31 +176,30 @@ public class BooksRestApiFunctionalTests {
      **/
     @Test
     @Order(1)
-    public void shouldReturnAllBooksInDB() {
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ_WRITE)
+    public void shouldReturnAllBooksInDB() throws IOException {
         //set request specification and get response
         RequestSpecification httpRequest = given();
         Response response = httpRequest.request(Method.GET, "/"); //make a GET request to /api/v1/books/
 
-        //get response body as JSON and map to list of BookDTO
-        JsonPath jsonPath = response.getBody().jsonPath();
-        List<BookDTO> books = jsonPath.getList("", BookDTO.class); //map the JSON response to List<BookDTO>
-        // this line should fail if the correct format of BookDTO object is not returned
-
         //check that the status code is 200 OK
         assertEquals(response.getStatusCode(), 200);
-        //check if three books were returned
-        assertEquals(books.size(), Constants.booksInDB);
         //check response content type is application/json
         assertEquals(response.getHeader("Content-Type"), "application/json");
 
-        //check first book contents
-        BookDTO book = books.get(0);
-        assertEquals(book.getIsbn(), 8781234567891L);
-        assertEquals(book.getTitle(), "Chesapeake Blue");
-        assertEquals(book.getAuthor(), "Nora Roberts");
-        assertEquals(book.getGenre(), "Literature & Fiction");
-        assertEquals(book.getPrice(), 25.95);
+        //stream the JSON array and validate every element against the format of BookDTO
+        //without materializing a List<BookDTO>, the number of books and the first book contents
+        //the catalog is not buffered by the client, closing the stream returns the connection to the pool
+        BookListValidator.Result result;
+        try (InputStream body = response.asInputStream()) {
+            result = new BookListValidator()
+                    .expectCount(Constants.booksInDB)
+                    .expectFirst(new BookDTO(8781234567891L, "Chesapeake Blue", "Nora Roberts",
+                            "Literature & Fiction", 25.95))
+                    .validate(body);
+        }
 
+        assertTrue(result.isValid(), result.toString());
     }
 
     /*
@@ -227,6 +326,7 @@ public class BooksRestApiFunctionalTests {
     */
     @Test
     @Order(7)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
     public void shouldCreateAValidBookInTheDB() {
         BookDTO bookToCreate = buildBookWithoutIsbn();
         bookToCreate.setIsbn(7781234567891L);
@@ -246,7 +346,7 @@ public class BooksRestApiFunctionalTests {
         assertEquals(savedBook.getIsbn(), 7781234567891L);
         assertEquals(savedBook.getTitle(), "Hamlet");
         assertEquals(savedBook.getAuthor(), "William Shakespeare");
-        Constants.bookID = savedBook.getIsbn();
+        deleteFixture(savedBook.getIsbn());
     }
 
     /*
@@ -434,9 +534,11 @@ public class BooksRestApiFunctionalTests {
     */
     @Test
     @Order(15)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
     public void shouldIgnoreRedundantFieldsWhenCreatingObject() throws JSONException {
+        long isbn = IsbnRanges.rangeFor(15);
         JSONObject obj1 = new JSONObject();
-        obj1.put("isbn", 105);
+        obj1.put("isbn", isbn);
         obj1.put("title", "Title");
         obj1.put("author", "Author");
         obj1.put("genre", "Horror");
@@ -447,7 +549,7 @@ public class BooksRestApiFunctionalTests {
         httpRequest.body(obj1.toString());
         httpRequest.header("Content-Type", "application/json");
         httpRequest.header("Authorization", encodedAuth);
-        Constants.booksToDelete.add(105L);
+        Constants.booksToDelete.add(isbn);
 
         Response response = httpRequest.request(Method.POST, "/");
         System.out.println(response.getBody().asString());
@@ -456,11 +558,12 @@ public class BooksRestApiFunctionalTests {
 
         assertEquals(response.getStatusCode(), 201); //unsupported media type
         assertEquals(response.getHeader("Content-Type"), "application/json");
-        assertEquals(savedBook.getIsbn(), 105L);
+        assertEquals(savedBook.getIsbn(), isbn);
         assertEquals(savedBook.getPrice(), 23.3);
         assertEquals(savedBook.getAuthor(), "Author");
         assertEquals(savedBook.getTitle(), "Title");
         assertEquals(savedBook.getGenre(), "Horror");
+        deleteFixture(isbn);
     }
 
     /*
@@ -551,25 +654,36 @@ public class BooksRestApiFunctionalTests {
 
     /*
    Test for test case: TC19 for test requirement: FTR9
-   Should not update existing book with isbn equal to 7781234567891 with invalid information
+   Should not update an existing book with invalid information
    Response status code should be 400 bad request
    Content-Type header should be application/json
    */
     @Test
     @Order(19)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
     public void shouldNotUpdateExistingBookWithNullIsbn() {
+        long isbn = IsbnRanges.rangeFor(19);
+        createFixture(isbn);
         BookDTO bookToUpdate = buildBookWithoutIsbn();
         bookToUpdate.setIsbn(null);
+        bookToUpdate.setTitle("Macbeth");
 
         RequestSpecification httpRequest = given();
         httpRequest.body(bookToUpdate);
         httpRequest.header("Content-Type", "application/json");
         httpRequest.header("Authorization", encodedAuth);
 
-        Response response = httpRequest.request(Method.PUT, "/" + Constants.bookID);
-
-        assertEquals(response.getStatusCode(), 400);
-        assertEquals(response.getHeader("Content-Type"), "application/json");
+        try {
+            Response response = httpRequest.request(Method.PUT, "/" + isbn);
+
+            assertEquals(response.getStatusCode(), 400);
+            assertEquals(response.getHeader("Content-Type"), "application/json");
+            //the existing book is left as it was
+            BookDTO stored = given().request(Method.GET, "/" + isbn).getBody().jsonPath().getObject("", BookDTO.class);
+            assertEquals(stored.getTitle(), "Hamlet");
+        } finally {
+            deleteFixture(isbn);
+        }
     }
 
     /*
@@ -661,10 +775,14 @@ public class BooksRestApiFunctionalTests {
    */
     @Test
     @Order(23)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
     public void shouldDeleteABookWithAnExistingIsbn() {
+        long isbn = IsbnRanges.rangeFor(23);
+        createFixture(isbn);
+
         RequestSpecification httpRequest = given();
         httpRequest.header("Authorization", encodedAuth);
-        Response response = httpRequest.request(Method.DELETE, "/" + Constants.bookID);
+        Response response = httpRequest.request(Method.DELETE, "/" + isbn);
 
         assertEquals(response.getStatusCode(), 200);
         assertEquals(response.getHeader("Content-Type"), "application/json");
@@ -791,49 +909,35 @@ public class BooksRestApiFunctionalTests {
      Test for test case: TC30 for test requirement: FTR18
      Should test parallel creation of the same resource
      Status code should be 201 created once
-     and 403 forbidden 6 times
+     and 403 forbidden for all other requests (6 times with the default fan-out of 7)
      */
     @Test
     @Order(30)
-    public void shouldCreateResourceOnlyOnceWhenExecutingInParallel() {
-        ExecutorService executorService = Executors.newFixedThreadPool(7);
+    @LatencySlo(percentile = 99, millis = 2000)
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
+    @ResourceLock(value = CONTENTION, mode = ResourceAccessMode.READ_WRITE)
+    public void shouldCreateResourceOnlyOnceWhenExecutingInParallel() throws InterruptedException {
         BookDTO body = new BookDTO();
-        body.setIsbn(2L);
+        body.setIsbn(IsbnRanges.rangeFor(30));
         body.setAuthor("Josh Malerman");
         body.setTitle("Bird Box");
         body.setGenre("Horror");
         body.setPrice(3.5);
-        Constants.booksToDelete.add(2L);
+        Constants.booksToDelete.add(body.getIsbn());
 
-        List<Integer> statusCodes = new ArrayList<>();
-        for (int i = 0; i < 7; i++){
-            executorService.execute(() -> {
-                try {
-                    int status = given().
-                            contentType("application/json").
-                    header("Authorization", encodedAuth).
-                    body(body).
-                            when().
-                            post(Constants.API_URL).getStatusCode();
-                    statusCodes.add(status);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                }
-            });
-        }
-
-        // Wait for all the threads to gracefully shutdown
+        ContentionHarness.Result result = contention.run(i -> given().
+                contentType("application/json").
+                header("Authorization", encodedAuth).
+                body(body).
+                when().
+                post(Constants.API_URL).getStatusCode(), CONTENTION_TIMEOUT);
 
-        try {
-            boolean b = executorService.awaitTermination(2, TimeUnit.SECONDS);
-            statusCodes.forEach(System.out::println);
-            assertEquals(statusCodes.stream().filter(s -> s==201).count(), 1);
-            assertEquals(statusCodes.stream().filter(s->s==403).count(), 6);
-
-        } catch (InterruptedException ie) {
-            System.out.println("Shutdown interrupted. Will try to shutdown again." + ie);
-            executorService.shutdownNow();
-        }
+        System.out.println(result);
+        assertTrue(result.isCompleted(), result.toString());
+        assertEquals(result.count(201), 1);
+        assertEquals(result.count(403), contention.getFanOut() - 1);
+        deleteFixture(body.getIsbn());
     }
 
     /*
@@ -844,8 +948,10 @@ public class BooksRestApiFunctionalTests {
      */
     @Test
     @Order(31)
-    public void shouldKeepTheLastUpdateOfTheResourceWhenExecutingInParallel() {
-        ExecutorService executorService = Executors.newFixedThreadPool(7);
+    @LatencySlo(percentile = 99, millis = 2000)
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @ResourceLock(value = CONTENTION, mode = ResourceAccessMode.READ_WRITE)
+    public void shouldKeepTheLastUpdateOfTheResourceWhenExecutingInParallel() throws InterruptedException {
         Long isbn = 8781234567892L;
         List<BookDTO> bookList = List.of(
                 new BookDTO(isbn, "Hamlet", "William Shakespeare", "Tragedy", 15.3),
@@ -857,106 +963,77 @@ public class BooksRestApiFunctionalTests {
                 new BookDTO(isbn, "Les Miserables", "Victor Hugo", "Drama", 14.55)
         );
 
-        List<Integer> statusCodes = new ArrayList<>();
-        for (BookDTO book : bookList){
-
-            executorService.execute(() -> {
-                try {
-                    int status = given().
-                            contentType("application/json").
-                            header("Authorization", encodedAuth).
-                            body(book).
-                            when().
-                            put(Constants.API_URL + "/" + isbn).getStatusCode();
-                    statusCodes.add(status);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                }
-            });
-        }
-
-        // Wait for all the threads to gracefully shutdown
-
-        try {
-            boolean b = executorService.awaitTermination(2, TimeUnit.SECONDS);
-            statusCodes.forEach(System.out::println);
-            assertEquals(statusCodes.stream().filter(s -> s==200).count(), 7);
-
-            BookDTO result = given()
-                    .when()
-                    .get(Constants.API_URL + "/"
-                            + isbn)
-                    .jsonPath()
-                    .getObject("", BookDTO.class);
-
-            BookDTO refBook = bookList.stream().filter(book -> book.getTitle().equals(result.getTitle())).findFirst().get();
-            System.out.println(result);
-            System.out.println(refBook);
-            assertEquals(result.getIsbn(), refBook.getIsbn());
-            assertEquals(result.getGenre(), refBook.getGenre());
-            assertEquals(result.getTitle(), refBook.getTitle());
-            assertEquals(result.getAuthor(), refBook.getAuthor());
-            assertEquals(result.getPrice(), refBook.getPrice());
-
-        } catch (InterruptedException ie) {
-            System.out.println("Shutdown interrupted. Will try to shutdown again." + ie);
-            executorService.shutdownNow();
-        }
+        ContentionHarness.Result updates = contention.run(i -> given().
+                contentType("application/json").
+                header("Authorization", encodedAuth).
+                body(bookList.get(i % bookList.size())).
+                when().
+                put(Constants.API_URL + "/" + isbn).getStatusCode(), CONTENTION_TIMEOUT);
+
+        System.out.println(updates);
+        assertTrue(updates.isCompleted(), updates.toString());
+        assertEquals(updates.count(200), contention.getFanOut());
+
+        BookDTO result = given()
+                .when()
+                .get(Constants.API_URL + "/"
+                        + isbn)
+                .jsonPath()
+                .getObject("", BookDTO.class);
+
+        BookDTO refBook = bookList.stream().filter(book -> book.getTitle().equals(result.getTitle())).findFirst().get();
+        System.out.println(result);
+        System.out.println(refBook);
+        assertEquals(result.getIsbn(), refBook.getIsbn());
+        assertEquals(result.getGenre(), refBook.getGenre());
+        assertEquals(result.getTitle(), refBook.getTitle());
+        assertEquals(result.getAuthor(), refBook.getAuthor());
+        assertEquals(result.getPrice(), refBook.getPrice());
     }
 
     /*
      Test for test case: TC32 for test requirement: FTR18
      Should delete resource only once in parallel
-     Status code should be 200 once and 404 not found 6 times
+     Status code should be 200 once and 404 not found for all other requests (6 times with the default fan-out of 7)
      */
     @Test
     @Order(32)
-    public void shouldDeleteResourceOnlyOnceWhenExecutingInParallel() {
-        ExecutorService executorService = Executors.newFixedThreadPool(7);
-        BookDTO book = buildBookWithoutIsbn();
-        book.setIsbn(5L);
-        given().
-                contentType("application/json").
+    @LatencySlo(percentile = 99, millis = 2000)
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @ResourceLock(value = CATALOG_SIZE, mode = ResourceAccessMode.READ)
+    @ResourceLock(value = CONTENTION, mode = ResourceAccessMode.READ_WRITE)
+    public void shouldDeleteResourceOnlyOnceWhenExecutingInParallel() throws InterruptedException {
+        long isbn = IsbnRanges.rangeFor(32);
+        createFixture(isbn);
+
+        ContentionHarness.Result result = contention.run(i -> given().
                 header("Authorization", encodedAuth).
-                body(book).
                 when().
-                post(Constants.API_URL);
-
-        List<Integer> statusCodes = new ArrayList<>();
-        for (int i=0; i<7; i++){
-            executorService.execute(() -> {
-                try {
-                    int status = given().
-                            header("Authorization", encodedAuth).
-                            when().
-                            delete(Constants.API_URL + "/" + 5L).getStatusCode();
-                    statusCodes.add(status);
-                } catch (Exception e) {
-                    System.out.println(e.getMessage());
-                }
-            });
-        }
-
-        // Wait for all the threads to gracefully shutdown
+                delete(Constants.API_URL + "/" + isbn).getStatusCode(), CONTENTION_TIMEOUT);
 
-        try {
-            boolean b = executorService.awaitTermination(2, TimeUnit.SECONDS);
-            statusCodes.forEach(System.out::println);
-            assertEquals(statusCodes.stream().filter(s -> s==200).count(), 1);
-            assertEquals(statusCodes.stream().filter(s->s==404).count(), 6);
-        } catch (InterruptedException ie) {
-            System.out.println("Shutdown interrupted. Will try to shutdown again." + ie);
-            executorService.shutdownNow();
-        }
+        System.out.println(result);
+        assertTrue(result.isCompleted(), result.toString());
+        assertEquals(result.count(200), 1);
+        assertEquals(result.count(404), contention.getFanOut() - 1);
     }
 
 
     @AfterAll
-    public static void restoreDBOriginalState() {
-        RequestSpecification httpRequest = given();
-        httpRequest.header("Authorization", encodedAuth);
-        for(Long isbn : Constants.booksToDelete){
-            httpRequest.request(Method.DELETE, "/" + isbn);
+    public static void restoreDBOriginalState() throws InterruptedException, IOException {
+        try (CatalogSeeder seeder = new CatalogSeeder(URI.create(Constants.API_URL),
+                ConnectionSettings.fromSystemProperties(), 16)) {
+            System.out.println(seeder.teardown(Constants.booksToDelete.iterator()));
+        }
+        String latencyLog = System.getProperty("books.latency.log");
+        if (latencyLog != null) {
+            HistogramLogWriter log = LatencyRecorder.openLog(Path.of(latencyLog));
+            latencyFilter.getRecorder().writeInterval(log);
+            log.close();
+        }
+        System.out.print(latencyFilter.getRecorder().report());
+        System.out.println(connectionStats);
+        if (standIn != null) {
+            standIn.close();
         }
     }
 }
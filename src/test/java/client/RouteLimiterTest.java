@@ -0,0 +1,63 @@
+package client;
+
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteLimiterTest {
+
+    @Test
+    public void shouldNotExceedTheConnectionsPerRoute() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 4)) {
+            server.start();
+            ConnectionSettings settings = new ConnectionSettings().maxConnectionsPerRoute(3);
+            HttpClient client = HttpClients.newLoadClient(settings, executor);
+            RouteLimiter limiter = new RouteLimiter(settings.getMaxConnectionsPerRoute(), new ConnectionStats());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(server.getUrl())).GET().build();
+
+            List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                responses.add(limiter.send(client, request, HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> response : responses) {
+                assertEquals(200, response.join().statusCode());
+            }
+
+            ConnectionStats stats = limiter.getStats();
+            assertEquals(100, stats.getRequests());
+            assertTrue(stats.getPeakInFlight() <= 3, stats.toString());
+            assertTrue(stats.getReuseRatio() >= 0.97, stats.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCountOpenedConnectionsWhenObservable() {
+        ConnectionStats stats = new ConnectionStats();
+        for (int i = 0; i < 10; i++) {
+            stats.requestStarted();
+            stats.requestCompleted();
+        }
+        stats.connectionOpened();
+        stats.connectionOpened();
+
+        assertEquals(2, stats.getConnectionsOpened());
+        assertEquals(0.8, stats.getReuseRatio(), 1e-9);
+    }
+}
@@ -0,0 +1,101 @@
+package cluster;
+
+import load.BookPaths;
+import load.LoadProfile;
+import load.Scenarios;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadCoordinatorTest {
+
+    @Test
+    public void shouldSplitTheUsersOfAProfileWithoutLosingAny() {
+        LoadProfile profile = Scenarios.byName("step").getProfile();
+        for (long elapsed = 0; elapsed < profile.durationMillis(); elapsed += 1_000) {
+            int users = 0;
+            for (int worker = 0; worker < 3; worker++) {
+                users += new ScaledProfile(profile, worker, 3).targetUsers(elapsed);
+            }
+            assertEquals(profile.targetUsers(elapsed), users, elapsed + "ms");
+        }
+    }
+
+    @Test
+    public void shouldMergeTheResultsOfAllWorkers() throws Exception {
+        BookPaths paths = BookPaths.fromClasspath();
+        assertEquals(paths.get(paths.size() / 2), paths.range(paths.size() / 2, paths.size()).next());
+
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 4);
+             LoadCoordinator coordinator = new LoadCoordinator(0)) {
+            server.start();
+            coordinator.withApiUrl(URI.create(server.getUrl()))
+                    .withStartDelay(Duration.ofMillis(500))
+                    .withAcceptTimeout(Duration.ofSeconds(10))
+                    .withProgress(null);
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        LoadWorker.run("localhost", coordinator.getPort());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            long begin = System.nanoTime();
+
+            ClusterResult result = coordinator.runRate(3, 300, Duration.ofSeconds(1));
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            for (Thread worker : workers) {
+                worker.join(5_000);
+            }
+            assertTrue(result.getFailures().isEmpty(), result.toString());
+            assertEquals(300, result.getSamples(), result.toString());
+            assertEquals(0, result.getErrors(), result.toString());
+            assertEquals(300, result.getMergedHistogram().getTotalCount(), result.toString());
+            assertTrue(millis >= 1_400 && millis < 10_000, millis + "ms");
+        }
+    }
+
+    @Test
+    public void shouldMergeTheResultsOfForkedWorkerJvms() throws Exception {
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 4);
+             LoadCoordinator coordinator = new LoadCoordinator(0)) {
+            server.start();
+            coordinator.withApiUrl(URI.create(server.getUrl()))
+                    .withStartDelay(Duration.ofMillis(500))
+                    .withAcceptTimeout(Duration.ofSeconds(30))
+                    .withProgress(null);
+            List<Process> workers = LoadCoordinator.startLocalWorkers(2, coordinator.getPort());
+            try {
+                ClusterResult result = coordinator.runRate(2, 200, Duration.ofSeconds(1));
+
+                for (Process worker : workers) {
+                    assertTrue(worker.waitFor(10, TimeUnit.SECONDS), "worker " + worker.pid() + " did not exit");
+                    assertEquals(0, worker.exitValue());
+                }
+                assertTrue(result.getFailures().isEmpty(), result.toString());
+                assertEquals(2, result.getWorkers());
+                assertTrue(result.isFinished(), result.toString());
+                assertEquals(200, result.getSamples(), result.toString());
+                assertEquals(0, result.getErrors(), result.toString());
+                assertEquals(200, result.getMergedHistogram().getTotalCount(), result.toString());
+            } finally {
+                workers.forEach(Process::destroy);
+            }
+        }
+    }
+}
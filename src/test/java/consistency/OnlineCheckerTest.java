@@ -0,0 +1,125 @@
+package consistency;
+
+import client.ConnectionSettings;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OnlineCheckerTest {
+
+    private static final long ISBN = 9781234567897L;
+
+    private static Operation operation(Operation.Type type, long value, long invoke, long complete, int status,
+                                       long readValue) {
+        Operation operation = new Operation(type, ISBN, value, invoke, 0);
+        operation.complete(complete, status, readValue);
+        return operation;
+    }
+
+    @Test
+    public void shouldLinearizeOverlappingOperations() {
+        List<Operation> history = new ArrayList<>();
+        history.add(operation(Operation.Type.CREATE, 1, 0, 10, 201, 0));
+        //overlaps the create and took effect before it
+        history.add(operation(Operation.Type.READ, 0, 1, 5, 404, BookRegister.ABSENT));
+        history.add(operation(Operation.Type.READ, 0, 2, 12, 200, 1));
+        history.add(operation(Operation.Type.UPDATE, 2, 11, 20, 200, 0));
+        //overlaps the update and took effect before it
+        history.add(operation(Operation.Type.READ, 0, 15, 25, 200, 1));
+
+        Set<Long> states = new SegmentChecker(history, 1_000).check(Set.of(BookRegister.ABSENT));
+        assertEquals(Set.of(2L), states);
+    }
+
+    @Test
+    public void shouldKeepEveryPossibleStateOfConcurrentWrites() {
+        List<Operation> history = new ArrayList<>();
+        history.add(operation(Operation.Type.UPDATE, 2, 0, 10, 200, 0));
+        history.add(operation(Operation.Type.UPDATE, 3, 1, 11, 200, 0));
+
+        assertEquals(Set.of(2L, 3L), new SegmentChecker(history, 1_000).check(Set.of(1L)));
+        assertEquals(Set.of(), new SegmentChecker(history, 1_000).check(Set.of(BookRegister.ABSENT)));
+    }
+
+    @Test
+    public void shouldRejectStaleReadAfterCompletedUpdate() {
+        List<Operation> history = new ArrayList<>();
+        history.add(operation(Operation.Type.CREATE, 1, 0, 1, 201, 0));
+        history.add(operation(Operation.Type.UPDATE, 2, 2, 3, 200, 0));
+        history.add(operation(Operation.Type.READ, 0, 4, 5, 200, 1));
+
+        assertEquals(Set.of(), new SegmentChecker(history, 1_000).check(Set.of(BookRegister.ABSENT)));
+    }
+
+    @Test
+    public void shouldReportViolationsAcrossSegments() throws InterruptedException {
+        OnlineChecker checker = new OnlineChecker(2);
+        checker.complete(checker.invoke(Operation.Type.CREATE, ISBN, 1), 201, BookRegister.ABSENT);
+        Thread.sleep(50);
+        //the create was checked in an earlier segment, the book cannot be gone
+        checker.complete(checker.invoke(Operation.Type.READ, ISBN, BookRegister.ABSENT), 404, BookRegister.ABSENT);
+        checker.complete(checker.invoke(Operation.Type.READ, ISBN + 1, BookRegister.ABSENT), 500, BookRegister.ABSENT);
+        checker.close();
+
+        CheckResult result = checker.getResult();
+        assertFalse(result.isLinearizable());
+        assertEquals(1, result.getViolations(), result.toString());
+        assertEquals(1, result.getUncertainKeys(), result.toString());
+        assertEquals(List.of(ISBN + 1), result.getUncertainIsbns());
+        assertTrue(result.toString().contains("uncertain isbns: 1 e.g. [" + (ISBN + 1) + "]"), result.toString());
+        assertEquals(3, result.getOperations());
+    }
+
+    @Test
+    public void shouldLearnTheValueOfAnUnknownBookFromTheFirstResponse() {
+        List<Operation> history = new ArrayList<>();
+        history.add(operation(Operation.Type.CREATE, 1, 0, 1, 403, 0));
+        history.add(operation(Operation.Type.READ, 0, 2, 3, 200, 5));
+        history.add(operation(Operation.Type.READ, 0, 4, 5, 200, 5));
+
+        assertEquals(Set.of(5L), new SegmentChecker(history, 1_000).check(Set.of(BookRegister.UNKNOWN)));
+        //the second read returns another value without a write in between
+        history.add(operation(Operation.Type.READ, 0, 6, 7, 200, 6));
+        assertEquals(Set.of(), new SegmentChecker(history, 1_000).check(Set.of(BookRegister.UNKNOWN)));
+    }
+
+    @Test
+    public void shouldNotPassAHistoryOfWhichNothingWasChecked() {
+        OnlineChecker checker = new OnlineChecker(1);
+        checker.complete(checker.invoke(Operation.Type.CREATE, ISBN, 1), 500, BookRegister.ABSENT);
+        checker.fail(checker.invoke(Operation.Type.READ, ISBN + 1, BookRegister.ABSENT));
+        checker.close();
+
+        CheckResult result = checker.getResult();
+        assertEquals(0, result.getViolations(), result.toString());
+        assertEquals(2, result.getUncertainKeys(), result.toString());
+        assertFalse(result.isLinearizable(), result.toString());
+    }
+
+    @Test
+    public void shouldFindNoViolationOnStandInServer() throws IOException, InterruptedException {
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", new BookStore(), 4);
+             ConsistencyWorkload workload = new ConsistencyWorkload(URI.create(server.getUrl()),
+                     new ConnectionSettings(), 16, 4)) {
+            server.start();
+            CheckResult result = workload.run(Duration.ofSeconds(2));
+
+            assertTrue(result.isLinearizable(), result.toString());
+            assertTrue(result.getOperations() > 100, result.toString());
+            assertTrue(result.getCheckedOperations() > 0, result.toString());
+            assertEquals(0, result.getUncertainKeys(), result.toString());
+            assertEquals(0, server.getStore().size());
+        }
+    }
+}
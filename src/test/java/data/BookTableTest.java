@@ -0,0 +1,30 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BookTableTest {
+
+    @Test
+    public void shouldRejectOffHeapCapacitiesOverTheSizeOfADirectBuffer() {
+        //2^28 isbns of 8 bytes are 2GB, one byte more than a direct buffer holds
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new BookTable(1 << 28, true));
+
+        assertEquals("The capacity must be between 1 and " + (Integer.MAX_VALUE / Long.BYTES), e.getMessage());
+    }
+
+    @Test
+    public void shouldGrowPastTheInitialCapacity() {
+        BookTable table = new BookTable(1, true);
+
+        for (long isbn = 1; isbn <= 100; isbn++) {
+            table.add(isbn, "title " + isbn, "author", "genre", isbn);
+        }
+
+        assertEquals(100, table.size());
+        assertEquals("title 77", table.title(table.rowOf(77)));
+    }
+}
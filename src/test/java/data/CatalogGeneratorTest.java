@@ -0,0 +1,96 @@
+package data;
+
+import load.BookPaths;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.BookDTO;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogGeneratorTest {
+
+    @Test
+    public void shouldComputeIsbn13CheckDigits() {
+        assertEquals(7, Isbn13.checkDigit(978030640615L));
+        assertEquals(9780306406157L, Isbn13.of(978, 30640615L));
+        assertTrue(Isbn13.isValid(9780306406157L));
+        assertFalse(Isbn13.isValid(9780306406158L));
+        assertThrows(IllegalArgumentException.class, () -> Isbn13.of(977, 1));
+    }
+
+    @Test
+    public void shouldGenerateUniqueValidAndReproducibleBooks() {
+        CatalogGenerator generator = new CatalogGenerator(100_000, 7);
+        Set<Long> isbns = new HashSet<>();
+        for (long i = 0; i < generator.size(); i++) {
+            long isbn = generator.isbn(i);
+            assertTrue(Isbn13.isValid(isbn), "invalid isbn " + isbn);
+            assertTrue(isbns.add(isbn), "duplicate isbn " + isbn);
+        }
+
+        BookDTO book = generator.book(12_345);
+        assertEquals(book.toString(), new CatalogGenerator(100_000, 7).book(12_345).toString());
+        assertTrue(book.getTitle().length() >= 5);
+        assertFalse(book.getAuthor().isBlank());
+        assertTrue(book.getPrice() > 0 && book.getPrice() < 200);
+    }
+
+    @Test
+    public void shouldDrawZipfDistributedRanks() {
+        ZipfSampler sampler = new ZipfSampler(1_000_000, 1.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int samples = 1_000_000;
+        int[] counts = new int[4];
+        for (int i = 0; i < samples; i++) {
+            long rank = sampler.sample(random);
+            assertTrue(rank >= 1 && rank <= 1_000_000);
+            if (rank <= 3) {
+                counts[(int) rank]++;
+            }
+        }
+        //P(1) = 1 / H(10^6) ~ 0.0695, rank 2 and 3 get a half and a third of it
+        assertEquals(0.0695, counts[1] / (double) samples, 0.003);
+        assertEquals(2.0, counts[1] / (double) counts[2], 0.1);
+        assertEquals(3.0, counts[1] / (double) counts[3], 0.15);
+    }
+
+    @Test
+    public void shouldWriteAndReadTheCatalogFiles(@TempDir Path directory) throws IOException {
+        CatalogGenerator generator = new CatalogGenerator(1_000, 3);
+        Path books = directory.resolve(CatalogGenerator.BOOKS_FILE);
+        Path requests = directory.resolve(CatalogGenerator.REQUESTS_FILE);
+        Path paths = directory.resolve(CatalogGenerator.PATHS_FILE);
+        generator.writeBooks(books);
+        generator.writeRequests(5_000, 1.1, requests, paths, "/api/v1/books");
+
+        long read = 0;
+        try (CatalogFiles.BookReader reader = CatalogFiles.openBooks(books)) {
+            while (reader.hasNext()) {
+                assertEquals(generator.book(read).toString(), reader.next().toString());
+                read++;
+            }
+        }
+        assertEquals(1_000, read);
+
+        LongBuffer isbns = CatalogFiles.mapRequests(requests);
+        assertEquals(5_000, isbns.capacity());
+        List<String> lines = Files.readAllLines(paths);
+        BookPaths mapped = BookPaths.fromRequestFile(requests, "/api/v1/books");
+        for (int i = 0; i < isbns.capacity(); i++) {
+            assertEquals("/api/v1/books/" + isbns.get(i), lines.get(i));
+            assertEquals(lines.get(i), mapped.get(i));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package data;
+
+import client.ConnectionSettings;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+import util.BookDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogSeederTest {
+
+    @Test
+    public void shouldSeedAndTearDownIdempotently() throws IOException, InterruptedException {
+        CatalogGenerator generator = new CatalogGenerator(500, 11);
+        List<BookDTO> books = new ArrayList<>();
+        List<Long> isbns = new ArrayList<>();
+        for (long i = 0; i < generator.size(); i++) {
+            books.add(generator.book(i));
+            isbns.add(generator.isbn(i));
+        }
+        BookStore store = new BookStore();
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", store, 4);
+             CatalogSeeder seeder = new CatalogSeeder(URI.create(server.getUrl()), new ConnectionSettings(), 32)) {
+            server.start();
+
+            SeedResult seeded = seeder.seed(books.iterator());
+            assertEquals(500, seeded.getApplied(), seeded.toString());
+            assertEquals(500, store.list().size());
+            SeedResult reseeded = seeder.seed(books.iterator());
+            assertEquals(500, reseeded.getAlreadyApplied(), reseeded.toString());
+            assertTrue(reseeded.isSuccessful());
+
+            SeedResult removed = seeder.teardown(isbns.iterator());
+            assertEquals(500, removed.getApplied(), removed.toString());
+            assertEquals(0, store.list().size());
+            SeedResult removedAgain = seeder.teardown(isbns.iterator());
+            assertEquals(500, removedAgain.getAlreadyApplied(), removedAgain.toString());
+        }
+    }
+
+    @Test
+    public void shouldRetryServerErrorsWithBackoff() throws IOException, InterruptedException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer flaky = HttpServer.create(new InetSocketAddress(0), 0);
+        flaky.createContext("/api/v1/books", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            int status = requests.incrementAndGet() % 3 == 0 ? 201 : 503;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        flaky.start();
+        try (CatalogSeeder seeder = new CatalogSeeder(
+                URI.create("http://localhost:" + flaky.getAddress().getPort() + "/api/v1/books"),
+                new ConnectionSettings(), 1).withBackoff(Duration.ofMillis(1), Duration.ofMillis(5))) {
+            SeedResult result = seeder.seed(List.of(new CatalogGenerator(10, 1).book(0)).iterator());
+            assertEquals(1, result.getApplied(), result.toString());
+            assertEquals(2, result.getRetries());
+
+            SeedResult exhausted = seeder.withMaxAttempts(2).seed(List.of(new CatalogGenerator(10, 1).book(1)).iterator());
+            assertEquals(1, exhausted.getFailed(), exhausted.toString());
+            assertTrue(exhausted.getFirstFailure().endsWith("503"));
+        } finally {
+            flaky.stop(0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IsbnIndexTest {
+
+    @Test
+    public void shouldBehaveLikeAMapUnderRandomInsertsAndRemoves() {
+        IsbnIndex index = new IsbnIndex(16, 4);
+        Map<Long, Integer> reference = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 200_000; i++) {
+            //a small key range forces long probe sequences, collisions and backward shifts
+            long isbn = 9_790_000_000_000L + random.nextInt(5_000);
+            int row = random.nextInt(1_000_000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(reference.getOrDefault(isbn, IsbnIndex.NO_ROW), index.put(isbn, row));
+                    reference.put(isbn, row);
+                    break;
+                case 1:
+                    Integer removed = reference.remove(isbn);
+                    assertEquals(removed == null ? IsbnIndex.NO_ROW : removed, index.remove(isbn));
+                    break;
+                default:
+                    assertEquals(reference.getOrDefault(isbn, IsbnIndex.NO_ROW), index.get(isbn));
+            }
+        }
+        assertEquals(reference.size(), index.size());
+        assertEquals(reference.size(), index.keys().length);
+        for (long key : index.keys()) {
+            assertEquals(reference.get(key), index.get(key));
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 1));
+    }
+
+    @Test
+    public void shouldNotFindIsbnZero() {
+        IsbnIndex index = new IsbnIndex(10);
+        index.put(9_790_000_000_001L, 0);
+
+        //0 marks the empty slots and must not match one of them
+        assertEquals(IsbnIndex.NO_ROW, index.get(0));
+        assertFalse(index.containsKey(0));
+        assertEquals(IsbnIndex.NO_ROW, index.remove(0));
+        assertThrows(IllegalArgumentException.class, () -> index.putIfAbsent(0, 1));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void shouldKeepEveryEntryUnderConcurrentUpdates() throws InterruptedException {
+        IsbnIndex index = new IsbnIndex(1_000);
+        int threads = 4;
+        int perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger lostReads = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long base = 9_790_000_000_000L + t * 1_000_000L;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    index.put(base + i, i);
+                    if (index.get(base + i) != i) {
+                        lostReads.incrementAndGet();
+                    }
+                    if (i % 2 == 1) {
+                        index.remove(base + i);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(0, lostReads.get());
+        assertEquals(threads * perThread / 2, index.size());
+        for (int t = 0; t < threads; t++) {
+            long base = 9_790_000_000_000L + t * 1_000_000L;
+            for (int i = 0; i < perThread; i++) {
+                assertEquals(i % 2 == 0, index.containsKey(base + i));
+            }
+        }
+        assertTrue(index.containsKey(9_790_000_000_000L));
+        assertFalse(index.containsKey(9_790_000_000_001L));
+    }
+}
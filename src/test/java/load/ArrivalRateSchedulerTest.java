@@ -0,0 +1,73 @@
+package load;
+
+import client.ConnectionSettings;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArrivalRateSchedulerTest {
+
+    @Test
+    public void shouldKeepTheRateAndMeasureTheStallFromTheIntendedStart() throws Exception {
+        long stallMillis = 400;
+        long stallStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(600);
+        long stallEnd = stallStart + TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        AtomicInteger stalled = new AtomicInteger();
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 64);
+             ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1_000, new ConnectionSettings())) {
+            server.withDelay(() -> {
+                long now = System.nanoTime();
+                if (now - stallStart < 0 || now - stallEnd >= 0) {
+                    return 0;
+                }
+                stalled.incrementAndGet();
+                return TimeUnit.NANOSECONDS.toMillis(stallEnd - now) + 1;
+            }).start();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(server.getUrl())).GET().build();
+
+            OpenModelResult result = scheduler.run("stall", 100, Duration.ofSeconds(2), sequence -> request);
+
+            assertEquals(0, result.getDropped());
+            assertEquals(200, result.getResponseTime().getSamples());
+            assertEquals(0, result.getResponseTime().getErrors());
+            //the schedule does not wait for the stalled server: 40 requests are due during the stall
+            assertTrue(stalled.get() >= 30, "requests sent during the stall: " + stalled.get());
+            //requests due in the first half of the stall wait at least half of it
+            Histogram latencies = result.getResponseTime().getMergedHistogram();
+            long waited = latencies.getCountBetweenValues(TimeUnit.MILLISECONDS.toMicros(stallMillis / 2),
+                    latencies.getHighestTrackableValue());
+            assertTrue(waited >= 15, "requests that waited half of the stall: " + waited);
+            assertTrue(result.getResponseTime().getMaxMillis() >= stallMillis * 0.8, result.toString());
+        }
+    }
+
+    @Test
+    public void shouldRecordRequestsUnansweredAtTheEndAsTimeouts() throws Exception {
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 8);
+             ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1_000, new ConnectionSettings())
+                     .withDrainTimeout(Duration.ofMillis(200))) {
+            server.withDelay(() -> 1_000).start();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(server.getUrl())).GET().build();
+
+            OpenModelResult result = scheduler.run("timeouts", 20, Duration.ofMillis(250), sequence -> request);
+
+            assertEquals(5, result.getResponseTime().getTimeouts());
+            assertEquals(5, result.getResponseTime().getErrors());
+            assertTrue(result.getResponseTime().getMaxMillis() >= 200, result.toString());
+            //the answers arriving after the run ended do not change its result
+            Thread.sleep(1_200);
+            assertEquals(5, result.getResponseTime().getSamples());
+            assertEquals(5, result.getResponseTime().getErrors());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package load;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContentionHarnessTest {
+
+    @Test
+    public void shouldRunAllRequestsAtTheSameTime() throws InterruptedException {
+        int fanOut = 200;
+        AtomicInteger arrived = new AtomicInteger();
+
+        ContentionHarness.Result result = new ContentionHarness(fanOut).run(i -> {
+            arrived.incrementAndGet();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (arrived.get() < fanOut && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            return arrived.get() == fanOut ? 200 : 500;
+        }, Duration.ofSeconds(10));
+
+        assertTrue(result.isCompleted());
+        assertEquals(fanOut, result.count(200));
+    }
+
+    @Test
+    public void shouldCountStatusCodesOfCompetingRequests() throws InterruptedException {
+        AtomicBoolean created = new AtomicBoolean();
+
+        ContentionHarness.Result result = new ContentionHarness(50)
+                .run(i -> created.compareAndSet(false, true) ? 201 : 403, Duration.ofSeconds(10));
+
+        assertEquals(1, result.count(201));
+        assertEquals(49, result.count(403));
+    }
+
+    @Test
+    public void shouldReturnWhenTheTimeoutExpires() throws InterruptedException {
+        ContentionHarness.Result result = new ContentionHarness(3).run(i -> {
+            if (i == 0) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 200;
+        }, Duration.ofMillis(500));
+
+        assertFalse(result.isCompleted());
+        assertEquals(2, result.count(200));
+    }
+
+    @Test
+    public void shouldNotChangeTheResultAfterItWasReturned() throws InterruptedException {
+        CountDownLatch answered = new CountDownLatch(1);
+        ContentionHarness.Result result = new ContentionHarness(2).run(i -> {
+            if (i == 0) {
+                //not interruptible, answers after the harness returned
+                long until = System.nanoTime() + 700_000_000L;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+                answered.countDown();
+                throw new IllegalStateException("Read timed out");
+            }
+            return 200;
+        }, Duration.ofMillis(300));
+        Map<Integer, Long> returned = result.getStatusCodes();
+
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(result.isCompleted());
+        assertEquals(returned, result.getStatusCodes());
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void shouldCollectFailedRequests() throws InterruptedException {
+        ContentionHarness.Result result = new ContentionHarness(4).run(i -> {
+            if (i % 2 == 0) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return 404;
+        }, Duration.ofSeconds(10));
+
+        assertEquals(2, result.getFailures().size());
+        assertEquals(2, result.count(404));
+    }
+}
@@ -0,0 +1,42 @@
+package load;
+
+import metrics.Endpoint;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InFlightRequestsTest {
+
+    @Test
+    public void shouldRefuseRequestsOverTheLimit() {
+        InFlightRequests<Void> inFlight = new InFlightRequests<>(1);
+
+        InFlightRequests.Request<Void> first = inFlight.start(Endpoint.GET_ALL, System.nanoTime(), null);
+
+        assertNull(inFlight.start(Endpoint.GET_ALL, System.nanoTime(), null));
+        assertTrue(inFlight.finish(first));
+        assertEquals(0, inFlight.size());
+    }
+
+    @Test
+    public void shouldExpireOutstandingRequestsAndIgnoreTheirLateAnswers() throws InterruptedException {
+        InFlightRequests<String> inFlight = new InFlightRequests<>();
+        InFlightRequests.Request<String> answered = inFlight.start(Endpoint.GET_ONE, System.nanoTime(), "answered");
+        InFlightRequests.Request<String> lost = inFlight.start(Endpoint.GET_ONE, System.nanoTime(), "lost");
+        assertTrue(inFlight.finish(answered));
+
+        List<InFlightRequests.Request<String>> expired = inFlight.drain(20);
+
+        assertEquals(1, expired.size());
+        assertSame(lost, expired.get(0));
+        assertEquals(0, inFlight.size());
+        assertFalse(inFlight.finish(lost));
+        assertFalse(inFlight.finish(answered));
+    }
+}
@@ -0,0 +1,56 @@
+package load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the Java scenarios follow the same schedule as the JMeter thread groups
+ * */
+public class LoadProfilesTest {
+
+    @Test
+    public void shouldAddAStepOfUsersEveryStartPeriod() {
+        LoadProfile profile = Scenarios.loadTestingStep().getProfile();
+
+        assertEquals(25, profile.targetUsers(1_000));
+        assertEquals(50, profile.targetUsers(31_000));
+        assertEquals(100, profile.targetUsers(91_000));
+        assertEquals(100, profile.targetUsers(390_999));
+        assertEquals(75, profile.targetUsers(391_000));
+        assertEquals(0, profile.targetUsers(profile.durationMillis()));
+    }
+
+    @Test
+    public void shouldStartWithTheBurstWhenStressTesting() {
+        LoadProfile profile = Scenarios.stressTesting().getProfile();
+
+        assertEquals(50, profile.targetUsers(1_000));
+        assertEquals(150, profile.targetUsers(51_000));
+        assertEquals(500, profile.targetUsers(251_000));
+    }
+
+    @Test
+    public void shouldOverlapSpikeRows() {
+        LoadProfile profile = new UltimateProfile()
+                .row(20, 0, 10, 10, 10)
+                .row(10, 10, 0, 5, 0);
+
+        assertEquals(10, profile.targetUsers(5_000));
+        assertEquals(30, profile.targetUsers(12_000));
+        assertEquals(20, profile.targetUsers(16_000));
+        assertEquals(10, profile.targetUsers(25_000));
+        assertEquals(30_000, profile.durationMillis());
+    }
+
+    @Test
+    public void shouldReachTheTargetLevelInSteps() {
+        LoadProfile profile = Scenarios.enduranceTesting().getProfile();
+
+        assertEquals(20, profile.targetUsers(0));
+        assertEquals(40, profile.targetUsers(60_000));
+        assertEquals(100, profile.targetUsers(299_999));
+        assertEquals(100, profile.targetUsers(600_000));
+        assertEquals(1_200_000, profile.durationMillis());
+    }
+}
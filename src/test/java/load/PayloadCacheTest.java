@@ -0,0 +1,125 @@
+package load;
+
+import data.CatalogGenerator;
+import org.junit.jupiter.api.Test;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PayloadCacheTest {
+
+    private final CatalogGenerator catalog = new CatalogGenerator(1_000, 11);
+
+    /**
+     * Subscribes like the http client, requesting one buffer at a time from within onNext
+     * */
+    private static byte[] publish(HttpRequest.BodyPublisher body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean[] complete = new boolean[1];
+        body.subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                bytes.writeBytes(chunk);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                complete[0] = true;
+            }
+        });
+        assertTrue(complete[0]);
+        assertEquals(bytes.size(), body.contentLength());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void shouldCacheTheBodiesOfTheCatalog() {
+        PayloadCache cache = PayloadCache.of(catalog);
+
+        assertEquals(1_000, cache.size());
+        for (long i : new long[]{0, 1, 499, 999}) {
+            assertArrayEquals(BookJsonCodec.toBytes(catalog.book(i)), cache.bytes(i));
+            assertArrayEquals(BookJsonCodec.toBytes(catalog.book(i)), publish(cache.body(i)));
+        }
+        //the cache wraps around
+        assertArrayEquals(cache.bytes(3), cache.bytes(1_003));
+    }
+
+    @Test
+    public void shouldSpliceTheIsbnAndTheTitleOfARequest() {
+        PayloadCache cache = PayloadCache.of(catalog, 10);
+        BookDTO book = catalog.book(7);
+        book.setIsbn(9781234567897L);
+        byte[] expectedIsbn = BookJsonCodec.toBytes(book);
+        book = catalog.book(7);
+        book.setTitle("Revision 42");
+        byte[] expectedTitle = BookJsonCodec.toBytes(book);
+
+        HttpRequest.BodyPublisher withIsbn = cache.withIsbn(7, 9781234567897L);
+        HttpRequest.BodyPublisher withTitle = cache.withTitle(7, "Revision 42");
+
+        assertArrayEquals(expectedIsbn, publish(withIsbn));
+        //a body can be sent again, e.g. on a retry
+        assertArrayEquals(expectedIsbn, publish(withIsbn));
+        assertArrayEquals(expectedTitle, publish(withTitle));
+        assertArrayEquals(BookJsonCodec.toBytes(catalog.book(7)), cache.bytes(7));
+    }
+
+    @Test
+    public void shouldSpliceTitlesThatNeedEscapingOrAreMissing() {
+        List<BookDTO> books = List.of(
+                new BookDTO(1L, null, "Anonymous", "Poetry", 1.0),
+                new BookDTO(2L, "\"Quoted\" \\ title\n", "Author", "Genre", 2.0),
+                new BookDTO(null, "Caf\u00e9", "Author", "Genre", 3.0));
+        PayloadCache cache = PayloadCache.of(books);
+
+        for (int i = 0; i < books.size(); i++) {
+            assertArrayEquals(BookJsonCodec.toBytes(books.get(i)), cache.bytes(i));
+            for (String title : new String[]{null, "Tab\tand \"quotes\"", "\u00c9l\u00e9ments"}) {
+                BookDTO expected = new BookDTO(books.get(i).getIsbn(), title, books.get(i).getAuthor(),
+                        books.get(i).getGenre(), books.get(i).getPrice());
+
+                assertArrayEquals(BookJsonCodec.toBytes(expected), publish(cache.withTitle(i, title)));
+            }
+        }
+    }
+
+    @Test
+    public void shouldSpliceIsbnsOfAnyLengthIntoTheCreateBody() {
+        CreateBookRequests requests = new CreateBookRequests(URI.create("http://localhost/api/v1/books"),
+                1_000_000L);
+        PayloadCache cache = PayloadCache.of(List.of(new BookDTO(0L, "testsabc", "testsabc", "testsabc", 0.0)));
+
+        byte[] body = publish(requests.apply(5).bodyPublisher().orElseThrow());
+
+        assertArrayEquals(BookJsonCodec.toBytes(new BookDTO(1_000_005L, "testsabc", "testsabc", "testsabc", 0.0)),
+                body);
+        assertArrayEquals(body, publish(cache.withIsbn(0, 1_000_005L)));
+    }
+}
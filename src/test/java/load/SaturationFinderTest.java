@@ -0,0 +1,125 @@
+package load;
+
+import client.ConnectionSettings;
+import data.CatalogSeeder;
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SaturationFinderTest {
+
+    private static final double KNEE = 437;
+
+    private final SaturationFinder finder = new SaturationFinder()
+            .withSlo(99, Duration.ofMillis(100), 0.01)
+            .withSteps(Duration.ofSeconds(10), Duration.ZERO);
+
+    /**
+     * Queue like api: the latency grows with 1 / (1 - utilization) and the api fails requests past the knee
+     * */
+    private SaturationResult.Probe modelledProbe(double rate) {
+        Histogram latencies = LatencyRecorder.newHistogram();
+        double utilization = Math.min(rate / KNEE, 0.999);
+        latencies.recordValueWithCount((long) (10_000 / (1 - utilization)), (long) (rate * 10));
+        long errors = rate > KNEE ? (long) (rate * 10) / 2 : 0;
+        return finder.evaluate(rate, Math.min(rate, KNEE), (long) (rate * 10), errors, latencies, false);
+    }
+
+    @Test
+    public void shouldFindTheHighestRateWithinTheSlo() throws InterruptedException {
+        double limit = KNEE * 0.9;
+
+        SaturationResult result = finder.find(Endpoint.GET_ALL, this::modelledProbe);
+
+        double capacity = result.getCapacity();
+        assertTrue(capacity <= limit && capacity >= limit * 0.9, result.toString());
+        assertTrue(result.getFirstFailingRate() > limit);
+        assertTrue(result.getFirstFailingRate() - capacity <= 0.05 * capacity, result.toString());
+        List<SaturationResult.Probe> curve = result.getCurve();
+        assertEquals(List.of(10.0, 20.0, 40.0, 80.0, 160.0, 320.0), curve.subList(0, 6).stream()
+                .map(SaturationResult.Probe::getTargetRate).collect(Collectors.toList()));
+        assertEquals(640.0, curve.get(curve.size() - 1).getTargetRate());
+        assertTrue(curve.get(curve.size() - 1).getViolation().startsWith("error rate"));
+    }
+
+    @Test
+    public void shouldStopAtTheMaxRate() throws InterruptedException {
+        SaturationResult result = new SaturationFinder()
+                .withRates(10, 100, 2)
+                .withSteps(Duration.ofSeconds(1), Duration.ZERO)
+                .find(Endpoint.GET_ONE, this::modelledProbe);
+
+        assertEquals(5, result.getProbes().size());
+        assertEquals(100, result.getCapacity());
+        assertEquals(Double.POSITIVE_INFINITY, result.getFirstFailingRate());
+    }
+
+    @Test
+    public void shouldSearchBelowTheFirstRateWhenItFails() throws InterruptedException {
+        SaturationResult result = finder.withRates(1_000, 10_000, 2).withResolution(0.05, 6)
+                .find(Endpoint.CREATE, this::modelledProbe);
+
+        assertEquals(6, result.getProbes().size());
+        assertTrue(result.getCapacity() > 0 && result.getCapacity() < KNEE * 0.9, result.toString());
+    }
+
+    @Test
+    public void shouldStopAProbeOnceTheSloIsOutOfReach() {
+        OpenModelResult result = new OpenModelResult("probe", 100);
+        Predicate<OpenModelResult> watch = finder.watch(Endpoint.GET_ALL, 1000);
+        long slow = TimeUnit.MILLISECONDS.toNanos(150);
+
+        for (int i = 0; i < 500; i++) {
+            result.getResponseTime().record(Endpoint.GET_ALL, 200, TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        for (int i = 0; i < 10; i++) {
+            result.getResponseTime().record(Endpoint.GET_ALL, 200, slow);
+        }
+        assertTrue(watch.test(result));
+        for (int i = 0; i < 10; i++) {
+            result.getResponseTime().record(Endpoint.GET_ALL, 500, TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertTrue(watch.test(result));
+
+        result.getResponseTime().record(Endpoint.GET_ALL, 200, slow);
+        assertFalse(watch.test(result));
+    }
+
+    @Test
+    public void shouldDeleteTheCreatedBooksSoTheNextSearchStartsFromTheSameCatalog() throws Exception {
+        SaturationFinder finder = new SaturationFinder()
+                .withSlo(99, Duration.ofSeconds(1), 0.01)
+                .withRates(20, 40, 2)
+                .withSteps(Duration.ofMillis(500), Duration.ZERO);
+        BookStore store = BookStore.seeded();
+        int seeded = store.size();
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", store, 4);
+             ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1_000, new ConnectionSettings());
+             CatalogSeeder seeder = new CatalogSeeder(URI.create(server.getUrl()), new ConnectionSettings(), 8)) {
+            server.start();
+            URI api = URI.create(server.getUrl());
+
+            for (int search = 0; search < 2; search++) {
+                SaturationResult result = finder.findCreate(scheduler, new CreateBookRequests(api, 2_000_000L),
+                        seeder);
+
+                assertEquals(40, result.getCapacity(), result.toString());
+                assertEquals(seeded, store.size());
+            }
+        }
+    }
+}
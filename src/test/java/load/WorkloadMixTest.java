@@ -0,0 +1,190 @@
+package load;
+
+import client.ConnectionSettings;
+import consistency.BookRegister;
+import consistency.CheckResult;
+import consistency.OnlineChecker;
+import data.CatalogGenerator;
+import metrics.Endpoint;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+import util.BookDTO;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkloadMixTest {
+
+    private final CatalogGenerator catalog = new CatalogGenerator(1_000, 7);
+
+    @Test
+    public void shouldDrawOperationsByTheirWeights() {
+        WorkloadMix mix = WorkloadMix.readHeavy(catalog);
+        SplittableRandom random = new SplittableRandom(1);
+        Map<Endpoint, Integer> counts = new EnumMap<>(Endpoint.class);
+        int draws = 100_000;
+
+        for (int i = 0; i < draws; i++) {
+            counts.merge(mix.nextOperation(random), 1, Integer::sum);
+        }
+
+        assertEquals(0.8, mix.share(Endpoint.GET_ONE), 1e-9);
+        assertEquals(0.8, counts.get(Endpoint.GET_ONE) / (double) draws, 0.01);
+        assertEquals(0.1, counts.get(Endpoint.GET_ALL) / (double) draws, 0.01);
+        assertEquals(0.05, counts.get(Endpoint.UPDATE) / (double) draws, 0.005);
+        assertEquals(0.03, counts.get(Endpoint.CREATE) / (double) draws, 0.005);
+        assertEquals(0.02, counts.get(Endpoint.DELETE) / (double) draws, 0.005);
+    }
+
+    @Test
+    public void shouldEncodeTheBodiesWhenTheFirstRunStarts() {
+        AtomicInteger encoded = new AtomicInteger();
+        CatalogGenerator counting = new CatalogGenerator(1_000, 7) {
+            @Override
+            public BookDTO book(long index) {
+                encoded.incrementAndGet();
+                return super.book(index);
+            }
+        };
+        WorkloadMix mix = WorkloadMix.readHeavy(counting);
+        assertEquals(0, encoded.get());
+
+        mix.prepare();
+        assertEquals(1_000, encoded.get());
+        mix.prepare();
+        assertEquals(1_000, encoded.get());
+    }
+
+    @Test
+    public void shouldSendMostRequestsToTheHotSet() {
+        KeyDistribution keys = KeyDistribution.hotSet(1_000, 10, 0.9);
+        SplittableRandom random = new SplittableRandom(2);
+        int hot = 0;
+
+        for (int i = 0; i < 10_000; i++) {
+            long rank = keys.next(random);
+            assertTrue(rank >= 1 && rank <= 1_000);
+            if (rank <= 10) {
+                hot++;
+            }
+        }
+
+        assertEquals(0.9, hot / 10_000.0, 0.02);
+    }
+
+    @Test
+    public void shouldBuildTheRequestsOfTheFunctionalTests() {
+        WorkloadMix mix = new WorkloadMix("writes")
+                .operation(Endpoint.UPDATE, 1)
+                .keys(catalog, KeyDistribution.uniform(1));
+        BookRequests requests = new BookRequests(URI.create("http://localhost:8080/api/v1/books"),
+                Duration.ofSeconds(1));
+
+        HttpRequest update = mix.request(requests, mix.nextOperation(new SplittableRandom(3)), new SplittableRandom(3));
+
+        assertEquals("PUT", update.method());
+        assertEquals("/api/v1/books/" + catalog.isbn(catalog.indexOfRank(1)), update.uri().getPath());
+        assertTrue(update.headers().firstValue("Authorization").orElse("").startsWith("Basic "));
+        assertEquals("GET", mix.request(requests, Endpoint.GET_ALL, new SplittableRandom(3)).method());
+        assertTrue(WorkloadMix.isConflict(Endpoint.CREATE, 403));
+        assertTrue(WorkloadMix.isConflict(Endpoint.DELETE, 404));
+        assertFalse(WorkloadMix.isConflict(Endpoint.GET_ALL, 404));
+    }
+
+    @Test
+    public void shouldKeepThinkTimesInRange() {
+        SplittableRandom random = new SplittableRandom(4);
+        ThinkTime uniform = ThinkTime.uniform(100, 200);
+        for (int i = 0; i < 1_000; i++) {
+            long millis = uniform.nextMillis(random);
+            assertTrue(millis >= 100 && millis <= 200);
+            assertTrue(ThinkTime.gaussian(10, 50).nextMillis(random) >= 0);
+        }
+    }
+
+    @Test
+    public void shouldRunTheMixOnTheLoadEngine() throws Exception {
+        BookStore store = new BookStore();
+        for (long i = 0; i < catalog.size(); i++) {
+            store.create(catalog.book(i));
+        }
+        WorkloadMix mix = WorkloadMix.readHeavy(catalog).thinkTime(ThinkTime.uniform(0, 5));
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", store, 4)) {
+            server.start();
+            try (LoadEngine engine = new LoadEngine(URI.create(server.getUrl()), BookPaths.fromClasspath(),
+                    Duration.ofSeconds(10), new ConnectionSettings())) {
+                LoadResult result = engine.run(new Scenario("mixed", new ConcurrencyProfile(8, 0, 1, 1_500), mix));
+
+                assertTrue(result.getSamples() > 0, result.toString());
+                assertEquals(0, result.getErrors(), result.toString());
+                assertTrue(result.getLatencies().totals().get(Endpoint.UPDATE).getTotalCount() > 0,
+                        result.toString());
+                assertTrue(result.areConflictsExplained(), result.toString());
+            }
+        }
+    }
+
+    @Test
+    public void shouldFlagAMixRunAgainstAnUnseededCatalog() throws Exception {
+        WorkloadMix mix = new WorkloadMix("read_heavy_uniform")
+                .operation(Endpoint.GET_ONE, 80)
+                .operation(Endpoint.UPDATE, 5)
+                .operation(Endpoint.CREATE, 3)
+                .operation(Endpoint.DELETE, 2)
+                .keys(catalog, KeyDistribution.uniform(catalog.size()))
+                .thinkTime(ThinkTime.uniform(0, 5));
+        assertEquals(0.4, mix.maxMissShare(), 1e-9);
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", new BookStore(), 4)) {
+            server.start();
+            try (LoadEngine engine = new LoadEngine(URI.create(server.getUrl()), BookPaths.fromClasspath(),
+                    Duration.ofSeconds(10), new ConnectionSettings())) {
+                LoadResult result = engine.run(new Scenario("unseeded", new ConcurrencyProfile(8, 0, 1, 1_500), mix));
+
+                assertEquals(0, result.getErrors(), result.toString());
+                assertTrue(result.getMissShare() > 0.5, result.toString());
+                assertFalse(result.areConflictsExplained(), result.toString());
+                assertFalse(result.isValid(), result.toString());
+                assertTrue(result.toString().contains("was the catalog seeded?"), result.toString());
+            }
+        }
+    }
+
+    @Test
+    public void shouldCheckTheHistoryOfTheMixForLinearizability() throws Exception {
+        BookStore store = new BookStore();
+        for (long i = 0; i < catalog.size(); i++) {
+            store.create(catalog.book(i));
+        }
+        WorkloadMix mix = new WorkloadMix("hot_writes")
+                .operation(Endpoint.GET_ONE, 50)
+                .operation(Endpoint.UPDATE, 20)
+                .operation(Endpoint.CREATE, 15)
+                .operation(Endpoint.DELETE, 15)
+                .keys(catalog, KeyDistribution.hotSet(catalog.size(), 5, 0.9));
+        OnlineChecker checker = new OnlineChecker(2).withInitialState(BookRegister.UNKNOWN);
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", store, 4);
+             LoadEngine engine = new LoadEngine(URI.create(server.getUrl()), BookPaths.fromClasspath(),
+                     Duration.ofSeconds(10), new ConnectionSettings()).withOnlineChecker(checker)) {
+            server.start();
+            engine.run(new Scenario("checked", new ConcurrencyProfile(8, 0, 1, 1_500), mix));
+        } finally {
+            //the result is complete once the checker has checked the last segments
+            checker.close();
+        }
+
+        CheckResult result = checker.getResult();
+        assertTrue(result.isLinearizable(), result.toString());
+        assertTrue(result.getCheckedOperations() > 100, result.toString());
+        assertEquals(0, result.getUncertainKeys(), result.toString());
+    }
+}
@@ -0,0 +1,71 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeneratorMonitorTest {
+
+    private final GeneratorMonitor monitor = new GeneratorMonitor(8080)
+            .withLimits(0.8, Duration.ofMillis(10), 0.05, 1024);
+
+    @Test
+    public void shouldSumTheQueuesOfTheConnectionsToTheApi(@TempDir Path dir) throws Exception {
+        Path tcp = dir.resolve("tcp");
+        Files.write(tcp, List.of(
+                "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode",
+                //listening socket of the api
+                "   0: 00000000:1F90 00000000:0000 0A 00000000:00000000 00:00000000 00000000  1000        0 1",
+                //established connections of the generator to port 8080
+                "   1: 0100007F:A2C4 0100007F:1F90 01 00000010:00000800 00:00000000 00000000  1000        0 2",
+                "   2: 0100007F:A2C6 0100007F:1F90 01 00000000:00000100 00:00000000 00000000  1000        0 3",
+                //closing connection and a connection to another port
+                "   3: 0100007F:A2C8 0100007F:1F90 06 00000000:00000100 00:00000000 00000000  1000        0 4",
+                "   4: 0100007F:A2CA 0100007F:0050 01 00000000:00000100 00:00000000 00000000  1000        0 5"));
+
+        long[] queues = GeneratorMonitor.socketQueues(List.of(tcp, dir.resolve("tcp6")), 8080);
+
+        assertEquals(2, queues[0]);
+        assertEquals(0x900, queues[1]);
+        assertEquals(0x10, queues[2]);
+        assertEquals(-1, GeneratorMonitor.socketQueues(List.of(dir.resolve("missing")), 8080)[0]);
+    }
+
+    @Test
+    public void shouldFlagEveryExceededLimit() {
+        assertTrue(monitor.violations(0.5, 2_000, 0.01, 512).isEmpty());
+
+        List<String> violations = monitor.violations(0.95, 25_000, 0.2, 4096);
+
+        assertEquals(4, violations.size(), violations.toString());
+        assertTrue(violations.get(0).startsWith("cpu 95%"), violations.toString());
+    }
+
+    @Test
+    public void shouldSampleTheGeneratorEverySecond() throws Exception {
+        monitor.start();
+        byte[][] garbage = new byte[64][];
+        long end = System.currentTimeMillis() + 1_500;
+        for (int i = 0; System.currentTimeMillis() < end; i++) {
+            garbage[i % garbage.length] = new byte[64 * 1024];
+            Thread.sleep(1);
+        }
+
+        GeneratorReport report = monitor.stop();
+
+        assertEquals(1, report.getSamples().size(), report.toString());
+        assertTrue(report.getDurationMillis() >= 1_500);
+        assertTrue(report.getMeanCpu() >= 0 && report.getMeanCpu() <= 1, report.toString());
+        assertTrue(report.getMeanAllocationMBps() > 1, report.toString());
+        assertTrue(report.getSchedulingDelayMillis(50) >= 0);
+        assertFalse(report.toLogComments().isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import report.RunSummary;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void shouldMapRequestsToEndpointTemplates() {
+        assertEquals(Endpoint.GET_ALL, Endpoint.of("GET", "/api/v1/books"));
+        assertEquals(Endpoint.GET_ALL, Endpoint.of("GET", "http://localhost:8080/api/v1/books/"));
+        assertEquals(Endpoint.GET_ONE, Endpoint.of("GET", "/api/v1/books/8781234567891"));
+        assertEquals(Endpoint.CREATE, Endpoint.of("post", "/api/v1/books"));
+        assertEquals(Endpoint.UPDATE, Endpoint.of("PUT", "/api/v1/books/18"));
+        assertEquals(Endpoint.DELETE, Endpoint.of("DELETE", "/api/v1/books/5?force=true"));
+        assertEquals(Endpoint.OTHER, Endpoint.of("DELETE", "/api/v1/books"));
+        assertEquals(Endpoint.OTHER, Endpoint.of("GET", "/api/v1/authors"));
+    }
+
+    @Test
+    public void shouldKeepPercentilesPerEndpoint() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(Endpoint.GET_ONE, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        recorder.record(Endpoint.CREATE, TimeUnit.SECONDS.toNanos(13));
+
+        Map<Endpoint, Histogram> totals = recorder.totals();
+
+        assertEquals(1000, totals.get(Endpoint.GET_ONE).getTotalCount());
+        assertEquals(500, totals.get(Endpoint.GET_ONE).getValueAtPercentile(50) / 1000.0, 1.0);
+        assertEquals(990, totals.get(Endpoint.GET_ONE).getValueAtPercentile(99) / 1000.0, 1.0);
+        assertEquals(1, totals.get(Endpoint.CREATE).getTotalCount());
+        assertEquals(0, totals.get(Endpoint.DELETE).getTotalCount());
+        assertTrue(recorder.report().contains("GET /books/{isbn}"));
+    }
+
+    @Test
+    public void shouldMergeIntervalLogsOfSeveralRuns(@TempDir Path dir) throws Exception {
+        Path first = dir.resolve("first.hlog");
+        Path second = dir.resolve("second.hlog");
+        writeRun(first, 10);
+        writeRun(second, 30);
+
+        Map<Endpoint, Histogram> merged = new EnumMap<>(Endpoint.class);
+        LatencyRecorder.mergeLog(first, merged);
+        LatencyRecorder.mergeLog(second, merged);
+
+        assertEquals(40, merged.get(Endpoint.GET_ALL).getTotalCount());
+        assertEquals(40, merged.get(Endpoint.UPDATE).getTotalCount());
+    }
+
+    @Test
+    public void shouldKeepTheCurrentIntervalWhenReadingTheTotals() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 0; i < 10; i++) {
+            recorder.record(Endpoint.GET_ONE, 1_000_000);
+        }
+        assertEquals(10, recorder.totals().get(Endpoint.GET_ONE).getTotalCount());
+        recorder.report();
+        for (int i = 0; i < 5; i++) {
+            recorder.record(Endpoint.GET_ONE, 1_000_000);
+        }
+
+        assertEquals(15, recorder.sampleInterval().get(Endpoint.GET_ONE).getTotalCount());
+        assertEquals(15, recorder.totals().get(Endpoint.GET_ONE).getTotalCount());
+        assertEquals(0, recorder.sampleInterval().get(Endpoint.GET_ONE).getTotalCount());
+    }
+
+    @Test
+    public void shouldLogIntervalsFromThePreviousWrite(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("run.hlog");
+        LatencyRecorder recorder = new LatencyRecorder();
+        HistogramLogWriter writer = LatencyRecorder.openLog(log);
+        for (int i = 0; i < 100; i++) {
+            recorder.record(Endpoint.GET_ALL, 1_000_000);
+        }
+        Thread.sleep(300);
+        recorder.writeInterval(writer);
+        writer.close();
+
+        RunSummary summary = RunSummary.ofHistogramLog("run", log);
+
+        assertTrue(summary.getDurationMillis() >= 290, summary.getDurationMillis() + "ms");
+        assertTrue(summary.throughput(summary.getLabels().get(Endpoint.GET_ALL.getTemplate())) < 400);
+    }
+
+    @Test
+    public void shouldSummarizeTheErrorsWrittenToTheLog(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("run.hlog");
+        writeRun(log, 10, Map.of(Endpoint.UPDATE, 3L, Endpoint.GET_ALL, 0L));
+
+        RunSummary summary = RunSummary.ofHistogramLog("run", log);
+
+        assertEquals(3, summary.getLabels().get(Endpoint.UPDATE.getTemplate()).getErrors());
+        assertEquals(10, summary.getLabels().get(Endpoint.UPDATE.getTemplate()).getSamples());
+        assertEquals(0, summary.getLabels().get(Endpoint.GET_ALL.getTemplate()).getErrors());
+    }
+
+    private static void writeRun(Path file, int requests) throws Exception {
+        writeRun(file, requests, Map.of());
+    }
+
+    private static void writeRun(Path file, int requests, Map<Endpoint, Long> errors) throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        HistogramLogWriter writer = LatencyRecorder.openLog(file);
+        for (int i = 0; i < requests; i++) {
+            recorder.record(Endpoint.GET_ALL, 1_000_000);
+            recorder.record(Endpoint.UPDATE, 2_000_000);
+            if (i % 5 == 0) {
+                recorder.writeInterval(writer);
+            }
+        }
+        recorder.writeInterval(writer);
+        LatencyRecorder.writeErrors(writer, errors);
+        writer.close();
+    }
+}
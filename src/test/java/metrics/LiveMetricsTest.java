@@ -0,0 +1,97 @@
+package metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LiveMetricsTest {
+
+    private static LiveMetrics recorded() {
+        LiveMetrics metrics = new LiveMetrics();
+        for (int i = 1; i <= 1000; i++) {
+            metrics.requestStarted();
+            metrics.requestCompleted(Endpoint.GET_ONE, i % 100 == 0 ? 404 : 200, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        for (int status : new int[]{401, 403, 415, 422, 503, 0}) {
+            metrics.requestStarted();
+            metrics.requestCompleted(Endpoint.CREATE, status, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        metrics.requestStarted();
+        return metrics;
+    }
+
+    @Test
+    public void shouldExposeCountersAndPercentilesInPrometheusFormat() {
+        LiveMetrics metrics = recorded();
+        metrics.sample();
+
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("books_responses_total{endpoint=\"GET /books/{isbn}\",status=\"2xx\"} 990\n"), text);
+        assertTrue(text.contains("books_responses_total{endpoint=\"GET /books/{isbn}\",status=\"404\"} 10\n"), text);
+        for (String status : new String[]{"401", "403", "415", "4xx", "5xx", "failed"}) {
+            assertTrue(text.contains("books_responses_total{endpoint=\"POST /books\",status=\"" + status + "\"} 1\n"),
+                    text);
+        }
+        assertTrue(text.contains("books_requests_in_flight 1\n"), text);
+        assertTrue(text.contains("books_latency_seconds{endpoint=\"GET /books/{isbn}\",quantile=\"0.5\"} 0.50"), text);
+        assertTrue(text.contains("books_latency_seconds_count{endpoint=\"GET /books/{isbn}\"} 1000\n"), text);
+        assertTrue(text.contains("books_latency_seconds_sum{endpoint=\"GET /books/{isbn}\"} 500."), text);
+        assertTrue(metrics.getThroughput() > 0);
+        assertEquals(10, metrics.getResponses(Endpoint.GET_ONE, 404));
+    }
+
+    @Test
+    public void shouldServeTheMetricsOverHttp() throws Exception {
+        LiveMetrics metrics = recorded();
+        metrics.sample();
+        try (MetricsServer server = new MetricsServer(0, metrics).start()) {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> scrape = client.send(HttpRequest.newBuilder(URI.create(server.getUrl() + "/metrics"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> dashboard = client.send(HttpRequest.newBuilder(URI.create(server.getUrl()))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, scrape.statusCode());
+            assertTrue(scrape.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            assertEquals(metrics.toPrometheus(), scrape.body());
+            assertEquals(200, dashboard.statusCode());
+            assertTrue(dashboard.body().contains("GET /books/{isbn}"), dashboard.body());
+        }
+    }
+
+    @Test
+    public void shouldCommitAFlightRecorderEventPerEndpoint(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("load.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(LoadIntervalEvent.class);
+            recording.start();
+            recorded().sample();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        assertEquals(2, events.size());
+        RecordedEvent getOne = events.stream().filter(event -> event.getString("endpoint").equals("GET /books/{isbn}"))
+                .findFirst().orElseThrow();
+        assertEquals(1000, getOne.getLong("requests"));
+        assertEquals(10, getOne.getLong("errors"));
+        assertEquals(1, getOne.getLong("inFlight"));
+    }
+}
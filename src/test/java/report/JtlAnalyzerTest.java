@@ -0,0 +1,89 @@
+package report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JtlAnalyzerTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,"
+            + "success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect\n";
+
+    @Test
+    public void shouldAggregateTheCreateBookReport() throws Exception {
+        Path report = Path.of("src/main/resources/performance_testing/create_book/load_test_create_book_report.csv");
+
+        JtlReport result = new JtlAnalyzer().analyze(report);
+
+        LabelStats stats = result.getLabels().get("HTTP Request");
+        assertEquals(500, result.getSamples());
+        assertEquals(0, stats.getErrors());
+        assertEquals(13363, stats.getElapsed().getMinValue() / 1000, 25);
+        assertEquals(25731, stats.getElapsed().getMaxValue() / 1000, 25);
+    }
+
+    @Test
+    public void shouldParseChunksInParallelWithQuotedFieldsAndErrors(@TempDir Path dir) throws Exception {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < 1000; i++) {
+            long timeStamp = 1631370000000L + i * 10L;
+            boolean failed = i % 10 == 0;
+            content.append(timeStamp).append(',').append(i % 100).append(',')
+                    .append(i % 2 == 0 ? "GET all" : "GET one").append(',')
+                    .append(failed ? "404" : "200").append(",,users 1-1,text,")
+                    .append(failed ? "false,\"Not found, isbn 500\"" : "true,")
+                    .append(",512,340,1,1,http://localhost:8080/api/v1/books,").append(i % 100).append(",0,1\r\n");
+        }
+        Path file = dir.resolve("results.jtl");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        JtlReport result = new JtlAnalyzer(4).analyze(file);
+
+        assertEquals(1000, result.getSamples());
+        assertEquals(500, result.getLabels().get("GET all").getSamples());
+        assertEquals(100, result.getLabels().get("GET all").getErrors());
+        assertEquals(0, result.getLabels().get("GET one").getErrors());
+        assertEquals(10, result.getPerSecond().size());
+        assertEquals(100, result.getPerSecond().firstEntry().getValue()[0]);
+        assertEquals(99, result.getLabels().get("GET one").getLatency().getMaxValue() / 1000);
+
+        Path chart = dir.resolve("chart.svg");
+        result.writeThroughputChart(chart, "results.jtl");
+        assertTrue(Files.readString(chart).startsWith("<svg"));
+    }
+
+    @Test
+    public void shouldParseScientificTimestamps() {
+        ByteBuffer buffer = ByteBuffer.wrap("1.63137E+12".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(1631370000000L, (long) JtlAnalyzer.parseNumber(buffer, 0, buffer.limit()));
+    }
+
+    @Test
+    public void shouldSplitQuotedFields() {
+        JtlFields fields = new JtlFields();
+        byte[] lines = "1,\"say \"\"hi\"\", then go\",,http://localhost/a?b=1\r\n2".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(lines);
+
+        int next = fields.split(buffer, 0);
+
+        assertEquals(4, fields.count());
+        assertEquals(1, (long) fields.number(0));
+        assertEquals("say \"hi\", then go", fields.text(1));
+        assertTrue(fields.isEmpty(2));
+        assertTrue(fields.isEmpty(7));
+        assertEquals("http://localhost/a?b=1", fields.text(3));
+        fields.split(buffer, next);
+        assertEquals(1, fields.count());
+        assertEquals(2, (long) fields.number(0));
+        assertEquals(List.of("timeStamp", "URL"), JtlFields.names("\"timeStamp\",URL\n"));
+    }
+}
@@ -0,0 +1,106 @@
+package report;
+
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegressionGateTest {
+
+    /**
+     * Log-normal latencies around 20ms, a fraction of them slowed down by a factor
+     * */
+    private static Histogram latencies(long seed, int samples, double slowFraction, double slowFactor) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Histogram histogram = LatencyRecorder.newHistogram();
+        for (int i = 0; i < samples; i++) {
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                    * Math.cos(2 * Math.PI * random.nextDouble());
+            double micros = Math.exp(Math.log(20_000) + 0.3 * gaussian);
+            if (random.nextDouble() < slowFraction) {
+                micros *= slowFactor;
+            }
+            histogram.recordValue((long) micros);
+        }
+        return histogram;
+    }
+
+    private static RunSummary run(String name, long durationMillis, Histogram latencies, long errors) {
+        return new RunSummary(name, 0, durationMillis)
+                .add(new RunSummary.Label("POST /books", latencies.getTotalCount(), errors, latencies));
+    }
+
+    @Test
+    public void shouldTestHistogramsForAShift() {
+        Histogram baseline = latencies(1, 5000, 0, 1);
+        assertEquals(0.975, HistogramStatistics.normalCdf(1.959964), 1e-6);
+        assertEquals(0.5, HistogramStatistics.probabilityOfIncrease(baseline, baseline), 1e-9);
+        assertTrue(HistogramStatistics.mannWhitneyGreater(baseline, latencies(2, 5000, 0, 1)) > 0.01);
+        Histogram slower = latencies(3, 5000, 1, 1.05);
+        assertTrue(HistogramStatistics.mannWhitneyGreater(baseline, slower) < 1e-6);
+        assertTrue(HistogramStatistics.mannWhitneyGreater(slower, baseline) > 0.99);
+        assertTrue(HistogramStatistics.probabilityOfIncrease(baseline, slower) > 0.5);
+
+        double[] interval = HistogramStatistics.bootstrapPercentileRatio(baseline, latencies(4, 5000, 0, 1), 99,
+                0.95, 500, new SplittableRandom(5));
+        assertTrue(interval[0] < 1 && interval[1] > 1, interval[0] + "-" + interval[1]);
+    }
+
+    @Test
+    public void shouldPassARunLikeTheBaseline() {
+        GateResult result = new RegressionGate().compare(run("baseline", 60_000, latencies(1, 20_000, 0, 1), 0),
+                run("current", 61_000, latencies(2, 20_000, 0, 1), 10));
+
+        assertTrue(result.isPassed(), result.toString());
+    }
+
+    @Test
+    public void shouldFailOnTailLatencyThroughputAndErrors() {
+        RunSummary baseline = run("baseline", 60_000, latencies(1, 20_000, 0, 1), 0);
+
+        GateResult slowTail = new RegressionGate().compare(baseline, run("slow tail", 60_000,
+                latencies(2, 20_000, 0.03, 4), 0));
+        assertEquals(1, slowTail.getRegressions().size(), slowTail.toString());
+        assertTrue(slowTail.getRegressions().get(0).contains("p99"));
+
+        GateResult slower = new RegressionGate().compare(baseline, run("slower", 60_000,
+                latencies(2, 20_000, 1, 1.5), 0));
+        assertEquals(2, slower.getRegressions().size(), slower.toString());
+        assertTrue(slower.getRegressions().get(1).contains("Mann-Whitney"));
+
+        GateResult fewer = new RegressionGate().withMaxThroughputDrop(0.2).compare(baseline, run("fewer", 80_000,
+                latencies(2, 20_000, 0, 1), 600));
+        List<String> regressions = fewer.getRegressions();
+        assertEquals(3, regressions.size(), fewer.toString());
+        assertTrue(regressions.get(0).startsWith("all labels: throughput"));
+        assertTrue(regressions.get(2).contains("error rate"));
+    }
+
+    @Test
+    public void shouldKeepSummariesOfRuns(@TempDir Path dir) throws Exception {
+        RunSummary summary = RunSummary.ofResults(
+                Path.of("src/main/resources/performance_testing/create_book/load_test_create_book_report.csv"));
+        BaselineStore store = new BaselineStore(dir);
+        assertFalse(store.getBaseline().isPresent());
+
+        store.setBaseline(summary);
+        store.save(run("other", 1000, latencies(1, 100, 0, 1), 0));
+
+        RunSummary baseline = store.getBaseline().orElseThrow();
+        RunSummary.Label label = baseline.getLabels().get("HTTP Request");
+        assertEquals(summary.getName(), baseline.getName());
+        assertEquals(500, label.getSamples());
+        assertEquals(summary.getLabels().get("HTTP Request").getLatencies(), label.getLatencies());
+        assertEquals(summary.throughput(), baseline.throughput(), 1e-9);
+        assertEquals(List.of("load_test_create_book_report-" + summary.getStartMillis(), "other"), store.runs());
+        assertTrue(new RegressionGate().compare(baseline, summary).isPassed());
+    }
+}
@@ -0,0 +1,126 @@
+package trace;
+
+import client.ConnectionSettings;
+import load.BookPaths;
+import load.ReplayResult;
+import load.TraceReplayer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TraceReaderTest {
+
+    @Test
+    public void shouldStreamRecordsAcrossMappedWindows(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("run.trace");
+        long start = 1_631_370_000_000_000L;
+        try (TraceWriter writer = new TraceWriter(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                boolean put = i % 10 == 0;
+                long digest = put ? TraceRecord.digest(new byte[]{1}) : 0;
+                writer.write(new TraceRecord(start + i * 1_500L, put ? "PUT" : "GET",
+                        "/api/v1/books/" + (8781234567891L + i % 108), digest, 200));
+            }
+            //out of order, moved to the time of the previous record
+            writer.write(new TraceRecord(start, "DELETE", "/api/v1/books/1", 0, 404));
+        }
+
+        try (TraceReader reader = TraceReader.open(file, 4096)) {
+            assertEquals(10_001, reader.getRecords());
+            assertEquals(start, reader.getStartMicros());
+            assertEquals(9_999 * 1_500L, reader.getDurationMicros());
+            int i = 0;
+            TraceRecord last = null;
+            while (reader.hasNext()) {
+                last = reader.next();
+                if (i < 10_000) {
+                    assertEquals(start + i * 1_500L, last.getTimestampMicros());
+                    assertEquals("/api/v1/books/" + (8781234567891L + i % 108), last.getPath());
+                    assertEquals(i % 10 == 0 ? "PUT" : "GET", last.getMethod());
+                }
+                i++;
+            }
+            assertEquals("DELETE", last.getMethod());
+            assertEquals(start + 9_999 * 1_500L, last.getTimestampMicros());
+            assertEquals(404, last.getStatus());
+        }
+        assertTrue(Files.size(file) < 10_001 * 48);
+    }
+
+    @Test
+    public void shouldConvertJMeterResultsAndAccessLogs(@TempDir Path dir) throws Exception {
+        Path jtl = dir.resolve("create_book.trace");
+        try (TraceWriter writer = new TraceWriter(jtl)) {
+            TraceConverter converter = new TraceConverter(writer);
+            converter.fromJtl(Path.of(
+                    "src/main/resources/performance_testing/create_book/load_test_create_book_report.csv"), "POST");
+            converter.finish();
+        }
+        try (TraceReader reader = TraceReader.open(jtl)) {
+            assertEquals(500, reader.getRecords());
+            TraceRecord record = reader.next();
+            assertEquals("POST", record.getMethod());
+            assertEquals("/api/v1/books", record.getPath());
+            assertEquals(201, record.getStatus());
+        }
+
+        Path log = dir.resolve("access.log");
+        Files.write(log, List.of(
+                "127.0.0.1 - user [10/Oct/2021:13:55:37 +0200] \"DELETE /api/v1/books/8781234567892 HTTP/1.1\" 200 0",
+                "127.0.0.1 - - [10/Oct/2021:13:55:36 +0200] \"GET /api/v1/books/8781234567891 HTTP/1.1\" 200 117"
+                        + " \"-\" \"curl/7.68.0\"",
+                "not a request"), StandardCharsets.UTF_8);
+        Path access = dir.resolve("access.trace");
+        try (TraceWriter writer = new TraceWriter(access)) {
+            TraceConverter converter = new TraceConverter(writer);
+            converter.fromAccessLog(log);
+            converter.finish();
+            assertEquals(1, converter.getSkipped());
+        }
+        try (TraceReader reader = TraceReader.open(access)) {
+            List<TraceRecord> records = new ArrayList<>();
+            reader.forEachRemaining(records::add);
+            assertEquals("GET", records.get(0).getMethod());
+            assertEquals("DELETE", records.get(1).getMethod());
+            assertEquals(1_000_000, records.get(1).getTimestampMicros() - records.get(0).getTimestampMicros());
+        }
+    }
+
+    @Test
+    public void shouldReplayWithTheOriginalTimingScaled(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("replay.trace");
+        BookPaths paths = BookPaths.fromClasspath();
+        long start = System.currentTimeMillis() * 1000;
+        try (TraceWriter writer = new TraceWriter(file)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(new TraceRecord(start + i * 20_000L, "GET", paths.get(i % paths.size()), 0, 200));
+            }
+            writer.write(new TraceRecord(start + 2_000_000L, "POST", "/api/v1/books", 0, 201));
+            writer.write(new TraceRecord(start + 2_000_000L, "GET", "/api/v1/books/1", 0, 200));
+        }
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 4);
+             TraceReplayer replayer = new TraceReplayer(URI.create(server.getUrl()), 1_000, new ConnectionSettings())) {
+            server.start();
+            long begin = System.nanoTime();
+
+            ReplayResult result = replayer.replay(file, 4);
+
+            long millis = (System.nanoTime() - begin) / 1_000_000;
+            assertTrue(millis >= 450 && millis < 5_000, millis + "ms");
+            assertEquals(102, result.getRequests().getResponseTime().getSamples(), result.toString());
+            //the created book is new, isbn 1 is not found
+            assertEquals(1, result.getStatusMismatches(), result.toString());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package util;
+
+/**
+ * Disjoint isbn ranges per test case, so that test cases which create data never touch each other's books
+ * and can run in parallel. No book seeded in the api falls into these ranges.
+ * */
+public class IsbnRanges {
+
+    private static final long BASE = 7_000_000_000_000L;
+    private static final long RANGE_SIZE = 1_000L;
+
+    private IsbnRanges() {
+
+    }
+
+    /**
+     * @param testCase - number of the test case, e.g. 23 for TC23
+     * @return long - first isbn of the range owned by the test case
+     * */
+    public static long rangeFor(int testCase) {
+        return BASE + testCase * RANGE_SIZE;
+    }
+}
@@ -0,0 +1,58 @@
+package util;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+
+/**
+ * REST Assured filter that records the latency of every call in the same per-endpoint histograms as the load engine
+ * */
+public class LatencyRecordingFilter implements Filter {
+
+    /**
+     * Latencies of the running test case, inherited by the threads it starts
+     * */
+    private static final InheritableThreadLocal<TestLatencies> TEST_LATENCIES = new InheritableThreadLocal<>();
+
+    private final LatencyRecorder recorder;
+
+    public LatencyRecordingFilter(LatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                           FilterContext ctx) {
+        long start = System.nanoTime();
+        try {
+            return ctx.next(requestSpec, responseSpec);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Endpoint endpoint = Endpoint.of(requestSpec.getMethod(), requestSpec.getURI());
+            recorder.record(endpoint, elapsed);
+            TestLatencies test = TEST_LATENCIES.get();
+            if (test != null) {
+                test.record(endpoint, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Records the calls of the current thread, and of the threads it starts from now on, also for a test case
+     * */
+    static void bind(TestLatencies latencies) {
+        TEST_LATENCIES.set(latencies);
+    }
+
+    static void unbind() {
+        TEST_LATENCIES.remove();
+    }
+
+    public LatencyRecorder getRecorder() {
+        return recorder;
+    }
+}
@@ -0,0 +1,42 @@
+package util;
+
+import metrics.Endpoint;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Latency budget enforced by {@link LatencySloExtension}: the given percentile of the calls a test case made
+ * to an endpoint must not exceed the budget. Budgets on a test method replace the budgets of its class.
+ * The calls of all repetitions of a @RepeatedTest or @ParameterizedTest are evaluated together, so
+ * {@code @RepeatedTest(100) @LatencySlo(percentile = 99, millis = 200)} checks the p99 over 100 repetitions.
+ * */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Repeatable(LatencySlo.List.class)
+public @interface LatencySlo {
+
+    /**
+     * @return Endpoint[] - endpoints the budget applies to, every endpoint if empty
+     * */
+    Endpoint[] endpoints() default {};
+
+    /**
+     * @return double - percentile of the calls, 100 bounds every single call
+     * */
+    double percentile() default 99.0;
+
+    long millis();
+
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.TYPE, ElementType.METHOD})
+    @interface List {
+        LatencySlo[] value();
+    }
+}
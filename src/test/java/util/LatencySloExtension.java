@@ -0,0 +1,58 @@
+package util;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Times every REST Assured call of a test case through {@link LatencyRecordingFilter} and enforces the
+ * {@link LatencySlo} budgets of the test method or its class, replacing the JUnit 4 Timeout rule of FTR22.
+ * Calls are attributed to the test case running on the calling thread or on the thread that started it,
+ * so the parallel requests of the contention test cases count as well.
+ * A plain test case is checked right after it ran, the repetitions of a test template are checked together
+ * when the last one finished.
+ * */
+public class LatencySloExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(LatencySloExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        LatencyRecordingFilter.bind(latencies(context));
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        LatencyRecordingFilter.unbind();
+        if (!isTemplateInvocation(context)) {
+            latencies(context).close();
+        }
+    }
+
+    /**
+     * @return TestLatencies - latencies of the test case, shared by all invocations of a test template and
+     * closed by JUnit when the template finished
+     * */
+    private static TestLatencies latencies(ExtensionContext context) {
+        ExtensionContext scope = isTemplateInvocation(context) ? context.getParent().orElseThrow() : context;
+        return scope.getStore(NAMESPACE).getOrComputeIfAbsent(TestLatencies.class,
+                key -> new TestLatencies(scope.getDisplayName(), budgets(context)), TestLatencies.class);
+    }
+
+    private static boolean isTemplateInvocation(ExtensionContext context) {
+        return context.getParent().flatMap(ExtensionContext::getTestMethod).isPresent();
+    }
+
+    private static List<LatencySlo> budgets(ExtensionContext context) {
+        Method method = context.getRequiredTestMethod();
+        List<LatencySlo> budgets = AnnotationSupport.findRepeatableAnnotations(method, LatencySlo.class);
+        if (budgets.isEmpty()) {
+            budgets = AnnotationSupport.findRepeatableAnnotations(context.getRequiredTestClass(), LatencySlo.class);
+        }
+        return budgets;
+    }
+}
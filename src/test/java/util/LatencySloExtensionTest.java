@@ -0,0 +1,94 @@
+package util;
+
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.opentest4j.AssertionFailedError;
+import server.BookStore;
+import server.StandInBooksServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LatencySloExtension.class)
+@LatencySlo(percentile = 100, millis = 2000)
+public class LatencySloExtensionTest {
+
+    private static StandInBooksServer server;
+    private static final LatencyRecordingFilter filter = new LatencyRecordingFilter(new LatencyRecorder());
+
+    @BeforeAll
+    public static void startServer() throws IOException {
+        server = new StandInBooksServer(0, "/api/v1/books", BookStore.seeded(), 2);
+        server.start();
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        server.close();
+    }
+
+    @LatencySlo(endpoints = Endpoint.GET_ONE, percentile = 50, millis = 5)
+    @LatencySlo(endpoints = {Endpoint.CREATE, Endpoint.UPDATE}, millis = 100)
+    private static void budgets() {
+    }
+
+    private static List<LatencySlo> budgetsOf(String method) throws NoSuchMethodException {
+        return List.of(LatencySloExtensionTest.class.getDeclaredMethod(method).getAnnotationsByType(LatencySlo.class));
+    }
+
+    @Test
+    public void shouldReportEveryExceededBudget() throws NoSuchMethodException {
+        TestLatencies latencies = new TestLatencies("TC", budgetsOf("budgets"));
+        for (int i = 1; i <= 10; i++) {
+            latencies.record(Endpoint.GET_ONE, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        latencies.record(Endpoint.UPDATE, TimeUnit.MILLISECONDS.toNanos(50));
+        latencies.record(Endpoint.DELETE, TimeUnit.SECONDS.toNanos(3));
+        assertTrue(latencies.violations().isEmpty(), latencies.violations().toString());
+
+        latencies.record(Endpoint.GET_ONE, TimeUnit.MILLISECONDS.toNanos(9));
+        latencies.record(Endpoint.CREATE, TimeUnit.MILLISECONDS.toNanos(150));
+        List<String> violations = latencies.violations();
+        assertEquals(2, violations.size(), violations.toString());
+        assertTrue(violations.get(0).startsWith("GET /books/{isbn} p50.0=6.00ms over 11 calls"), violations.get(0));
+        assertTrue(violations.get(1).startsWith("POST /books p99.0="), violations.get(1));
+
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, latencies::close);
+        assertTrue(error.getMessage().startsWith("TC exceeded its latency budget"));
+        latencies.close();
+    }
+
+    @Test
+    public void shouldAttributeCallsOfThreadsStartedByTheTest() throws Exception {
+        TestLatencies latencies = new TestLatencies("TC", budgetsOf("budgets"));
+        LatencyRecordingFilter.bind(latencies);
+        try {
+            Thread thread = new Thread(() -> given().noFilters().filter(filter).get(server.getUrl() + "/8781234567891"));
+            thread.start();
+            thread.join();
+        } finally {
+            LatencyRecordingFilter.unbind();
+        }
+        given().noFilters().filter(filter).get(server.getUrl() + "/8781234567891");
+
+        assertEquals(1, latencies.count(Endpoint.GET_ONE));
+        assertEquals(2, filter.getRecorder().totals().get(Endpoint.GET_ONE).getTotalCount());
+    }
+
+    @RepeatedTest(20)
+    @LatencySlo(endpoints = Endpoint.GET_ALL, percentile = 99, millis = 1000)
+    public void shouldMeetTheBudgetOverAllRepetitions() {
+        assertEquals(200, given().noFilters().filter(filter).get(server.getUrl()).getStatusCode());
+    }
+}
@@ -0,0 +1,168 @@
+package util;
+
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * REST Assured configuration with a single pooled Apache client shared by all test cases, so the functional
+ * suite reuses keep-alive connections instead of opening one per request. REST Assured only speaks HTTP/1.1,
+ * the http2 setting applies to the load clients only.
+ * Small bodies are buffered as they arrive. Larger or chunked bodies are streamed, and the next request of the same
+ * thread consumes whatever the test left unread of them, so a test that only checks the status code of a large
+ * response does not keep its connection leased. Such a body must be read before the thread sends its next request.
+ * */
+@SuppressWarnings("deprecation")
+public final class PooledRestAssured {
+
+    private static final long MAX_BUFFERED_BYTES = 8 * 1024;
+    //responses with a streamed body of the last request of a thread, their bodies are consumed before its next request
+    private static final ThreadLocal<List<HttpResponse>> STREAMED = ThreadLocal.withInitial(ArrayList::new);
+
+    private PooledRestAssured() {
+    }
+
+    /**
+     * @param settings - pool limits and keep-alive time
+     * @param stats - counts the requests sent and the connections opened by the pool
+     * @return RestAssuredConfig - config to assign to RestAssured.config
+     * */
+    public static RestAssuredConfig config(ConnectionSettings settings, ConnectionStats stats) {
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http", 80, new CountingSocketFactory(PlainSocketFactory.getSocketFactory(), stats)));
+        schemes.register(new Scheme("https", 443, new CountingSocketFactory(SSLSocketFactory.getSocketFactory(), stats)));
+
+        PoolingClientConnectionManager pool = new PoolingClientConnectionManager(schemes);
+        pool.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+        pool.setMaxTotal(settings.getMaxConnectionsTotal());
+
+        long keepAliveMillis = settings.getKeepAlive().toMillis();
+        int connectTimeoutMillis = (int) settings.getConnectTimeout().toMillis();
+        HttpClientConfig httpClient = HttpClientConfig.httpClientConfig()
+                .reuseHttpClientInstance()
+                .httpClientFactory(() -> {
+                    DefaultHttpClient client = new ReleasingHttpClient(pool);
+                    HttpConnectionParams.setConnectionTimeout(client.getParams(), connectTimeoutMillis);
+                    client.setKeepAliveStrategy((response, context) -> keepAliveMillis);
+                    client.addRequestInterceptor((request, context) -> stats.requestStarted());
+                    client.addResponseInterceptor((response, context) -> {
+                        // REST Assured reads the body lazily and holds the connection until then, buffering small
+                        // bodies returns the connection to the pool for test cases that only check the status code.
+                        // Large bodies, e.g. the catalog, are left streaming until the next request of the thread
+                        HttpEntity entity = response.getEntity();
+                        if (entity != null && entity.getContentLength() >= 0
+                                && entity.getContentLength() <= MAX_BUFFERED_BYTES) {
+                            response.setEntity(new BufferedHttpEntity(entity));
+                        } else if (entity != null) {
+                            //the entity that holds the connection is only set after the interceptors
+                            STREAMED.get().add(response);
+                        }
+                        stats.requestCompleted();
+                    });
+                    return client;
+                });
+        return RestAssuredConfig.config().httpClient(httpClient);
+    }
+
+    /**
+     * Consumes the streamed bodies the thread left unread before it sends its next request,
+     * which returns their connections to the pool
+     * */
+    private static void consumeStreamed() {
+        List<HttpResponse> streamed = STREAMED.get();
+        for (HttpResponse response : streamed) {
+            try {
+                EntityUtils.consume(response.getEntity());
+            } catch (IOException e) {
+                //the connection is closed instead of returned to the pool
+            }
+        }
+        streamed.clear();
+    }
+
+    /**
+     * Client that consumes the unread bodies of the thread before it leases a connection for the next request,
+     * every other execute method delegates to one of these
+     * */
+    private static class ReleasingHttpClient extends DefaultHttpClient {
+
+        private ReleasingHttpClient(PoolingClientConnectionManager pool) {
+            super(pool);
+        }
+
+        @Override
+        public CloseableHttpResponse execute(HttpHost target, HttpRequest request, HttpContext context)
+                throws IOException {
+            consumeStreamed();
+            return super.execute(target, request, context);
+        }
+
+        @Override
+        public CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException {
+            consumeStreamed();
+            return super.execute(request, context);
+        }
+
+        @Override
+        public CloseableHttpResponse execute(HttpHost target, HttpRequest request) throws IOException {
+            consumeStreamed();
+            return super.execute(target, request);
+        }
+    }
+
+    private static class CountingSocketFactory implements SchemeSocketFactory {
+
+        private final SchemeSocketFactory delegate;
+        private final ConnectionStats stats;
+
+        private CountingSocketFactory(SchemeSocketFactory delegate, ConnectionStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public Socket createSocket(HttpParams params) throws IOException {
+            return delegate.createSocket(params);
+        }
+
+        @Override
+        public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+            Socket connected = delegate.connectSocket(socket, remoteAddress, localAddress, params);
+            stats.connectionOpened();
+            return connected;
+        }
+
+        @Override
+        public boolean isSecure(Socket socket) throws IllegalArgumentException {
+            return delegate.isSecure(socket);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package util;
+
+import client.ConnectionSettings;
+import client.ConnectionStats;
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import verify.BookListValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PooledRestAssuredTest {
+
+    private static final int HEAD_BOOKS = 100;
+    private static final int BOOKS = 50_000;
+
+    private final CountDownLatch headRead = new CountDownLatch(1);
+    private final AtomicBoolean headReadInTime = new AtomicBoolean();
+    private final ConnectionStats stats = new ConnectionStats();
+    private final RestAssuredConfig config = PooledRestAssured.config(
+            ConnectionSettings.fromSystemProperties().maxConnectionsPerRoute(1).maxConnectionsTotal(1), stats);
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/status", exchange -> {
+            byte[] body = "{\"status\":404}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/large", exchange -> {
+            byte[] body = new byte[64 * 1024];
+            Arrays.fill(body, (byte) ' ');
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            //a query asks for a chunked response without content length
+            exchange.sendResponseHeaders(200, exchange.getRequestURI().getQuery() == null ? body.length : 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/books", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write('[');
+                writeBooks(out, 0, HEAD_BOOKS);
+                out.flush();
+                //the rest of the catalog is only sent once the client has read the head
+                try {
+                    headReadInTime.set(headRead.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writeBooks(out, HEAD_BOOKS, BOOKS);
+                out.write(']');
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static void writeBooks(OutputStream out, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            String book = String.format("%s{\"isbn\":%d,\"title\":\"Title %d\",\"author\":\"Author\","
+                    + "\"genre\":\"Genre\",\"price\":%d.5}", i == 0 ? "" : ",", 9780000000000L + i, i, i % 100);
+            out.write(book.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldReturnConnectionsOfUnreadSmallBodiesToThePool() {
+        //a single pooled connection, an unread body holding it would block the second request
+        for (int i = 0; i < 20; i++) {
+            Response response = given().config(config).baseUri(url).get("/status");
+
+            assertEquals(404, response.getStatusCode());
+        }
+
+        assertEquals(20, stats.getRequests());
+        assertEquals(1, stats.getConnectionsOpened());
+    }
+
+    @Test
+    public void shouldReturnConnectionsOfUnreadLargeBodiesToThePool() {
+        //a single pooled connection, the second request would wait forever for the connection of an unread body
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 10; i++) {
+                Response response = given().config(config).baseUri(url).get(i % 2 == 0 ? "/large" : "/large?chunked");
+
+                assertEquals(200, response.getStatusCode());
+            }
+        });
+
+        assertEquals(10, stats.getRequests());
+        assertEquals(1, stats.getConnectionsOpened());
+    }
+
+    @Test
+    public void shouldValidateTheCatalogWhileItIsStreamed() throws IOException {
+        Response response = given().config(config).baseUri(url).get("/books");
+        headRead.countDown();
+        BookListValidator.Result result;
+        try (InputStream body = response.asInputStream()) {
+            result = new BookListValidator().expectCount(BOOKS).validate(body);
+        }
+
+        //a buffering client only returns the response after the server gave up waiting and sent the whole catalog
+        assertTrue(headReadInTime.get(), "the catalog was buffered before the test got the response");
+        assertTrue(result.isValid(), result.toString());
+        assertEquals(BOOKS, result.getCount());
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import metrics.Endpoint;
+import metrics.LatencyRecorder;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latencies of the calls made by one test case, per endpoint, in the histograms of {@link LatencyRecorder}.
+ * Histograms are only allocated for endpoints the test case called.
+ * */
+public class TestLatencies implements ExtensionContext.Store.CloseableResource {
+
+    private final String testName;
+    private final List<LatencySlo> budgets;
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private boolean closed;
+
+    /**
+     * @param testName - display name used in the failure message
+     * @param budgets - budgets the calls are checked against
+     * */
+    public TestLatencies(String testName, List<LatencySlo> budgets) {
+        this.testName = testName;
+        this.budgets = budgets;
+    }
+
+    public synchronized void record(Endpoint endpoint, long elapsedNanos) {
+        if (closed) {
+            return;
+        }
+        long micros = Math.min(Math.max(0, elapsedNanos / 1000), LatencyRecorder.HIGHEST_TRACKABLE_MICROS);
+        histograms.computeIfAbsent(endpoint, e -> LatencyRecorder.newHistogram()).recordValue(micros);
+    }
+
+    /**
+     * @return long - number of calls recorded for the endpoint
+     * */
+    public synchronized long count(Endpoint endpoint) {
+        Histogram histogram = histograms.get(endpoint);
+        return histogram == null ? 0 : histogram.getTotalCount();
+    }
+
+    /**
+     * @return List - one description per endpoint and budget that was exceeded, empty if all budgets were met
+     * */
+    public synchronized List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        for (LatencySlo budget : budgets) {
+            List<Endpoint> endpoints = budget.endpoints().length == 0
+                    ? Arrays.asList(Endpoint.values()) : Arrays.asList(budget.endpoints());
+            for (Endpoint endpoint : endpoints) {
+                Histogram histogram = histograms.get(endpoint);
+                if (histogram == null || histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                //percentiles are rounded up to the precision of the histogram, a value equivalent to the budget meets it
+                long micros = histogram.lowestEquivalentValue(histogram.getValueAtPercentile(budget.percentile()));
+                if (micros > budget.millis() * 1000) {
+                    violations.add(String.format("%s p%s=%.2fms over %d calls, budget %dms", endpoint.getTemplate(),
+                            budget.percentile(), micros / 1000.0, histogram.getTotalCount(), budget.millis()));
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Stops recording and fails if a budget was exceeded, only the first call checks the budgets
+     * */
+    @Override
+    public void close() {
+        List<String> violations;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            violations = violations();
+        }
+        if (!violations.isEmpty()) {
+            throw new AssertionFailedError(testName + " exceeded its latency budget: "
+                    + String.join("; ", violations));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package verify;
+
+import org.junit.jupiter.api.Test;
+import util.BookDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookListValidatorTest {
+
+    private static final String FIRST = "{\"isbn\":8781234567891,\"title\":\"Chesapeake Blue\","
+            + "\"author\":\"Nora Roberts\",\"genre\":\"Literature & Fiction\",\"price\":25.95}";
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldAcceptAValidCatalog() throws IOException {
+        BookListValidator.Result result = new BookListValidator()
+                .expectCount(2)
+                .expectFirst(new BookDTO(8781234567891L, "Chesapeake Blue", "Nora Roberts",
+                        "Literature & Fiction", 25.95))
+                .validate(json("[" + FIRST + ",{\"isbn\":5,\"title\":\"Hamlet\",\"author\":\"William Shakespeare\","
+                        + "\"genre\":\"Tragedy\",\"price\":13}]"));
+
+        assertTrue(result.isValid(), result.toString());
+        assertEquals(2, result.getCount());
+    }
+
+    @Test
+    public void shouldLeaveTheStreamOpenForTheCaller() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream body = new ByteArrayInputStream(("[" + FIRST + "]").getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        BookListValidator.Result result = new BookListValidator().expectCount(1).validate(body);
+
+        assertTrue(result.isValid(), result.toString());
+        assertFalse(closed.get());
+    }
+
+    @Test
+    public void shouldReportSchemaViolationsAndWrongCount() throws IOException {
+        BookListValidator.Result result = new BookListValidator()
+                .expectCount(3)
+                .validate(json("[" + FIRST + ",{\"isbn\":\"5\",\"title\":\"Hamlet\",\"author\":123,"
+                        + "\"genre\":\"Tragedy\"}]"));
+
+        assertFalse(result.isValid());
+        assertEquals(4, result.getViolationCount());
+        assertTrue(result.getViolations().get(2).contains("missing fields [price]"));
+    }
+
+    @Test
+    public void shouldValidateAMillionBooksWithoutMaterializingThem() throws IOException {
+        int books = 1_000_000;
+        Enumeration<InputStream> parts = new Enumeration<>() {
+            private int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next <= books;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                int index = next++;
+                if (index == -1) {
+                    return json("[");
+                }
+                if (index == books) {
+                    return json("]");
+                }
+                return json((index == 0 ? "" : ",") + FIRST);
+            }
+        };
+
+        BookListValidator.Result result = new BookListValidator()
+                .expectCount(books)
+                .validate(new SequenceInputStream(parts));
+
+        assertTrue(result.isValid(), result.toString());
+    }
+}
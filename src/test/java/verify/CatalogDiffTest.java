@@ -0,0 +1,152 @@
+package verify;
+
+import data.BookTable;
+import data.CatalogGenerator;
+import org.junit.jupiter.api.Test;
+import util.BookDTO;
+import util.BookJsonCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CatalogDiffTest {
+
+    private static final CatalogGenerator CATALOG = new CatalogGenerator(200_000, 5);
+
+    private static List<BookDTO> books(int count) {
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            books.add(CATALOG.book(i));
+        }
+        return books;
+    }
+
+    private static ByteArrayInputStream json(List<BookDTO> books) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BookJsonCodec.writeList(out, books);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Test
+    public void shouldStoreBooksInColumns() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            BookTable table = BookTable.of(books(1_000).iterator(), 1_000, offHeap);
+            assertEquals(1_000, table.size());
+            BookDTO book = CATALOG.book(123);
+            int row = table.rowOf(book.getIsbn());
+            assertEquals(123, row);
+            assertEquals(book.toString(), table.get(row).toString());
+            assertEquals(-1, table.rowOf(42));
+            assertThrows(IllegalArgumentException.class, () -> table.add(book));
+            assertEquals(1_000, table.add(CATALOG.book(1_000)));
+            assertEquals(CATALOG.book(5).toString(), table.get(5).toString());
+        }
+    }
+
+    @Test
+    public void shouldStoreTitlesAsUtf8() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            BookTable table = new BookTable(1, offHeap);
+            String[] titles = {"Caf\u00e9 au lait", "\uD834\uDD1E Music", null, "", "x".repeat(300)};
+            for (int i = 0; i < titles.length; i++) {
+                table.add(i + 1, titles[i], "Author", "Genre", 1.0);
+            }
+
+            for (int i = 0; i < titles.length; i++) {
+                assertEquals(titles[i], table.title(i));
+                if (titles[i] != null) {
+                    char[] characters = ("ab" + titles[i] + "cd").toCharArray();
+                    assertTrue(table.titleMatches(i, characters, 2, titles[i].length()), titles[i]);
+                    assertEquals(titles[i].isEmpty(), table.titleMatches(i, characters, 1, titles[i].length()));
+                    assertFalse(table.titleMatches(i, characters, 2, titles[i].length() + 1), titles[i]);
+                }
+            }
+            assertFalse(table.titleMatches(2, new char[0], 0, 0));
+            assertFalse(table.titleMatches(0, "Cafe au lait".toCharArray(), 0, 12));
+        }
+    }
+
+    @Test
+    public void shouldMatchAShuffledCatalog() throws IOException {
+        List<BookDTO> expected = books(200_000);
+        BookTable table = BookTable.of(expected.iterator(), expected.size(), true);
+        List<BookDTO> actual = new ArrayList<>(expected);
+        Collections.shuffle(actual, new Random(1));
+
+        CatalogDiff.Result result = CatalogDiff.diff(table, json(actual));
+
+        assertTrue(result.isIdentical(), result.toString());
+        assertEquals(200_000, result.getMatched());
+    }
+
+    @Test
+    public void shouldReportEveryKindOfDifference() throws IOException {
+        List<BookDTO> expected = books(100);
+        BookTable table = BookTable.of(expected.iterator(), 100, false);
+        List<BookDTO> actual = new ArrayList<>(expected.subList(0, 97));
+        actual.get(5).setPrice(actual.get(5).getPrice() + 1);
+        actual.get(6).setTitle(actual.get(6).getTitle() + "!");
+        actual.add(CATALOG.book(150));
+        actual.add(expected.get(0));
+
+        CatalogDiff.Result result = CatalogDiff.diff(table, json(actual));
+
+        assertEquals(95, result.getMatched());
+        assertEquals(2, result.count(CatalogDiff.Kind.MISMATCHED));
+        assertEquals(3, result.count(CatalogDiff.Kind.MISSING));
+        assertEquals(1, result.count(CatalogDiff.Kind.UNEXPECTED));
+        assertEquals(1, result.count(CatalogDiff.Kind.DUPLICATE));
+    }
+
+    @Test
+    public void shouldNotMatchABookWithoutIsbnToTheFirstRow() throws IOException {
+        List<BookDTO> expected = books(2);
+        BookTable table = BookTable.of(expected.iterator(), 2, false);
+        String body = "[{\"isbn\":null,\"title\":\"t\",\"author\":\"a\",\"genre\":\"g\",\"price\":1.0},"
+                + "{\"isbn\":0,\"title\":\"t\",\"author\":\"a\",\"genre\":\"g\",\"price\":1.0},"
+                + new String(BookJsonCodec.toBytes(expected.get(0)), StandardCharsets.UTF_8) + ","
+                + new String(BookJsonCodec.toBytes(expected.get(1)), StandardCharsets.UTF_8) + "]";
+
+        CatalogDiff.Result result = CatalogDiff.diff(table, new ByteArrayInputStream(
+                body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getMatched(), result.toString());
+        assertEquals(2, result.count(CatalogDiff.Kind.UNEXPECTED), result.toString());
+        assertEquals(0, result.count(CatalogDiff.Kind.DUPLICATE), result.toString());
+        assertEquals(-1, table.rowOf(0));
+        assertTrue(new ExpectedCatalog(table).check(0, 404, null));
+    }
+
+    @Test
+    public void shouldCheckSingleBookResponsesAgainstTheExpectedCatalog() throws IOException {
+        List<BookDTO> books = books(10);
+        ExpectedCatalog expected = new ExpectedCatalog(BookTable.of(books.iterator(), 10, false));
+        BookDTO book = books.get(3);
+
+        assertTrue(expected.check(book.getIsbn(), 200, BookJsonCodec.toBytes(book)));
+        book.setAuthor("Someone Else");
+        assertFalse(expected.check(book.getIsbn(), 200, BookJsonCodec.toBytes(book)));
+        expected.deleted(book.getIsbn());
+        assertTrue(expected.check(book.getIsbn(), 404, null));
+        assertFalse(expected.check(book.getIsbn(), 200, BookJsonCodec.toBytes(book)));
+        expected.created(book.getIsbn());
+        assertTrue(expected.check(book.getIsbn(), 200, BookJsonCodec.toBytes(books(10).get(3))));
+
+        assertEquals(5, expected.getChecked());
+        assertEquals(1, expected.getWrongStatus());
+        assertEquals(1, expected.getWrongBody());
+        //only the changed book was parsed, the others matched by their digest
+        assertEquals(1, expected.getParsed());
+    }
+}
@@ -0,0 +1,105 @@
+package verify;
+
+import data.BookTable;
+import data.CatalogGenerator;
+import org.junit.jupiter.api.Test;
+import server.BookStore;
+import server.StandInBooksServer;
+import util.BookDTO;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseDigestTest {
+
+    private static final CatalogGenerator CATALOG = new CatalogGenerator(1_000, 3);
+
+    @Test
+    public void shouldDigestABodyDeliveredInParts() throws Exception {
+        byte[] body = "{\"isbn\":9780000000001,\"title\":\"A title\",\"author\":\"An author\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        HttpResponse.BodySubscriber<ResponseDigest> subscriber = ResponseDigest.handler().apply(null);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        List<ByteBuffer> parts = new ArrayList<>();
+        for (int i = 0; i < body.length; i += 7) {
+            parts.add(ByteBuffer.wrap(body, i, Math.min(7, body.length - i)));
+        }
+        subscriber.onNext(parts.subList(0, 3));
+        subscriber.onNext(parts.subList(3, parts.size()));
+        subscriber.onComplete();
+
+        ResponseDigest digest = subscriber.getBody().toCompletableFuture().get();
+
+        assertEquals(ResponseDigest.of(body), digest.getDigest());
+        assertEquals(body.length, digest.getLength());
+        assertArrayEquals(body, digest.bytes());
+        body[body.length - 2] = 'X';
+        assertNotEquals(ResponseDigest.of(body), digest.getDigest());
+    }
+
+    @Test
+    public void shouldParseOnlyBodiesWithAnotherDigest() {
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            books.add(CATALOG.book(i));
+        }
+        ExpectedCatalog expected = new ExpectedCatalog(BookTable.of(books.iterator(), 10, true));
+        BookDTO book = books.get(4);
+        String reordered = String.format(
+                "{\"price\":%s,\"genre\":\"%s\",\"author\":\"%s\",\"title\":\"%s\",\"isbn\":%d}",
+                book.getPrice(), book.getGenre(), book.getAuthor(), book.getTitle(), book.getIsbn());
+
+        assertTrue(expected.check(book.getIsbn(), 200, reordered.getBytes(StandardCharsets.UTF_8)));
+        assertFalse(expected.check(book.getIsbn(), 200, reordered.replace("isbn", "id")
+                .getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, expected.getParsed());
+        assertEquals(1, expected.getWrongBody());
+    }
+
+    @Test
+    public void shouldMatchTheResponsesOfTheApiByTheirDigest() throws Exception {
+        BookStore store = new BookStore();
+        List<BookDTO> books = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            books.add(CATALOG.book(i));
+            store.create(CATALOG.book(i));
+        }
+        ExpectedCatalog expected = new ExpectedCatalog(BookTable.of(books.iterator(), 50, false));
+        HttpClient client = HttpClient.newHttpClient();
+        try (StandInBooksServer server = new StandInBooksServer(0, "/api/v1/books", store, 2)) {
+            server.start();
+            for (BookDTO book : books) {
+                HttpResponse<ResponseDigest> response = client.send(HttpRequest.newBuilder(
+                        URI.create(server.getUrl() + "/" + book.getIsbn())).build(), ResponseDigest.handler());
+
+                assertTrue(expected.checkDigest(book.getIsbn(), response.statusCode(), response.body()),
+                        expected.toString());
+            }
+        }
+
+        assertEquals(50, expected.getChecked());
+        assertEquals(0, expected.getParsed(), expected.toString());
+    }
+}